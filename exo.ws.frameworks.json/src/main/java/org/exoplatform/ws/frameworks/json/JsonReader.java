@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.ws.frameworks.json;
+
+import org.exoplatform.ws.frameworks.json.impl.JsonException;
+
+/**
+ * Pull style JSON reader. Unlike {@link JsonParser} it does not push events to
+ * handler but gives them one by one to caller, so caller may bind values
+ * directly to own objects without building tree of JSON values.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public interface JsonReader
+{
+
+   /**
+    * Events of JSON reader.
+    */
+   public enum Event {
+      /** Start of JSON object '{'. */
+      START_OBJECT,
+
+      /** End of JSON object '}'. */
+      END_OBJECT,
+
+      /** Start of JSON array '['. */
+      START_ARRAY,
+
+      /** End of JSON array ']'. */
+      END_ARRAY,
+
+      /** Key of JSON object, see {@link JsonReader#getString()}. */
+      KEY,
+
+      /** String value, see {@link JsonReader#getString()}. */
+      STRING,
+
+      /** Numeric value which may be represented as long, see {@link JsonReader#getLong()}. */
+      LONG,
+
+      /** Numeric value which may be represented as double, see {@link JsonReader#getDouble()}. */
+      DOUBLE,
+
+      /** Boolean value, see {@link JsonReader#getBoolean()}. */
+      BOOLEAN,
+
+      /** Null value. */
+      NULL
+   }
+
+   /**
+    * Read next event.
+    *
+    * @return next event or <code>null</code> if end of stream reached
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs
+    */
+   Event next() throws JsonException;
+
+   /**
+    * @return key if last event is {@link Event#KEY} or value if last event is
+    *         {@link Event#STRING}
+    * @throws IllegalStateException if last event is not KEY or STRING
+    */
+   String getString();
+
+   /**
+    * @return value if last event is {@link Event#LONG}
+    * @throws IllegalStateException if last event is not LONG
+    */
+   long getLong();
+
+   /**
+    * @return value if last event is {@link Event#DOUBLE}
+    * @throws IllegalStateException if last event is not DOUBLE
+    */
+   double getDouble();
+
+   /**
+    * @return value if last event is {@link Event#BOOLEAN}
+    * @throws IllegalStateException if last event is not BOOLEAN
+    */
+   boolean getBoolean();
+
+   /**
+    * Skip value which starts with last event. If last event is
+    * {@link Event#START_OBJECT} or {@link Event#START_ARRAY} then all events up
+    * to corresponding end of object or array are skipped, otherwise this
+    * method does nothing.
+    *
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs
+    */
+   void skipValue() throws JsonException;
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.ws.frameworks.json;
+
+/**
+ * JsonHandler which gets values already converted by parser. If handler
+ * implements this interface then parser calls one of methods of this interface
+ * for each value instead of {@link JsonHandler#characters(char[])}.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public interface TypedJsonHandler extends JsonHandler
+{
+
+   /**
+    * String value found in the input JSON stream. Not quoted values which
+    * are not numeric, boolean or null are passed to this method also.
+    *
+    * @param value the value, quotes removed and escape sequences are decoded
+    */
+   void stringValue(String value);
+
+   /**
+    * Numeric value which may be represented as long found in the input JSON
+    * stream.
+    *
+    * @param value the value
+    */
+   void longValue(long value);
+
+   /**
+    * Numeric value which may be represented as double only found in the input
+    * JSON stream.
+    *
+    * @param value the value
+    */
+   void doubleValue(double value);
+
+   /**
+    * Boolean value found in the input JSON stream.
+    *
+    * @param value the value
+    */
+   void booleanValue(boolean value);
+
+   /**
+    * Null value found in the input JSON stream.
+    */
+   void nullValue();
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.ws.frameworks.json.impl;
+
+import org.exoplatform.commons.utils.SecurityHelper;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Getters and setters of Java Bean which are used by {@link JsonGeneratorImpl}
+ * and {@link ObjectBuilder}. Looking for them with {@link Class#getMethods()}
+ * costs more than writing or reading of small bean, so they are found once
+ * for each class. Info keeps methods of its class, so class is not unloaded
+ * until info is released. Infos are softly referenced and released by garbage
+ * collector when memory is low.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+final class JavaBeanInfo
+{
+
+   /** Property of Java Bean. */
+   static final class Property
+   {
+      /** Name of property, it is used as key in JSON object. */
+      final String name;
+
+      /** Getter or setter. */
+      final Method method;
+
+      /** Type of property. */
+      final Class<?> type;
+
+      /** Generic type of property. */
+      final Type genericType;
+
+      Property(String name, Method method, Class<?> type, Type genericType)
+      {
+         this.name = name;
+         this.method = method;
+         this.type = type;
+         this.genericType = genericType;
+      }
+   }
+
+   private static final Map<Class<?>, SoftReference<JavaBeanInfo>> CACHE =
+      new WeakHashMap<Class<?>, SoftReference<JavaBeanInfo>>();
+
+   /**
+    * Get info about specified class.
+    *
+    * @param clazz class of Java Bean
+    * @return info about class
+    */
+   static JavaBeanInfo getInfo(Class<?> clazz)
+   {
+      synchronized (CACHE)
+      {
+         SoftReference<JavaBeanInfo> ref = CACHE.get(clazz);
+         JavaBeanInfo info = ref != null ? ref.get() : null;
+         if (info != null)
+         {
+            return info;
+         }
+      }
+      // Introspection may be slow, so lock is not held. Infos created by few
+      // threads for the same class are equal, any of them may be cached.
+      JavaBeanInfo info = new JavaBeanInfo(clazz);
+      synchronized (CACHE)
+      {
+         CACHE.put(clazz, new SoftReference<JavaBeanInfo>(info));
+      }
+      return info;
+   }
+
+   /**
+    * Getters of properties which are not transient. There is only one getter
+    * for each property.
+    */
+   final List<Property> getters;
+
+   /** Setters of properties. */
+   final List<Property> setters;
+
+   /** Setters of properties mapped to names of properties. */
+   final Map<String, Property> settersMap;
+
+   private JavaBeanInfo(Class<?> clazz)
+   {
+      Set<String> transientFields = getTransientFields(clazz);
+      List<Property> getters = new ArrayList<Property>();
+      Map<String, Integer> gettersIndex = new HashMap<String, Integer>();
+      List<Property> setters = new ArrayList<Property>();
+      Map<String, Property> settersMap = new HashMap<String, Property>();
+      for (Method method : clazz.getMethods())
+      {
+         String methodName = method.getName();
+         Class<?>[] parameterTypes = method.getParameterTypes();
+         /*
+          * Getter must be as follow:
+          * 1. Name starts from "get" plus at least one character or
+          * starts from "is" plus one more character and return boolean type;
+          * 2. Must be without parameters;
+          * 3. Not be in SKIP_METHODS set.
+          */
+         String key = null;
+         if (!JsonGeneratorImpl.SKIP_METHODS.contains(methodName) && parameterTypes.length == 0)
+         {
+            if (methodName.startsWith("get") && methodName.length() > 3)
+            {
+               key = methodName.substring(3);
+            }
+            else if (methodName.startsWith("is") && methodName.length() > 2
+               && (method.getReturnType() == Boolean.class || method.getReturnType() == boolean.class))
+            {
+               key = methodName.substring(2);
+            }
+            if (key != null)
+            {
+               key = toPropertyName(key);
+               // Check is this field in list of transient field.
+               if (!transientFields.contains(key))
+               {
+                  Property getter = new Property(key, method, method.getReturnType(), method.getGenericReturnType());
+                  Integer index = gettersIndex.get(key);
+                  if (index == null)
+                  {
+                     gettersIndex.put(key, getters.size());
+                     getters.add(getter);
+                  }
+                  else
+                  {
+                     // Few getters for the same property, e.g. getX and isX. Keep
+                     // position of first and the last one, in the same way as
+                     // JSON object does.
+                     getters.set(index, getter);
+                  }
+               }
+            }
+         }
+         // 3 is length of prefix 'set'
+         else if (!ObjectBuilder.SKIP_METHODS.contains(methodName) && methodName.startsWith("set")
+            && parameterTypes.length == 1 && methodName.length() > 3)
+         {
+            key = toPropertyName(methodName.substring(3));
+            Property setter = new Property(key, method, parameterTypes[0], method.getGenericParameterTypes()[0]);
+            setters.add(setter);
+            if (!settersMap.containsKey(key))
+            {
+               settersMap.put(key, setter);
+            }
+         }
+      }
+      this.getters = Collections.unmodifiableList(getters);
+      this.setters = Collections.unmodifiableList(setters);
+      this.settersMap = Collections.unmodifiableMap(settersMap);
+   }
+
+   /**
+    * @param s name of method without prefix
+    * @return name of property, first letter of name to lower case
+    */
+   private static String toPropertyName(String s)
+   {
+      return (s.length() > 1) ? Character.toLowerCase(s.charAt(0)) + s.substring(1) : s.toLowerCase();
+   }
+
+   /**
+    * Check fields in class which marked as 'transient'. Transient fields will
+    * be not serialized in JSON representation.
+    *
+    * @param clazz the class.
+    * @return set of fields which must be skiped.
+    */
+   private static Set<String> getTransientFields(final Class<?> clazz)
+   {
+      Set<String> set = new HashSet<String>();
+
+      Field[] fields = SecurityHelper.doPrivilegedAction(new PrivilegedAction<Field[]>()
+      {
+         public Field[] run()
+         {
+            return clazz.getDeclaredFields();
+         }
+      });
+
+      for (Field f : fields)
+      {
+         if (Modifier.isTransient(f.getModifiers()))
+         {
+            set.add(f.getName());
+         }
+      }
+      return set;
+   }
+
+}
@@ -18,9 +18,7 @@
  */
 package org.exoplatform.ws.frameworks.json.impl;
 
-import org.exoplatform.services.log.ExoLogger;
-import org.exoplatform.services.log.Log;
-import org.exoplatform.ws.frameworks.json.JsonHandler;
+import org.exoplatform.ws.frameworks.json.TypedJsonHandler;
 import org.exoplatform.ws.frameworks.json.value.JsonValue;
 import org.exoplatform.ws.frameworks.json.value.impl.ArrayValue;
 import org.exoplatform.ws.frameworks.json.value.impl.BooleanValue;
@@ -34,11 +32,9 @@ import org.exoplatform.ws.frameworks.json.value.impl.StringValue;
  * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
  * @version $Id: JsonDefaultHandler.java 34417 2009-07-23 14:42:56Z dkatayev $
  */
-public class JsonDefaultHandler implements JsonHandler
+public class JsonDefaultHandler implements TypedJsonHandler
 {
 
-   private static final Log LOG = ExoLogger.getLogger("exo.ws.frameworks.json.JsonDefaultHandler");
-
    /** The key. */
    private String key;
 
@@ -59,14 +55,7 @@ public class JsonDefaultHandler implements JsonHandler
     */
    public void characters(char[] characters)
    {
-      if (current.isObject())
-      {
-         current.addElement(key, parseCharacters(characters));
-      }
-      else if (current.isArray())
-      {
-         current.addElement(parseCharacters(characters));
-      }
+      addValue(parseCharacters(characters));
    }
 
    /**
@@ -157,6 +146,63 @@ public class JsonDefaultHandler implements JsonHandler
       return current;
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   public void stringValue(String value)
+   {
+      addValue(new StringValue(value));
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void longValue(long value)
+   {
+      addValue(new LongValue(value));
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void doubleValue(double value)
+   {
+      addValue(new DoubleValue(value));
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void booleanValue(boolean value)
+   {
+      addValue(new BooleanValue(value));
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void nullValue()
+   {
+      addValue(new NullValue());
+   }
+
+   /**
+    * Add value to current object or array.
+    *
+    * @param value the value
+    */
+   private void addValue(JsonValue value)
+   {
+      if (current.isObject())
+      {
+         current.addElement(key, value);
+      }
+      else if (current.isArray())
+      {
+         current.addElement(value);
+      }
+   }
+
    /**
     * Parse characters array dependent of context.
     *
@@ -170,95 +216,22 @@ public class JsonDefaultHandler implements JsonHandler
       {
          return new StringValue(s.substring(1, s.length() - 1));
       }
-      else if ("true".equalsIgnoreCase(new String(characters)) || "false".equalsIgnoreCase(s))
+      else if ("true".equalsIgnoreCase(s) || "false".equalsIgnoreCase(s))
       {
-         return new BooleanValue(Boolean.parseBoolean(new String(characters)));
+         return new BooleanValue(Boolean.parseBoolean(s));
       }
-      else if ("null".equalsIgnoreCase(new String(characters)))
+      else if ("null".equalsIgnoreCase(s))
       {
          return new NullValue();
       }
-      else
+      Number n = JsonUtils.parseNumber(s);
+      if (n instanceof Long)
+      {
+         return new LongValue(n.longValue());
+      }
+      if (n instanceof Double)
       {
-         char c = characters[0];
-         if ((c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+')
-         {
-            // first try read as hex is start from '0'
-            if (c == '0')
-            {
-               if (s.length() > 2 && (s.charAt(1) == 'x' || s.charAt(1) == 'X'))
-               {
-                  try
-                  {
-                     return new LongValue(Long.parseLong(s.substring(2), 16));
-                  }
-                  catch (NumberFormatException e)
-                  {
-                     if (LOG.isTraceEnabled())
-                     {
-                        LOG.trace("An exception occurred: " + e.getMessage());
-                     }
-                  }
-               }
-               else
-               {
-                  // as oct long
-                  try
-                  {
-                     return new LongValue(Long.parseLong(s.substring(1), 8));
-                  }
-                  catch (NumberFormatException e)
-                  {
-                     // if fail, then it is not oct
-                     try
-                     {
-                        //try as dec long
-                        return new LongValue(Long.parseLong(s));
-                     }
-                     catch (NumberFormatException l)
-                     {
-                        try
-                        {
-                           // and last try as double
-                           return new DoubleValue(Double.parseDouble(s));
-                        }
-                        catch (NumberFormatException d)
-                        {
-                           if (LOG.isTraceEnabled())
-                           {
-                              LOG.trace("An exception occurred: " + d.getMessage());
-                           }
-                        }
-                     }
-                     // nothing to do!
-                  }
-               }
-            }
-            else
-            {
-               // if char set start not from '0'
-               try
-               {
-                  // try as long
-                  return new LongValue(Long.parseLong(s));
-               }
-               catch (NumberFormatException l)
-               {
-                  try
-                  {
-                     // try as double if above failed
-                     return new DoubleValue(Double.parseDouble(s));
-                  }
-                  catch (NumberFormatException d)
-                  {
-                     if (LOG.isTraceEnabled())
-                     {
-                        LOG.trace("An exception occurred: " + d.getMessage());
-                     }
-                  }
-               }
-            }
-         }
+         return new DoubleValue(n.doubleValue());
       }
       // if can't parse return as string
       return new StringValue(s);
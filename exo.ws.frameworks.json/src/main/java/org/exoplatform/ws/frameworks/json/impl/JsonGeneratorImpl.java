@@ -18,8 +18,8 @@
  */
 package org.exoplatform.ws.frameworks.json.impl;
 
-import org.exoplatform.commons.utils.SecurityHelper;
 import org.exoplatform.ws.frameworks.json.JsonGenerator;
+import org.exoplatform.ws.frameworks.json.JsonWriter;
 import org.exoplatform.ws.frameworks.json.impl.JsonUtils.Types;
 import org.exoplatform.ws.frameworks.json.value.JsonValue;
 import org.exoplatform.ws.frameworks.json.value.impl.ArrayValue;
@@ -32,14 +32,11 @@ import org.exoplatform.ws.frameworks.json.value.impl.StringValue;
 
 import java.io.StringReader;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -141,65 +138,293 @@ public class JsonGeneratorImpl implements JsonGenerator
     */
    public JsonValue createJsonObject(Object object) throws JsonException
    {
-      Class<?> clazz = object.getClass();
-      Method[] methods = clazz.getMethods();
-      Set<String> transientFields = getTransientFields(clazz);
       JsonValue jsonRootValue = new ObjectValue();
-      for (Method method : methods)
+      for (JavaBeanInfo.Property getter : JavaBeanInfo.getInfo(object.getClass()).getters)
       {
-         String methodName = method.getName();
-         /*
-          * Method must be as follow:
-          * 1. Name starts from "get" plus at least one character or
-          * starts from "is" plus one more character and return boolean type;
-          * 2. Must be without parameters;
-          * 3. Not be in SKIP_METHODS set.
-          */
-         String key = null;
-         if (!SKIP_METHODS.contains(methodName) && method.getParameterTypes().length == 0)
+         try
          {
-            if (methodName.startsWith("get") && methodName.length() > 3)
+            // Get result of invoke method get...
+            Object invokeResult = getter.method.invoke(object, new Object[0]);
+            if (JsonUtils.getType(invokeResult) != null)
             {
-               key = methodName.substring(3);
+               jsonRootValue.addElement(getter.name, createJsonValue(invokeResult));
             }
-            else if (methodName.startsWith("is") && methodName.length() > 2
-               && (method.getReturnType() == Boolean.class || method.getReturnType() == boolean.class))
+            else
             {
-               key = methodName.substring(2);
+               jsonRootValue.addElement(getter.name, createJsonObject(invokeResult));
             }
          }
-         if (key != null)
+         catch (InvocationTargetException e)
          {
-            // First letter of key to lower case.
-            key = (key.length() > 1) ? Character.toLowerCase(key.charAt(0)) + key.substring(1) : key.toLowerCase();
-            // Check is this field in list of transient field.
-            if (!transientFields.contains(key))
+            throw new JsonException(e.getMessage(), e);
+         }
+         catch (IllegalAccessException e)
+         {
+            throw new JsonException(e.getMessage(), e);
+         }
+      }
+      return jsonRootValue;
+   }
+
+   /**
+    * Write JSON array from specified collection directly to writer. Collection
+    * is not copied and JSON values are not created.
+    *
+    * @param collection source collection
+    * @param writer JSON writer
+    * @throws JsonException if collection can't be transformed in JSON
+    *         representation or i/o error occurs
+    * @see #createJsonArray(Collection)
+    */
+   public void writeJsonArray(Collection<?> collection, JsonWriter writer) throws JsonException
+   {
+      writeJsonValue(collection, writer);
+   }
+
+   /**
+    * Write JSON array from elements of specified iterator directly to writer.
+    * Elements are written as they are got from iterator, so they do not need
+    * to be in memory at the same time.
+    *
+    * @param iterator source of elements
+    * @param writer JSON writer
+    * @throws JsonException if element can't be transformed in JSON
+    *         representation or i/o error occurs
+    */
+   public void writeJsonArray(Iterator<?> iterator, JsonWriter writer) throws JsonException
+   {
+      writer.writeStartArray();
+      while (iterator.hasNext())
+      {
+         writeElement(iterator.next(), writer);
+      }
+      writer.writeEndArray();
+   }
+
+   /**
+    * Write JSON array from specified object directly to writer. Parameter
+    * <code>array</code> must be array.
+    *
+    * @param array source array
+    * @param writer JSON writer
+    * @throws JsonException if array can't be transformed in JSON
+    *         representation or i/o error occurs
+    * @see #createJsonArray(Object)
+    */
+   public void writeJsonArray(Object array, JsonWriter writer) throws JsonException
+   {
+      if (array == null)
+      {
+         writer.writeNull();
+         return;
+      }
+      Types t = JsonUtils.getType(array);
+      if (t == Types.ARRAY_BOOLEAN || t == Types.ARRAY_BYTE || t == Types.ARRAY_SHORT || t == Types.ARRAY_INT
+         || t == Types.ARRAY_LONG || t == Types.ARRAY_FLOAT || t == Types.ARRAY_DOUBLE || t == Types.ARRAY_CHAR
+         || t == Types.ARRAY_STRING || t == Types.ARRAY_OBJECT)
+      {
+         writeJsonValue(array, writer);
+      }
+      else
+      {
+         throw new JsonException("Invalid argument, must be array.");
+      }
+   }
+
+   /**
+    * Write JSON object from specified map directly to writer.
+    *
+    * @param map source map
+    * @param writer JSON writer
+    * @throws JsonException if map can't be transformed in JSON representation
+    *         or i/o error occurs
+    * @see #createJsonObjectFromMap(Map)
+    */
+   public void writeJsonObjectFromMap(Map<String, ?> map, JsonWriter writer) throws JsonException
+   {
+      writeJsonValue(map, writer);
+   }
+
+   /**
+    * Write JSON object from specified object directly to writer. Object must be
+    * conform with java bean structure. Output is the same as output of
+    * {@link JsonValue#writeTo(JsonWriter)} for result of
+    * {@link #createJsonObject(Object)} but JSON values are not created.
+    *
+    * @param object source object
+    * @param writer JSON writer
+    * @throws JsonException if object can't be transformed in JSON
+    *         representation or i/o error occurs
+    */
+   public void writeJsonObject(Object object, JsonWriter writer) throws JsonException
+   {
+      writer.writeStartObject();
+      for (JavaBeanInfo.Property getter : JavaBeanInfo.getInfo(object.getClass()).getters)
+      {
+         Object invokeResult;
+         try
+         {
+            // Get result of invoke method get...
+            invokeResult = getter.method.invoke(object, new Object[0]);
+         }
+         catch (InvocationTargetException e)
+         {
+            throw new JsonException(e.getMessage(), e);
+         }
+         catch (IllegalAccessException e)
+         {
+            throw new JsonException(e.getMessage(), e);
+         }
+         writer.writeKey(getter.name);
+         writeElement(invokeResult, writer);
+      }
+      writer.writeEndObject();
+   }
+
+   /**
+    * Write value of property or element of array, collection or map.
+    */
+   private void writeElement(Object object, JsonWriter writer) throws JsonException
+   {
+      if (JsonUtils.getType(object) != null)
+      {
+         writeJsonValue(object, writer);
+      }
+      else
+      {
+         writeJsonObject(object, writer);
+      }
+   }
+
+   /**
+    * Write Java object to writer in the same way as JsonValue created by
+    * {@link #createJsonValue(Object)} writes itself.
+    *
+    * @param object source object.
+    * @param writer JSON writer
+    * @throws JsonException if any errors occurs.
+    */
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   private void writeJsonValue(Object object, JsonWriter writer) throws JsonException
+   {
+      Types type = JsonUtils.getType(object);
+      switch (type)
+      {
+         case NULL :
+            writer.writeNull();
+            break;
+         case BOOLEAN :
+            writer.writeValue(((Boolean)object).booleanValue());
+            break;
+         case BYTE :
+         case SHORT :
+         case INT :
+         case LONG :
+            writer.writeValue(((Number)object).longValue());
+            break;
+         case FLOAT :
+         case DOUBLE :
+            writer.writeValue(((Number)object).doubleValue());
+            break;
+         case CHAR :
+            writer.writeString(Character.toString((Character)object));
+            break;
+         case STRING :
+            writer.writeString((String)object);
+            break;
+         case ENUM :
+            writer.writeString(((Enum)object).name());
+            break;
+         case CLASS :
+            writer.writeString(((Class)object).getName());
+            break;
+         case ARRAY_BOOLEAN : {
+            writer.writeStartArray();
+            int length = Array.getLength(object);
+            for (int i = 0; i < length; i++)
             {
-               try
-               {
-                  // Get result of invoke method get...
-                  Object invokeResult = method.invoke(object, new Object[0]);
-                  if (JsonUtils.getType(invokeResult) != null)
-                  {
-                     jsonRootValue.addElement(key, createJsonValue(invokeResult));
-                  }
-                  else
-                  {
-                     jsonRootValue.addElement(key, createJsonObject(invokeResult));
-                  }
-               }
-               catch (InvocationTargetException e)
-               {
-                  throw new JsonException(e.getMessage(), e);
-               }
-               catch (IllegalAccessException e)
-               {
-                  throw new JsonException(e.getMessage(), e);
-               }
+               writer.writeValue(Array.getBoolean(object, i));
+            }
+            writer.writeEndArray();
+            break;
+         }
+         case ARRAY_BYTE :
+         case ARRAY_SHORT :
+         case ARRAY_INT :
+         case ARRAY_LONG : {
+            writer.writeStartArray();
+            int length = Array.getLength(object);
+            for (int i = 0; i < length; i++)
+            {
+               writer.writeValue(Array.getLong(object, i));
+            }
+            writer.writeEndArray();
+            break;
+         }
+         case ARRAY_FLOAT :
+         case ARRAY_DOUBLE : {
+            writer.writeStartArray();
+            int length = Array.getLength(object);
+            for (int i = 0; i < length; i++)
+            {
+               writer.writeValue(Array.getDouble(object, i));
+            }
+            writer.writeEndArray();
+            break;
+         }
+         case ARRAY_CHAR : {
+            writer.writeStartArray();
+            int length = Array.getLength(object);
+            for (int i = 0; i < length; i++)
+            {
+               writer.writeString(Character.toString(Array.getChar(object, i)));
+            }
+            writer.writeEndArray();
+            break;
+         }
+         case ARRAY_STRING : {
+            writer.writeStartArray();
+            int length = Array.getLength(object);
+            for (int i = 0; i < length; i++)
+            {
+               writer.writeString((String)Array.get(object, i));
+            }
+            writer.writeEndArray();
+            break;
+         }
+         case ARRAY_OBJECT : {
+            writer.writeStartArray();
+            int length = Array.getLength(object);
+            for (int i = 0; i < length; i++)
+            {
+               writeElement(Array.get(object, i), writer);
+            }
+            writer.writeEndArray();
+            break;
+         }
+         case COLLECTION : {
+            writer.writeStartArray();
+            for (Object o : (Collection<?>)object)
+            {
+               writeElement(o, writer);
             }
+            writer.writeEndArray();
+            break;
          }
+         case MAP : {
+            writer.writeStartObject();
+            for (Map.Entry<String, Object> e : ((Map<String, Object>)object).entrySet())
+            {
+               writer.writeKey(e.getKey());
+               writeElement(e.getValue(), writer);
+            }
+            writer.writeEndObject();
+            break;
+         }
+         default :
+            // Must not be here!
+            break;
       }
-      return jsonRootValue;
    }
 
    /**
@@ -377,33 +602,4 @@ public class JsonGeneratorImpl implements JsonGenerator
       }
    }
 
-   /**
-    * Check fields in class which marked as 'transient'. Transient fields will
-    * be not serialized in JSON representation.
-    *
-    * @param clazz the class.
-    * @return set of fields which must be skiped.
-    */
-   private static Set<String> getTransientFields(final Class<?> clazz)
-   {
-      Set<String> set = new HashSet<String>();
-      
-      Field[] fields = SecurityHelper.doPrivilegedAction(new PrivilegedAction<Field[]>()
-      {
-         public Field[] run()
-         {
-            return clazz.getDeclaredFields();
-         }
-      });
-
-      for (Field f : fields)
-      {
-         if (Modifier.isTransient(f.getModifiers()))
-         {
-            set.add(f.getName());
-         }
-      }
-      return set;
-   }
-
 }
@@ -20,16 +20,21 @@ package org.exoplatform.ws.frameworks.json.impl;
 
 import org.exoplatform.ws.frameworks.json.JsonHandler;
 import org.exoplatform.ws.frameworks.json.JsonParser;
+import org.exoplatform.ws.frameworks.json.TypedJsonHandler;
 import org.exoplatform.ws.frameworks.json.impl.JsonUtils.JsonToken;
 
-import java.io.CharArrayWriter;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.PushbackReader;
 import java.io.Reader;
 
 /**
+ * JSON parser. Characters are read by blocks in internal buffer, input stream
+ * is decoded from UTF-8 directly to this buffer. Buffers are reused if the same
+ * instance of parser used few times. Instance of parser is not thread-safe.
+ * <p>
+ * If handler implements {@link TypedJsonHandler} then values are converted by
+ * parser, otherwise they are passed to handler as characters.
+ * </p>
+ *
  * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
  * @version $Id: JsonParserImpl.java 34417 2009-07-23 14:42:56Z dkatayev $
  */
@@ -39,11 +44,14 @@ public class JsonParserImpl implements JsonParser
    /** JsonHandler will serve events from parser. */
    private JsonHandler eventHandler;
 
+   /** Typed handler, <code>null</code> if handler is not typed. */
+   private TypedJsonHandler typedHandler;
+
    /** Stack of JSON tokens. */
    private final JsonStack<JsonToken> stack;
 
-   /** @see {@link java.io.PushbackReader}. */
-   private PushbackReader pushbackReader;
+   /** Source of tokens. */
+   private final JsonScanner scanner = new JsonScanner();
 
    public JsonParserImpl()
    {
@@ -55,40 +63,55 @@ public class JsonParserImpl implements JsonParser
     */
    public void parse(Reader reader, JsonHandler eventHandler) throws JsonException
    {
-      this.pushbackReader = new PushbackReader(reader);
+      scanner.reset(reader);
+      parse(eventHandler);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void parse(InputStream sream, JsonHandler eventHandler) throws JsonException
+   {
+      scanner.reset(sream);
+      parse(eventHandler);
+   }
+
+   private void parse(JsonHandler eventHandler) throws JsonException
+   {
       this.eventHandler = eventHandler;
+      this.typedHandler = eventHandler instanceof TypedJsonHandler ? (TypedJsonHandler)eventHandler : null;
       this.stack.clear();
-
-      char c = 0;
-      while ((c = next()) != 0)
+      try
       {
-         if (c == '{')
+         char c = 0;
+         while ((c = scanner.next()) != 0)
          {
-            readObject();
-         }
-         else if (c == '[')
-         {
-            readArray();
+            if (c == '{')
+            {
+               readObject();
+            }
+            else if (c == '[')
+            {
+               readArray();
+            }
+            else
+            {
+               throw new JsonException("Syntax error. Unexpected '" + c + "'. Must be '{'.");
+            }
          }
-         else
+         if (!stack.isEmpty())
          {
-            throw new JsonException("Syntax error. Unexpected '" + c + "'. Must be '{'.");
+            throw new JsonException("Syntax error. Missing one or more close bracket(s).");
          }
       }
-      if (!stack.isEmpty())
+      finally
       {
-         throw new JsonException("Syntax error. Missing one or more close bracket(s).");
+         this.eventHandler = null;
+         this.typedHandler = null;
+         scanner.release();
       }
    }
 
-   /**
-    * {@inheritDoc}
-    */
-   public void parse(InputStream sream, JsonHandler eventHandler) throws JsonException
-   {
-      parse(new InputStreamReader(sream, JsonUtils.DEFAULT_CHARSET), eventHandler);
-   }
-
    /**
     * Read JSON object token, it minds all characters from '{' to '}'.
     *
@@ -103,7 +126,7 @@ public class JsonParserImpl implements JsonParser
       stack.push(JsonToken.object);
       for (;;)
       {
-         switch (c = next())
+         switch (c = scanner.next())
          {
             case 0 :
                throw new JsonException("Syntax error. Unexpected end of object. Object must end by '}'.");
@@ -119,7 +142,7 @@ public class JsonParserImpl implements JsonParser
                   throw new JsonException("Syntax error. Unexpected end of object.");
                }
                // check is allowed char after end of json object
-               switch (c = next())
+               switch (c = scanner.next())
                {
                   // end of stream
                   case 0 :
@@ -127,7 +150,7 @@ public class JsonParserImpl implements JsonParser
                   case ',' :
                   case ']' :
                   case '}' :
-                     back(c);
+                     scanner.back();
                      break;
                   default :
                      // must not happen
@@ -143,12 +166,12 @@ public class JsonParserImpl implements JsonParser
                // nothing to do just must not be default is switch
                break;
             default :
-               back(c);
+               scanner.back();
                // all characters from start object to ':' - key.
                readKey();
-               next(':');
-               c = next();
-               back(c);
+               scanner.next(':');
+               c = scanner.next();
+               scanner.back();
                // object/array/value
                if (c != '{' && c != '[')
                {
@@ -173,7 +196,7 @@ public class JsonParserImpl implements JsonParser
       stack.push(JsonToken.array);
       for (;;)
       {
-         switch (c = next())
+         switch (c = scanner.next())
          {
             case 0 :
                throw new JsonException("Syntax error. Unexpected end of array. Array must end by ']'.");
@@ -186,7 +209,7 @@ public class JsonParserImpl implements JsonParser
                   throw new JsonException("Syntax error. Unexpected end of array.");
                }
                // check is allowed char after end of json array
-               switch (c = next())
+               switch (c = scanner.next())
                {
                   // end of stream
                   case 0 :
@@ -194,7 +217,7 @@ public class JsonParserImpl implements JsonParser
                   case ',' :
                   case ']' :
                   case '}' :
-                     back(c);
+                     scanner.back();
                      break;
                   default :
                      // must not happen
@@ -212,7 +235,7 @@ public class JsonParserImpl implements JsonParser
                // nothing to do just must not be default
                break;
             default :
-               back(c);
+               scanner.back();
                readValue();
                break;
          }
@@ -227,19 +250,18 @@ public class JsonParserImpl implements JsonParser
     */
    private void readKey() throws JsonException
    {
-      char c = next();
+      char c = scanner.next();
       if (c != '"')
       {
          throw new JsonException("Syntax error. Key must start from quote, but found '" + c + "'.");
       }
-      back(c);
-      String s = new String(nextString());
+      String key = scanner.nextString();
       // if key as ""
-      if (s.length() == 2)
+      if (key.length() == 0)
       {
          throw new JsonException("Missing key.");
       }
-      eventHandler.key(s.substring(1, s.length() - 1));
+      eventHandler.key(key);
    }
 
    /**
@@ -250,274 +272,56 @@ public class JsonParserImpl implements JsonParser
     */
    private void readValue() throws JsonException
    {
-      char c = next();
-      back(c);
+      char c = scanner.next();
       if (c == '"')
       {
          // value will be read as string
-         eventHandler.characters(nextString());
-      }
-      else
-      {
-         // not string (numeric or boolean or null)
-         CharArrayWriter cw = new CharArrayWriter();
-         while ("{[,]}\"".indexOf(c = next()) < 0)
+         String s = scanner.nextString();
+         if (typedHandler != null)
          {
-            // Bug : WS-66
-            if (c == 0)
-            {
-               throw new JsonException("Unexpected end of stream.");
-            }
-            cw.append(c);
+            typedHandler.stringValue(s);
          }
-         back(c);
-         eventHandler.characters(cw.toCharArray());
-      }
-      c = next(",]}");
-      back(c);
-   }
-
-   /**
-    * Get next char from stream, skipping whitespace and comments. Comments: One
-    * line comment from // to end of line; Multi-line comments from / and * to *
-    * and /
-    *
-    * @return the next char.
-    * @throws JsonException if JSON document has wrong format or i/o error
-    *         occurs.
-    */
-   private char next() throws JsonException
-   {
-      try
-      {
-         int c = 0;
-         while ((c = pushbackReader.read()) != -1)
-         {
-            if (c == '/')
-            {
-               c = pushbackReader.read();
-               if (c == '/')
-               {
-                  do
-                  {
-                     c = pushbackReader.read();
-                  }
-                  while (c != -1 && c != '\n' && c != '\r');
-               }
-               else if (c == '*')
-               {
-                  for (;;)
-                  {
-                     c = pushbackReader.read();
-                     if (c == '*')
-                     {
-                        c = pushbackReader.read();
-                        if (c == '/')
-                        {
-                           break;
-                        }
-                     }
-                     if (c == -1)
-                     {
-                        throw new JsonException("Syntax error. Missing end of comment.");
-                     }
-                  }
-               }
-               else
-               {
-                  back((char)c);
-                  return '/';
-               }
-            }
-            else if (c == -1 || c > ' ')
-            {
-               break;
-            }
-         }
-         return (c == -1) ? 0 : (char)c;
-      }
-      catch (IOException e)
-      {
-         throw new JsonException(e.getMessage(), e);
-      }
-   }
-
-   /**
-    * Get next char from stream.
-    *
-    * @return the next char.
-    * @throws JsonException if JSON document has wrong format or i/o error
-    *         occurs.
-    */
-   private char nextAny() throws JsonException
-   {
-      try
-      {
-         int c = pushbackReader.read();
-         return (c == -1) ? 0 : (char)c;
-      }
-      catch (IOException e)
-      {
-         throw new JsonException(e.getMessage(), e);
-      }
-   }
-
-   /**
-    * Get next char from stream. And check is this char equals expected.
-    *
-    * @param c the expected char.
-    * @return the next char.
-    * @throws JsonException if JSON document has wrong format or i/o error
-    *         occurs.
-    */
-   private char next(char c) throws JsonException
-   {
-      char n = next();
-      if (n != c)
-      {
-         throw new JsonException("Expected for '" + c + "' but found '" + n + "'.");
-      }
-      return n;
-   }
-
-   /**
-    * Get next char from stream. And check is this char presents in given
-    * string.
-    *
-    * @param s the string.
-    * @return the next char.
-    * @throws JsonException if JSON document has wrong format or i/o error
-    *         occurs.
-    */
-   private char next(String s) throws JsonException
-   {
-      char n = next();
-      // if char present in string
-      if (s.indexOf(n) >= 0)
-      {
-         return n;
-      }
-      // else error
-      char[] ch = s.toCharArray();
-      StringBuilder sb = new StringBuilder();
-      int i = 0;
-      for (char c : ch)
-      {
-         if (i > 0)
+         else
          {
-            sb.append(" or ");
+            char[] characters = new char[s.length() + 2];
+            characters[0] = '"';
+            s.getChars(0, s.length(), characters, 1);
+            characters[characters.length - 1] = '"';
+            eventHandler.characters(characters);
          }
-         i++;
-         sb.append('\'').append(c).append('\'');
       }
-      throw new JsonException("Expected for " + sb.toString() + " but found '" + n + "'.");
-   }
-
-   /**
-    * Get next n characters from stream.
-    *
-    * @param n the number of characters.
-    * @return the array of characters.
-    * @throws JsonException if JSON document has wrong format or i/o error
-    *         occurs.
-    */
-   private char[] next(int n) throws JsonException
-   {
-      char[] buff = new char[n];
-      try
+      else
       {
-         int i = pushbackReader.read(buff);
-         if (i == -1)
+         // not string (numeric or boolean or null)
+         scanner.readToken(c);
+         if (typedHandler != null)
          {
-            throw new JsonException("Unexpected end of stream.");
+            switch (scanner.convertToken())
+            {
+               case LONG :
+                  typedHandler.longValue(scanner.longValue);
+                  break;
+               case DOUBLE :
+                  typedHandler.doubleValue(scanner.doubleValue);
+                  break;
+               case BOOLEAN :
+                  typedHandler.booleanValue(scanner.booleanValue);
+                  break;
+               case NULL :
+                  typedHandler.nullValue();
+                  break;
+               default :
+                  typedHandler.stringValue(scanner.stringValue);
+                  break;
+            }
          }
-         return buff;
-      }
-      catch (IOException e)
-      {
-         throw new JsonException(e.getMessage(), e);
-      }
-   }
-
-   /**
-    * Get array chars up to given and include it.
-    *
-    * @return the char array.
-    * @throws JsonException if JSON document has wrong format or i/o error
-    *         occurs.
-    */
-   private char[] nextString() throws JsonException
-   {
-      CharArrayWriter cw = new CharArrayWriter();
-      char c = nextAny(); // read '"'
-      cw.append(c);
-      for (;;)
-      {
-         switch (c = nextAny())
+         else
          {
-            case 0 :
-            case '\n' :
-            case '\r' :
-               throw new JsonException("Syntax error. Unterminated string.");
-            case '\\' :
-               switch (c = nextAny())
-               {
-                  case 0 :
-                  case '\n' :
-                  case '\r' :
-                     throw new JsonException("Syntax error. Unterminated string");
-                  case 'n' :
-                     cw.append('\n');
-                     break;
-                  case 'r' :
-                     cw.append('\r');
-                     break;
-                  case 'b' :
-                     cw.append('\b');
-                     break;
-                  case 't' :
-                     cw.append('\t');
-                     break;
-                  case 'f' :
-                     cw.append('\f');
-                     break;
-                  case 'u' : // unicode
-                     String s = new String(next(4));
-                     cw.append((char)Integer.parseInt(s, 16));
-                     break;
-                  default :
-                     cw.append(c);
-                     break;
-               }
-               break;
-            default :
-               cw.append(c);
-               if (c == '"')
-               {
-                  return cw.toCharArray();
-               }
-               break;
+            eventHandler.characters(scanner.getToken());
          }
       }
-   }
-
-   /**
-    * Push back given char to stream.
-    *
-    * @param c the char for pushing back.
-    * @throws JsonException if JSON document has wrong format or i/o error
-    *         occurs.
-    */
-   private void back(char c) throws JsonException
-   {
-      try
-      {
-         pushbackReader.unread(c);
-      }
-      catch (IOException e)
-      {
-         throw new JsonException(e.getMessage(), e);
-      }
+      scanner.next(",]}");
+      scanner.back();
    }
 
 }
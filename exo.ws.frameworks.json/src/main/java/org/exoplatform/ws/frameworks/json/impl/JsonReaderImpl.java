@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.ws.frameworks.json.impl;
+
+import org.exoplatform.ws.frameworks.json.JsonReader;
+import org.exoplatform.ws.frameworks.json.impl.JsonUtils.JsonToken;
+
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Pull style JSON reader. Accepts the same documents as {@link JsonParserImpl}
+ * and converts values in the same way as {@link JsonDefaultHandler}. Instance
+ * of reader is not thread-safe.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class JsonReaderImpl implements JsonReader
+{
+
+   /** Source of tokens. */
+   private final JsonScanner scanner = new JsonScanner();
+
+   /**
+    * Stack of JSON tokens. Token {@link JsonToken#key} is on the top of stack
+    * if key is read but value is not read yet.
+    */
+   private final JsonStack<JsonToken> stack = new JsonStack<JsonToken>();
+
+   /** Last event. */
+   private Event event;
+
+   /** Key or string value. */
+   private String string;
+
+   /**
+    * @param reader source of JSON document
+    */
+   public JsonReaderImpl(Reader reader)
+   {
+      scanner.reset(reader);
+   }
+
+   /**
+    * @param stream source of JSON document, it must be in UTF-8 encoding
+    */
+   public JsonReaderImpl(InputStream stream)
+   {
+      scanner.reset(stream);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public Event next() throws JsonException
+   {
+      string = null;
+      JsonToken top = stack.peek();
+      if (top == null)
+      {
+         char c = scanner.next();
+         if (c == 0)
+         {
+            scanner.release();
+            return event = null;
+         }
+         if (c == '{')
+         {
+            return startObject();
+         }
+         if (c == '[')
+         {
+            return startArray();
+         }
+         throw new JsonException("Syntax error. Unexpected '" + c + "'. Must be '{'.");
+      }
+      if (top == JsonToken.key)
+      {
+         stack.pop();
+         scanner.next(':');
+         return readValue();
+      }
+      for (;;)
+      {
+         char c = scanner.next();
+         switch (c)
+         {
+            case 0 :
+               if (top == JsonToken.object)
+               {
+                  throw new JsonException("Syntax error. Unexpected end of object. Object must end by '}'.");
+               }
+               throw new JsonException("Syntax error. Unexpected end of array. Array must end by ']'.");
+            case ',' :
+               // nothing to do
+               break;
+            case '{' :
+               return startObject();
+            case '[' :
+               return startArray();
+            case '}' :
+               return end(JsonToken.object, Event.END_OBJECT);
+            case ']' :
+               return end(JsonToken.array, Event.END_ARRAY);
+            default :
+               scanner.back();
+               if (top == JsonToken.object)
+               {
+                  return readKey();
+               }
+               return readValue();
+         }
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public String getString()
+   {
+      if (event != Event.KEY && event != Event.STRING)
+      {
+         throw new IllegalStateException("Current event is " + event + ". ");
+      }
+      return string;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public long getLong()
+   {
+      if (event != Event.LONG)
+      {
+         throw new IllegalStateException("Current event is " + event + ". ");
+      }
+      return scanner.longValue;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public double getDouble()
+   {
+      if (event != Event.DOUBLE)
+      {
+         throw new IllegalStateException("Current event is " + event + ". ");
+      }
+      return scanner.doubleValue;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public boolean getBoolean()
+   {
+      if (event != Event.BOOLEAN)
+      {
+         throw new IllegalStateException("Current event is " + event + ". ");
+      }
+      return scanner.booleanValue;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void skipValue() throws JsonException
+   {
+      if (event != Event.START_OBJECT && event != Event.START_ARRAY)
+      {
+         return;
+      }
+      int depth = 1;
+      while (depth > 0)
+      {
+         Event e = next();
+         if (e == null)
+         {
+            throw new JsonException("Unexpected end of stream.");
+         }
+         if (e == Event.START_OBJECT || e == Event.START_ARRAY)
+         {
+            depth++;
+         }
+         else if (e == Event.END_OBJECT || e == Event.END_ARRAY)
+         {
+            depth--;
+         }
+      }
+   }
+
+   private Event startObject()
+   {
+      stack.push(JsonToken.object);
+      return event = Event.START_OBJECT;
+   }
+
+   private Event startArray()
+   {
+      stack.push(JsonToken.array);
+      return event = Event.START_ARRAY;
+   }
+
+   /**
+    * End of object or array.
+    *
+    * @param token expected token on the top of stack
+    * @param end event
+    * @return <code>end</code>
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs.
+    */
+   private Event end(JsonToken token, Event end) throws JsonException
+   {
+      if (token != stack.pop())
+      {
+         throw new JsonException("Syntax error. Unexpected end of " + (token == JsonToken.object ? "object." : "array."));
+      }
+      // check is allowed char after end of json object or array
+      char c = scanner.next();
+      switch (c)
+      {
+         // end of stream
+         case 0 :
+            break;
+         case ',' :
+         case ']' :
+         case '}' :
+            scanner.back();
+            break;
+         default :
+            throw new JsonException("Syntax error. Excpected for ',' or ']' or '}' but found '" + c + "'.");
+      }
+      return event = end;
+   }
+
+   /**
+    * Read key of object.
+    *
+    * @return {@link Event#KEY}
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs.
+    */
+   private Event readKey() throws JsonException
+   {
+      char c = scanner.next();
+      if (c != '"')
+      {
+         throw new JsonException("Syntax error. Key must start from quote, but found '" + c + "'.");
+      }
+      string = scanner.nextString();
+      if (string.length() == 0)
+      {
+         throw new JsonException("Missing key.");
+      }
+      stack.push(JsonToken.key);
+      return event = Event.KEY;
+   }
+
+   /**
+    * Read value, it may be start of object or array.
+    *
+    * @return event
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs.
+    */
+   private Event readValue() throws JsonException
+   {
+      char c = scanner.next();
+      if (c == '{')
+      {
+         return startObject();
+      }
+      if (c == '[')
+      {
+         return startArray();
+      }
+      if (c == '"')
+      {
+         string = scanner.nextString();
+         event = Event.STRING;
+      }
+      else
+      {
+         scanner.readToken(c);
+         event = scanner.convertToken();
+         if (event == Event.STRING)
+         {
+            string = scanner.stringValue;
+         }
+      }
+      scanner.next(",]}");
+      scanner.back();
+      return event;
+   }
+
+}
@@ -0,0 +1,645 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.ws.frameworks.json.impl;
+
+import org.exoplatform.ws.frameworks.json.JsonReader.Event;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads characters of JSON document by blocks into internal buffer and splits
+ * them into tokens. Input stream is decoded from UTF-8 directly to this
+ * buffer. Buffers are reused if the same instance of scanner used few times.
+ * Used by {@link JsonParserImpl} and {@link JsonReaderImpl}.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+final class JsonScanner
+{
+
+   /** Size of characters buffer. */
+   private static final int BUFFER_SIZE = 8192;
+
+   /**
+    * Number of characters which are kept in buffer when it is refilled. They
+    * may be pushed back after refilling.
+    */
+   private static final int PUSHBACK_SIZE = 2;
+
+   /** Max number of digits in decimal long which may not cause overflow. */
+   private static final int MAX_LONG_DIGITS = 18;
+
+   /** Source of characters, <code>null</code> if parse input stream. */
+   private Reader reader;
+
+   /** Source of bytes, <code>null</code> if parse character stream. */
+   private InputStream stream;
+
+   /** Characters buffer. */
+   private final char[] buffer = new char[BUFFER_SIZE];
+
+   /** Position of next character in buffer. */
+   private int pos;
+
+   /** Number of characters in buffer. */
+   private int limit;
+
+   /** Bytes buffer, used when parse input stream. */
+   private byte[] bytes;
+
+   /** Position of next byte in bytes buffer. */
+   private int bytesPos;
+
+   /** Number of bytes in bytes buffer. */
+   private int bytesLimit;
+
+   /** Characters of current token. */
+   private char[] token = new char[128];
+
+   /** Number of characters in current token. */
+   private int tokenLength;
+
+   /** String value of last converted token. */
+   String stringValue;
+
+   /** Long value of last converted token. */
+   long longValue;
+
+   /** Double value of last converted token. */
+   double doubleValue;
+
+   /** Boolean value of last converted token. */
+   boolean booleanValue;
+
+   /**
+    * Start reading characters stream.
+    *
+    * @param reader the source
+    */
+   void reset(Reader reader)
+   {
+      this.reader = reader;
+      this.stream = null;
+      this.pos = 0;
+      this.limit = 0;
+   }
+
+   /**
+    * Start reading input stream. Stream is decoded from UTF-8.
+    *
+    * @param stream the source
+    */
+   void reset(InputStream stream)
+   {
+      this.stream = stream;
+      this.reader = null;
+      if (bytes == null)
+      {
+         bytes = new byte[BUFFER_SIZE];
+      }
+      this.bytesPos = 0;
+      this.bytesLimit = 0;
+      this.pos = 0;
+      this.limit = 0;
+   }
+
+   /**
+    * Release source of characters.
+    */
+   void release()
+   {
+      this.reader = null;
+      this.stream = null;
+      this.stringValue = null;
+   }
+
+   /**
+    * Read not quoted value (numeric, boolean, null) to token buffer. Whitespace
+    * and comments are skipped.
+    *
+    * @param c first char of value
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs.
+    */
+   void readToken(char c) throws JsonException
+   {
+      tokenLength = 0;
+      while ("{[,]}\"".indexOf(c) < 0)
+      {
+         // Bug : WS-66
+         if (c == 0)
+         {
+            throw new JsonException("Unexpected end of stream.");
+         }
+         append(c);
+         c = next();
+      }
+      back();
+      if (tokenLength == 0)
+      {
+         throw new JsonException("Syntax error. Missing value.");
+      }
+   }
+
+   /**
+    * @return copy of characters of last token
+    */
+   char[] getToken()
+   {
+      return Arrays.copyOf(token, tokenLength);
+   }
+
+   /**
+    * Convert last token read by {@link #readToken(char)} in the same way as
+    * {@link JsonDefaultHandler} does it. Result is saved in one of fields
+    * {@link #stringValue}, {@link #longValue}, {@link #doubleValue},
+    * {@link #booleanValue}.
+    *
+    * @return type of value
+    */
+   Event convertToken()
+   {
+      char c = token[0];
+      if (c >= '1' && c <= '9' || (c == '-' && tokenLength > 1))
+      {
+         // fast path for decimal long, it is most common case
+         int i = c == '-' ? 1 : 0;
+         if (tokenLength - i <= MAX_LONG_DIGITS)
+         {
+            long l = 0;
+            for (; i < tokenLength; i++)
+            {
+               char d = token[i];
+               if (d < '0' || d > '9')
+               {
+                  break;
+               }
+               l = l * 10 + (d - '0');
+            }
+            if (i == tokenLength)
+            {
+               longValue = c == '-' ? -l : l;
+               return Event.LONG;
+            }
+         }
+      }
+      String s = new String(token, 0, tokenLength);
+      if ("true".equalsIgnoreCase(s) || "false".equalsIgnoreCase(s))
+      {
+         booleanValue = Boolean.parseBoolean(s);
+         return Event.BOOLEAN;
+      }
+      if ("null".equalsIgnoreCase(s))
+      {
+         return Event.NULL;
+      }
+      Number n = JsonUtils.parseNumber(s);
+      if (n instanceof Long)
+      {
+         longValue = n.longValue();
+         return Event.LONG;
+      }
+      if (n instanceof Double)
+      {
+         doubleValue = n.doubleValue();
+         return Event.DOUBLE;
+      }
+      // if can't parse pass as string
+      stringValue = s;
+      return Event.STRING;
+   }
+
+   /**
+    * Get next char from stream, skipping whitespace and comments. Comments: One
+    * line comment from // to end of line; Multi-line comments from / and * to *
+    * and /
+    *
+    * @return the next char.
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs.
+    */
+   char next() throws JsonException
+   {
+      int c = 0;
+      while ((c = read()) != -1)
+      {
+         if (c == '/')
+         {
+            c = read();
+            if (c == '/')
+            {
+               do
+               {
+                  c = read();
+               }
+               while (c != -1 && c != '\n' && c != '\r');
+            }
+            else if (c == '*')
+            {
+               for (;;)
+               {
+                  c = read();
+                  if (c == '*')
+                  {
+                     c = read();
+                     if (c == '/')
+                     {
+                        break;
+                     }
+                  }
+                  if (c == -1)
+                  {
+                     throw new JsonException("Syntax error. Missing end of comment.");
+                  }
+               }
+            }
+            else
+            {
+               if (c != -1)
+               {
+                  back();
+               }
+               return '/';
+            }
+         }
+         else if (c > ' ')
+         {
+            break;
+         }
+      }
+      return (c == -1) ? 0 : (char)c;
+   }
+
+   /**
+    * Get next char from stream. And check is this char equals expected.
+    *
+    * @param c the expected char.
+    * @return the next char.
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs.
+    */
+   char next(char c) throws JsonException
+   {
+      char n = next();
+      if (n != c)
+      {
+         throw new JsonException("Expected for '" + c + "' but found '" + n + "'.");
+      }
+      return n;
+   }
+
+   /**
+    * Get next char from stream. And check is this char presents in given
+    * string.
+    *
+    * @param s the string.
+    * @return the next char.
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs.
+    */
+   char next(String s) throws JsonException
+   {
+      char n = next();
+      // if char present in string
+      if (s.indexOf(n) >= 0)
+      {
+         return n;
+      }
+      // else error
+      char[] ch = s.toCharArray();
+      StringBuilder sb = new StringBuilder();
+      int i = 0;
+      for (char c : ch)
+      {
+         if (i > 0)
+         {
+            sb.append(" or ");
+         }
+         i++;
+         sb.append('\'').append(c).append('\'');
+      }
+      throw new JsonException("Expected for " + sb.toString() + " but found '" + n + "'.");
+   }
+
+   /**
+    * Read string up to closing quote, opening quote must be already read.
+    * Escape sequences are decoded.
+    *
+    * @return the string without quotes.
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs.
+    */
+   String nextString() throws JsonException
+   {
+      // Fast path, string without escape sequences which is entirely in buffer.
+      for (int i = pos; i < limit; i++)
+      {
+         char c = buffer[i];
+         if (c == '"')
+         {
+            String s = new String(buffer, pos, i - pos);
+            pos = i + 1;
+            return s;
+         }
+         if (c == '\\' || c == '\n' || c == '\r')
+         {
+            break;
+         }
+      }
+      tokenLength = 0;
+      int c;
+      for (;;)
+      {
+         switch (c = read())
+         {
+            case -1 :
+            case '\n' :
+            case '\r' :
+               throw new JsonException("Syntax error. Unterminated string.");
+            case '"' :
+               return new String(token, 0, tokenLength);
+            case '\\' :
+               switch (c = read())
+               {
+                  case -1 :
+                  case '\n' :
+                  case '\r' :
+                     throw new JsonException("Syntax error. Unterminated string");
+                  case 'n' :
+                     append('\n');
+                     break;
+                  case 'r' :
+                     append('\r');
+                     break;
+                  case 'b' :
+                     append('\b');
+                     break;
+                  case 't' :
+                     append('\t');
+                     break;
+                  case 'f' :
+                     append('\f');
+                     break;
+                  case 'u' : // unicode
+                     append(nextUnicode());
+                     break;
+                  default :
+                     append((char)c);
+                     break;
+               }
+               break;
+            default :
+               append((char)c);
+               break;
+         }
+      }
+   }
+
+   /**
+    * Read four hexadecimal digits of unicode escape sequence.
+    *
+    * @return the char.
+    * @throws JsonException if JSON document has wrong format or i/o error
+    *         occurs.
+    */
+   private char nextUnicode() throws JsonException
+   {
+      int u = 0;
+      for (int i = 0; i < 4; i++)
+      {
+         int c = read();
+         if (c == -1)
+         {
+            throw new JsonException("Unexpected end of stream.");
+         }
+         int d = Character.digit((char)c, 16);
+         if (d == -1)
+         {
+            throw new JsonException("Syntax error. Invalid unicode escape sequence.");
+         }
+         u = (u << 4) | d;
+      }
+      return (char)u;
+   }
+
+   /**
+    * Append char to token buffer.
+    *
+    * @param c the char.
+    */
+   private void append(char c)
+   {
+      if (tokenLength == token.length)
+      {
+         token = Arrays.copyOf(token, token.length << 1);
+      }
+      token[tokenLength++] = c;
+   }
+
+   /**
+    * Get next char from buffer, buffer is refilled if need.
+    *
+    * @return the next char or -1 if end of stream reached.
+    * @throws JsonException if i/o error occurs.
+    */
+   private int read() throws JsonException
+   {
+      if (pos == limit && !fill())
+      {
+         return -1;
+      }
+      return buffer[pos++];
+   }
+
+   /**
+    * Push back last read char. At most {@link #PUSHBACK_SIZE} chars may be
+    * pushed back.
+    */
+   void back()
+   {
+      pos--;
+   }
+
+   /**
+    * Read next block of characters. Last {@link #PUSHBACK_SIZE} characters are
+    * kept at start of buffer.
+    *
+    * @return <code>false</code> if end of stream reached.
+    * @throws JsonException if i/o error occurs.
+    */
+   private boolean fill() throws JsonException
+   {
+      int keep = Math.min(PUSHBACK_SIZE, limit);
+      System.arraycopy(buffer, limit - keep, buffer, 0, keep);
+      pos = keep;
+      limit = keep;
+      try
+      {
+         int n = reader != null ? reader.read(buffer, keep, buffer.length - keep) : decode(keep);
+         if (n == -1)
+         {
+            return false;
+         }
+         limit += n;
+         return true;
+      }
+      catch (IOException e)
+      {
+         throw new JsonException(e.getMessage(), e);
+      }
+   }
+
+   /**
+    * Decode bytes from UTF-8 to characters buffer. Malformed sequences are
+    * replaced with U+FFFD.
+    *
+    * @param off offset in characters buffer
+    * @return number of decoded characters or -1 if end of stream reached.
+    * @throws IOException if i/o error occurs.
+    */
+   private int decode(int off) throws IOException
+   {
+      char[] dst = buffer;
+      // Keep place for surrogate pair.
+      int end = dst.length - 1;
+      int i = off;
+      while (i < end)
+      {
+         if (bytesPos == bytesLimit)
+         {
+            if (i > off)
+            {
+               break;
+            }
+            if (!readBytes())
+            {
+               return -1;
+            }
+         }
+         int b = bytes[bytesPos];
+         if (b >= 0)
+         {
+            // ASCII
+            dst[i++] = (char)b;
+            bytesPos++;
+            continue;
+         }
+         b &= 0xFF;
+         int need = b >= 0xF0 ? 4 : (b >= 0xE0 ? 3 : (b >= 0xC0 ? 2 : 1));
+         if (bytesLimit - bytesPos < need)
+         {
+            if (i > off)
+            {
+               // Return what we have, rest of sequence will be read next time.
+               break;
+            }
+            if (!readBytes())
+            {
+               // Truncated sequence at end of stream.
+               dst[i++] = '\uFFFD';
+               bytesPos = bytesLimit;
+               continue;
+            }
+            continue;
+         }
+         int cp = -1;
+         if (need == 2)
+         {
+            int b1 = bytes[bytesPos + 1];
+            if ((b1 & 0xC0) == 0x80)
+            {
+               cp = ((b & 0x1F) << 6) | (b1 & 0x3F);
+               if (cp < 0x80)
+               {
+                  cp = -1;
+               }
+            }
+         }
+         else if (need == 3)
+         {
+            int b1 = bytes[bytesPos + 1];
+            int b2 = bytes[bytesPos + 2];
+            if ((b1 & 0xC0) == 0x80 && (b2 & 0xC0) == 0x80)
+            {
+               cp = ((b & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (b2 & 0x3F);
+               if (cp < 0x800 || (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE))
+               {
+                  cp = -1;
+               }
+            }
+         }
+         else if (need == 4)
+         {
+            int b1 = bytes[bytesPos + 1];
+            int b2 = bytes[bytesPos + 2];
+            int b3 = bytes[bytesPos + 3];
+            if ((b1 & 0xC0) == 0x80 && (b2 & 0xC0) == 0x80 && (b3 & 0xC0) == 0x80)
+            {
+               cp = ((b & 0x07) << 18) | ((b1 & 0x3F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F);
+               if (cp < 0x10000 || cp > Character.MAX_CODE_POINT)
+               {
+                  cp = -1;
+               }
+            }
+         }
+         if (cp == -1)
+         {
+            dst[i++] = '\uFFFD';
+            bytesPos++;
+         }
+         else if (cp >= 0x10000)
+         {
+            i += Character.toChars(cp, dst, i);
+            bytesPos += need;
+         }
+         else
+         {
+            dst[i++] = (char)cp;
+            bytesPos += need;
+         }
+      }
+      return i - off;
+   }
+
+   /**
+    * Move not decoded bytes to start of bytes buffer and read more bytes.
+    *
+    * @return <code>false</code> if end of stream reached.
+    * @throws IOException if i/o error occurs.
+    */
+   private boolean readBytes() throws IOException
+   {
+      int rest = bytesLimit - bytesPos;
+      System.arraycopy(bytes, bytesPos, bytes, 0, rest);
+      bytesPos = 0;
+      bytesLimit = rest;
+      int n = stream.read(bytes, rest, bytes.length - rest);
+      if (n == -1)
+      {
+         return false;
+      }
+      bytesLimit += n;
+      return true;
+   }
+
+}
@@ -18,6 +18,7 @@
  */
 package org.exoplatform.ws.frameworks.json.impl;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.HashMap;
@@ -189,48 +190,73 @@ public final class JsonUtils
    {
       if (string == null || string.length() == 0)
          return "\"\"";
-      StringBuffer sb = new StringBuffer();
-      sb.append("\"");
-      char[] charArray = string.toCharArray();
-      for (char c : charArray)
+      StringBuilder sb = new StringBuilder(string.length() + 2);
+      try
       {
-         switch (c)
+         writeJsonString(string, sb);
+      }
+      catch (IOException e)
+      {
+         // Must not happen with StringBuilder.
+         throw new IllegalStateException(e.getMessage(), e);
+      }
+      return sb.toString();
+   }
+
+   /**
+    * Write JSON representation of string, the same as
+    * {@link #getJsonString(String)} returns.
+    *
+    * @param string source string
+    * @param out destination
+    * @throws IOException if i/o error occurs
+    */
+   static void writeJsonString(String string, Appendable out) throws IOException
+   {
+      out.append('"');
+      if (string != null)
+      {
+         int length = string.length();
+         for (int i = 0; i < length; i++)
          {
-            case '\n' :
-               sb.append("\\n");
-               break;
-            case '\r' :
-               sb.append("\\r");
-               break;
-            case '\t' :
-               sb.append("\\t");
-               break;
-            case '\b' :
-               sb.append("\\b");
-               break;
-            case '\f' :
-               sb.append("\\f");
-               break;
-            case '\\' :
-               sb.append("\\\\");
-               break;
-            case '"' :
-               sb.append("\\\"");
-               break;
-            default :
-               if (c < '\u0010')
-                  sb.append("\\u000" + Integer.toHexString(c));
-               else if ((c < '\u0020' && c > '\u0009') || (c >= '\u0080' && c < '\u00a0'))
-                  sb.append("\\u00" + Integer.toHexString(c));
-               else if (c >= '\u2000' && c < '\u2100')
-                  sb.append("\\u" + Integer.toHexString(c));
-               else
-                  sb.append(c);
-               break;
+            char c = string.charAt(i);
+            switch (c)
+            {
+               case '\n' :
+                  out.append("\\n");
+                  break;
+               case '\r' :
+                  out.append("\\r");
+                  break;
+               case '\t' :
+                  out.append("\\t");
+                  break;
+               case '\b' :
+                  out.append("\\b");
+                  break;
+               case '\f' :
+                  out.append("\\f");
+                  break;
+               case '\\' :
+                  out.append("\\\\");
+                  break;
+               case '"' :
+                  out.append("\\\"");
+                  break;
+               default :
+                  if (c < '\u0010')
+                     out.append("\\u000").append(Integer.toHexString(c));
+                  else if ((c < '\u0020' && c > '\u0009') || (c >= '\u0080' && c < '\u00a0'))
+                     out.append("\\u00").append(Integer.toHexString(c));
+                  else if (c >= '\u2000' && c < '\u2100')
+                     out.append("\\u").append(Integer.toHexString(c));
+                  else
+                     out.append(c);
+                  break;
+            }
          }
       }
-      sb.append("\"");
-      return sb.toString();
+      out.append('"');
    }
 
    /**
@@ -330,4 +356,60 @@ public final class JsonUtils
          return Types.MAP;
       return null;
    }
+
+   /**
+    * Parse not quoted JSON value as number. Value which starts from '0' is
+    * parsed as hexadecimal if it has prefix '0x' or as octal if possible.
+    *
+    * @param s the value
+    * @return {@link Long}, {@link Double} or <code>null</code> if value is not
+    *         numeric
+    */
+   static Number parseNumber(String s)
+   {
+      if (s.length() == 0)
+         return null;
+      char c = s.charAt(0);
+      if (!((c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+'))
+         return null;
+      if (c == '0')
+      {
+         if (s.length() > 2 && (s.charAt(1) == 'x' || s.charAt(1) == 'X'))
+         {
+            try
+            {
+               return Long.parseLong(s.substring(2), 16);
+            }
+            catch (NumberFormatException e)
+            {
+               return null;
+            }
+         }
+         try
+         {
+            // as oct long
+            return Long.parseLong(s.substring(1), 8);
+         }
+         catch (NumberFormatException e)
+         {
+            // if fail, then it is not oct
+         }
+      }
+      try
+      {
+         return Long.parseLong(s);
+      }
+      catch (NumberFormatException l)
+      {
+         try
+         {
+            // try as double if above failed
+            return Double.parseDouble(s);
+         }
+         catch (NumberFormatException d)
+         {
+            return null;
+         }
+      }
+   }
 }
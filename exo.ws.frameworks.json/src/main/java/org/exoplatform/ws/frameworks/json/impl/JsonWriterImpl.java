@@ -21,6 +21,7 @@ package org.exoplatform.ws.frameworks.json.impl;
 import org.exoplatform.ws.frameworks.json.JsonWriter;
 import org.exoplatform.ws.frameworks.json.impl.JsonUtils.JsonToken;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -55,13 +56,14 @@ public class JsonWriterImpl implements JsonWriter
    }
 
    /**
-    * Constructs JsonWriter.
+    * Constructs JsonWriter. Output is buffered, method {@link #flush()} must be
+    * called after writing.
     *
     * @param out OutputStream.
     */
    public JsonWriterImpl(OutputStream out)
    {
-      this(new OutputStreamWriter(out, JsonUtils.DEFAULT_CHARSET));
+      this(new BufferedWriter(new OutputStreamWriter(out, JsonUtils.DEFAULT_CHARSET)));
    }
 
    /**
@@ -198,7 +200,7 @@ public class JsonWriterImpl implements JsonWriter
             writer.write(',');
          }
          // create JSON representation for given string.
-         writer.write(JsonUtils.getJsonString(key));
+         JsonUtils.writeJsonString(key, writer);
          writer.write(':');
          commaFirst = false;
          stack.push(JsonToken.key);
@@ -214,7 +216,30 @@ public class JsonWriterImpl implements JsonWriter
     */
    public void writeString(String value) throws JsonException
    {
-      write(JsonUtils.getJsonString(value));
+      JsonToken token = stack.peek();
+      if (token != JsonToken.key && token != JsonToken.array)
+      {
+         throw new JsonException("Sysntax error. Unexpected characters '" + JsonUtils.getJsonString(value) + "'.");
+      }
+      try
+      {
+         if (commaFirst)
+         {
+            writer.write(',');
+         }
+         // create JSON representation for given string directly in writer.
+         JsonUtils.writeJsonString(value, writer);
+         commaFirst = true;
+         if (token == JsonToken.key)
+         {
+            // if at the top of stack is 'key' then remove it.
+            stack.pop();
+         }
+      }
+      catch (IOException e)
+      {
+         throw new JsonException(e.getMessage(), e);
+      }
    }
 
    /**
@@ -21,8 +21,17 @@ package org.exoplatform.ws.frameworks.json.impl;
 import org.exoplatform.commons.utils.ClassLoading;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
+import org.exoplatform.ws.frameworks.json.JsonReader;
+import org.exoplatform.ws.frameworks.json.JsonReader.Event;
 import org.exoplatform.ws.frameworks.json.impl.JsonUtils.Types;
 import org.exoplatform.ws.frameworks.json.value.JsonValue;
+import org.exoplatform.ws.frameworks.json.value.impl.ArrayValue;
+import org.exoplatform.ws.frameworks.json.value.impl.BooleanValue;
+import org.exoplatform.ws.frameworks.json.value.impl.DoubleValue;
+import org.exoplatform.ws.frameworks.json.value.impl.LongValue;
+import org.exoplatform.ws.frameworks.json.value.impl.NullValue;
+import org.exoplatform.ws.frameworks.json.value.impl.ObjectValue;
+import org.exoplatform.ws.frameworks.json.value.impl.StringValue;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
@@ -39,6 +48,7 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -136,77 +146,8 @@ public class ObjectBuilder
       T collection = null;
       if (jsonArray != null && !jsonArray.isNull())
       {
-         Class<?> actualType = null;
-         if (genericType instanceof ParameterizedType)
-         {
-            // Collection can't be parameterized by other Collection, Array, etc.
-            ParameterizedType parameterizedType = (ParameterizedType)genericType;
-            try
-            {
-               actualType = (Class<?>)parameterizedType.getActualTypeArguments()[0];
-            }
-            catch (ClassCastException e)
-            {
-               throw new JsonException("This type of Collection can't be restored from JSON source. "
-                  + "\nCollection is parameterized by wrong Type: " + parameterizedType + ".", e);
-            }
-         }
-         else
-         {
-            throw new JsonException("Collection is not parameterized. Collection<?> is not supported. "
-               + "\nCollection must be parameterized by any types, or by JavaBean with 'get' and 'set' methods.");
-         }
-
-         Constructor<? extends T> constructor = null;
-         if (collectionClass.isInterface() || Modifier.isAbstract(collectionClass.getModifiers()))
-         {
-            try
-            {
-               constructor = ArrayList.class.asSubclass(collectionClass).getConstructor(new Class[]{Collection.class});
-            }
-            catch (Exception e)
-            {
-               try
-               {
-                  constructor = HashSet.class.asSubclass(collectionClass).getConstructor(new Class[]{Collection.class});
-               }
-               catch (Exception e1)
-               {
-                  try
-                  {
-                     constructor =
-                        LinkedList.class.asSubclass(collectionClass).getConstructor(new Class[]{Collection.class});
-                  }
-                  catch (Exception e2)
-                  {
-                     if (LOG.isTraceEnabled())
-                     {
-                        LOG.trace("An exception occurred: " + e2.getMessage());
-                     }
-                  }
-               }
-            }
-         }
-         else
-         {
-            try
-            {
-               constructor = collectionClass.getConstructor(new Class[]{Collection.class});
-            }
-            catch (SecurityException e)
-            {
-               throw new JsonException(e.getMessage(), e);
-            }
-            catch (NoSuchMethodException e)
-            {
-               throw new JsonException(e.getMessage(), e);
-            }
-         }
-
-         if (constructor == null)
-         {
-            throw new JsonException("Can't find satisfied constructor for : " + collectionClass);
-         }
+         Class<?> actualType = getCollectionElementType(genericType);
+         Constructor<? extends T> constructor = getCollectionConstructor(collectionClass);
 
          ArrayList<Object> sourceCollection = new ArrayList<Object>(jsonArray.size());
          Iterator<JsonValue> values = jsonArray.getElements();
@@ -222,30 +163,7 @@ public class ObjectBuilder
                sourceCollection.add(createObjectKnownTypes(actualType, v));
             }
          }
-         try
-         {
-            collection = constructor.newInstance(sourceCollection);
-         }
-         catch (IllegalAccessException e)
-         {
-            throw new JsonException(e.getMessage(), e);
-         }
-         catch (IllegalArgumentException e)
-         {
-            throw new JsonException(e.getMessage(), e);
-         }
-         catch (InstantiationException e)
-         {
-            throw new JsonException(e.getMessage(), e);
-         }
-         catch (InvocationTargetException e)
-         {
-            throw new JsonException(e.getMessage(), e);
-         }
-         catch (ExceptionInInitializerError e)
-         {
-            throw new JsonException(e.getMessage(), e);
-         }
+         collection = newInstance(constructor, sourceCollection);
       }
       return collection;
    }
@@ -267,156 +185,433 @@ public class ObjectBuilder
       T map = null;
       if (jsonObject != null && !jsonObject.isNull())
       {
-         Class<?> valueActualType = null;
-         if (genericType instanceof ParameterizedType)
+         Class<?> valueActualType = getMapValueType(genericType);
+         Constructor<? extends T> constructor = getMapConstructor(mapClass);
+
+         HashMap<String, Object> sourceMap = new HashMap<String, Object>(jsonObject.size());
+         Iterator<String> keys = jsonObject.getKeys();
+         while (keys.hasNext())
          {
-            ParameterizedType parameterizedType = (ParameterizedType)genericType;
-            if (!String.class.isAssignableFrom((Class<?>)parameterizedType.getActualTypeArguments()[0]))
-            {
-               throw new JsonException("Key of Map must be String. ");
-            }
-            try
+            String k = keys.next();
+            JsonValue v = jsonObject.getElement(k);
+            if (!JsonUtils.isKnownType(valueActualType))
             {
-               valueActualType = (Class<?>)parameterizedType.getActualTypeArguments()[1];
+               sourceMap.put(k, createObject(valueActualType, v));
             }
-            catch (ClassCastException e)
+            else
             {
-               throw new JsonException("This type of Map can't be restored from JSON source."
-                  + "\nMap is parameterized by wrong Type: " + parameterizedType + ".", e);
+               sourceMap.put(k, createObjectKnownTypes(valueActualType, v));
             }
          }
-         else
+         map = newInstance(constructor, sourceMap);
+      }
+      return map;
+   }
+
+   /**
+    * Create Java Bean from Json Source.
+    *
+    * @param clazz the Class of target Object.
+    * @param jsonValue the Json representation.
+    * @return Object.
+    * @throws JsonException if any errors occurs.
+    */
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   public static <T> T createObject(Class<T> clazz, JsonValue jsonValue) throws JsonException
+   {
+      if (jsonValue == null || jsonValue.isNull())
+      {
+         return null;
+      }
+
+      Types type = JsonUtils.getType(clazz);
+      if (type == Types.ENUM)
+      {
+         // Enum is not instantiable via CLass.getInstance().
+         // This is used when enum is member of array or collection.
+         Class c = clazz;
+         return (T)Enum.valueOf(c, jsonValue.getStringValue());
+      }
+
+      if (!jsonValue.isObject())
+      {
+         throw new JsonException("Unsupported type of jsonValue. ");
+      }
+
+      T object = newInstance(clazz);
+
+      for (JavaBeanInfo.Property setter : JavaBeanInfo.getInfo(clazz).setters)
+      {
+         Method method = setter.method;
+         Class<?> methodParameterClass = setter.type;
+         JsonValue childJsonValue = jsonValue.getElement(setter.name);
+         if (childJsonValue == null)
          {
-            throw new JsonException("Map is not parameterized. Map<Sting, ?> is not supported."
-               + "\nMap must be parameterized by String and any types or JavaBean with 'get' and 'set' methods.");
+            continue;
          }
-         Constructor<? extends T> constructor = null;
-         if (mapClass.isInterface() || Modifier.isAbstract(mapClass.getModifiers()))
+         // if one of known primitive type or array of primitive type
+         try
          {
-            try
+            if (JsonUtils.isKnownType(methodParameterClass))
             {
-               constructor = HashMap.class.asSubclass(mapClass).getConstructor(new Class[]{Map.class});
+               method.invoke(object, new Object[]{createObjectKnownTypes(methodParameterClass, childJsonValue)});
             }
-            catch (Exception e)
+            else
             {
-               try
-               {
-                  constructor = Hashtable.class.asSubclass(mapClass).getConstructor(new Class[]{Map.class});
-               }
-               catch (Exception e1)
+               Types parameterType = JsonUtils.getType(methodParameterClass);
+               // other type Collection, Map or Object[].
+               if (parameterType != null)
                {
-                  try
+                  if (parameterType == Types.ENUM)
+                  {
+                     Class c = methodParameterClass;
+                     Enum<?> en = Enum.valueOf(c, childJsonValue.getStringValue());
+                     method.invoke(object, new Object[]{en});
+                  }
+                  else if (parameterType == Types.ARRAY_OBJECT)
+                  {
+                     Object array = createArray(methodParameterClass, childJsonValue);
+                     method.invoke(object, new Object[]{array});
+                  }
+                  else if (parameterType == Types.COLLECTION)
                   {
-                     constructor = LinkedHashMap.class.asSubclass(mapClass).getConstructor(new Class[]{Map.class});
-                  }                  
-                  catch (Exception e2)
+                     Class c = methodParameterClass;
+                     method.invoke(object, createCollection(c, setter.genericType, childJsonValue));
+                  }
+                  else if (parameterType == Types.MAP)
                   {
-                     if (LOG.isTraceEnabled())
-                     {
-                        LOG.trace("An exception occurred: " + e2.getMessage());
-                     }
+                     Class c = methodParameterClass;
+                     method.invoke(object, createObject(c, setter.genericType, childJsonValue));
+                  }
+                  else
+                  {
+                     // it must never happen!
+                     throw new JsonException("Can't restore parameter of method : " + clazz.getName() + "#"
+                        + method.getName() + " from JSON source.");
                   }
                }
+               else
+               {
+                  method.invoke(object, createObject(methodParameterClass, childJsonValue));
+               }
             }
          }
-         else
+         catch (Exception e)
          {
-            try
-            {
-               constructor = mapClass.getConstructor(new Class[]{Map.class});
-            }
-            catch (SecurityException e)
-            {
-               throw new JsonException(e.getMessage(), e);
-            }
-            catch (NoSuchMethodException e)
-            {
-               throw new JsonException(e.getMessage(), e);
-            }
+            throw new JsonException("Unable restore parameter via method " + clazz.getName() + "#"
+               + method.getName() + ". " + e.getMessage(), e);
          }
+      }
+      return object;
+   }
 
-         if (constructor == null)
-         {
-            throw new JsonException("Can't find satisfied constructor for : " + mapClass);
-         }
+   /**
+    * Create array of Java Object from JSON reader include multi-dimension
+    * array. Values are bound directly, tree of JSON values is not created.
+    *
+    * @param clazz the Class of target Object.
+    * @param reader the JSON reader
+    * @return result array
+    * @throws JsonException if any errors occurs
+    */
+   public static Object createArray(Class<?> clazz, JsonReader reader) throws JsonException
+   {
+      Event event = reader.next();
+      return event == null ? null : readArray(clazz, reader, event);
+   }
 
-         HashMap<String, Object> sourceMap = new HashMap<String, Object>(jsonObject.size());
-         Iterator<String> keys = jsonObject.getKeys();
-         while (keys.hasNext())
+   /**
+    * Create instance of <code>collectionClass</code> from JSON reader. Values
+    * are bound directly, tree of JSON values is not created.
+    *
+    * @param collectionClass collection type
+    * @param genericType generic type of collection
+    * @param reader the JSON reader
+    * @return result collection
+    * @throws JsonException if any errors occurs
+    * @see #createCollection(Class, Type, JsonValue)
+    */
+   public static <T extends Collection<?>> T createCollection(Class<T> collectionClass, Type genericType,
+      JsonReader reader) throws JsonException
+   {
+      Event event = reader.next();
+      return event == null ? null : readCollection(collectionClass, genericType, reader, event);
+   }
+
+   /**
+    * Create instance of <code>mapClass</code> from JSON reader. Values are
+    * bound directly, tree of JSON values is not created.
+    *
+    * @param mapClass map type
+    * @param genericType actual type of map
+    * @param reader the JSON reader
+    * @return map
+    * @throws JsonException if any errors occurs
+    * @see #createObject(Class, Type, JsonValue)
+    */
+   public static <T extends Map<String, ?>> T createObject(Class<T> mapClass, Type genericType, JsonReader reader)
+      throws JsonException
+   {
+      Event event = reader.next();
+      return event == null ? null : readMap(mapClass, genericType, reader, event);
+   }
+
+   /**
+    * Create Java Bean from JSON reader. Values are bound directly, tree of JSON
+    * values is not created.
+    *
+    * @param clazz the Class of target Object.
+    * @param reader the JSON reader
+    * @return Object.
+    * @throws JsonException if any errors occurs.
+    * @see #createObject(Class, JsonValue)
+    */
+   public static <T> T createObject(Class<T> clazz, JsonReader reader) throws JsonException
+   {
+      Event event = reader.next();
+      return event == null ? null : readObject(clazz, reader, event);
+   }
+
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   private static Object readValue(Class<?> clazz, Type genericType, JsonReader reader, Event event)
+      throws JsonException
+   {
+      if (JsonUtils.isKnownType(clazz))
+      {
+         return readKnownType(clazz, reader, event);
+      }
+      Types type = JsonUtils.getType(clazz);
+      if (type == Types.ARRAY_OBJECT)
+      {
+         return readArray(clazz, reader, event);
+      }
+      if (type == Types.COLLECTION)
+      {
+         Class c = clazz;
+         return readCollection(c, genericType, reader, event);
+      }
+      if (type == Types.MAP)
+      {
+         Class c = clazz;
+         return readMap(c, genericType, reader, event);
+      }
+      return readObject(clazz, reader, event);
+   }
+
+   private static Object readArray(Class<?> clazz, JsonReader reader, Event event) throws JsonException
+   {
+      if (event == Event.NULL)
+      {
+         return null;
+      }
+      if (event != Event.START_ARRAY)
+      {
+         return createArray(clazz, readTree(reader, event));
+      }
+      Class<?> componentType = clazz.getComponentType();
+      boolean known = JsonUtils.isKnownType(componentType);
+      List<Object> values = new ArrayList<Object>();
+      while ((event = next(reader)) != Event.END_ARRAY)
+      {
+         if (known)
          {
-            String k = keys.next();
-            JsonValue v = jsonObject.getElement(k);
-            if (!JsonUtils.isKnownType(valueActualType))
-            {
-               sourceMap.put(k, createObject(valueActualType, v));
-            }
-            else
-            {
-               sourceMap.put(k, createObjectKnownTypes(valueActualType, v));
-            }
+            values.add(readKnownType(componentType, reader, event));
          }
-         try
+         else if (componentType.isArray())
          {
-            map = constructor.newInstance(sourceMap);
+            values.add(readArray(componentType, reader, event));
          }
-         catch (ExceptionInInitializerError e)
+         else
          {
-            throw new JsonException(e.getMessage(), e);
+            values.add(readObject(componentType, reader, event));
          }
-         catch (IllegalAccessException e)
+      }
+      Object array = Array.newInstance(componentType, values.size());
+      for (int i = 0; i < values.size(); i++)
+      {
+         Array.set(array, i, values.get(i));
+      }
+      return array;
+   }
+
+   private static <T extends Collection<?>> T readCollection(Class<T> collectionClass, Type genericType,
+      JsonReader reader, Event event) throws JsonException
+   {
+      if (event == Event.NULL)
+      {
+         return null;
+      }
+      if (event != Event.START_ARRAY)
+      {
+         return createCollection(collectionClass, genericType, readTree(reader, event));
+      }
+      Class<?> actualType = getCollectionElementType(genericType);
+      Constructor<? extends T> constructor = getCollectionConstructor(collectionClass);
+      boolean known = JsonUtils.isKnownType(actualType);
+      ArrayList<Object> sourceCollection = new ArrayList<Object>();
+      while ((event = next(reader)) != Event.END_ARRAY)
+      {
+         if (known)
          {
-            throw new JsonException(e.getMessage(), e);
+            sourceCollection.add(readKnownType(actualType, reader, event));
          }
-         catch (IllegalArgumentException e)
+         else
          {
-            throw new JsonException(e.getMessage(), e);
+            sourceCollection.add(readObject(actualType, reader, event));
          }
-         catch (InstantiationException e)
+      }
+      return newInstance(constructor, sourceCollection);
+   }
+
+   private static <T extends Map<String, ?>> T readMap(Class<T> mapClass, Type genericType, JsonReader reader,
+      Event event) throws JsonException
+   {
+      if (event == Event.NULL)
+      {
+         return null;
+      }
+      if (event != Event.START_OBJECT)
+      {
+         return createObject(mapClass, genericType, readTree(reader, event));
+      }
+      Class<?> valueActualType = getMapValueType(genericType);
+      Constructor<? extends T> constructor = getMapConstructor(mapClass);
+      boolean known = JsonUtils.isKnownType(valueActualType);
+      HashMap<String, Object> sourceMap = new HashMap<String, Object>();
+      while ((event = next(reader)) != Event.END_OBJECT)
+      {
+         String key = reader.getString();
+         event = next(reader);
+         if (known)
          {
-            throw new JsonException(e.getMessage(), e);
+            sourceMap.put(key, readKnownType(valueActualType, reader, event));
          }
-         catch (InvocationTargetException e)
+         else
          {
-            throw new JsonException(e.getMessage(), e);
+            sourceMap.put(key, readObject(valueActualType, reader, event));
          }
       }
-      return map;
+      return newInstance(constructor, sourceMap);
    }
 
-   /**
-    * Create Java Bean from Json Source.
-    *
-    * @param clazz the Class of target Object.
-    * @param jsonValue the Json representation.
-    * @return Object.
-    * @throws JsonException if any errors occurs.
-    */
    @SuppressWarnings({"unchecked", "rawtypes"})
-   public static <T> T createObject(Class<T> clazz, JsonValue jsonValue) throws JsonException
+   private static <T> T readObject(Class<T> clazz, JsonReader reader, Event event) throws JsonException
    {
-      if (jsonValue == null || jsonValue.isNull())
+      if (event == Event.NULL)
       {
          return null;
       }
-
-      Types type = JsonUtils.getType(clazz);
-      if (type == Types.ENUM)
+      if (JsonUtils.getType(clazz) == Types.ENUM)
       {
-         // Enum is not instantiable via CLass.getInstance().
-         // This is used when enum is member of array or collection.
          Class c = clazz;
-         return (T)Enum.valueOf(c, jsonValue.getStringValue());
+         return (T)Enum.valueOf(c, readTree(reader, event).getStringValue());
       }
-
-      if (!jsonValue.isObject())
+      if (event != Event.START_OBJECT)
       {
          throw new JsonException("Unsupported type of jsonValue. ");
       }
+      T object = newInstance(clazz);
+      Map<String, JavaBeanInfo.Property> setters = JavaBeanInfo.getInfo(clazz).settersMap;
+      while ((event = next(reader)) != Event.END_OBJECT)
+      {
+         JavaBeanInfo.Property setter = setters.get(reader.getString());
+         event = next(reader);
+         if (setter == null)
+         {
+            reader.skipValue();
+            continue;
+         }
+         try
+         {
+            setter.method.invoke(object, readValue(setter.type, setter.genericType, reader, event));
+         }
+         catch (Exception e)
+         {
+            throw new JsonException("Unable restore parameter via method " + clazz.getName() + "#"
+               + setter.method.getName() + ". " + e.getMessage(), e);
+         }
+      }
+      return object;
+   }
+
+   private static Object readKnownType(Class<?> clazz, JsonReader reader, Event event) throws JsonException
+   {
+      if (event == Event.START_ARRAY && clazz.isArray())
+      {
+         Class<?> componentType = clazz.getComponentType();
+         List<Object> values = new ArrayList<Object>();
+         while ((event = next(reader)) != Event.END_ARRAY)
+         {
+            values.add(createObjectKnownTypes(componentType, readTree(reader, event)));
+         }
+         Object array = Array.newInstance(componentType, values.size());
+         for (int i = 0; i < values.size(); i++)
+         {
+            Array.set(array, i, values.get(i));
+         }
+         return array;
+      }
+      return createObjectKnownTypes(clazz, readTree(reader, event));
+   }
+
+   /**
+    * Read value which starts with <code>event</code> as tree of JSON values.
+    * Used for scalar values and for values which may not be bound directly.
+    */
+   private static JsonValue readTree(JsonReader reader, Event event) throws JsonException
+   {
+      switch (event)
+      {
+         case STRING :
+            return new StringValue(reader.getString());
+         case LONG :
+            return new LongValue(reader.getLong());
+         case DOUBLE :
+            return new DoubleValue(reader.getDouble());
+         case BOOLEAN :
+            return new BooleanValue(reader.getBoolean());
+         case NULL :
+            return new NullValue();
+         case START_OBJECT : {
+            ObjectValue object = new ObjectValue();
+            while ((event = next(reader)) != Event.END_OBJECT)
+            {
+               String key = reader.getString();
+               object.addElement(key, readTree(reader, next(reader)));
+            }
+            return object;
+         }
+         case START_ARRAY : {
+            ArrayValue array = new ArrayValue();
+            while ((event = next(reader)) != Event.END_ARRAY)
+            {
+               array.addElement(readTree(reader, event));
+            }
+            return array;
+         }
+         default :
+            throw new JsonException("Unexpected " + event + ". ");
+      }
+   }
+
+   /**
+    * Read next event and check end of stream is not reached.
+    */
+   private static Event next(JsonReader reader) throws JsonException
+   {
+      Event event = reader.next();
+      if (event == null)
+      {
+         throw new JsonException("Unexpected end of stream.");
+      }
+      return event;
+   }
 
-      T object = null;
+   private static <T> T newInstance(Class<T> clazz) throws JsonException
+   {
       try
       {
-         object = clazz.newInstance();
+         return clazz.newInstance();
       }
       catch (ExceptionInInitializerError e)
       {
@@ -434,85 +629,187 @@ public class ObjectBuilder
       {
          throw new JsonException("Unable instantiate object. " + e.getMessage(), e);
       }
+   }
 
-      Method[] methods = clazz.getMethods();
+   private static <T> T newInstance(Constructor<? extends T> constructor, Object source) throws JsonException
+   {
+      try
+      {
+         return constructor.newInstance(source);
+      }
+      catch (IllegalAccessException e)
+      {
+         throw new JsonException(e.getMessage(), e);
+      }
+      catch (IllegalArgumentException e)
+      {
+         throw new JsonException(e.getMessage(), e);
+      }
+      catch (InstantiationException e)
+      {
+         throw new JsonException(e.getMessage(), e);
+      }
+      catch (InvocationTargetException e)
+      {
+         throw new JsonException(e.getMessage(), e);
+      }
+      catch (ExceptionInInitializerError e)
+      {
+         throw new JsonException(e.getMessage(), e);
+      }
+   }
 
-      for (Method method : methods)
+   private static Class<?> getCollectionElementType(Type genericType) throws JsonException
+   {
+      if (genericType instanceof ParameterizedType)
       {
-         String methodName = method.getName();
-         Class<?>[] parameterTypes = method.getParameterTypes();
-         // 3 is length of prefix 'set'
-         if (!SKIP_METHODS.contains(methodName) && methodName.startsWith("set") && parameterTypes.length == 1
-            && methodName.length() > 3)
+         // Collection can't be parameterized by other Collection, Array, etc.
+         ParameterizedType parameterizedType = (ParameterizedType)genericType;
+         try
+         {
+            return (Class<?>)parameterizedType.getActualTypeArguments()[0];
+         }
+         catch (ClassCastException e)
          {
-            Class<?> methodParameterClass = parameterTypes[0];
-            // 3 is length of prefix 'set'
-            String key = methodName.substring(3);
-            // first letter to lower case
-            key = (key.length() > 1) ? Character.toLowerCase(key.charAt(0)) + key.substring(1) : key.toLowerCase();
+            throw new JsonException("This type of Collection can't be restored from JSON source. "
+               + "\nCollection is parameterized by wrong Type: " + parameterizedType + ".", e);
+         }
+      }
+      throw new JsonException("Collection is not parameterized. Collection<?> is not supported. "
+         + "\nCollection must be parameterized by any types, or by JavaBean with 'get' and 'set' methods.");
+   }
 
-            JsonValue childJsonValue = jsonValue.getElement(key);
-            if (childJsonValue == null)
+   private static <T> Constructor<? extends T> getCollectionConstructor(Class<T> collectionClass)
+      throws JsonException
+   {
+      Constructor<? extends T> constructor = null;
+      if (collectionClass.isInterface() || Modifier.isAbstract(collectionClass.getModifiers()))
+      {
+         try
+         {
+            constructor = ArrayList.class.asSubclass(collectionClass).getConstructor(new Class[]{Collection.class});
+         }
+         catch (Exception e)
+         {
+            try
             {
-               continue;
+               constructor = HashSet.class.asSubclass(collectionClass).getConstructor(new Class[]{Collection.class});
             }
-            // if one of known primitive type or array of primitive type
-            try
+            catch (Exception e1)
             {
-
-               if (JsonUtils.isKnownType(methodParameterClass))
+               try
                {
-                  method.invoke(object, new Object[]{createObjectKnownTypes(methodParameterClass, childJsonValue)});
+                  constructor =
+                     LinkedList.class.asSubclass(collectionClass).getConstructor(new Class[]{Collection.class});
                }
-               else
+               catch (Exception e2)
                {
-                  Types parameterType = JsonUtils.getType(methodParameterClass);
-                  // other type Collection, Map or Object[].
-                  if (parameterType != null)
+                  if (LOG.isTraceEnabled())
                   {
-                     if (parameterType == Types.ENUM)
-                     {
-                        Class c = methodParameterClass;
-                        Enum<?> en = Enum.valueOf(c, childJsonValue.getStringValue());
-                        method.invoke(object, new Object[]{en});
-                     }
-                     else if (parameterType == Types.ARRAY_OBJECT)
-                     {
-                        Object array = createArray(methodParameterClass, childJsonValue);
-                        method.invoke(object, new Object[]{array});
-                     }
-                     else if (parameterType == Types.COLLECTION)
-                     {
-                        Class c = methodParameterClass;
-                        method
-                           .invoke(object, createCollection(c, method.getGenericParameterTypes()[0], childJsonValue));
-                     }
-                     else if (parameterType == Types.MAP)
-                     {
-                        Class c = methodParameterClass;
-                        method.invoke(object, createObject(c, method.getGenericParameterTypes()[0], childJsonValue));
-                     }
-                     else
-                     {
-                        // it must never happen!
-                        throw new JsonException("Can't restore parameter of method : " + clazz.getName() + "#"
-                           + method.getName() + " from JSON source.");
-                     }
-                  }
-                  else
-                  {
-                     method.invoke(object, createObject(methodParameterClass, childJsonValue));
+                     LOG.trace("An exception occurred: " + e2.getMessage());
                   }
                }
             }
-            catch (Exception e)
+         }
+      }
+      else
+      {
+         try
+         {
+            constructor = collectionClass.getConstructor(new Class[]{Collection.class});
+         }
+         catch (SecurityException e)
+         {
+            throw new JsonException(e.getMessage(), e);
+         }
+         catch (NoSuchMethodException e)
+         {
+            throw new JsonException(e.getMessage(), e);
+         }
+      }
+
+      if (constructor == null)
+      {
+         throw new JsonException("Can't find satisfied constructor for : " + collectionClass);
+      }
+      return constructor;
+   }
+
+   private static Class<?> getMapValueType(Type genericType) throws JsonException
+   {
+      if (genericType instanceof ParameterizedType)
+      {
+         ParameterizedType parameterizedType = (ParameterizedType)genericType;
+         if (!String.class.isAssignableFrom((Class<?>)parameterizedType.getActualTypeArguments()[0]))
+         {
+            throw new JsonException("Key of Map must be String. ");
+         }
+         try
+         {
+            return (Class<?>)parameterizedType.getActualTypeArguments()[1];
+         }
+         catch (ClassCastException e)
+         {
+            throw new JsonException("This type of Map can't be restored from JSON source."
+               + "\nMap is parameterized by wrong Type: " + parameterizedType + ".", e);
+         }
+      }
+      throw new JsonException("Map is not parameterized. Map<Sting, ?> is not supported."
+         + "\nMap must be parameterized by String and any types or JavaBean with 'get' and 'set' methods.");
+   }
+
+   private static <T> Constructor<? extends T> getMapConstructor(Class<T> mapClass) throws JsonException
+   {
+      Constructor<? extends T> constructor = null;
+      if (mapClass.isInterface() || Modifier.isAbstract(mapClass.getModifiers()))
+      {
+         try
+         {
+            constructor = HashMap.class.asSubclass(mapClass).getConstructor(new Class[]{Map.class});
+         }
+         catch (Exception e)
+         {
+            try
             {
-               throw new JsonException("Unable restore parameter via method " + clazz.getName() + "#"
-                  + method.getName() + ". " + e.getMessage(), e);
+               constructor = Hashtable.class.asSubclass(mapClass).getConstructor(new Class[]{Map.class});
+            }
+            catch (Exception e1)
+            {
+               try
+               {
+                  constructor = LinkedHashMap.class.asSubclass(mapClass).getConstructor(new Class[]{Map.class});
+               }
+               catch (Exception e2)
+               {
+                  if (LOG.isTraceEnabled())
+                  {
+                     LOG.trace("An exception occurred: " + e2.getMessage());
+                  }
+               }
             }
          }
       }
-      return object;
+      else
+      {
+         try
+         {
+            constructor = mapClass.getConstructor(new Class[]{Map.class});
+         }
+         catch (SecurityException e)
+         {
+            throw new JsonException(e.getMessage(), e);
+         }
+         catch (NoSuchMethodException e)
+         {
+            throw new JsonException(e.getMessage(), e);
+         }
+      }
+
+      if (constructor == null)
+      {
+         throw new JsonException("Can't find satisfied constructor for : " + mapClass);
+      }
+      return constructor;
    }
 
    /**
@@ -30,6 +30,7 @@ import org.exoplatform.ws.frameworks.json.JavaMapBean;
 import org.exoplatform.ws.frameworks.json.StringEnum;
 import org.exoplatform.ws.frameworks.json.value.JsonValue;
 
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -267,6 +268,57 @@ public class JsonGeneratorTest extends JsonTest
       assertEquals(ForTestClass000.class.getName(), jsonValue.getElement("klass").getStringValue());
    }
 
+   public void testWriteBeanDirectly() throws Exception
+   {
+      JavaMapBean mb = new JavaMapBean();
+      Map<String, String> str = new HashMap<String, String>();
+      str.put("key1", "value1");
+      str.put("key2", null);
+      mb.setStrings(str);
+      BeanWithSimpleEnum be = new BeanWithSimpleEnum();
+      be.setName("na\"me");
+      be.setCounts(new StringEnum[]{StringEnum.ONE, null});
+      be.setCountList(Arrays.asList(StringEnum.ONE, StringEnum.TWO));
+      for (Object bean : new Object[]{junitBook, mb, be, new BeanWithTransientField()})
+      {
+         JsonGeneratorImpl generator = new JsonGeneratorImpl();
+         StringWriter expected = new StringWriter();
+         JsonWriterImpl jsonWriter = new JsonWriterImpl(expected);
+         generator.createJsonObject(bean).writeTo(jsonWriter);
+         jsonWriter.flush();
+         StringWriter actual = new StringWriter();
+         jsonWriter = new JsonWriterImpl(actual);
+         generator.writeJsonObject(bean, jsonWriter);
+         jsonWriter.flush();
+         assertEquals(expected.toString(), actual.toString());
+      }
+   }
+
+   public void testWriteIterator() throws Exception
+   {
+      List<Object> list = new ArrayList<Object>();
+      list.add(junitBook);
+      list.add(null);
+      list.add("str\"ing");
+      list.add(Arrays.asList(csharpBook, javaScriptBook));
+      JsonGeneratorImpl generator = new JsonGeneratorImpl();
+      StringWriter expected = new StringWriter();
+      JsonWriterImpl jsonWriter = new JsonWriterImpl(expected);
+      generator.createJsonArray(list).writeTo(jsonWriter);
+      jsonWriter.flush();
+      StringWriter actual = new StringWriter();
+      jsonWriter = new JsonWriterImpl(actual);
+      generator.writeJsonArray(list.iterator(), jsonWriter);
+      jsonWriter.flush();
+      assertEquals(expected.toString(), actual.toString());
+
+      actual = new StringWriter();
+      jsonWriter = new JsonWriterImpl(actual);
+      generator.writeJsonArray(new ArrayList<Object>().iterator(), jsonWriter);
+      jsonWriter.flush();
+      assertEquals("[]", actual.toString());
+   }
+
    public static class ForTestClass000
    {
    }
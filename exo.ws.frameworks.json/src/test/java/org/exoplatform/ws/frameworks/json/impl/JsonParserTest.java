@@ -203,4 +203,25 @@ public class JsonParserTest extends JsonTest
       assertEquals(exp.toString(), jsonValue.toString());
    }
 
+   public void testInputStreamUtf8() throws Exception
+   {
+      // Multi-byte characters on boundaries of internal buffers.
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 5000; i++)
+      {
+         sb.append("\u00e9\u4e2d\ud83d\ude00");
+      }
+      String value = sb.toString();
+      String jsonString = "{\"key\":\"" + value + "\", \"number\":1234567890123}";
+
+      JsonParser jsonParser = new JsonParserImpl();
+      JsonDefaultHandler handler = new JsonDefaultHandler();
+      jsonParser.parse(new ByteArrayInputStream(jsonString.getBytes("UTF-8")), handler);
+      JsonValue jsonValue = handler.getJsonObject();
+
+      assertEquals(value, jsonValue.getElement("key").getStringValue());
+      assertTrue(jsonValue.getElement("number").isLong());
+      assertEquals(1234567890123L, jsonValue.getElement("number").getLongValue());
+   }
+
 }
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.ws.frameworks.json.impl;
+
+import org.exoplatform.ws.frameworks.json.JsonReader;
+import org.exoplatform.ws.frameworks.json.JsonReader.Event;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class JsonReaderTest extends JsonTest
+{
+
+   public void testNested() throws Exception
+   {
+      JsonReader reader = reader("{\"a\":{\"b\":[1,[2,{\"c\":null}]],\"e\":[]},\"d\":true}");
+      assertEquals(Event.START_OBJECT, reader.next());
+      assertKey("a", reader);
+      assertEquals(Event.START_OBJECT, reader.next());
+      assertKey("b", reader);
+      assertEquals(Event.START_ARRAY, reader.next());
+      assertEquals(Event.LONG, reader.next());
+      assertEquals(1L, reader.getLong());
+      assertEquals(Event.START_ARRAY, reader.next());
+      assertEquals(Event.LONG, reader.next());
+      assertEquals(2L, reader.getLong());
+      assertEquals(Event.START_OBJECT, reader.next());
+      assertKey("c", reader);
+      assertEquals(Event.NULL, reader.next());
+      assertEquals(Event.END_OBJECT, reader.next());
+      assertEquals(Event.END_ARRAY, reader.next());
+      assertEquals(Event.END_ARRAY, reader.next());
+      assertKey("e", reader);
+      assertEquals(Event.START_ARRAY, reader.next());
+      assertEquals(Event.END_ARRAY, reader.next());
+      assertEquals(Event.END_OBJECT, reader.next());
+      assertKey("d", reader);
+      assertEquals(Event.BOOLEAN, reader.next());
+      assertTrue(reader.getBoolean());
+      assertEquals(Event.END_OBJECT, reader.next());
+      assertNull(reader.next());
+   }
+
+   public void testSkipValue() throws Exception
+   {
+      JsonReader reader = reader("{\"a\":{\"b\":[1,{\"c\":[]}]},\"d\":\"foo\"}");
+      assertEquals(Event.START_OBJECT, reader.next());
+      assertKey("a", reader);
+      assertEquals(Event.START_OBJECT, reader.next());
+      reader.skipValue();
+      assertKey("d", reader);
+      assertEquals(Event.STRING, reader.next());
+      // nothing to skip for scalar value
+      reader.skipValue();
+      assertEquals("foo", reader.getString());
+      assertEquals(Event.END_OBJECT, reader.next());
+      assertNull(reader.next());
+   }
+
+   public void testEscapes() throws Exception
+   {
+      JsonReader reader =
+         reader("[\"a\\\"b\", \"\\\\\", \"\\n\\t\\r\\b\\f\", \"\\u0041\\u00e9\", \"\\/\", \"\"]");
+      assertEquals(Event.START_ARRAY, reader.next());
+      assertString("a\"b", reader);
+      assertString("\\", reader);
+      assertString("\n\t\r\b\f", reader);
+      assertString("A\u00e9", reader);
+      assertString("/", reader);
+      assertString("", reader);
+      assertEquals(Event.END_ARRAY, reader.next());
+      assertNull(reader.next());
+   }
+
+   public void testEscapesInLongString() throws Exception
+   {
+      // String does not fit in internal buffers.
+      StringBuilder json = new StringBuilder();
+      StringBuilder value = new StringBuilder();
+      for (int i = 0; i < 10000; i++)
+      {
+         json.append("x\\\"\\u0041");
+         value.append("x\"A");
+      }
+      JsonReader reader = reader("{\"key\":\"" + json + "\"}");
+      assertEquals(Event.START_OBJECT, reader.next());
+      assertKey("key", reader);
+      assertString(value.toString(), reader);
+      assertEquals(Event.END_OBJECT, reader.next());
+   }
+
+   public void testNumbers() throws Exception
+   {
+      JsonReader reader =
+         reader("[0, 1, -2387648, 0xAA, 077, 9223372036854775807, 1.5, -1.5e3, 1e2, 92233720368547758070]");
+      assertEquals(Event.START_ARRAY, reader.next());
+      assertLong(0L, reader);
+      assertLong(1L, reader);
+      assertLong(-2387648L, reader);
+      assertLong(0xAAL, reader);
+      assertLong(077L, reader);
+      assertLong(Long.MAX_VALUE, reader);
+      assertDouble(1.5D, reader);
+      assertDouble(-1.5e3D, reader);
+      assertDouble(1e2D, reader);
+      // too big for long
+      assertDouble(92233720368547758070D, reader);
+      assertEquals(Event.END_ARRAY, reader.next());
+   }
+
+   public void testLiterals() throws Exception
+   {
+      JsonReader reader = reader("[true, false, null, foo]");
+      assertEquals(Event.START_ARRAY, reader.next());
+      assertEquals(Event.BOOLEAN, reader.next());
+      assertTrue(reader.getBoolean());
+      assertEquals(Event.BOOLEAN, reader.next());
+      assertFalse(reader.getBoolean());
+      assertEquals(Event.NULL, reader.next());
+      // unquoted value which is not number or literal is string, the same as JsonParserImpl does
+      assertString("foo", reader);
+      assertEquals(Event.END_ARRAY, reader.next());
+   }
+
+   public void testWrongValueType() throws Exception
+   {
+      JsonReader reader = reader("[\"1\"]");
+      assertEquals(Event.START_ARRAY, reader.next());
+      assertEquals(Event.STRING, reader.next());
+      try
+      {
+         reader.getLong();
+         fail("IllegalStateException expected");
+      }
+      catch (IllegalStateException e)
+      {
+      }
+   }
+
+   public void testInputStreamUtf8() throws Exception
+   {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 5000; i++)
+      {
+         sb.append("\u00e9\u4e2d\ud83d\ude00");
+      }
+      String value = sb.toString();
+      JsonReader reader =
+         new JsonReaderImpl(new ByteArrayInputStream(("[\"" + value + "\", 1234567890123]").getBytes("UTF-8")));
+      assertEquals(Event.START_ARRAY, reader.next());
+      assertString(value, reader);
+      assertLong(1234567890123L, reader);
+      assertEquals(Event.END_ARRAY, reader.next());
+      assertNull(reader.next());
+   }
+
+   public void testMalformed() throws Exception
+   {
+      String[] malformed = new String[]{ //
+         "foo", // must start from '{' or '['
+         "{\"a\":1", // unterminated object
+         "[1,2", // unterminated array
+         "{\"a\":1]", //
+         "[1}", //
+         "{\"a\" 1}", // missing ':'
+         "{a:1}", // key without quotes
+         "{\"\":1}", // empty key
+         "[\"abc]", // unterminated string
+         "[\"abc\n\"]", //
+         "[\"\\u00zz\"]", // wrong unicode escape
+         "[\"\\u00", //
+         "[[1]2]", // missing ','
+         "{\"a\":{\"b\":1}", //
+      };
+      for (String json : malformed)
+      {
+         JsonReader reader = reader(json);
+         try
+         {
+            while (reader.next() != null)
+            {
+            }
+            fail("JsonException expected for " + json);
+         }
+         catch (JsonException e)
+         {
+         }
+      }
+   }
+
+   private JsonReader reader(String json)
+   {
+      return new JsonReaderImpl(new StringReader(json));
+   }
+
+   private void assertKey(String key, JsonReader reader) throws JsonException
+   {
+      assertEquals(Event.KEY, reader.next());
+      assertEquals(key, reader.getString());
+   }
+
+   private void assertString(String value, JsonReader reader) throws JsonException
+   {
+      assertEquals(Event.STRING, reader.next());
+      assertEquals(value, reader.getString());
+   }
+
+   private void assertLong(long value, JsonReader reader) throws JsonException
+   {
+      assertEquals(Event.LONG, reader.next());
+      assertEquals(value, reader.getLong());
+   }
+
+   private void assertDouble(double value, JsonReader reader) throws JsonException
+   {
+      assertEquals(Event.DOUBLE, reader.next());
+      assertEquals(value, reader.getDouble());
+   }
+
+}
@@ -32,9 +32,13 @@ import org.exoplatform.ws.frameworks.json.value.JsonValue;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author <a href="andrew00x@gmail.com">Andrey Parfonov</a>
@@ -320,6 +324,64 @@ public class ObjectBuilderTest extends JsonTest
       assertTrue(o.getBooks().get(2).equals(sourceCollection.get(2)));
    }
 
+   public void testBeanFromReader() throws Exception
+   {
+      JsonReaderImpl reader =
+         new JsonReaderImpl(Thread.currentThread().getContextClassLoader().getResourceAsStream("BookStorage.txt"));
+      BookStorage o = ObjectBuilder.createObject(BookStorage.class, reader);
+      assertTrue(o.getBooks().get(0).equals(sourceCollection.get(0)));
+      assertTrue(o.getBooks().get(1).equals(sourceCollection.get(1)));
+      assertTrue(o.getBooks().get(2).equals(sourceCollection.get(2)));
+      assertNull(reader.next());
+   }
+
+   public void testCollectionFromReader() throws Exception
+   {
+      JsonReaderImpl reader =
+         new JsonReaderImpl(Thread.currentThread().getContextClassLoader().getResourceAsStream("CollectionTest.txt"));
+      JavaCollectionBean o = ObjectBuilder.createObject(JavaCollectionBean.class, reader);
+      assertNull(reader.next());
+
+      assertEquals(sourceCollection, o.getArrayList());
+      assertEquals(sourceCollection, o.getVector());
+      assertEquals(sourceCollection, o.getLinkedList());
+      assertEquals(sourceCollection, o.getList());
+      assertEquals(sourceCollection, Arrays.asList(o.getArray()));
+      assertEquals(new HashSet<Book>(sourceCollection), o.getLinkedHashSet());
+      assertEquals(new HashSet<Book>(sourceCollection), o.getHashSet());
+      assertEquals(new HashSet<Book>(sourceCollection), o.getSet());
+      assertEquals(new HashSet<Book>(sourceCollection), new HashSet<Book>(o.getQueue()));
+      assertEquals(new HashSet<Book>(sourceCollection), new HashSet<Book>(o.getCollection()));
+   }
+
+   public void testMapFromReader() throws Exception
+   {
+      JsonReaderImpl reader =
+         new JsonReaderImpl(Thread.currentThread().getContextClassLoader().getResourceAsStream("MapTest.txt"));
+      JavaMapBean o = ObjectBuilder.createObject(JavaMapBean.class, reader);
+      assertNull(reader.next());
+
+      Map<String, Book> expected = new HashMap<String, Book>();
+      expected.put("JUnit", sourceCollection.get(0));
+      expected.put("C#", sourceCollection.get(1));
+      expected.put("JavaScript", sourceCollection.get(2));
+      assertEquals(expected, o.getMap());
+      assertEquals(expected, o.getHashMap());
+      assertEquals(expected, o.getHashtable());
+      assertEquals(expected, o.getLinkedHashMap());
+   }
+
+   public void testArrayFromReader() throws Exception
+   {
+      String source = "[[\"a\",\"b\"],[],[\"c\"]]";
+      JsonReaderImpl reader = new JsonReaderImpl(new StringReader(source));
+      String[][] o = (String[][])ObjectBuilder.createArray(String[][].class, reader);
+      assertEquals(3, o.length);
+      assertEquals(Arrays.asList("a", "b"), Arrays.asList(o[0]));
+      assertEquals(0, o[1].length);
+      assertEquals(Arrays.asList("c"), Arrays.asList(o[2]));
+   }
+
    public void testEnumSerialization() throws Exception
    {
       String source =
@@ -350,6 +412,24 @@ public class ObjectBuilderTest extends JsonTest
       assertTrue(tmp.contains(StringEnum.TREE));
    }
 
+   public void testEnumFromReader() throws Exception
+   {
+      String source =
+         "{\"countList\":[\"ONE\",\"TWO\",\"TREE\"], \"name\":\"andrew\",\"count\":\"TREE\","
+            + "\"counts\":[\"TWO\",\"TREE\"]}";
+      BeanWithSimpleEnum o =
+         ObjectBuilder.createObject(BeanWithSimpleEnum.class, new JsonReaderImpl(new StringReader(source)));
+      assertEquals("andrew", o.getName());
+      assertEquals(StringEnum.TREE, o.getCount());
+      assertEquals(Arrays.asList(StringEnum.TWO, StringEnum.TREE), Arrays.asList(o.getCounts()));
+      assertEquals(Arrays.asList(StringEnum.ONE, StringEnum.TWO, StringEnum.TREE), o.getCountList());
+
+      source = "{\"book\":\"BEGINNING_C\"}";
+      BeanWithBookEnum o2 =
+         ObjectBuilder.createObject(BeanWithBookEnum.class, new JsonReaderImpl(new StringReader(source)));
+      assertEquals(BookEnum.BEGINNING_C, o2.getBook());
+   }
+
    public void testEnumSerialization2() throws Exception
    {
       String source = "{\"book\":\"BEGINNING_C\"}";
@@ -374,6 +454,14 @@ public class ObjectBuilderTest extends JsonTest
       assertEquals(ForTestClass001.class, o.getKlass());
    }
 
+   public void testClassFromReader() throws Exception
+   {
+      String source = "{\"klass\":\"" + ForTestClass001.class.getName() + "\"}";
+      ClassTransfBean o =
+         ObjectBuilder.createObject(ClassTransfBean.class, new JsonReaderImpl(new StringReader(source)));
+      assertEquals(ForTestClass001.class, o.getKlass());
+   }
+
    public static class ForTestClass001
    {
    }
@@ -397,6 +485,30 @@ public class ObjectBuilderTest extends JsonTest
       assertEquals(true, o.isBool());
    }
 
+   public void testConvertFromStringValueFromReader() throws Exception
+   {
+      String jsonString =
+         "{\"b\":\"1\", \"s\":\"2\" , \"i\":\"3\", \"l\":\"4\",\"f\":\"1.05\",\"d\":\"1.1\",\"bool\":\"true\"}";
+      ConvertFromStringValuBean o =
+         ObjectBuilder.createObject(ConvertFromStringValuBean.class, new JsonReaderImpl(new StringReader(jsonString)));
+      assertEquals(1, o.getB());
+      assertEquals(2, o.getS());
+      assertEquals(3, o.getI());
+      assertEquals(4L, o.getL());
+      assertEquals(1.05F, o.getF());
+      assertEquals(1.1D, o.getD());
+      assertEquals(true, o.isBool());
+   }
+
+   public void testUnknownKeysFromReader() throws Exception
+   {
+      String jsonString = "{\"unknown\":{\"a\":[1,{\"b\":2}]},\"i\":3,\"other\":[[]],\"l\":4}";
+      ConvertFromStringValuBean o =
+         ObjectBuilder.createObject(ConvertFromStringValuBean.class, new JsonReaderImpl(new StringReader(jsonString)));
+      assertEquals(3, o.getI());
+      assertEquals(4L, o.getL());
+   }
+
    public static class ConvertFromStringValuBean
    {
       private byte b;
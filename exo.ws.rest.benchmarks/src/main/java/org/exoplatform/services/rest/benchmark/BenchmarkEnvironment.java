@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.benchmark;
+
+import org.exoplatform.container.StandaloneContainer;
+import org.exoplatform.services.rest.SingletonObjectFactory;
+import org.exoplatform.services.rest.impl.ContainerResponse;
+import org.exoplatform.services.rest.impl.ProviderBinder;
+import org.exoplatform.services.rest.impl.RequestHandlerImpl;
+import org.exoplatform.services.rest.impl.ResourceBinder;
+import org.exoplatform.services.rest.impl.resource.AbstractResourceDescriptorImpl;
+import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
+import org.exoplatform.services.rest.tools.ByteArrayContainerResponseWriter;
+import org.exoplatform.services.rest.tools.ResourceLauncher;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Container and REST components shared by all benchmarks in the same JVM.
+ * Requests are processed in-process with {@link ResourceLauncher}, response
+ * body is written in {@link ByteArrayContainerResponseWriter}.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public final class BenchmarkEnvironment
+{
+
+   private static BenchmarkEnvironment instance;
+
+   /**
+    * @return environment, it is created at first call
+    * @throws Exception if container can't be started
+    */
+   public static synchronized BenchmarkEnvironment getInstance() throws Exception
+   {
+      if (instance == null)
+         instance = new BenchmarkEnvironment();
+      return instance;
+   }
+
+   private final ResourceBinder binder;
+
+   private final ResourceLauncher launcher;
+
+   private BenchmarkEnvironment() throws Exception
+   {
+      StandaloneContainer.setConfigurationURL(getClass().getResource("/conf/benchmark-configuration.xml").toString());
+      StandaloneContainer container = StandaloneContainer.getInstance();
+      binder = (ResourceBinder)container.getComponentInstanceOfType(ResourceBinder.class);
+      RequestHandlerImpl requestHandler =
+         (RequestHandlerImpl)container.getComponentInstanceOfType(RequestHandlerImpl.class);
+      launcher = new ResourceLauncher(requestHandler);
+   }
+
+   /**
+    * @return resource binder
+    */
+   public ResourceBinder getBinder()
+   {
+      return binder;
+   }
+
+   /**
+    * @return default providers
+    */
+   public ProviderBinder getProviders()
+   {
+      return ProviderBinder.getInstance();
+   }
+
+   /**
+    * Publish singleton instance of resource at specified path.
+    *
+    * @param resource resource instance
+    * @param path path of resource
+    */
+   public void mount(Object resource, String path)
+   {
+      AbstractResourceDescriptor descriptor =
+         new MountedResourceDescriptor(new AbstractResourceDescriptorImpl(resource), path);
+      binder.addResource(new SingletonObjectFactory<AbstractResourceDescriptor>(descriptor, resource));
+   }
+
+   /**
+    * Process request.
+    *
+    * @param method HTTP method
+    * @param requestURI request URI, relative to empty base URI
+    * @param headers request headers, may be <code>null</code>
+    * @param data request body, may be <code>null</code>
+    * @return response body
+    * @throws Exception if any error occurs
+    */
+   public byte[] service(String method, String requestURI, Map<String, List<String>> headers, byte[] data)
+      throws Exception
+   {
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      launcher.service(method, requestURI, "", headers, data, writer, null);
+      return writer.getBody();
+   }
+
+   /**
+    * Process request and check status of response. Should be used to check
+    * benchmark setup before measurement.
+    *
+    * @param expectedStatus expected status of response
+    * @param method HTTP method
+    * @param requestURI request URI, relative to empty base URI
+    * @param headers request headers, may be <code>null</code>
+    * @param data request body, may be <code>null</code>
+    * @throws Exception if any error occurs
+    * @throws IllegalStateException if status of response is not expected
+    */
+   public void check(int expectedStatus, String method, String requestURI, Map<String, List<String>> headers,
+      byte[] data) throws Exception
+   {
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service(method, requestURI, "", headers, data, writer, null);
+      if (response.getStatus() != expectedStatus)
+         throw new IllegalStateException("Unexpected status " + response.getStatus() + " of request " + method + " "
+            + requestURI + ", expected " + expectedStatus + ". ");
+   }
+
+}
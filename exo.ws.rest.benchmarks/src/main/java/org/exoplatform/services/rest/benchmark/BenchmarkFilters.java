@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.benchmark;
+
+import org.exoplatform.services.rest.Filter;
+import org.exoplatform.services.rest.GenericContainerRequest;
+import org.exoplatform.services.rest.GenericContainerResponse;
+import org.exoplatform.services.rest.RequestFilter;
+import org.exoplatform.services.rest.ResponseFilter;
+import org.exoplatform.services.rest.method.MethodInvokerFilter;
+import org.exoplatform.services.rest.resource.GenericMethodResource;
+
+import javax.ws.rs.Path;
+
+/**
+ * Filters applied to requests of {@link BenchmarkResource#filtered()} only.
+ * Filters do trivial work, so benchmark shows overhead of filter chain.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public final class BenchmarkFilters
+{
+
+   @Filter
+   @Path("bench/filtered")
+   public static class HeaderRequestFilter implements RequestFilter
+   {
+      public void doFilter(GenericContainerRequest request)
+      {
+         request.getRequestHeader("X-Token");
+      }
+   }
+
+   @Filter
+   @Path("bench/filtered")
+   public static class HeaderResponseFilter implements ResponseFilter
+   {
+      public void doFilter(GenericContainerResponse response)
+      {
+         response.getHttpHeaders().putSingle("X-Filtered", "true");
+      }
+   }
+
+   @Filter
+   @Path("bench/filtered")
+   public static class NoopMethodInvokerFilter implements MethodInvokerFilter
+   {
+      public void accept(GenericMethodResource genericMethodResource)
+      {
+      }
+   }
+
+   private BenchmarkFilters()
+   {
+   }
+
+}
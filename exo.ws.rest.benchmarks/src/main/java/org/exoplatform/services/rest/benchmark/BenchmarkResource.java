@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.benchmark;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Resource which covers the most common parts of request pipeline.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+@Path("/bench")
+public class BenchmarkResource
+{
+
+   /**
+    * Resource returned by sub-resource locator.
+    */
+   public static class Child
+   {
+
+      private final String id;
+
+      public Child(String id)
+      {
+         this.id = id;
+      }
+
+      @GET
+      @Produces(MediaType.TEXT_PLAIN)
+      public String get()
+      {
+         return id;
+      }
+
+      @GET
+      @Path("{name}")
+      @Produces(MediaType.TEXT_PLAIN)
+      public String getChild(@PathParam("name") String name)
+      {
+         return id + '/' + name;
+      }
+
+   }
+
+   @GET
+   @Path("plain")
+   @Produces(MediaType.TEXT_PLAIN)
+   public String plain()
+   {
+      return "ok";
+   }
+
+   @GET
+   @Path("params/{a}/{b}")
+   @Produces(MediaType.TEXT_PLAIN)
+   public String params(@PathParam("a") String a, @PathParam("b") int b, @QueryParam("q") String q,
+      @QueryParam("n") @DefaultValue("10") int n, @HeaderParam("X-Token") String token)
+   {
+      return a + b + q + n + token;
+   }
+
+   @Path("locator/{id}")
+   public Child locator(@PathParam("id") String id)
+   {
+      return new Child(id);
+   }
+
+   @POST
+   @Path("bytes")
+   @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+   @Produces(MediaType.APPLICATION_OCTET_STREAM)
+   public byte[] bytes(byte[] data)
+   {
+      return data;
+   }
+
+   @POST
+   @Path("json")
+   @Consumes(MediaType.APPLICATION_JSON)
+   @Produces(MediaType.APPLICATION_JSON)
+   public Item json(Item item)
+   {
+      return item;
+   }
+
+   @POST
+   @Path("xml")
+   @Consumes(MediaType.APPLICATION_XML)
+   @Produces(MediaType.APPLICATION_XML)
+   public Item xml(Item item)
+   {
+      return item;
+   }
+
+   @GET
+   @Path("filtered")
+   @Produces(MediaType.TEXT_PLAIN)
+   public String filtered()
+   {
+      return "ok";
+   }
+
+}
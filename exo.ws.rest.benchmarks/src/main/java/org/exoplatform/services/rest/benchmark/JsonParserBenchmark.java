@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.benchmark;
+
+import org.exoplatform.ws.frameworks.json.impl.JsonDefaultHandler;
+import org.exoplatform.ws.frameworks.json.impl.JsonParserImpl;
+import org.exoplatform.ws.frameworks.json.value.JsonValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link JsonParserImpl}.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonParserBenchmark
+{
+
+   private static final String SMALL = "{\"name\":\"benchmark\",\"count\":42,\"tags\":[\"a\",\"b\",\"c\"]}";
+
+   private final JsonParserImpl parser = new JsonParserImpl();
+
+   private String large;
+
+   @Setup
+   public void setUp()
+   {
+      StringBuilder b = new StringBuilder();
+      b.append('[');
+      for (int i = 0; i < 1000; i++)
+      {
+         if (i > 0)
+            b.append(',');
+         b.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i)
+            .append("\",\"price\":").append(i * 1.5D).append(",\"available\":").append(i % 2 == 0)
+            .append(",\"tags\":[\"x\",\"y\\u0020z\"],\"parent\":null}");
+      }
+      b.append(']');
+      large = b.toString();
+   }
+
+   @Benchmark
+   public JsonValue small() throws Exception
+   {
+      JsonDefaultHandler handler = new JsonDefaultHandler();
+      parser.parse(new StringReader(SMALL), handler);
+      return handler.getJsonObject();
+   }
+
+   @Benchmark
+   public JsonValue large() throws Exception
+   {
+      JsonDefaultHandler handler = new JsonDefaultHandler();
+      parser.parse(new StringReader(large), handler);
+      return handler.getJsonObject();
+   }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.benchmark;
+
+import org.exoplatform.services.rest.ConstructorDescriptor;
+import org.exoplatform.services.rest.FieldInjector;
+import org.exoplatform.services.rest.impl.resource.PathValue;
+import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
+import org.exoplatform.services.rest.resource.ResourceDescriptorVisitor;
+import org.exoplatform.services.rest.resource.ResourceMethodDescriptor;
+import org.exoplatform.services.rest.resource.ResourceMethodMap;
+import org.exoplatform.services.rest.resource.SubResourceLocatorMap;
+import org.exoplatform.services.rest.resource.SubResourceMethodMap;
+import org.exoplatform.services.rest.uri.UriPattern;
+
+import java.util.List;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * Descriptor of resource bound to path other than path in its &#64;Path
+ * annotation. It makes possible to publish the same resource class many
+ * times, e.g. for benchmark of root resource matching with many resources.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class MountedResourceDescriptor implements AbstractResourceDescriptor
+{
+
+   private final AbstractResourceDescriptor delegate;
+
+   private final PathValue path;
+
+   private final UriPattern uriPattern;
+
+   /**
+    * @param delegate descriptor of resource class
+    * @param path path of resource
+    */
+   public MountedResourceDescriptor(AbstractResourceDescriptor delegate, String path)
+   {
+      this.delegate = delegate;
+      this.path = new PathValue(path);
+      this.uriPattern = new UriPattern(path);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void accept(ResourceDescriptorVisitor visitor)
+   {
+      visitor.visitAbstractResourceDescriptor(this);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public PathValue getPathValue()
+   {
+      return path;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public UriPattern getUriPattern()
+   {
+      return uriPattern;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public boolean isRootResource()
+   {
+      return true;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public ResourceMethodMap<ResourceMethodDescriptor> getResourceMethods()
+   {
+      return delegate.getResourceMethods();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public SubResourceLocatorMap getSubResourceLocators()
+   {
+      return delegate.getSubResourceLocators();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public SubResourceMethodMap getSubResourceMethods()
+   {
+      return delegate.getSubResourceMethods();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public List<ConstructorDescriptor> getConstructorDescriptors()
+   {
+      return delegate.getConstructorDescriptors();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public List<FieldInjector> getFieldInjectors()
+   {
+      return delegate.getFieldInjectors();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public Class<?> getObjectClass()
+   {
+      return delegate.getObjectClass();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public List<String> getProperty(String key)
+   {
+      return delegate.getProperty(key);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public MultivaluedMap<String, String> getProperties()
+   {
+      return delegate.getProperties();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String toString()
+   {
+      return "[ MountedResourceDescriptor: path: " + path + "; " + delegate + " ]";
+   }
+
+}
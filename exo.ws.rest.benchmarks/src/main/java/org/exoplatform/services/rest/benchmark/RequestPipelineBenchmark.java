@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.benchmark;
+
+import org.exoplatform.services.rest.impl.MultivaluedMapImpl;
+import org.exoplatform.services.rest.impl.ProviderBinder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * Benchmarks of full request pipeline: matching of root resources,
+ * sub-resource locators, injection of parameters, reading and writing of
+ * entities and filters. Requests are processed by
+ * {@link org.exoplatform.services.rest.impl.RequestHandlerImpl} in-process.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestPipelineBenchmark
+{
+
+   private static final String JSON = "{\"name\":\"benchmark\",\"count\":42,\"tags\":[\"a\",\"b\",\"c\"]}";
+
+   private static final String XML =
+      "<item><name>benchmark</name><count>42</count><tags>a</tags><tags>b</tags><tags>c</tags></item>";
+
+   /** Number of root resources published in addition to {@link BenchmarkResource}. */
+   @Param({"1", "100", "1000"})
+   public int resources;
+
+   private BenchmarkEnvironment environment;
+
+   private String mountedPath;
+
+   private MultivaluedMap<String, String> paramsHeaders;
+
+   private MultivaluedMap<String, String> bytesHeaders;
+
+   private MultivaluedMap<String, String> jsonHeaders;
+
+   private MultivaluedMap<String, String> xmlHeaders;
+
+   private byte[] bytes;
+
+   private byte[] json;
+
+   private byte[] xml;
+
+   @Setup(Level.Trial)
+   public void setUp() throws Exception
+   {
+      environment = BenchmarkEnvironment.getInstance();
+      environment.getBinder().clear();
+      environment.getBinder().addResource(BenchmarkResource.class, null);
+      MountedResource mounted = new MountedResource();
+      for (int i = 0; i < resources; i++)
+         environment.mount(mounted, "/r" + i);
+      // Request resource in the middle of sorted list of resources.
+      mountedPath = "/r" + (resources / 2) + "/item";
+
+      ProviderBinder providers = environment.getProviders();
+      providers.addRequestFilter(BenchmarkFilters.HeaderRequestFilter.class);
+      providers.addResponseFilter(BenchmarkFilters.HeaderResponseFilter.class);
+      providers.addMethodInvokerFilter(BenchmarkFilters.NoopMethodInvokerFilter.class);
+
+      paramsHeaders = new MultivaluedMapImpl();
+      paramsHeaders.putSingle("X-Token", "token");
+      bytesHeaders = new MultivaluedMapImpl();
+      bytesHeaders.putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM);
+      jsonHeaders = new MultivaluedMapImpl();
+      jsonHeaders.putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+      jsonHeaders.putSingle(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
+      xmlHeaders = new MultivaluedMapImpl();
+      xmlHeaders.putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_XML);
+      xmlHeaders.putSingle(HttpHeaders.ACCEPT, MediaType.APPLICATION_XML);
+
+      bytes = new byte[4096];
+      for (int i = 0; i < bytes.length; i++)
+         bytes[i] = (byte)i;
+      json = JSON.getBytes("UTF-8");
+      xml = XML.getBytes("UTF-8");
+
+      environment.check(200, "GET", "/bench/plain", null, null);
+      environment.check(200, "GET", mountedPath, null, null);
+      environment.check(200, "GET", "/bench/params/x/1?q=y&n=2", paramsHeaders, null);
+      environment.check(200, "GET", "/bench/locator/x/y", null, null);
+      environment.check(200, "POST", "/bench/bytes", bytesHeaders, bytes);
+      environment.check(200, "POST", "/bench/json", jsonHeaders, json);
+      environment.check(200, "POST", "/bench/xml", xmlHeaders, xml);
+      environment.check(200, "GET", "/bench/filtered", paramsHeaders, null);
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown()
+   {
+      environment.getBinder().clear();
+   }
+
+   @Benchmark
+   public byte[] plain() throws Exception
+   {
+      return environment.service("GET", "/bench/plain", null, null);
+   }
+
+   @Benchmark
+   public byte[] rootResourceMatching() throws Exception
+   {
+      return environment.service("GET", mountedPath, null, null);
+   }
+
+   @Benchmark
+   public byte[] parameterInjection() throws Exception
+   {
+      return environment.service("GET", "/bench/params/x/1?q=y&n=2", paramsHeaders, null);
+   }
+
+   @Benchmark
+   public byte[] subResourceLocator() throws Exception
+   {
+      return environment.service("GET", "/bench/locator/x/y", null, null);
+   }
+
+   @Benchmark
+   public byte[] bytesEntity() throws Exception
+   {
+      return environment.service("POST", "/bench/bytes", bytesHeaders, bytes);
+   }
+
+   @Benchmark
+   public byte[] jsonEntity() throws Exception
+   {
+      return environment.service("POST", "/bench/json", jsonHeaders, json);
+   }
+
+   @Benchmark
+   public byte[] jaxbEntity() throws Exception
+   {
+      return environment.service("POST", "/bench/xml", xmlHeaders, xml);
+   }
+
+   @Benchmark
+   public byte[] filterChain() throws Exception
+   {
+      return environment.service("GET", "/bench/filtered", paramsHeaders, null);
+   }
+
+}
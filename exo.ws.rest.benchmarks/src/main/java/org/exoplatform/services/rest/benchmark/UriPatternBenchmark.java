@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.benchmark;
+
+import org.exoplatform.services.rest.uri.UriPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link UriPattern#match(String, List)}.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UriPatternBenchmark
+{
+
+   private final UriPattern literal = new UriPattern("/a/b/c");
+
+   private final UriPattern template = new UriPattern("/a/{x}/c/{y}");
+
+   private final UriPattern regex = new UriPattern("/a/{x: [0-9]+}/{y:.*}");
+
+   private final List<String> values = new ArrayList<String>();
+
+   @Benchmark
+   public boolean literal()
+   {
+      return literal.match("/a/b/c/d/e", values);
+   }
+
+   @Benchmark
+   public boolean template()
+   {
+      return template.match("/a/bbb/c/ddd/e", values);
+   }
+
+   @Benchmark
+   public boolean regex()
+   {
+      return regex.match("/a/123/b/c/d", values);
+   }
+
+   @Benchmark
+   public boolean mismatch()
+   {
+      return template.match("/x/bbb/c/ddd/e", values);
+   }
+
+}
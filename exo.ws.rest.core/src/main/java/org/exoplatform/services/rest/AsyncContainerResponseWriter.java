@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest;
+
+/**
+ * {@link ContainerResponseWriter} which is able to write response after the
+ * thread which started processing of request is returned to the container.
+ * Used for resource methods which return not completed
+ * {@link DeferredResult}.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public interface AsyncContainerResponseWriter extends ContainerResponseWriter
+{
+
+   /**
+    * Suspend request. Response is not written and request is not completed
+    * when thread which started processing of request returns to the
+    * container.
+    *
+    * @param timeout max time (in milliseconds) request may be suspended. Zero
+    *        means timeout is defined by container
+    * @param timeoutHandler called if request is not resumed before timeout.
+    *        It is expected handler resumes request
+    */
+   void suspend(long timeout, Runnable timeoutHandler);
+
+   /**
+    * Resume suspended request. Task must write response, request is completed
+    * after task is done even if task fails.
+    *
+    * @param task task which writes response
+    */
+   void resume(Runnable task);
+
+}
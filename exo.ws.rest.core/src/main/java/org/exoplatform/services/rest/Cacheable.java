@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Enables server side caching of responses of GET resource methods. If
+ * resource class is annotated then responses of all its GET methods are
+ * cached. Response is cached only if its status is 200 (OK), it does not set
+ * cookies and its 'Cache-Control' header does not forbid caching. Cached
+ * responses are served without invocation of resource method, 304 (Not
+ * Modified) is sent if 'If-None-Match' or 'If-Modified-Since' header of
+ * request matches.
+ * <p>
+ * Responses are cached for each request URI and 'Accept' header. If response
+ * depends on other request headers, e.g. on 'Accept-Language' or on
+ * authenticated user, then such headers must be listed in {@link #vary()}.
+ * </p>
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ * @see org.exoplatform.services.rest.impl.ResponseCache
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable
+{
+
+   /**
+    * @return time in seconds to keep response in cache. Used if response
+    *         does not have 'max-age' or 's-maxage' directive in its
+    *         'Cache-Control' header
+    */
+   int maxAge() default 60;
+
+   /**
+    * @return names of request headers which affect response in addition to
+    *         'Accept'
+    */
+   String[] vary() default {};
+
+}
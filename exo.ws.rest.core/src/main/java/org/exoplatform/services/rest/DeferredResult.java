@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of resource method which is produced later, e.g. by other thread.
+ * Resource method may return instance of this class and set result when it
+ * is ready with {@link #setResult(Object)} or {@link #setError(Throwable)}.
+ * Result may be entity or {@link javax.ws.rs.core.Response} and it is
+ * processed in the same way as object returned by resource method directly.
+ * <p>
+ * If connector supports asynchronous processing (see
+ * {@link AsyncContainerResponseWriter}) then request is suspended and thread
+ * which handles request is returned to the container until result is set.
+ * Otherwise thread waits for result. If result is not set before timeout or
+ * result is cancelled then client gets response with status 503 (Service
+ * Unavailable).
+ * </p>
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class DeferredResult implements Future<Object>
+{
+
+   /**
+    * Gets notification when result is done.
+    */
+   public interface Listener
+   {
+      /**
+       * Called once when result is set, failed or cancelled.
+       *
+       * @param result done result
+       */
+      void done(DeferredResult result);
+   }
+
+   private final long timeout;
+
+   private Object result;
+
+   private Throwable error;
+
+   private boolean done;
+
+   private boolean cancelled;
+
+   private Listener listener;
+
+   /**
+    * @param timeout max time (in milliseconds) to wait for result. Zero means
+    *        timeout is defined by connector, or by
+    *        {@link RequestHandler#WS_RS_ASYNC_TIMEOUT} if connector does not
+    *        support asynchronous processing
+    */
+   public DeferredResult(long timeout)
+   {
+      if (timeout < 0)
+         throw new IllegalArgumentException("Timeout may not be negative.");
+      this.timeout = timeout;
+   }
+
+   public DeferredResult()
+   {
+      this(0);
+   }
+
+   /**
+    * Set result.
+    *
+    * @param result entity or {@link javax.ws.rs.core.Response}. If
+    *        <code>null</code> then client gets response with status 204 (No
+    *        Content)
+    * @return <code>true</code> if result is set and <code>false</code> if
+    *         result is already done
+    */
+   public boolean setResult(Object result)
+   {
+      return complete(result, null, false);
+   }
+
+   /**
+    * Set error. Error is processed in the same way as exception thrown by
+    * resource method.
+    *
+    * @param error error
+    * @return <code>true</code> if error is set and <code>false</code> if
+    *         result is already done
+    */
+   public boolean setError(Throwable error)
+   {
+      if (error == null)
+         throw new IllegalArgumentException("Error may not be null.");
+      return complete(null, error, false);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public boolean cancel(boolean mayInterruptIfRunning)
+   {
+      return complete(null, null, true);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public synchronized boolean isCancelled()
+   {
+      return cancelled;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public synchronized boolean isDone()
+   {
+      return done;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public synchronized Object get() throws InterruptedException, ExecutionException
+   {
+      while (!done)
+         wait();
+      return getResult();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public synchronized Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+      TimeoutException
+   {
+      long end = System.currentTimeMillis() + unit.toMillis(timeout);
+      while (!done)
+      {
+         long remaining = end - System.currentTimeMillis();
+         if (remaining <= 0)
+            throw new TimeoutException();
+         wait(remaining);
+      }
+      return getResult();
+   }
+
+   /**
+    * @return max time (in milliseconds) to wait for result. Zero means timeout
+    *         is defined by connector
+    */
+   public long getTimeout()
+   {
+      return timeout;
+   }
+
+   /**
+    * Set listener. If result is done already then listener is notified
+    * immediately in current thread. Only one listener may be set, it is used
+    * by runtime.
+    *
+    * @param listener listener
+    */
+   public void setListener(Listener listener)
+   {
+      synchronized (this)
+      {
+         if (this.listener != null)
+            throw new IllegalStateException("Listener is already set.");
+         this.listener = listener;
+         if (!done)
+            return;
+      }
+      listener.done(this);
+   }
+
+   private Object getResult() throws ExecutionException
+   {
+      if (cancelled)
+         throw new CancellationException();
+      if (error != null)
+         throw new ExecutionException(error);
+      return result;
+   }
+
+   private boolean complete(Object result, Throwable error, boolean cancelled)
+   {
+      Listener l;
+      synchronized (this)
+      {
+         if (done)
+            return false;
+         this.result = result;
+         this.error = error;
+         this.cancelled = cancelled;
+         done = true;
+         notifyAll();
+         l = listener;
+      }
+      // Notify listener out of lock.
+      if (l != null)
+         l.done(this);
+      return true;
+   }
+
+}
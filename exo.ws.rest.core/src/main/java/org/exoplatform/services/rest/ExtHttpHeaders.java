@@ -102,6 +102,13 @@ public interface ExtHttpHeaders extends HttpHeaders
     */
    public static final String RANGE = "Range";
 
+   /**
+    * HTTP 1.1 "If-Range" header. See <a
+    * href='http://www.w3.org/Protocols/rfc2616/rfc2616-sec14.html'> HTTP/1.1
+    * section 14 "Header Field Definitions"</a> for more information.
+    */
+   public static final String IF_RANGE = "If-Range";
+
    /**
     * WebDav "Destination" header. See <a
     * href='http://www.ietf.org/rfc/rfc2518.txt'> HTTP Headers for Distributed
@@ -45,6 +45,55 @@ public interface RequestHandler
     */
    public static final int WS_RS_BUFFER_SIZE_VALUE = 204800;
 
+   /**
+    * Metrics attribute name. Latencies of resource methods are collected
+    * only if value of this attribute is 'true'. See
+    * {@link org.exoplatform.services.rest.impl.metrics.ResourceMetrics}.
+    */
+   public static final String WS_RS_METRICS = "ws.rs.metrics";
+
+   /**
+    * Max total size in bytes of responses cached on server side. See
+    * {@link org.exoplatform.services.rest.impl.ResponseCache}.
+    */
+   public static final String WS_RS_CACHE_SIZE = "ws.rs.cache.size";
+
+   /**
+    * Compression attribute name. If value of this attribute is 'true' then
+    * entities of responses are compressed if client accepts 'gzip' or
+    * 'deflate' content coding and compressed entities of requests are
+    * decoded. Compression is disabled by default.
+    */
+   public static final String WS_RS_COMPRESSION = "ws.rs.compression";
+
+   /**
+    * Min size in bytes of entity to be compressed, 1024 by default. Entities
+    * with unknown size are always compressed.
+    */
+   public static final String WS_RS_COMPRESSION_MIN_SIZE = "ws.rs.compression.minsize";
+
+   /**
+    * Comma separated list of media types of entities to be compressed, e.g.
+    * <code>text/*,application/json,application/*+xml</code>.
+    */
+   public static final String WS_RS_COMPRESSION_TYPES = "ws.rs.compression.types";
+
+   /**
+    * Max size in bytes of decoded entity of request, 10485760 by default.
+    * Request with bigger entity is rejected with status 413 (Request Entity
+    * Too Large). Negative value means no limit.
+    */
+   public static final String WS_RS_COMPRESSION_MAX_DECODED_SIZE = "ws.rs.compression.maxdecodedsize";
+
+   /**
+    * Max time in milliseconds to wait for
+    * {@link org.exoplatform.services.rest.DeferredResult} with timeout
+    * defined by connector if connector does not support asynchronous
+    * processing, 60000 by default. Client gets response with status 503
+    * (Service Unavailable) if result is not set in time.
+    */
+   public static final String WS_RS_ASYNC_TIMEOUT = "ws.rs.async.timeout";
+
    /**
     * Handle the HTTP request by dispatching request to appropriate resource. If
     * no one appropriate resource found then error response will be produced.
@@ -22,6 +22,8 @@ import org.exoplatform.services.rest.ApplicationContext;
 import org.exoplatform.services.rest.GenericContainerRequest;
 import org.exoplatform.services.rest.GenericContainerResponse;
 import org.exoplatform.services.rest.InitialProperties;
+import org.exoplatform.services.rest.impl.metrics.RequestMetrics;
+import org.exoplatform.services.rest.impl.metrics.ResourceMetrics;
 import org.exoplatform.services.rest.impl.uri.UriComponent;
 
 import java.net.URI;
@@ -160,6 +162,11 @@ public class ApplicationContextImpl implements ApplicationContext
 
    private DependencySupplier dependencySupplier;
 
+   /**
+    * Timings of request, <code>null</code> if metrics are not collected.
+    */
+   private RequestMetrics requestMetrics;
+
    /**
     * Constructs new instance of ApplicationContext.
     * 
@@ -416,6 +423,18 @@ public class ApplicationContextImpl implements ApplicationContext
       return properties == null ? properties = new HashMap<String, String>() : properties;
    }
 
+   /**
+    * Set application properties. They are not copied, properties of context
+    * read through to them, see {@link #getProperties()}. Properties set
+    * for context do not affect application properties.
+    *
+    * @param defaults application properties
+    */
+   void setDefaultProperties(Map<String, String> defaults)
+   {
+      properties = new RequestProperties(defaults);
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -526,4 +545,22 @@ public class ApplicationContextImpl implements ApplicationContext
       this.providers = providers;
    }
 
+   /**
+    * @return timings of request or <code>null</code> if metrics are not
+    *         collected
+    * @see ResourceMetrics
+    */
+   public RequestMetrics getRequestMetrics()
+   {
+      return requestMetrics;
+   }
+
+   /**
+    * @param requestMetrics timings of request
+    */
+   public void setRequestMetrics(RequestMetrics requestMetrics)
+   {
+      this.requestMetrics = requestMetrics;
+   }
+
 }
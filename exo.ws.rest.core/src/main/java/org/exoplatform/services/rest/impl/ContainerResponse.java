@@ -22,8 +22,12 @@ import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
 import org.exoplatform.services.rest.ApplicationContext;
 import org.exoplatform.services.rest.ContainerResponseWriter;
+import org.exoplatform.services.rest.ExtHttpHeaders;
+import org.exoplatform.services.rest.GenericContainerRequest;
 import org.exoplatform.services.rest.GenericContainerResponse;
+import org.exoplatform.services.rest.impl.provider.FileRanges;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.List;
@@ -50,6 +54,17 @@ public class ContainerResponse implements GenericContainerResponse
     */
    private static final Log LOG = ExoLogger.getLogger("exo.ws.rest.core.ContainerResponse");
 
+   /**
+    * HTTP status 206 (Partial Content), not defined in {@link Response.Status}.
+    */
+   private static final int PARTIAL_CONTENT = 206;
+
+   /**
+    * HTTP status 416 (Requested Range Not Satisfiable), not defined in
+    * {@link Response.Status}.
+    */
+   private static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
    /**
     * See {@link ContainerResponseWriter}.
     */
@@ -63,6 +78,14 @@ public class ContainerResponse implements GenericContainerResponse
       this.responseWriter = responseWriter;
    }
 
+   /**
+    * @return See {@link ContainerResponseWriter}
+    */
+   public ContainerResponseWriter getContainerResponseWriter()
+   {
+      return responseWriter;
+   }
+
    // GenericContainerResponse
 
    /**
@@ -178,6 +201,22 @@ public class ContainerResponse implements GenericContainerResponse
          this.contentType = contentType;
          getHttpHeaders().putSingle(HttpHeaders.CONTENT_TYPE, contentType);
       }
+
+      if (status == Response.Status.OK.getStatusCode())
+      {
+         File file = FileRanges.getFile(entity);
+         if (file != null)
+         {
+            processRanges(context.getContainerRequest(), file);
+            if (entity == null)
+            {
+               responseWriter.writeHeaders(this);
+               return;
+            }
+            contentType = this.contentType;
+         }
+      }
+
       MessageBodyWriter entityWriter =
          context.getProviders().getMessageBodyWriter(entity.getClass(), entityType, null, contentType);
       if (entityWriter == null)
@@ -204,6 +243,12 @@ public class ContainerResponse implements GenericContainerResponse
                getHttpHeaders().putSingle(HttpHeaders.CONTENT_LENGTH, Long.toString(contentLength));
          }
       }
+      if (entityWriter != null)
+      {
+         String coding = ContentEncodingHelper.prepare(context, this, contentType);
+         if (coding != null)
+            entityWriter = ContentEncodingHelper.wrap(entityWriter, coding);
+      }
       if (context.getContainerRequest().getMethod().equals(HttpMethod.HEAD))
          entity = null;
 
@@ -211,6 +256,56 @@ public class ContainerResponse implements GenericContainerResponse
       responseWriter.writeBody(this, entityWriter);
    }
 
+   /**
+    * Process 'Range' and 'If-Range' headers of request if entity of response
+    * is file. If request has satisfiable ranges then entity replaced by
+    * {@link FileRanges} and status of response is set to 206 (Partial
+    * Content), if none of ranges may be satisfied then entity removed and
+    * status is set to 416 (Requested Range Not Satisfiable).
+    *
+    * @param request request
+    * @param file file which is entity of response
+    */
+   private void processRanges(GenericContainerRequest request, File file)
+   {
+      getHttpHeaders().putSingle(ExtHttpHeaders.ACCEPT_RANGES, "bytes");
+      String range = request.getRequestHeaders().getFirst(ExtHttpHeaders.RANGE);
+      if (range == null || !request.getMethod().equals(HttpMethod.GET))
+         return;
+      String ifRange = request.getRequestHeaders().getFirst(ExtHttpHeaders.IF_RANGE);
+      if (ifRange != null && !FileRanges.isIfRangeMatched(ifRange, file, getHttpHeaders()))
+         return;
+
+      long length = file.length();
+      List<long[]> ranges = FileRanges.parseRange(range, length);
+      if (ranges == null)
+         return;
+      getHttpHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+      if (ranges.isEmpty())
+      {
+         status = REQUESTED_RANGE_NOT_SATISFIABLE;
+         entity = null;
+         entityType = null;
+         contentType = null;
+         getHttpHeaders().remove(HttpHeaders.CONTENT_TYPE);
+         getHttpHeaders().putSingle(ExtHttpHeaders.CONTENTRANGE, "bytes */" + length);
+         return;
+      }
+      FileRanges fileRanges = new FileRanges(file, ranges, contentType);
+      status = PARTIAL_CONTENT;
+      entity = fileRanges;
+      entityType = FileRanges.class;
+      if (ranges.size() == 1)
+      {
+         getHttpHeaders().putSingle(ExtHttpHeaders.CONTENTRANGE, fileRanges.getContentRange(ranges.get(0)));
+      }
+      else
+      {
+         contentType = fileRanges.getMediaType();
+         getHttpHeaders().putSingle(HttpHeaders.CONTENT_TYPE, contentType);
+      }
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -0,0 +1,465 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl;
+
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+import org.exoplatform.services.rest.ApplicationContext;
+import org.exoplatform.services.rest.GenericContainerRequest;
+import org.exoplatform.services.rest.GenericContainerResponse;
+import org.exoplatform.services.rest.RequestHandler;
+import org.exoplatform.services.rest.impl.header.AcceptToken;
+import org.exoplatform.services.rest.impl.header.HeaderHelper;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+/**
+ * Helps to compress entity of response with 'gzip' or 'deflate' content
+ * coding, if client accepts it, and to decode compressed entity of request.
+ * Both are disabled unless {@link RequestHandler#WS_RS_COMPRESSION} is 'true'.
+ * Compression is configured with
+ * {@link RequestHandler#WS_RS_COMPRESSION_MIN_SIZE},
+ * {@link RequestHandler#WS_RS_COMPRESSION_TYPES} and
+ * {@link RequestHandler#WS_RS_COMPRESSION_MAX_DECODED_SIZE}.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+final class ContentEncodingHelper
+{
+
+   private static final Log LOG = ExoLogger.getLogger("exo.ws.rest.core.ContentEncodingHelper");
+
+   static final String GZIP = "gzip";
+
+   static final String DEFLATE = "deflate";
+
+   static final String IDENTITY = "identity";
+
+   /** Default min size of entity to be compressed. */
+   static final int DEFAULT_MIN_SIZE = 1024;
+
+   /** Default media types of entities to be compressed. */
+   static final String DEFAULT_TYPES =
+      "text/*,application/json,application/javascript,application/xml,application/*+xml,application/*+json";
+
+   /** Default max size of decoded entity of request. */
+   static final long DEFAULT_MAX_DECODED_SIZE = 10 * 1024 * 1024;
+
+   private static final int BUFFER_SIZE = 8192;
+
+   /** Last parsed value of {@link RequestHandler#WS_RS_COMPRESSION_TYPES} and its media types. */
+   private static volatile Object[] types = {DEFAULT_TYPES, parseTypes(DEFAULT_TYPES)};
+
+   private ContentEncodingHelper()
+   {
+   }
+
+   /**
+    * Prepare response for compression. If entity of response may be
+    * compressed then adds 'Vary: Accept-Encoding' header and, if client
+    * accepts any of supported content codings, sets 'Content-Encoding' header
+    * and removes 'Content-Length' header. Strong entity tag is not valid for
+    * compressed entity, so name of content coding is appended to it.
+    *
+    * @param context application context
+    * @param response response
+    * @param contentType media type of entity
+    * @return content coding of entity or <code>null</code> if entity must not
+    *         be compressed
+    */
+   static String prepare(ApplicationContext context, GenericContainerResponse response, MediaType contentType)
+   {
+      Map<String, String> properties = context.getProperties();
+      if (!isEnabled(properties))
+         return null;
+      int status = response.getStatus();
+      if (status < 200 || status == Response.Status.NO_CONTENT.getStatusCode() || status == 206 || status >= 300)
+         return null;
+      MultivaluedMap<String, Object> headers = response.getHttpHeaders();
+      if (headers.getFirst(HttpHeaders.CONTENT_ENCODING) != null || !isCompressible(properties, contentType))
+         return null;
+
+      addVary(headers);
+
+      // Size of string in bytes is not less then its length.
+      Object entity = response.getEntity();
+      Object length =
+         entity instanceof String ? ((String)entity).length() : headers.getFirst(HttpHeaders.CONTENT_LENGTH);
+      if (length != null)
+      {
+         String minSize = properties.get(RequestHandler.WS_RS_COMPRESSION_MIN_SIZE);
+         try
+         {
+            if (Long.parseLong(length.toString()) < (minSize == null ? DEFAULT_MIN_SIZE : Integer.parseInt(minSize)))
+               return null;
+         }
+         catch (NumberFormatException e)
+         {
+            return null;
+         }
+      }
+
+      String coding = getAcceptedCoding(context.getContainerRequest());
+      if (coding != null)
+      {
+         headers.putSingle(HttpHeaders.CONTENT_ENCODING, coding);
+         headers.remove(HttpHeaders.CONTENT_LENGTH);
+         Object etag = headers.getFirst(HttpHeaders.ETAG);
+         if (etag != null)
+         {
+            EntityTag tag = etag instanceof EntityTag ? (EntityTag)etag : EntityTag.valueOf(etag.toString());
+            if (!tag.isWeak())
+               headers.putSingle(HttpHeaders.ETAG, new EntityTag(tag.getValue() + '-' + coding));
+         }
+      }
+      return coding;
+   }
+
+   /**
+    * @param entityWriter writer of entity
+    * @param coding content coding
+    * @return writer which compresses output of <code>entityWriter</code>
+    */
+   @SuppressWarnings("rawtypes")
+   static MessageBodyWriter wrap(MessageBodyWriter entityWriter, String coding)
+   {
+      return new EncodingWriter(entityWriter, GZIP.equals(coding));
+   }
+
+   /**
+    * If request has entity compressed with 'gzip' or 'deflate' content
+    * coding, then replace entity stream of request with decoding stream and
+    * remove 'Content-Encoding' and 'Content-Length' headers, which are not
+    * valid for decoded entity any more. Request is not changed if compression
+    * is disabled.
+    *
+    * @param context application context
+    * @param request request
+    * @throws WebApplicationException with status 415 (Unsupported Media Type)
+    *         if content coding is not supported, with status 400 (Bad
+    *         Request) if entity may not be decoded or with status 413 (Request
+    *         Entity Too Large), when entity is read, if decoded entity is
+    *         bigger then {@link RequestHandler#WS_RS_COMPRESSION_MAX_DECODED_SIZE}
+    */
+   static void decodeRequest(ApplicationContext context, GenericContainerRequest request)
+   {
+      Map<String, String> properties = context.getProperties();
+      if (!isEnabled(properties))
+         return;
+      String coding = request.getRequestHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+      if (coding == null)
+         return;
+      coding = coding.trim().toLowerCase();
+      if (coding.length() == 0 || IDENTITY.equals(coding))
+         return;
+      InputStream entityStream = request.getEntityStream();
+      try
+      {
+         if (GZIP.equals(coding) || "x-gzip".equals(coding))
+            entityStream = new GZIPInputStream(entityStream, BUFFER_SIZE);
+         else if (DEFLATE.equals(coding))
+            entityStream = new InflaterInputStream(entityStream);
+         else
+            throw new WebApplicationException(Response.status(Response.Status.UNSUPPORTED_MEDIA_TYPE).entity(
+               "Unsupported content encoding " + coding).type(MediaType.TEXT_PLAIN).build());
+      }
+      catch (IOException e)
+      {
+         throw new WebApplicationException(e, Response.status(Response.Status.BAD_REQUEST).entity(
+            "Unable decode entity with content encoding " + coding).type(MediaType.TEXT_PLAIN).build());
+      }
+      long maxSize = DEFAULT_MAX_DECODED_SIZE;
+      String value = properties.get(RequestHandler.WS_RS_COMPRESSION_MAX_DECODED_SIZE);
+      if (value != null)
+      {
+         try
+         {
+            maxSize = Long.parseLong(value);
+         }
+         catch (NumberFormatException e)
+         {
+            LOG.warn("Invalid value of " + RequestHandler.WS_RS_COMPRESSION_MAX_DECODED_SIZE + ": " + value);
+         }
+      }
+      if (maxSize >= 0)
+         entityStream = new LimitedInputStream(entityStream, maxSize);
+
+      Map<String, List<String>> headers = new HashMap<String, List<String>>();
+      for (Map.Entry<String, List<String>> e : request.getRequestHeaders().entrySet())
+      {
+         if (!HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(e.getKey())
+            && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(e.getKey()))
+            headers.put(e.getKey(), e.getValue());
+      }
+      request.setRequestHeaders(new InputHeadersMap(headers));
+      request.setEntityStream(entityStream);
+   }
+
+   /**
+    * @param request request
+    * @return the most acceptable of supported content coding or
+    *         <code>null</code> if client does not accept any of them
+    */
+   static String getAcceptedCoding(GenericContainerRequest request)
+   {
+      List<String> header = request.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+      if (header == null || header.isEmpty())
+         return null;
+      String any = null;
+      boolean gzip = true;
+      boolean deflate = true;
+      for (AcceptToken token : HeaderHelper.createAcceptedEncodingList(HeaderHelper.convertToString(header)))
+      {
+         String coding = token.getToken();
+         if (token.getQvalue() == 0)
+         {
+            if (GZIP.equals(coding) || "x-gzip".equals(coding))
+               gzip = false;
+            else if (DEFLATE.equals(coding))
+               deflate = false;
+            continue;
+         }
+         if (gzip && (GZIP.equals(coding) || "x-gzip".equals(coding)))
+            return GZIP;
+         if (deflate && DEFLATE.equals(coding))
+            return DEFLATE;
+         if (any == null && "*".equals(coding))
+            any = coding;
+      }
+      if (any != null)
+         return gzip ? GZIP : deflate ? DEFLATE : null;
+      return null;
+   }
+
+   private static boolean isEnabled(Map<String, String> properties)
+   {
+      return "true".equalsIgnoreCase(properties.get(RequestHandler.WS_RS_COMPRESSION));
+   }
+
+   private static void addVary(MultivaluedMap<String, Object> headers)
+   {
+      List<Object> vary = headers.get(HttpHeaders.VARY);
+      if (vary != null)
+      {
+         for (Object v : vary)
+         {
+            String value = HeaderHelper.getHeaderAsString(v);
+            if (value != null && value.toLowerCase().contains("accept-encoding"))
+               return;
+         }
+      }
+      headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+   }
+
+   private static boolean isCompressible(Map<String, String> properties, MediaType contentType)
+   {
+      if (contentType == null)
+         return false;
+      String value = properties.get(RequestHandler.WS_RS_COMPRESSION_TYPES);
+      if (value == null)
+         value = DEFAULT_TYPES;
+      Object[] parsed = types;
+      if (!value.equals(parsed[0]))
+         types = parsed = new Object[]{value, parseTypes(value)};
+      @SuppressWarnings("unchecked")
+      List<MediaType> list = (List<MediaType>)parsed[1];
+      String type = contentType.getType().toLowerCase();
+      String subtype = contentType.getSubtype().toLowerCase();
+      for (MediaType t : list)
+      {
+         if (!t.isWildcardType() && !t.getType().equals(type))
+            continue;
+         String s = t.getSubtype();
+         if (s.equals("*") || s.equals(subtype) || (s.startsWith("*+") && subtype.endsWith(s.substring(1))))
+            return true;
+      }
+      return false;
+   }
+
+   private static List<MediaType> parseTypes(String value)
+   {
+      List<MediaType> list = new ArrayList<MediaType>();
+      for (String t : value.split(","))
+      {
+         t = t.trim().toLowerCase();
+         if (t.length() == 0)
+            continue;
+         int slash = t.indexOf('/');
+         if (slash < 0)
+            list.add(new MediaType(t, MediaType.MEDIA_TYPE_WILDCARD));
+         else
+            list.add(new MediaType(t.substring(0, slash), t.substring(slash + 1)));
+      }
+      return list;
+   }
+
+   /**
+    * Stops reading of decoded entity when it becomes bigger then limit, so
+    * small compressed entity may not be expanded to huge one.
+    */
+   private static final class LimitedInputStream extends FilterInputStream
+   {
+      private final long limit;
+
+      private long count;
+
+      LimitedInputStream(InputStream in, long limit)
+      {
+         super(in);
+         this.limit = limit;
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         int b = in.read();
+         if (b != -1)
+            count(1);
+         return b;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException
+      {
+         int r = in.read(b, off, len);
+         if (r > 0)
+            count(r);
+         return r;
+      }
+
+      @Override
+      public long skip(long n) throws IOException
+      {
+         long r = in.skip(n);
+         if (r > 0)
+            count(r);
+         return r;
+      }
+
+      @Override
+      public boolean markSupported()
+      {
+         return false;
+      }
+
+      private void count(long n)
+      {
+         count += n;
+         if (count > limit)
+            throw new WebApplicationException(Response.status(413).entity(
+               "Decoded entity is bigger then " + limit + " bytes").type(MediaType.TEXT_PLAIN).build());
+      }
+   }
+
+   /**
+    * Writes entity through compressing stream. Entity is not buffered, it is
+    * compressed while it is written by origin writer.
+    */
+   @SuppressWarnings("rawtypes")
+   private static final class EncodingWriter implements MessageBodyWriter
+   {
+      private final MessageBodyWriter entityWriter;
+
+      private final boolean gzip;
+
+      EncodingWriter(MessageBodyWriter entityWriter, boolean gzip)
+      {
+         this.entityWriter = entityWriter;
+         this.gzip = gzip;
+      }
+
+      public boolean isWriteable(Class type, Type genericType, Annotation[] annotations, MediaType mediaType)
+      {
+         return entityWriter.isWriteable(type, genericType, annotations, mediaType);
+      }
+
+      public long getSize(Object t, Class type, Type genericType, Annotation[] annotations, MediaType mediaType)
+      {
+         return -1;
+      }
+
+      @SuppressWarnings("unchecked")
+      public void writeTo(Object t, Class type, Type genericType, Annotation[] annotations, MediaType mediaType,
+         MultivaluedMap httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException
+      {
+         // Origin stream must not be closed by entity writer, compressed data must be finished first.
+         OutputStream target = new FilterOutputStream(entityStream)
+         {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException
+            {
+               out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+               flush();
+            }
+         };
+         Deflater deflater = null;
+         DeflaterOutputStream zip;
+         if (gzip)
+         {
+            zip = new GZIPOutputStream(target, BUFFER_SIZE);
+         }
+         else
+         {
+            deflater = new Deflater();
+            zip = new DeflaterOutputStream(target, deflater, BUFFER_SIZE);
+         }
+         try
+         {
+            entityWriter.writeTo(t, type, genericType, annotations, mediaType, httpHeaders, zip);
+            zip.finish();
+         }
+         finally
+         {
+            zip.close();
+            if (deflater != null)
+               deflater.end();
+         }
+      }
+   }
+
+}
@@ -33,6 +33,7 @@ import org.exoplatform.services.rest.impl.provider.ByteEntityProvider;
 import org.exoplatform.services.rest.impl.provider.DOMSourceEntityProvider;
 import org.exoplatform.services.rest.impl.provider.DataSourceEntityProvider;
 import org.exoplatform.services.rest.impl.provider.FileEntityProvider;
+import org.exoplatform.services.rest.impl.provider.FileRangesEntityProvider;
 import org.exoplatform.services.rest.impl.provider.InputStreamEntityProvider;
 import org.exoplatform.services.rest.impl.provider.JAXBContextResolver;
 import org.exoplatform.services.rest.impl.provider.JAXBElementEntityProvider;
@@ -40,6 +41,7 @@ import org.exoplatform.services.rest.impl.provider.JAXBObjectEntityProvider;
 import org.exoplatform.services.rest.impl.provider.JsonEntityProvider;
 import org.exoplatform.services.rest.impl.provider.JsonpEntityProvider;
 import org.exoplatform.services.rest.impl.provider.MultipartFormDataEntityProvider;
+import org.exoplatform.services.rest.impl.provider.MultipartFormDataStreamEntityProvider;
 import org.exoplatform.services.rest.impl.provider.MultivaluedMapEntityProvider;
 import org.exoplatform.services.rest.impl.provider.ProviderDescriptorImpl;
 import org.exoplatform.services.rest.impl.provider.ReaderEntityProvider;
@@ -51,6 +53,7 @@ import org.exoplatform.services.rest.impl.resource.ResourceDescriptorValidator;
 import org.exoplatform.services.rest.method.MethodInvokerFilter;
 import org.exoplatform.services.rest.provider.ExtendedProviders;
 import org.exoplatform.services.rest.provider.ProviderDescriptor;
+import org.exoplatform.services.rest.provider.UncachedLookup;
 import org.exoplatform.services.rest.resource.ResourceDescriptorVisitor;
 import org.exoplatform.services.rest.uri.UriPattern;
 import org.exoplatform.services.rest.util.MediaTypeMap;
@@ -61,10 +64,13 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.ws.rs.core.MediaType;
@@ -148,6 +154,8 @@ public class ProviderBinder implements ExtendedProviders
       addMessageBodyReader(fep);
       addMessageBodyWriter(fep);
 
+      addMessageBodyWriter(new FileRangesEntityProvider());
+
       MultivaluedMapEntityProvider mvep = new MultivaluedMapEntityProvider();
       addMessageBodyReader(mvep);
       addMessageBodyWriter(mvep);
@@ -192,6 +200,8 @@ public class ProviderBinder implements ExtendedProviders
       // per-request mode , HttpServletRequest should be injected in provider
       addMessageBodyReader(MultipartFormDataEntityProvider.class);
 
+      addMessageBodyReader(new MultipartFormDataStreamEntityProvider());
+
       // JAXB context
       addContextResolver(JAXBContextResolver.class, null, ComponentLifecycleScope.CONTAINER);
 
@@ -254,6 +264,222 @@ public class ProviderBinder implements ExtendedProviders
    protected final UriPatternMap<ObjectFactory<FilterDescriptor>> invokerFilters =
       new UriPatternMap<ObjectFactory<FilterDescriptor>>();
 
+   /**
+    * Prepared set of filters of one kind. Filters without {@link UriPattern}
+    * are kept in separate list which is used for any path as is, filters with
+    * {@link UriPattern} are checked against request path once and result is
+    * remembered for the path.
+    */
+   protected static final class FilterChain
+   {
+      /** Empty chain. */
+      static final FilterChain EMPTY = new FilterChain(new UriPatternMap<ObjectFactory<FilterDescriptor>>());
+
+      /** Filters which are applied to any path. */
+      private final List<ObjectFactory<FilterDescriptor>> unconditional;
+
+      private final UriPattern[] patterns;
+
+      private final List<List<ObjectFactory<FilterDescriptor>>> conditional;
+
+      /** Filters matched to path, all unconditional filters included. */
+      private final ConcurrentHashMap<String, List<ObjectFactory<FilterDescriptor>>> matched =
+         new ConcurrentHashMap<String, List<ObjectFactory<FilterDescriptor>>>();
+
+      FilterChain(UriPatternMap<ObjectFactory<FilterDescriptor>> m)
+      {
+         List<ObjectFactory<FilterDescriptor>> u = m.get(null);
+         this.unconditional = new ArrayList<ObjectFactory<FilterDescriptor>>();
+         if (u != null)
+            unconditional.addAll(u);
+         List<UriPattern> p = new ArrayList<UriPattern>();
+         this.conditional = new ArrayList<List<ObjectFactory<FilterDescriptor>>>();
+         for (Map.Entry<UriPattern, List<ObjectFactory<FilterDescriptor>>> e : m.entrySet())
+         {
+            if (e.getKey() != null && !e.getValue().isEmpty())
+            {
+               p.add(e.getKey());
+               conditional.add(new ArrayList<ObjectFactory<FilterDescriptor>>(e.getValue()));
+            }
+         }
+         this.patterns = p.toArray(new UriPattern[p.size()]);
+      }
+
+      /**
+       * @param path request path
+       * @return new list of filters matched to path, caller may modify it
+       */
+      public List<ObjectFactory<FilterDescriptor>> getFilters(String path)
+      {
+         if (patterns.length == 0 || path == null)
+            return match(path);
+         List<ObjectFactory<FilterDescriptor>> l = matched.get(path);
+         if (l == null)
+         {
+            if (matched.size() >= MAX_FILTER_CHAIN_CACHE_SIZE)
+               matched.clear();
+            l = match(path);
+            matched.put(path, l);
+         }
+         return new ArrayList<ObjectFactory<FilterDescriptor>>(l);
+      }
+
+      private List<ObjectFactory<FilterDescriptor>> match(String path)
+      {
+         List<ObjectFactory<FilterDescriptor>> l = new ArrayList<ObjectFactory<FilterDescriptor>>(unconditional);
+         if (patterns.length == 0)
+            return l;
+         List<String> capturingValues = new ArrayList<String>();
+         for (int i = 0; i < patterns.length; i++)
+         {
+            if (patterns[i].match(path, capturingValues))
+            {
+               int len = capturingValues.size();
+               if (capturingValues.get(len - 1) != null && !"/".equals(capturingValues.get(len - 1)))
+               {
+                  continue; // not matched
+               }
+               l.addAll(conditional.get(i));
+            }
+         }
+         return l;
+      }
+   }
+
+   /**
+    * Key for remembered results of looking for {@link MessageBodyReader} or
+    * {@link MessageBodyWriter}. Parameters of media type are not used, in the
+    * same way as in {@link MediaTypeMap}. Annotations are compared by
+    * identity of array first, arrays of annotations of method parameters are
+    * created once in descriptors, so value comparison is rare.
+    */
+   private static final class EntityProviderKey
+   {
+      private final Class<?> type;
+
+      private final Type genericType;
+
+      private final Annotation[] annotations;
+
+      private final String mimeType;
+
+      private final String mimeSubtype;
+
+      private final int hash;
+
+      EntityProviderKey(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+      {
+         this.type = type;
+         this.genericType = genericType;
+         this.annotations = annotations;
+         this.mimeType = mediaType == null ? null : mediaType.getType();
+         this.mimeSubtype = mediaType == null ? null : mediaType.getSubtype();
+         int h = 7;
+         h = h * 31 + type.hashCode();
+         h = h * 31 + (genericType == null ? 0 : genericType.hashCode());
+         h = h * 31 + Arrays.hashCode(annotations);
+         h = h * 31 + (mimeType == null ? 0 : mimeType.hashCode());
+         h = h * 31 + (mimeSubtype == null ? 0 : mimeSubtype.hashCode());
+         this.hash = h;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof EntityProviderKey))
+            return false;
+         EntityProviderKey other = (EntityProviderKey)obj;
+         return hash == other.hash && type == other.type
+            && (genericType == null ? other.genericType == null : genericType.equals(other.genericType))
+            && (annotations == other.annotations || Arrays.equals(annotations, other.annotations))
+            && (mimeType == null ? other.mimeType == null : mimeType.equals(other.mimeType))
+            && (mimeSubtype == null ? other.mimeSubtype == null : mimeSubtype.equals(other.mimeSubtype));
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+   }
+
+   /** Remembered result of looking for {@link MessageBodyReader} or {@link MessageBodyWriter}. */
+   private static final class CachedEntityProvider
+   {
+      /** Found provider factory or <code>null</code> if there is no provider. */
+      final ObjectFactory<ProviderDescriptor> factory;
+
+      /** Generation of providers for which result was found. */
+      final int generation;
+
+      CachedEntityProvider(ObjectFactory<ProviderDescriptor> factory, int generation)
+      {
+         this.factory = factory;
+         this.generation = generation;
+      }
+   }
+
+   /** Result of looking for {@link MessageBodyReader} or {@link MessageBodyWriter}. */
+   private static final class EntityProviderLookup
+   {
+      /** Found provider factory. */
+      ObjectFactory<ProviderDescriptor> factory;
+
+      /** Instance of provider created while looking for provider. */
+      Object provider;
+
+      /** <code>false</code> if result of looking must not be remembered. */
+      boolean cacheable = true;
+   }
+
+   /** Max number of remembered results of looking for readers or writers. */
+   private static final int MAX_ENTITY_PROVIDER_CACHE_SIZE = 1024;
+
+   /** Max number of paths for which matched filters are remembered by each {@link FilterChain}. */
+   private static final int MAX_FILTER_CHAIN_CACHE_SIZE = 1024;
+
+   /**
+    * Remembered results of looking for readers. Cleared each time when new
+    * reader added or resource removed.
+    */
+   private final ConcurrentHashMap<EntityProviderKey, CachedEntityProvider> readerCache =
+      new ConcurrentHashMap<EntityProviderKey, CachedEntityProvider>();
+
+   /**
+    * Remembered results of looking for writers. Cleared each time when new
+    * writer added or resource removed.
+    */
+   private final ConcurrentHashMap<EntityProviderKey, CachedEntityProvider> writerCache =
+      new ConcurrentHashMap<EntityProviderKey, CachedEntityProvider>();
+
+   /**
+    * Incremented each time when new reader added. Result which is looked for
+    * with previous set of readers is not used even if it is remembered after
+    * {@link #readerCache} is cleared.
+    */
+   private final AtomicInteger readerGeneration = new AtomicInteger();
+
+   /** Incremented each time when new writer added, see {@link #readerGeneration}. */
+   private final AtomicInteger writerGeneration = new AtomicInteger();
+
+   /** Prepared request filters, updated each time when request filter added. */
+   protected volatile FilterChain requestFilterChain = FilterChain.EMPTY;
+
+   /** Prepared response filters, updated each time when response filter added. */
+   protected volatile FilterChain responseFilterChain = FilterChain.EMPTY;
+
+   /** Prepared method invoker filters, updated each time when filter added. */
+   protected volatile FilterChain invokerFilterChain = FilterChain.EMPTY;
+
+   /**
+    * Adapter of this set of providers created by {@link RequestDispatcher}.
+    * Dispatcher keeps it here, so adapter is not created for each request
+    * and does not outlive this set of providers.
+    */
+   volatile ProviderBinder adapter;
+
    /** Validator. */
    protected final ResourceDescriptorVisitor rdv = ResourceDescriptorValidator.getInstance();
 
@@ -480,49 +706,163 @@ public class ProviderBinder implements ExtendedProviders
    /**
     * {@inheritDoc}
     */
+   @SuppressWarnings("unchecked")
    public <T> MessageBodyReader<T> getMessageBodyReader(Class<T> type, Type genericType, Annotation[] annotations,
       MediaType mediaType)
    {
+      EntityProviderKey key = new EntityProviderKey(type, genericType, annotations, mediaType);
+      int generation = readerGeneration.get();
+      CachedEntityProvider cached = readerCache.get(key);
+      if (cached != null && cached.generation == generation)
+      {
+         return cached.factory == null ? null : (MessageBodyReader<T>)cached.factory.getInstance(ApplicationContextImpl
+            .getCurrent());
+      }
+      EntityProviderLookup lookup = new EntityProviderLookup();
       if (mediaType == null)
       {
-         return doGetMessageBodyReader(type, genericType, annotations, MediaTypeHelper.DEFAULT_TYPE);
+         lookupMessageBodyReader(type, genericType, annotations, MediaTypeHelper.DEFAULT_TYPE, lookup);
       }
-      MessageBodyReader<T> reader = doGetMessageBodyReader(type, genericType, annotations, mediaType);
-      if (reader == null && !mediaType.isWildcardSubtype())
+      else
       {
-         reader =
-            doGetMessageBodyReader(type, genericType, annotations, new MediaType(mediaType.getType(),
-               MediaType.MEDIA_TYPE_WILDCARD));
+         lookupMessageBodyReader(type, genericType, annotations, mediaType, lookup);
+         if (lookup.factory == null && !mediaType.isWildcardSubtype())
+         {
+            lookupMessageBodyReader(type, genericType, annotations, new MediaType(mediaType.getType(),
+               MediaType.MEDIA_TYPE_WILDCARD), lookup);
+         }
+         if (lookup.factory == null && !mediaType.isWildcardType())
+         {
+            lookupMessageBodyReader(type, genericType, annotations, MediaTypeHelper.DEFAULT_TYPE, lookup);
+         }
       }
-      if (reader == null && !mediaType.isWildcardType())
+      if (lookup.cacheable)
       {
-         reader = doGetMessageBodyReader(type, genericType, annotations, MediaTypeHelper.DEFAULT_TYPE);
+         remember(readerCache, key, lookup, generation);
       }
-      return reader;
+      return (MessageBodyReader<T>)lookup.provider;
    }
 
    /**
     * {@inheritDoc}
     */
+   @SuppressWarnings("unchecked")
    public <T> MessageBodyWriter<T> getMessageBodyWriter(Class<T> type, Type genericType, Annotation[] annotations,
       MediaType mediaType)
    {
+      EntityProviderKey key = new EntityProviderKey(type, genericType, annotations, mediaType);
+      int generation = writerGeneration.get();
+      CachedEntityProvider cached = writerCache.get(key);
+      if (cached != null && cached.generation == generation)
+      {
+         return cached.factory == null ? null : (MessageBodyWriter<T>)cached.factory.getInstance(ApplicationContextImpl
+            .getCurrent());
+      }
+      EntityProviderLookup lookup = new EntityProviderLookup();
       if (mediaType == null)
       {
-         return doGetMessageBodyWriter(type, genericType, annotations, MediaTypeHelper.DEFAULT_TYPE);
+         lookupMessageBodyWriter(type, genericType, annotations, MediaTypeHelper.DEFAULT_TYPE, lookup);
       }
-      MessageBodyWriter<T> writer = doGetMessageBodyWriter(type, genericType, annotations, mediaType);
-      if (writer == null && !mediaType.isWildcardSubtype())
+      else
+      {
+         lookupMessageBodyWriter(type, genericType, annotations, mediaType, lookup);
+         if (lookup.factory == null && !mediaType.isWildcardSubtype())
+         {
+            lookupMessageBodyWriter(type, genericType, annotations, new MediaType(mediaType.getType(),
+               MediaType.MEDIA_TYPE_WILDCARD), lookup);
+         }
+         if (lookup.factory == null && !mediaType.isWildcardType())
+         {
+            lookupMessageBodyWriter(type, genericType, annotations, MediaTypeHelper.DEFAULT_TYPE, lookup);
+         }
+      }
+      if (lookup.cacheable)
+      {
+         remember(writerCache, key, lookup, generation);
+      }
+      return (MessageBodyWriter<T>)lookup.provider;
+   }
+
+   /**
+    * Looking for reader in the same way as
+    * {@link #doGetMessageBodyReader(Class, Type, Annotation[], MediaType)} but
+    * keep found provider factory.
+    */
+   @SuppressWarnings("unchecked")
+   private void lookupMessageBodyReader(Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, EntityProviderLookup lookup)
+   {
+      List<ObjectFactory<ProviderDescriptor>> l = readProviders.get(mediaType);
+      if (l == null)
+         return;
+      for (ObjectFactory<ProviderDescriptor> pf : l)
       {
-         writer =
-            doGetMessageBodyWriter(type, genericType, annotations, new MediaType(mediaType.getType(),
-               MediaType.MEDIA_TYPE_WILDCARD));
+         if (lookup.cacheable && !isLookupCacheable(pf))
+            lookup.cacheable = false;
+         MessageBodyReader reader = (MessageBodyReader)pf.getInstance(ApplicationContextImpl.getCurrent());
+         if (reader.isReadable(type, genericType, annotations, mediaType))
+         {
+            lookup.factory = pf;
+            lookup.provider = reader;
+            return;
+         }
       }
-      if (writer == null && !mediaType.isWildcardType())
+   }
+
+   /**
+    * Looking for writer in the same way as
+    * {@link #doGetMessageBodyWriter(Class, Type, Annotation[], MediaType)} but
+    * keep found provider factory.
+    */
+   @SuppressWarnings("unchecked")
+   private void lookupMessageBodyWriter(Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, EntityProviderLookup lookup)
+   {
+      List<ObjectFactory<ProviderDescriptor>> l = writeProviders.get(mediaType);
+      if (l == null)
+         return;
+      for (ObjectFactory<ProviderDescriptor> pf : l)
       {
-         writer = doGetMessageBodyWriter(type, genericType, annotations, MediaTypeHelper.DEFAULT_TYPE);
+         if (lookup.cacheable && !isLookupCacheable(pf))
+            lookup.cacheable = false;
+         MessageBodyWriter writer = (MessageBodyWriter)pf.getInstance(ApplicationContextImpl.getCurrent());
+         if (writer.isWriteable(type, genericType, annotations, mediaType))
+         {
+            lookup.factory = pf;
+            lookup.provider = writer;
+            return;
+         }
       }
-      return writer;
+   }
+
+   /**
+    * @param pf provider factory
+    * @return <code>false</code> if provider is annotated with
+    *         {@link UncachedLookup} and <code>true</code> otherwise
+    */
+   private static boolean isLookupCacheable(ObjectFactory<ProviderDescriptor> pf)
+   {
+      return !pf.getObjectModel().getObjectClass().isAnnotationPresent(UncachedLookup.class);
+   }
+
+   /**
+    * Forget remembered results of looking for readers and writers. Keys of
+    * results refer to types of entities, so results must be forgotten when
+    * resources are removed, otherwise classes of removed resources, e.g.
+    * republished Groovy resources, may not be unloaded.
+    */
+   public void clearEntityProviderCaches()
+   {
+      readerCache.clear();
+      writerCache.clear();
+   }
+
+   private static void remember(ConcurrentHashMap<EntityProviderKey, CachedEntityProvider> cache,
+      EntityProviderKey key, EntityProviderLookup lookup, int generation)
+   {
+      if (cache.size() >= MAX_ENTITY_PROVIDER_CACHE_SIZE)
+         cache.clear();
+      cache.put(key, new CachedEntityProvider(lookup.factory, generation));
    }
 
    /**
@@ -635,7 +975,7 @@ public class ProviderBinder implements ExtendedProviders
     */
    public List<ObjectFactory<FilterDescriptor>> getMethodInvokerFilters(String path)
    {
-      return getMatchedFilters(path, invokerFilters);
+      return invokerFilterChain.getFilters(path);
    }
 
    /**
@@ -643,7 +983,7 @@ public class ProviderBinder implements ExtendedProviders
     */
    public List<ObjectFactory<FilterDescriptor>> getRequestFilters(String path)
    {
-      return getMatchedFilters(path, requestFilters);
+      return requestFilterChain.getFilters(path);
    }
 
    /**
@@ -651,17 +991,21 @@ public class ProviderBinder implements ExtendedProviders
     */
    public List<ObjectFactory<FilterDescriptor>> getResponseFilters(String path)
    {
-      return getMatchedFilters(path, responseFilters);
+      return responseFilterChain.getFilters(path);
    }
 
    /**
     * @param path request path
     * @param m filter map
     * @return acceptable filter
-    * @see #getMethodInvokerFilters(String)
-    * @see #getRequestFilters(String)
-    * @see #getResponseFilters(String)
+    * @deprecated not used by this class any more. Filters returned by
+    *             {@link #getMethodInvokerFilters(String)},
+    *             {@link #getRequestFilters(String)} and
+    *             {@link #getResponseFilters(String)} are taken from
+    *             {@link FilterChain}s prepared when filters are added, so
+    *             overriding this method has no effect.
     */
+   @Deprecated
    protected List<ObjectFactory<FilterDescriptor>> getMatchedFilters(String path,
       UriPatternMap<ObjectFactory<FilterDescriptor>> m)
    {
@@ -879,6 +1223,8 @@ public class ProviderBinder implements ExtendedProviders
       {
          readProviders.getList(mime).add(factory);
       }
+      readerGeneration.incrementAndGet();
+      readerCache.clear();
    }
 
    /**
@@ -920,6 +1266,8 @@ public class ProviderBinder implements ExtendedProviders
       {
          writeProviders.getList(mime).add(factory);
       }
+      writerGeneration.incrementAndGet();
+      writerCache.clear();
    }
 
    /**
@@ -1006,7 +1354,12 @@ public class ProviderBinder implements ExtendedProviders
             factory = new ContainerObjectFactory<FilterDescriptor>(descriptor);
             break;
       }
-      requestFilters.getList(descriptor.getUriPattern()).add(factory);
+      // Chain is built from map so map must not be changed by other thread at the same time.
+      synchronized (requestFilters)
+      {
+         requestFilters.getList(descriptor.getUriPattern()).add(factory);
+         requestFilterChain = new FilterChain(requestFilters);
+      }
    }
 
    /**
@@ -1038,7 +1391,12 @@ public class ProviderBinder implements ExtendedProviders
             factory = new ContainerObjectFactory<FilterDescriptor>(descriptor);
             break;
       }
-      responseFilters.getList(descriptor.getUriPattern()).add(factory);
+      // Chain is built from map so map must not be changed by other thread at the same time.
+      synchronized (responseFilters)
+      {
+         responseFilters.getList(descriptor.getUriPattern()).add(factory);
+         responseFilterChain = new FilterChain(responseFilters);
+      }
    }
 
    /**
@@ -1070,7 +1428,12 @@ public class ProviderBinder implements ExtendedProviders
             factory = new ContainerObjectFactory<FilterDescriptor>(descriptor);
             break;
       }
-      invokerFilters.getList(descriptor.getUriPattern()).add(factory);
+      // Chain is built from map so map must not be changed by other thread at the same time.
+      synchronized (invokerFilters)
+      {
+         invokerFilters.getList(descriptor.getUriPattern()).add(factory);
+         invokerFilterChain = new FilterChain(invokerFilters);
+      }
    }
 
 }
@@ -20,8 +20,8 @@ package org.exoplatform.services.rest.impl;
 
 import org.exoplatform.container.spi.DefinitionByType;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author <a href="andrew00x@gmail.com">Andrey Parfonov</a>
@@ -31,7 +31,7 @@ import java.util.Map;
 public class ProvidersRegistry
 {
 
-   protected Map<String, ApplicationProviders> all = new HashMap<String, ApplicationProviders>();
+   protected Map<String, ApplicationProviders> all = new ConcurrentHashMap<String, ApplicationProviders>();
 
    public void addProviders(ApplicationProviders ap)
    {
@@ -43,4 +43,18 @@ public class ProvidersRegistry
       return all.get(applicationId);
    }
 
+   /**
+    * Forget remembered results of looking for readers and writers of all
+    * applications.
+    *
+    * @see ProviderBinder#clearEntityProviderCaches()
+    */
+   public void clearEntityProviderCaches()
+   {
+      for (ApplicationProviders ap : all.values())
+      {
+         ap.clearEntityProviderCaches();
+      }
+   }
+
 }
@@ -22,7 +22,9 @@ import org.exoplatform.container.spi.DefinitionByType;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
 import org.exoplatform.services.rest.ApplicationContext;
+import org.exoplatform.services.rest.Cacheable;
 import org.exoplatform.services.rest.ComponentLifecycleScope;
+import org.exoplatform.services.rest.DeferredResult;
 import org.exoplatform.services.rest.FilterDescriptor;
 import org.exoplatform.services.rest.GenericContainerRequest;
 import org.exoplatform.services.rest.GenericContainerResponse;
@@ -33,11 +35,15 @@ import org.exoplatform.services.rest.SingletonObjectFactory;
 import org.exoplatform.services.rest.impl.header.HeaderHelper;
 import org.exoplatform.services.rest.impl.header.MediaTypeHelper;
 import org.exoplatform.services.rest.impl.method.MethodInvokerFactory;
-import org.exoplatform.services.rest.impl.resource.AbstractResourceDescriptorImpl;
+import org.exoplatform.services.rest.impl.metrics.Phase;
+import org.exoplatform.services.rest.impl.metrics.RequestMetrics;
+import org.exoplatform.services.rest.impl.metrics.ResourceMetrics;
 import org.exoplatform.services.rest.impl.resource.ApplicationResource;
+import org.exoplatform.services.rest.impl.resource.ResourceDescriptorCache;
 import org.exoplatform.services.rest.method.MethodInvoker;
 import org.exoplatform.services.rest.method.MethodInvokerFilter;
 import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
+import org.exoplatform.services.rest.resource.GenericMethodResource;
 import org.exoplatform.services.rest.resource.ResourceMethodDescriptor;
 import org.exoplatform.services.rest.resource.ResourceMethodMap;
 import org.exoplatform.services.rest.resource.SubResourceLocatorDescriptor;
@@ -56,6 +62,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.ws.rs.HttpMethod;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.HttpHeaders;
@@ -82,11 +89,11 @@ public class RequestDispatcher
     * Applications. Default (embedded) providers will be used only if
     * application does not provide own providers with the same purposes.
     */
-   private class ProvidersAdapter extends ProviderBinder
+   private static class ProvidersAdapter extends ProviderBinder
    {
-      private ProviderBinder applicationProviders;
+      private final ProviderBinder applicationProviders;
 
-      private ProviderBinder defaultProviders;
+      private final ProviderBinder defaultProviders;
 
       private ProvidersAdapter(ProviderBinder applicationProviders, ProviderBinder defaultProviders)
       {
@@ -423,19 +430,75 @@ public class RequestDispatcher
    /** Logger. */
    private static final Log LOG = ExoLogger.getLogger("exo.ws.rest.core.RequestDispatcher");
 
+   /**
+    * Name of attribute of {@link ApplicationContext} which is used for saving
+    * {@link PendingResult} if resource method returns {@link DeferredResult}.
+    */
+   static final String PENDING_RESULT = RequestDispatcher.class.getName() + ".pendingResult";
+
+   /**
+    * {@link DeferredResult} returned by resource method and media types which
+    * resource method produces.
+    */
+   static final class PendingResult
+   {
+      final DeferredResult result;
+
+      final List<MediaType> produces;
+
+      PendingResult(DeferredResult result, List<MediaType> produces)
+      {
+         this.result = result;
+         this.produces = produces;
+      }
+   }
+
    /** See {@link ResourceBinder}. */
    protected final ResourceBinder resourceBinder;
 
+   /** Limits of concurrent invocations of resources. */
+   private final ResourceConcurrencyLimits concurrencyLimits = new ResourceConcurrencyLimits();
+
+   /** Adapter for resources which are not delivered with JAX-RS Application. */
+   private volatile ProvidersAdapter defaultProvidersAdapter;
+
    protected final MethodInvokerFactory invokerFactory;
 
    protected final ProvidersRegistry providersRegistry;
 
+   /** Descriptors of objects returned by sub-resource locators. */
+   protected final ResourceDescriptorCache locatorDescriptors;
+
    public RequestDispatcher(ResourceBinder resourceBinder, ProvidersRegistry providersRegistry,
       MethodInvokerFactory invokerFactory)
    {
       this.resourceBinder = resourceBinder;
       this.providersRegistry = providersRegistry;
       this.invokerFactory = invokerFactory;
+      this.locatorDescriptors = new ResourceDescriptorCache(invokerFactory);
+      if (resourceBinder != null)
+      {
+         resourceBinder.addResourceListener(new ResourceListener()
+         {
+            public void resourceAdded(AbstractResourceDescriptor resource)
+            {
+            }
+
+            public void resourceRemoved(AbstractResourceDescriptor resource)
+            {
+               ResourceMetrics.getInstance().removeResource(resource.getObjectClass());
+               ResponseCache.getInstance().invalidate(resource.getObjectClass());
+               // Sub-resources of removed resource are not known, clear all.
+               locatorDescriptors.clear();
+               // Entity types of removed resource are not known either.
+               ProviderBinder.getInstance().clearEntityProviderCaches();
+               if (providersRegistry != null)
+               {
+                  providersRegistry.clearEntityProviderCaches();
+               }
+            }
+         });
+      }
    }
 
    public RequestDispatcher(ResourceBinder resourceBinder, ProvidersRegistry providers)
@@ -455,6 +518,33 @@ public class RequestDispatcher
       this(resourceBinder, null, null);
    }
 
+   /**
+    * Get adapter for application providers. Adapter is cached and re-created
+    * only if default providers were replaced.
+    *
+    * @param applicationProviders application providers, may be
+    *        <code>null</code>
+    * @return adapter for application providers
+    */
+   private ProvidersAdapter getProvidersAdapter(ProviderBinder applicationProviders)
+   {
+      ProviderBinder defaultProviders = ProviderBinder.getInstance();
+      ProvidersAdapter adapter;
+      if (applicationProviders == null)
+      {
+         adapter = defaultProvidersAdapter;
+         if (adapter == null || adapter.defaultProviders != defaultProviders)
+            defaultProvidersAdapter = adapter = new ProvidersAdapter(null, defaultProviders);
+         return adapter;
+      }
+      // Adapter does not keep any request specific state. It is kept by
+      // application providers, so it is released together with them.
+      adapter = (ProvidersAdapter)applicationProviders.adapter;
+      if (adapter == null || adapter.defaultProviders != defaultProviders)
+         applicationProviders.adapter = adapter = new ProvidersAdapter(applicationProviders, defaultProviders);
+      return adapter;
+   }
+
    /**
     * Dispatch {@link ContainerRequest} to resource which can serve request.
     * 
@@ -470,6 +560,7 @@ public class RequestDispatcher
       // Get root resource
       ObjectFactory<AbstractResourceDescriptor> resourceFactory = getRootResourse(parameterValues, requestPath);
       AbstractResourceDescriptor resourceDescriptor = resourceFactory.getObjectModel();
+      RequestMetrics metrics = RequestMetrics.get(context);
 
       if (providersRegistry != null)
       {
@@ -482,20 +573,27 @@ public class RequestDispatcher
             applicationId = ((ApplicationResource)resourceDescriptor).getApplication();
          }
          ProviderBinder applicationProviders = providersRegistry.getProviders(applicationId);
-         ((ApplicationContextImpl)context).setProviders(new ProvidersAdapter(applicationProviders, ProviderBinder
-            .getInstance()));
+         ((ApplicationContextImpl)context).setProviders(getProvidersAdapter(applicationProviders));
       }
       else
       {
          LOG.warn("ProvidersRegistry must set. ");
       }
 
+      if (metrics != null)
+      {
+         metrics.mark(Phase.MATCHING);
+         metrics.setResourceClass(resourceDescriptor.getObjectClass());
+      }
+
       // Apply application specific request filters if any
       for (ObjectFactory<FilterDescriptor> factory : context.getProviders().getRequestFilters(context.getPath()))
       {
          RequestFilter f = (RequestFilter)factory.getInstance(context);
          f.doFilter(request);
       }
+      if (metrics != null)
+         metrics.mark(Phase.FILTERS);
 
       // Take the tail of the request path, the tail will be requested path
       // for lower resources, e. g. ResourceClass -> Sub-resource method/locator
@@ -506,9 +604,27 @@ public class RequestDispatcher
 
       // may thrown WebApplicationException
       Object resource = resourceFactory.getInstance(context);
-      dispatch(request, response, context, resourceFactory, resource, newRequestPath);
+      dispatch(request, response, context, resourceFactory, resource, newRequestPath,
+         concurrencyLimits.getLimit(resourceDescriptor));
+
+      // Response is not set yet if resource method returns DeferredResult,
+      // filters are applied when result is ready.
+      if (context.getAttributes().get(PENDING_RESULT) == null)
+      {
+         applyResponseFilters(context, response);
+         if (metrics != null)
+            metrics.mark(Phase.FILTERS);
+      }
+   }
 
-      // Apply application specific response filters if any
+   /**
+    * Apply application specific response filters if any.
+    *
+    * @param context See {@link ApplicationContextImpl}
+    * @param response See {@link GenericContainerResponse}
+    */
+   static void applyResponseFilters(ApplicationContext context, GenericContainerResponse response)
+   {
       for (ObjectFactory<FilterDescriptor> factory : context.getProviders().getResponseFilters(context.getPath()))
       {
          ResponseFilter f = (ResponseFilter)factory.getInstance(context);
@@ -516,6 +632,72 @@ public class RequestDispatcher
       }
    }
 
+   /**
+    * Get slots for invocation of resource method and resource. Slot for method
+    * is got first, so request which waits for free method slot does not keep
+    * slot of resource.
+    *
+    * @param methodLimit limit of concurrent invocations of method, may be
+    *        <code>null</code>
+    * @param resourceLimit limit of concurrent invocations of resource, may be
+    *        <code>null</code>
+    * @param resource resource
+    * @throws WebApplicationException with status 503 (Service Unavailable) if
+    *         any limit is reached
+    */
+   private static void acquire(ResourceConcurrencyLimits.Limit methodLimit,
+      ResourceConcurrencyLimits.Limit resourceLimit, AbstractResourceDescriptor resource)
+   {
+      acquire(methodLimit, resource);
+      try
+      {
+         acquire(resourceLimit, resource);
+      }
+      catch (RuntimeException e)
+      {
+         if (methodLimit != null)
+            methodLimit.release();
+         throw e;
+      }
+   }
+
+   /**
+    * Give back slots got with
+    * {@link #acquire(ResourceConcurrencyLimits.Limit, ResourceConcurrencyLimits.Limit, AbstractResourceDescriptor)}.
+    *
+    * @param methodLimit limit of concurrent invocations of method, may be
+    *        <code>null</code>
+    * @param resourceLimit limit of concurrent invocations of resource, may be
+    *        <code>null</code>
+    */
+   private static void release(ResourceConcurrencyLimits.Limit methodLimit,
+      ResourceConcurrencyLimits.Limit resourceLimit)
+   {
+      if (resourceLimit != null)
+         resourceLimit.release();
+      if (methodLimit != null)
+         methodLimit.release();
+   }
+
+   /**
+    * Get slot for invocation of resource or resource method.
+    *
+    * @param limit limit of concurrent invocations, may be <code>null</code>
+    * @param resource resource
+    * @throws WebApplicationException with status 503 (Service Unavailable) if
+    *         limit is reached
+    */
+   private static void acquire(ResourceConcurrencyLimits.Limit limit, AbstractResourceDescriptor resource)
+   {
+      if (limit != null && !limit.acquire())
+      {
+         if (LOG.isDebugEnabled())
+            LOG.debug("Limit of concurrent requests is reached for " + resource.getObjectClass().getName());
+         throw new WebApplicationException(Response.status(Status.SERVICE_UNAVAILABLE).entity(
+            "Too many concurrent requests. Try again later.").type(MediaType.TEXT_PLAIN).build());
+      }
+   }
+
    /**
     * Get last element from path parameters. This element will be used as
     * request path for child resources.
@@ -544,10 +726,13 @@ public class RequestDispatcher
     * @param requestPath request path, it is relative path to the base URI or
     *           other resource which was called before (one of sub-resource
     *           locators)
+    * @param resourceLimit limit of concurrent invocations of root resource,
+    *           <code>null</code> if there is no limit or resource is not root
+    *           resource
     */
    private void dispatch(GenericContainerRequest request, GenericContainerResponse response,
       ApplicationContext context, ObjectFactory<AbstractResourceDescriptor> resourceFactory, Object resource,
-      String requestPath)
+      String requestPath, ResourceConcurrencyLimits.Limit resourceLimit)
    {
       List<String> parameterValues = context.getParameterValues();
       int len = parameterValues.size();
@@ -566,7 +751,17 @@ public class RequestDispatcher
                LOG.debug("Not found resource method for method " + request.getMethod());
             return; // Error Response is preset
          }
-         invokeResourceMethod(methods.get(0), resource, context, request, response);
+         ResourceMethodDescriptor rmd = methods.get(0);
+         ResourceConcurrencyLimits.Limit limit = concurrencyLimits.getLimit(resourceFactory.getObjectModel(), rmd);
+         acquire(limit, resourceLimit, resourceFactory.getObjectModel());
+         try
+         {
+            invokeResourceMethod(rmd, resource, context, request, response);
+         }
+         finally
+         {
+            release(limit, resourceLimit);
+         }
       }
       else
       { // sub-resource method/locator
@@ -601,17 +796,58 @@ public class RequestDispatcher
             || (hasAcceptableLocator && match && compareSubResources(methods.get(0), locators.get(0)) < 0))
          {
             // sub-resource method
-            invokeSubResourceMethod(requestPath, methods.get(0), resource, context, request, response);
+            SubResourceMethodDescriptor srmd = methods.get(0);
+            ResourceConcurrencyLimits.Limit limit =
+               concurrencyLimits.getLimit(resourceFactory.getObjectModel(), srmd);
+            acquire(limit, resourceLimit, resourceFactory.getObjectModel());
+            try
+            {
+               invokeSubResourceMethod(requestPath, srmd, resource, context, request, response);
+            }
+            finally
+            {
+               release(limit, resourceLimit);
+            }
          }
          else if ((hasAcceptableLocator && !match)
             || (hasAcceptableLocator && match && compareSubResources(methods.get(0), locators.get(0)) > 0))
          {
-            // sub-resource locator
-            invokeSuResourceLocator(requestPath, locators.get(0), resource, context, request, response);
+            // sub-resource locator, slot of resource is kept while sub-resources are processed
+            acquire(null, resourceLimit, resourceFactory.getObjectModel());
+            try
+            {
+               invokeSuResourceLocator(requestPath, locators.get(0), resource, context, request, response);
+            }
+            finally
+            {
+               release(null, resourceLimit);
+            }
          }
       }
    }
 
+   /**
+    * Add time spent for matching to metrics of request before invocation of
+    * method.
+    *
+    * @param context See {@link ApplicationContextImpl}
+    * @param method method which serves request, <code>null</code> for
+    *        sub-resource locators
+    * @return metrics of request or <code>null</code> if metrics are not
+    *         collected
+    */
+   private static RequestMetrics startInvocation(ApplicationContext context, GenericMethodResource method)
+   {
+      RequestMetrics metrics = RequestMetrics.get(context);
+      if (metrics != null)
+      {
+         metrics.mark(Phase.MATCHING);
+         if (method != null)
+            metrics.setMethod(method);
+      }
+      return metrics;
+   }
+
    /**
     * Invoke resource methods.
     * 
@@ -627,10 +863,8 @@ public class RequestDispatcher
    {
       // save resource in hierarchy
       context.addMatchedResource(resource);
-      Class<?> returnType = rmd.getResponseType();
-      MethodInvoker invoker = rmd.getMethodInvoker();
-      Object o = invoker.invokeMethod(resource, rmd, context);
-      processResponse(o, returnType, request, response, rmd.produces());
+      invokeMethod(rmd, rmd.getMethodInvoker(), rmd.getResponseType(), rmd.produces(), resource, context, request,
+         response);
    }
 
    /**
@@ -654,10 +888,83 @@ public class RequestDispatcher
       // save parameters values, actually parameters was save before, now just map parameter's names to values
       context.setParameterNames(srmd.getUriPattern().getParameterNames());
 
-      Class<?> returnType = srmd.getResponseType();
-      MethodInvoker invoker = srmd.getMethodInvoker();
-      Object o = invoker.invokeMethod(resource, srmd, context);
-      processResponse(o, returnType, request, response, srmd.produces());
+      invokeMethod(srmd, srmd.getMethodInvoker(), srmd.getResponseType(), srmd.produces(), resource, context,
+         request, response);
+   }
+
+   /**
+    * Invoke resource or sub-resource method and process its result. Response
+    * is taken from {@link ResponseCache} if method is annotated with
+    * {@link Cacheable} and response is cached, otherwise it is cached after
+    * invocation if possible. Cached response is served only after all
+    * {@link MethodInvokerFilter}s accept method, so access checks are not
+    * bypassed. Successful request with method other then GET or HEAD removes
+    * cached responses for the request path and its parent.
+    *
+    * @param method resource or sub-resource method
+    * @param invoker invoker of method
+    * @param returnType type of returned object
+    * @param produces list of method produces media types
+    * @param resource instance of resource class
+    * @param context See {@link ApplicationContextImpl}
+    * @param request See {@link GenericContainerRequest}
+    * @param response See {@link GenericContainerResponse}
+    */
+   private void invokeMethod(GenericMethodResource method, MethodInvoker invoker, Class<?> returnType,
+      List<MediaType> produces, Object resource, ApplicationContext context, GenericContainerRequest request,
+      GenericContainerResponse response)
+   {
+      RequestMetrics metrics = startInvocation(context, method);
+      ResponseCache cache = ResponseCache.getInstance();
+      Cacheable cacheable = ResponseCache.getCacheable(method, request);
+      String key = null;
+      if (cacheable != null)
+      {
+         key = ResponseCache.getKey(cacheable, request);
+         ResponseCache.Entry cached = cache.get(key, request);
+         if (cached != null)
+         {
+            applyMethodInvokerFilters(method, context);
+            ResponseCache.serve(cached, request, response);
+            if (metrics != null)
+               metrics.mark(Phase.INVOCATION);
+            return;
+         }
+      }
+
+      Object o = invoker.invokeMethod(resource, method, context);
+      if (metrics != null)
+         metrics.mark(Phase.INVOCATION);
+      processResponse(o, returnType, request, response, produces);
+
+      if (context.getAttributes().containsKey(PENDING_RESULT))
+         return;
+      if (cacheable != null)
+      {
+         cache.store(key, cacheable, method, context, request, response);
+      }
+      else if (cache.getCount() > 0 && !HttpMethod.GET.equals(request.getMethod())
+         && !HttpMethod.HEAD.equals(request.getMethod()) && response.getStatus() / 100 == 2)
+      {
+         cache.invalidateUpdated(context.getPath());
+      }
+   }
+
+   /**
+    * Apply {@link MethodInvokerFilter}s to method which is not going to be
+    * invoked because its response is taken from {@link ResponseCache}.
+    * Otherwise filters are applied by {@link MethodInvoker}.
+    *
+    * @param method resource or sub-resource method
+    * @param context See {@link ApplicationContextImpl}
+    */
+   private void applyMethodInvokerFilters(GenericMethodResource method, ApplicationContext context)
+   {
+      for (ObjectFactory<FilterDescriptor> factory : context.getProviders().getMethodInvokerFilters(context.getPath()))
+      {
+         MethodInvokerFilter f = (MethodInvokerFilter)factory.getInstance(context);
+         f.accept(method);
+      }
    }
 
    /**
@@ -684,14 +991,17 @@ public class RequestDispatcher
 
       // NOTE Locators can't accept entity
       MethodInvoker invoker = srld.getMethodInvoker();
+      RequestMetrics metrics = startInvocation(context, null);
       resource = invoker.invokeMethod(resource, srld, context);
+      if (metrics != null)
+         metrics.mark(Phase.INVOCATION);
 
-      AbstractResourceDescriptor descriptor = new AbstractResourceDescriptorImpl(resource, invokerFactory);
+      AbstractResourceDescriptor descriptor = locatorDescriptors.getDescriptor(resource);
       SingletonObjectFactory<AbstractResourceDescriptor> locResource =
          new SingletonObjectFactory<AbstractResourceDescriptor>(descriptor, resource);
 
       // dispatch again newly created resource
-      dispatch(request, response, context, locResource, resource, newRequestPath);
+      dispatch(request, response, context, locResource, resource, newRequestPath, null);
    }
 
    /**
@@ -737,6 +1047,14 @@ public class RequestDispatcher
    private static void processResponse(Object o, Class<?> returnType, GenericContainerRequest request,
       GenericContainerResponse response, List<MediaType> produces)
    {
+      if (o instanceof DeferredResult)
+      {
+         // Result will be processed when it is ready, see RequestHandlerImpl.
+         ApplicationContextImpl.getCurrent().getAttributes().put(PENDING_RESULT,
+            new PendingResult((DeferredResult)o, produces));
+         return;
+      }
+
       // get most acceptable media type for response
       MediaType contentType = request.getAcceptableMediaType(produces);
 
@@ -764,6 +1082,20 @@ public class RequestDispatcher
       }
    }
 
+   /**
+    * Process result of {@link DeferredResult}.
+    *
+    * @param o result, entity or {@link Response}
+    * @param request See {@link GenericContainerRequest}
+    * @param response See {@link GenericContainerResponse}
+    * @param produces list of method produces media types
+    */
+   static void processResult(Object o, GenericContainerRequest request, GenericContainerResponse response,
+      List<MediaType> produces)
+   {
+      processResponse(o, o == null ? void.class : o.getClass(), request, response, produces);
+   }
+
    /**
     * Process resource methods.
     * 
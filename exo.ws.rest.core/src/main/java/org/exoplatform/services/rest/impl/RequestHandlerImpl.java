@@ -25,6 +25,10 @@ import org.exoplatform.container.xml.InitParams;
 import org.exoplatform.container.xml.ValueParam;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
+import org.exoplatform.services.rest.ApplicationContext;
+import org.exoplatform.services.rest.AsyncContainerResponseWriter;
+import org.exoplatform.services.rest.ContainerResponseWriter;
+import org.exoplatform.services.rest.DeferredResult;
 import org.exoplatform.services.rest.ExtHttpHeaders;
 import org.exoplatform.services.rest.FilterDescriptor;
 import org.exoplatform.services.rest.GenericContainerRequest;
@@ -34,18 +38,29 @@ import org.exoplatform.services.rest.RequestFilter;
 import org.exoplatform.services.rest.RequestHandler;
 import org.exoplatform.services.rest.ResponseFilter;
 import org.exoplatform.services.rest.impl.method.MethodInvokerFilterComponentPlugin;
+import org.exoplatform.services.rest.impl.metrics.Phase;
+import org.exoplatform.services.rest.impl.metrics.RequestMetrics;
+import org.exoplatform.services.rest.impl.metrics.ResourceMetrics;
 import org.exoplatform.services.rest.impl.provider.EntityProviderComponentPlugin;
 import org.exoplatform.services.rest.method.MethodInvokerFilter;
 import org.exoplatform.services.rest.provider.EntityProvider;
 import org.picocontainer.Startable;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.util.HashMap;
+import java.io.Reader;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
@@ -67,11 +82,18 @@ public final class RequestHandlerImpl implements RequestHandler, Startable
    private static final Log LOG = ExoLogger.getLogger("exo.ws.rest.core.RequestHandlerImpl");
 
    /**
-    * Application properties. Properties from this map will be copied to
-    * ApplicationContext and may be accessible via method
-    * {@link ApplicationContextImpl#getProperties()}.
+    * Default value of {@link #WS_RS_ASYNC_TIMEOUT}.
     */
-   private static final Map<String, String> properties = new HashMap<String, String>();
+   private static final long DEFAULT_ASYNC_TIMEOUT = 60000L;
+
+   /**
+    * Application properties. Properties from this map are accessible via
+    * method {@link ApplicationContextImpl#getProperties()}. They are not
+    * copied for each request, so map must be safe for concurrent access. Map
+    * does not keep <code>null</code> values, such properties are removed, see
+    * {@link #setProperty(String, String)}.
+    */
+   private static final Map<String, String> properties = new ConcurrentHashMap<String, String>();
 
    /**
     * See {@link RequestDispatcher}.
@@ -102,7 +124,7 @@ public final class RequestHandlerImpl implements RequestHandler, Startable
          for (Iterator<ValueParam> i = params.getValueParamIterator(); i.hasNext();)
          {
             ValueParam vp = i.next();
-            properties.put(vp.getName(), vp.getValue());
+            setProperty(vp.getName(), vp.getValue());
          }
       }
    }
@@ -126,12 +148,17 @@ public final class RequestHandlerImpl implements RequestHandler, Startable
    @SuppressWarnings({"unchecked", "rawtypes"})
    public void handleRequest(GenericContainerRequest request, GenericContainerResponse response) throws Exception
    {
+      ResourceMetrics resourceMetrics = ResourceMetrics.getInstance();
+      RequestMetrics metrics = resourceMetrics.isEnabled() ? new RequestMetrics(resourceMetrics) : null;
+      boolean suspended = false;
+      boolean completed = false;
       try
       {
          ProviderBinder defaultProviders = ProviderBinder.getInstance();
          ApplicationContextImpl context =
             new ApplicationContextImpl(request, response, defaultProviders, dependencySupplier);
-         context.getProperties().putAll(properties);
+         context.setDefaultProperties(properties);
+         context.setRequestMetrics(metrics);
          ApplicationContextImpl.setCurrent(context);
 
          // Apply default filters only.
@@ -140,112 +167,385 @@ public final class RequestHandlerImpl implements RequestHandler, Startable
             RequestFilter f = (RequestFilter)factory.getInstance(context);
             f.doFilter(request);
          }
+         if (metrics != null)
+            metrics.mark(Phase.FILTERS);
 
+         RequestDispatcher.PendingResult pending = null;
          try
          {
+            ContentEncodingHelper.decodeRequest(context, request);
             dispatcher.dispatch(request, response);
-            if (response.getHttpHeaders().getFirst(ExtHttpHeaders.JAXRS_BODY_PROVIDED) == null)
-            {
-               String jaxrsHeader = getJaxrsHeader(response.getStatus());
-               if (jaxrsHeader != null)
-               {
-                  response.getHttpHeaders().putSingle(ExtHttpHeaders.JAXRS_BODY_PROVIDED, jaxrsHeader);
-               }
-            }
+            pending = (RequestDispatcher.PendingResult)context.getAttributes().remove(RequestDispatcher.PENDING_RESULT);
+            if (pending == null)
+               addJaxrsHeader(response);
          }
          catch (WebApplicationException e)
          {
-            Response errorResponse = ((WebApplicationException)e).getResponse();
-            ExceptionMapper excmap = context.getProviders().getExceptionMapper(WebApplicationException.class);
-            int errorStatus = errorResponse.getStatus();
-            // should be some of 4xx status
-            if (errorStatus < 500)
-            {
-               // Warn about error in debug mode only.
-               if (LOG.isDebugEnabled() && e.getCause() != null)
-               {
-                  LOG.warn("WebApplication exception occurs.", e.getCause());
-               }
-            }
-            else
-            {
-               if (e.getCause() != null)
-               {
-                  LOG.warn("WebApplication exception occurs.", e.getCause());
-               }
-            }
-            if (errorResponse.getEntity() == null)
-            {
-               if (excmap != null)
-               {
-                  errorResponse = excmap.toResponse(e);
-               }
-               else
-               {
-                  if (e.getMessage() != null)
-                  {
-                     errorResponse = createErrorResponse(errorStatus, e.getMessage());
-                  }
-               }
-            }
-            else
-            {
-               if (errorResponse.getMetadata().getFirst(ExtHttpHeaders.JAXRS_BODY_PROVIDED) == null)
-               {
-                  String jaxrsHeader = getJaxrsHeader(errorStatus);
-                  if (jaxrsHeader != null)
-                  {
-                     errorResponse.getMetadata().putSingle(ExtHttpHeaders.JAXRS_BODY_PROVIDED, jaxrsHeader);
-                  }
-               }
-            }
-            response.setResponse(errorResponse);
+            handleWebApplicationException(e, context, response);
          }
          catch (InternalException e)
          {
-            Throwable cause = e.getCause();
-            Class causeClazz = cause.getClass();
-            ExceptionMapper excmap = context.getProviders().getExceptionMapper(causeClazz);
-            while (causeClazz != null && excmap == null)
+            handleInternalException(e, context, response);
+         }
+
+         if (pending != null)
+         {
+            AsyncContainerResponseWriter asyncWriter = getAsyncResponseWriter(response);
+            if (asyncWriter != null && !pending.result.isDone())
             {
-               excmap = context.getProviders().getExceptionMapper(causeClazz);
-               if (excmap == null)
-               {
-                  causeClazz = causeClazz.getSuperclass();
-               }
+               // Response will be written when result is ready.
+               suspend(pending, asyncWriter, context, request, response);
+               suspended = true;
+               return;
             }
-            if (excmap != null)
+            // Connector can't suspend request, wait for result.
+            processPendingResult(pending, context, request, response);
+            if (metrics != null)
+               metrics.mark(Phase.INVOCATION);
+         }
+
+         writeResponse(context, response);
+         completed = true;
+      }
+      finally
+      {
+         if (metrics != null && !suspended)
+            metrics.done(response.getStatus(), !completed);
+         // reset application context
+         ApplicationContextImpl.setCurrent(null);
+      }
+   }
+
+   /**
+    * Add JAXRS header if it is not set yet.
+    *
+    * @param response container response
+    */
+   private void addJaxrsHeader(GenericContainerResponse response)
+   {
+      if (response.getHttpHeaders().getFirst(ExtHttpHeaders.JAXRS_BODY_PROVIDED) == null)
+      {
+         String jaxrsHeader = getJaxrsHeader(response.getStatus());
+         if (jaxrsHeader != null)
+         {
+            response.getHttpHeaders().putSingle(ExtHttpHeaders.JAXRS_BODY_PROVIDED, jaxrsHeader);
+         }
+      }
+   }
+
+   /**
+    * Set response for {@link WebApplicationException} thrown while request
+    * was processed.
+    *
+    * @param e WebApplicationException
+    * @param context application context
+    * @param response container response
+    */
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   private void handleWebApplicationException(WebApplicationException e, ApplicationContext context,
+      GenericContainerResponse response)
+   {
+      Response errorResponse = ((WebApplicationException)e).getResponse();
+      ExceptionMapper excmap = context.getProviders().getExceptionMapper(WebApplicationException.class);
+      int errorStatus = errorResponse.getStatus();
+      // should be some of 4xx status
+      if (errorStatus < 500)
+      {
+         // Warn about error in debug mode only.
+         if (LOG.isDebugEnabled() && e.getCause() != null)
+         {
+            LOG.warn("WebApplication exception occurs.", e.getCause());
+         }
+      }
+      else
+      {
+         if (e.getCause() != null)
+         {
+            LOG.warn("WebApplication exception occurs.", e.getCause());
+         }
+      }
+      if (errorResponse.getEntity() == null)
+      {
+         if (excmap != null)
+         {
+            errorResponse = excmap.toResponse(e);
+         }
+         else
+         {
+            if (e.getMessage() != null)
             {
-               if (LOG.isDebugEnabled())
-               {
-                  // Hide error message if exception mapper exists.
-                  LOG.warn("Internal error occurs.", cause);
-               }
-               response.setResponse(excmap.toResponse(e.getCause()));
+               errorResponse = createErrorResponse(errorStatus, e.getMessage());
             }
-            else
+         }
+      }
+      else
+      {
+         if (errorResponse.getMetadata().getFirst(ExtHttpHeaders.JAXRS_BODY_PROVIDED) == null)
+         {
+            String jaxrsHeader = getJaxrsHeader(errorStatus);
+            if (jaxrsHeader != null)
             {
-               LOG.error("Internal error occurs.", cause);
-               throw new UnhandledException(e.getCause());
+               errorResponse.getMetadata().putSingle(ExtHttpHeaders.JAXRS_BODY_PROVIDED, jaxrsHeader);
             }
          }
+      }
+      response.setResponse(errorResponse);
+   }
 
+   /**
+    * Set response for {@link InternalException} thrown while request was
+    * processed. If there is no {@link ExceptionMapper} for cause of error then
+    * {@link UnhandledException} is thrown.
+    *
+    * @param e InternalException
+    * @param context application context
+    * @param response container response
+    */
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   private void handleInternalException(InternalException e, ApplicationContext context,
+      GenericContainerResponse response)
+   {
+      Throwable cause = e.getCause();
+      Class causeClazz = cause.getClass();
+      ExceptionMapper excmap = context.getProviders().getExceptionMapper(causeClazz);
+      while (causeClazz != null && excmap == null)
+      {
+         excmap = context.getProviders().getExceptionMapper(causeClazz);
+         if (excmap == null)
+         {
+            causeClazz = causeClazz.getSuperclass();
+         }
+      }
+      if (excmap != null)
+      {
+         if (LOG.isDebugEnabled())
+         {
+            // Hide error message if exception mapper exists.
+            LOG.warn("Internal error occurs.", cause);
+         }
+         response.setResponse(excmap.toResponse(e.getCause()));
+      }
+      else
+      {
+         LOG.error("Internal error occurs.", cause);
+         throw new UnhandledException(e.getCause());
+      }
+   }
+
+   /**
+    * Apply response filters and write response. Entity streams are closed
+    * even if they are not written, e.g. response to HEAD request, entity
+    * replaced by filter, etc.
+    *
+    * @param context application context
+    * @param response container response
+    * @throws IOException if any i/o error occurs
+    */
+   private void writeResponse(ApplicationContextImpl context, GenericContainerResponse response) throws IOException
+   {
+      Object entity = response.getEntity();
+      Object filteredEntity = entity;
+      try
+      {
          // Apply default filters only.
-         for (ObjectFactory<FilterDescriptor> factory : defaultProviders.getResponseFilters(context.getPath()))
+         for (ObjectFactory<FilterDescriptor> factory : ProviderBinder.getInstance().getResponseFilters(
+            context.getPath()))
          {
             ResponseFilter f = (ResponseFilter)factory.getInstance(context);
             f.doFilter(response);
          }
+         RequestMetrics metrics = context.getRequestMetrics();
+         if (metrics != null)
+            metrics.mark(Phase.FILTERS);
 
+         filteredEntity = response.getEntity();
          response.writeResponse();
+         if (metrics != null)
+            metrics.mark(Phase.WRITE);
       }
       finally
       {
-         // reset application context
-         ApplicationContextImpl.setCurrent(null);
+         closeEntity(entity);
+         if (filteredEntity != entity)
+            closeEntity(filteredEntity);
+      }
+   }
+
+   /**
+    * Close entity if it is stream. Entity providers close streams after
+    * writing, but stream is not closed if entity is not written at all, so
+    * resources behind stream (file, network connection, etc) may be never
+    * released.
+    *
+    * @param entity entity of response
+    */
+   private static void closeEntity(Object entity)
+   {
+      if (entity instanceof InputStream || entity instanceof Reader)
+      {
+         try
+         {
+            ((Closeable)entity).close();
+         }
+         catch (IOException e)
+         {
+            if (LOG.isDebugEnabled())
+               LOG.debug(e.getMessage(), e);
+         }
       }
    }
 
+   /**
+    * @param response container response
+    * @return writer which is able to write response asynchronously or
+    *         <code>null</code> if connector does not support it
+    */
+   private AsyncContainerResponseWriter getAsyncResponseWriter(GenericContainerResponse response)
+   {
+      if (response instanceof ContainerResponse)
+      {
+         ContainerResponseWriter writer = ((ContainerResponse)response).getContainerResponseWriter();
+         if (writer instanceof AsyncContainerResponseWriter)
+            return (AsyncContainerResponseWriter)writer;
+      }
+      return null;
+   }
+
+   /**
+    * Set response from {@link DeferredResult}. Waits for result if it is not
+    * ready yet.
+    *
+    * @param pending result of resource method
+    * @param context application context
+    * @param request container request
+    * @param response container response
+    */
+   private void processPendingResult(RequestDispatcher.PendingResult pending, ApplicationContext context,
+      GenericContainerRequest request, GenericContainerResponse response)
+   {
+      try
+      {
+         DeferredResult deferred = pending.result;
+         Object result;
+         try
+         {
+            long timeout = deferred.getTimeout();
+            result = deferred.get(timeout > 0 ? timeout : getAsyncTimeout(), TimeUnit.MILLISECONDS);
+         }
+         catch (TimeoutException e)
+         {
+            deferred.cancel(false);
+            throw new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+         }
+         catch (CancellationException e)
+         {
+            throw new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+         }
+         catch (ExecutionException e)
+         {
+            if (e.getCause() instanceof WebApplicationException)
+               throw (WebApplicationException)e.getCause();
+            throw new InternalException(e.getCause());
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new InternalException(e);
+         }
+         RequestDispatcher.processResult(result, request, response, pending.produces);
+         RequestDispatcher.applyResponseFilters(context, response);
+         addJaxrsHeader(response);
+      }
+      catch (WebApplicationException e)
+      {
+         handleWebApplicationException(e, context, response);
+      }
+      catch (InternalException e)
+      {
+         handleInternalException(e, context, response);
+      }
+   }
+
+   /**
+    * @return max time in milliseconds to wait for {@link DeferredResult}
+    *         with timeout defined by connector, see
+    *         {@link #WS_RS_ASYNC_TIMEOUT}
+    */
+   private static long getAsyncTimeout()
+   {
+      String value = properties.get(WS_RS_ASYNC_TIMEOUT);
+      if (value != null)
+      {
+         try
+         {
+            long timeout = Long.parseLong(value.trim());
+            if (timeout > 0)
+               return timeout;
+         }
+         catch (NumberFormatException e)
+         {
+         }
+         LOG.warn("Invalid value of " + WS_RS_ASYNC_TIMEOUT + ": " + value);
+      }
+      return DEFAULT_ASYNC_TIMEOUT;
+   }
+
+   /**
+    * Suspend request and write response when {@link DeferredResult} is done.
+    *
+    * @param pending result of resource method
+    * @param writer response writer
+    * @param context application context
+    * @param request container request
+    * @param response container response
+    */
+   private void suspend(final RequestDispatcher.PendingResult pending, final AsyncContainerResponseWriter writer,
+      final ApplicationContextImpl context, final GenericContainerRequest request,
+      final GenericContainerResponse response)
+   {
+      final DeferredResult deferred = pending.result;
+      writer.suspend(deferred.getTimeout(), new Runnable()
+      {
+         public void run()
+         {
+            deferred.cancel(false);
+         }
+      });
+      deferred.setListener(new DeferredResult.Listener()
+      {
+         public void done(DeferredResult result)
+         {
+            writer.resume(new Runnable()
+            {
+               public void run()
+               {
+                  ApplicationContextImpl.setCurrent(context);
+                  RequestMetrics metrics = context.getRequestMetrics();
+                  if (metrics != null)
+                     metrics.mark(Phase.INVOCATION);
+                  boolean completed = false;
+                  try
+                  {
+                     processPendingResult(pending, context, request, response);
+                     writeResponse(context, response);
+                     completed = true;
+                  }
+                  catch (IOException e)
+                  {
+                     throw new UnhandledException(e);
+                  }
+                  finally
+                  {
+                     if (metrics != null)
+                        metrics.done(response.getStatus(), !completed);
+                     ApplicationContextImpl.setCurrent(null);
+                  }
+               }
+            });
+         }
+      });
+   }
+
    /**
     * Create error response with specified status and body message.
     * 
@@ -369,6 +669,21 @@ public final class RequestHandlerImpl implements RequestHandler, Startable
       {
          PrivilegedFileHelper.mkdirs(tmpDir);
       }
+
+      ResourceMetrics.getInstance().setEnabled("true".equalsIgnoreCase(properties.get(WS_RS_METRICS)));
+
+      String cacheSize = properties.get(WS_RS_CACHE_SIZE);
+      if (cacheSize != null)
+      {
+         try
+         {
+            ResponseCache.getInstance().setMaxSize(Long.parseLong(cacheSize.trim()));
+         }
+         catch (NumberFormatException e)
+         {
+            LOG.warn("Invalid value of " + WS_RS_CACHE_SIZE + ": " + cacheSize);
+         }
+      }
    }
 
    /**
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Properties of request. Map reads through to application properties, so
+ * they are not copied for each request. Properties set or removed for request
+ * are kept in this map and do not affect application properties. Iteration
+ * over map works with copy of properties and may not be used for updating
+ * map.
+ * <p>
+ * Like {@link HashMap} this map accepts <code>null</code> values, property
+ * with <code>null</code> value is not the same as removed property, see
+ * {@link #containsKey(Object)}. Application properties never contain
+ * <code>null</code> values.
+ * </p>
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+final class RequestProperties extends AbstractMap<String, String>
+{
+
+   /**
+    * Marker of property removed for request. Compared by identity, so it never
+    * equals to any value set by caller.
+    */
+   private static final String REMOVED = new String("removed");
+
+   /**
+    * Application properties.
+    */
+   private final Map<String, String> defaults;
+
+   /**
+    * Properties set for request. Value {@link #REMOVED} means property is
+    * removed.
+    */
+   private Map<String, String> local;
+
+   /**
+    * @param defaults application properties
+    */
+   RequestProperties(Map<String, String> defaults)
+   {
+      this.defaults = defaults;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String get(Object key)
+   {
+      if (local != null && local.containsKey(key))
+      {
+         String value = local.get(key);
+         return value == REMOVED ? null : value;
+      }
+      return defaults.get(key);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean containsKey(Object key)
+   {
+      if (local != null && local.containsKey(key))
+         return local.get(key) != REMOVED;
+      return defaults.containsKey(key);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String put(String key, String value)
+   {
+      String previous = get(key);
+      if (local == null)
+         local = new HashMap<String, String>();
+      local.put(key, value);
+      return previous;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public String remove(Object key)
+   {
+      String previous = get(key);
+      if (containsKey(key))
+      {
+         if (local == null)
+            local = new HashMap<String, String>();
+         local.put((String)key, REMOVED);
+      }
+      return previous;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void clear()
+   {
+      if (local == null)
+         local = new HashMap<String, String>();
+      for (String key : defaults.keySet())
+         local.put(key, REMOVED);
+      for (Map.Entry<String, String> e : local.entrySet())
+         e.setValue(REMOVED);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Set<Map.Entry<String, String>> entrySet()
+   {
+      Map<String, String> all = new HashMap<String, String>(defaults);
+      if (local != null)
+      {
+         for (Map.Entry<String, String> e : local.entrySet())
+         {
+            if (e.getValue() == REMOVED)
+               all.remove(e.getKey());
+            else
+               all.put(e.getKey(), e.getValue());
+         }
+      }
+      return Collections.unmodifiableMap(all).entrySet();
+   }
+
+}
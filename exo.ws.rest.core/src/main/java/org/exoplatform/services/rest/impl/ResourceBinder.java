@@ -28,13 +28,14 @@ import org.exoplatform.services.rest.ObjectFactory;
 import org.exoplatform.services.rest.ObjectModel;
 import org.exoplatform.services.rest.PerRequestObjectFactory;
 import org.exoplatform.services.rest.SingletonObjectFactory;
-import org.exoplatform.services.rest.impl.method.DefaultMethodInvoker;
 import org.exoplatform.services.rest.impl.method.MethodInvokerFactory;
+import org.exoplatform.services.rest.impl.method.PreparedMethodInvoker;
 import org.exoplatform.services.rest.impl.resource.AbstractResourceDescriptorImpl;
 import org.exoplatform.services.rest.impl.resource.ResourceDescriptorValidator;
 import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
 import org.exoplatform.services.rest.resource.ResourceDescriptorVisitor;
 import org.exoplatform.services.rest.uri.UriPattern;
+import org.exoplatform.services.rest.util.UriPatternTrie;
 import org.picocontainer.Startable;
 
 import java.security.PrivilegedAction;
@@ -43,6 +44,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.ws.rs.Path;
 import javax.ws.rs.core.Application;
@@ -67,6 +69,29 @@ public class ResourceBinder implements Startable
     */
    public static final String RESOURCE_EXPIRED = "resource.expiration.date";
 
+   /**
+    * Name of property which may contains max number of concurrent invocations
+    * of resource. Requests over this limit wait in queue, see
+    * {@link #RESOURCE_MAX_QUEUED}, or get response with status 503 (Service
+    * Unavailable). Limit for one method of resource may be set with property
+    * which name is this name + '.' + name of Java method.
+    */
+   public static final String RESOURCE_MAX_CONCURRENT = "resource.concurrency.max";
+
+   /**
+    * Name of property which may contains max number of requests which wait
+    * when limit of concurrent invocations is reached, see
+    * {@link #RESOURCE_MAX_CONCURRENT}. By default requests do not wait.
+    */
+   public static final String RESOURCE_MAX_QUEUED = "resource.concurrency.queue";
+
+   /**
+    * Name of property which may contains max time (in milliseconds) request
+    * waits in queue, see {@link #RESOURCE_MAX_QUEUED}. Default is 30000
+    * milliseconds. Value 0 means request does not wait even if queue is set.
+    */
+   public static final String RESOURCE_QUEUE_TIMEOUT = "resource.concurrency.queue.timeout";
+
    /** Logger. */
    private static final Log LOG = ExoLogger.getLogger("exo.ws.rest.core.ResourceBinder");
 
@@ -131,6 +156,8 @@ public class ResourceBinder implements Startable
          if (LOG.isDebugEnabled())
             LOG.debug("Start resource cleaner");
 
+         List<ObjectFactory<AbstractResourceDescriptor>> removed =
+            new ArrayList<ObjectFactory<AbstractResourceDescriptor>>();
          synchronized (rootResources)
          {
             for (Iterator<ObjectFactory<AbstractResourceDescriptor>> iter = rootResources.iterator(); iter.hasNext();)
@@ -152,14 +179,22 @@ public class ResourceBinder implements Startable
                if (expirationDate > 0 && expirationDate < System.currentTimeMillis())
                {
                   iter.remove();
-                  for (ResourceListener listener : resourceListeners)
-                  {
-                     listener.resourceRemoved(next.getObjectModel());
-                  }
-                  if (LOG.isDebugEnabled())
-                     LOG.debug("Remove expired resource: " + next.getObjectModel());
+                  removed.add(next);
                }
             }
+            if (!removed.isEmpty())
+            {
+               publishResources();
+            }
+            for (ObjectFactory<AbstractResourceDescriptor> next : removed)
+            {
+               for (ResourceListener listener : resourceListeners)
+               {
+                  listener.resourceRemoved(next.getObjectModel());
+               }
+               if (LOG.isDebugEnabled())
+                  LOG.debug("Remove expired resource: " + next.getObjectModel());
+            }
          }
       }
    }
@@ -173,16 +208,72 @@ public class ResourceBinder implements Startable
 
    /**
     * Producer of methods invokers. If not specified then
-    * {@link DefaultMethodInvoker} will be in use.
+    * {@link PreparedMethodInvoker} will be in use.
     */
    protected final MethodInvokerFactory invokerFactory;
 
-   /** List of all available root resources. */
+   /**
+    * Immutable view of root resources. Each change of root resources creates
+    * new instance of this class, so request threads may use it without any
+    * synchronization.
+    */
+   protected static final class ResourcesSnapshot
+   {
+      /** Sorted root resources. */
+      private final List<ObjectFactory<AbstractResourceDescriptor>> resources;
+
+      /** Routing index for {@link #resources}. */
+      private final UriPatternTrie<ObjectFactory<AbstractResourceDescriptor>> index;
+
+      ResourcesSnapshot(List<ObjectFactory<AbstractResourceDescriptor>> sorted)
+      {
+         this.resources =
+            Collections.unmodifiableList(new ArrayList<ObjectFactory<AbstractResourceDescriptor>>(sorted));
+         this.index = new UriPatternTrie<ObjectFactory<AbstractResourceDescriptor>>();
+         for (ObjectFactory<AbstractResourceDescriptor> resource : this.resources)
+         {
+            index.add(resource.getObjectModel().getUriPattern(), resource);
+         }
+      }
+
+      /**
+       * @return unmodifiable list of root resources sorted by
+       *         {@link ResourceBinder#RESOURCE_COMPARATOR}
+       */
+      public List<ObjectFactory<AbstractResourceDescriptor>> getResources()
+      {
+         return resources;
+      }
+
+      /**
+       * @param requestPath request path
+       * @return root resources which may be matched to <code>requestPath</code>
+       *         in the same order as they are placed in {@link #getResources()}
+       */
+      public List<ObjectFactory<AbstractResourceDescriptor>> getCandidates(String requestPath)
+      {
+         return index.getCandidates(requestPath);
+      }
+   }
+
+   /**
+    * List of all available root resources. This list is used only by methods
+    * which add or remove resources, all of them must hold lock on this list.
+    * Readers must use {@link #snapshot} instead.
+    */
    protected final List<ObjectFactory<AbstractResourceDescriptor>> rootResources =
       new ArrayList<ObjectFactory<AbstractResourceDescriptor>>();
 
+   /**
+    * Current state of root resources. It is replaced each time when list of
+    * root resources is changed.
+    *
+    * @see #publishResources()
+    */
+   protected volatile ResourcesSnapshot snapshot = new ResourcesSnapshot(rootResources);
+
    /** Resource listeners. */
-   protected final List<ResourceListener> resourceListeners = new ArrayList<ResourceListener>();
+   protected final List<ResourceListener> resourceListeners = new CopyOnWriteArrayList<ResourceListener>();
 
    /**
     * @deprecated Do not need container here any more.
@@ -263,27 +354,7 @@ public class ResourceBinder implements Startable
     */
    public void addResource(final Class<?> resourceClass, MultivaluedMap<String, String> properties)
    {
-      Path path = resourceClass.getAnnotation(Path.class);
-      if (path == null)
-      {
-         throw new ResourcePublicationException("Resource class " + resourceClass.getName()
-            + " it is not root resource. " + "Path annotation javax.ws.rs.Path is not specified for this class.");
-      }
-      try
-      {
-         AbstractResourceDescriptor descriptor = new AbstractResourceDescriptorImpl(resourceClass, invokerFactory);
-         // validate AbstractResourceDescriptor
-         descriptor.accept(rdv);
-         if (properties != null)
-         {
-            descriptor.getProperties().putAll(properties);
-         }
-         addResource(new PerRequestObjectFactory<AbstractResourceDescriptor>(descriptor));
-      }
-      catch (Exception e)
-      {
-         throw new ResourcePublicationException(e.getMessage());
-      }
+      addResource(createResourceFactory(resourceClass, properties));
    }
 
    /**
@@ -310,22 +381,124 @@ public class ResourceBinder implements Startable
     */
    public void addResource(final Object resource, MultivaluedMap<String, String> properties)
    {
-      Path path = resource.getClass().getAnnotation(Path.class);
-      if (path == null)
+      addResource(createResourceFactory(resource, properties));
+   }
+
+   /**
+    * Register supplied root resource if no one resource with the same
+    * UriPattern already registered.
+    *
+    * @param resourceFactory root resource
+    * @throws ResourcePublicationException if resource can't be published
+    *         because resource with the sane {@link UriPattern} already
+    *         registered
+    */
+   public void addResource(final ObjectFactory<AbstractResourceDescriptor> resourceFactory)
+   {
+      synchronized (rootResources)
       {
-         throw new ResourcePublicationException("Resource class " + resource.getClass().getName()
+         checkUriPattern(resourceFactory, rootResources);
+         rootResources.add(resourceFactory);
+         Collections.sort(rootResources, RESOURCE_COMPARATOR);
+         publishResources();
+         for (ResourceListener listener : resourceListeners)
+         {
+            listener.resourceAdded(resourceFactory.getObjectModel());
+         }
+      }
+      if (LOG.isDebugEnabled())
+         LOG.debug("Add resource: " + resourceFactory.getObjectModel());
+   }
+
+   /**
+    * Check is UriPattern of resource is not used by any of registered
+    * resources.
+    *
+    * @param resourceFactory resource to be registered
+    * @param registered registered resources
+    * @throws ResourcePublicationException if any of <code>registered</code>
+    *         resources has the same {@link UriPattern}
+    */
+   private static void checkUriPattern(ObjectFactory<AbstractResourceDescriptor> resourceFactory,
+      List<ObjectFactory<AbstractResourceDescriptor>> registered)
+   {
+      UriPattern pattern = resourceFactory.getObjectModel().getUriPattern();
+      for (ObjectFactory<AbstractResourceDescriptor> resource : registered)
+      {
+         if (resource.getObjectModel().getUriPattern().equals(pattern))
+         {
+            throw new ResourcePublicationException("Resource class "
+               + resourceFactory.getObjectModel().getObjectClass().getName() + " can't be registered. Resource class "
+               + resource.getObjectModel().getObjectClass().getName() + " with the same pattern " + pattern
+               + " already registered.");
+         }
+      }
+   }
+
+   /**
+    * Register all supplied root resources at once. Resources are not
+    * registered if any of them has the same UriPattern as other one in the
+    * list or as already registered resource. Request threads see either none
+    * or all of resources.
+    *
+    * @param resourceFactories root resources
+    * @throws ResourcePublicationException if resources can't be published
+    *         because resource with the same {@link UriPattern} already
+    *         registered
+    */
+   public void addResources(List<ObjectFactory<AbstractResourceDescriptor>> resourceFactories)
+   {
+      synchronized (rootResources)
+      {
+         List<ObjectFactory<AbstractResourceDescriptor>> all =
+            new ArrayList<ObjectFactory<AbstractResourceDescriptor>>(rootResources);
+         for (ObjectFactory<AbstractResourceDescriptor> resourceFactory : resourceFactories)
+         {
+            checkUriPattern(resourceFactory, all);
+            all.add(resourceFactory);
+         }
+         rootResources.addAll(resourceFactories);
+         Collections.sort(rootResources, RESOURCE_COMPARATOR);
+         publishResources();
+         for (ObjectFactory<AbstractResourceDescriptor> resourceFactory : resourceFactories)
+         {
+            for (ResourceListener listener : resourceListeners)
+            {
+               listener.resourceAdded(resourceFactory.getObjectModel());
+            }
+            if (LOG.isDebugEnabled())
+               LOG.debug("Add resource: " + resourceFactory.getObjectModel());
+         }
+      }
+   }
+
+   /**
+    * Create per-request root resource for supplied class. Resource is not
+    * registered, see {@link #addResources(List)}.
+    *
+    * @param resourceClass class of candidate to be root resource
+    * @param properties optional resource properties, may be <code>null</code>
+    * @return root resource
+    * @throws ResourcePublicationException if class is not valid root resource
+    */
+   public ObjectFactory<AbstractResourceDescriptor> createResourceFactory(Class<?> resourceClass,
+      MultivaluedMap<String, String> properties)
+   {
+      if (resourceClass.getAnnotation(Path.class) == null)
+      {
+         throw new ResourcePublicationException("Resource class " + resourceClass.getName()
             + " it is not root resource. " + "Path annotation javax.ws.rs.Path is not specified for this class.");
       }
       try
       {
-         AbstractResourceDescriptor descriptor = new AbstractResourceDescriptorImpl(resource, invokerFactory);
+         AbstractResourceDescriptor descriptor = new AbstractResourceDescriptorImpl(resourceClass, invokerFactory);
          // validate AbstractResourceDescriptor
          descriptor.accept(rdv);
          if (properties != null)
          {
             descriptor.getProperties().putAll(properties);
          }
-         addResource(new SingletonObjectFactory<AbstractResourceDescriptor>(descriptor, resource));
+         return new PerRequestObjectFactory<AbstractResourceDescriptor>(descriptor);
       }
       catch (Exception e)
       {
@@ -334,42 +507,44 @@ public class ResourceBinder implements Startable
    }
 
    /**
-    * Register supplied root resource if no one resource with the same
-    * UriPattern already registered.
+    * Create singleton root resource for supplied object. Resource is not
+    * registered, see {@link #addResources(List)}.
     *
-    * @param resourceFactory root resource
-    * @throws ResourcePublicationException if resource can't be published
-    *         because resource with the sane {@link UriPattern} already
-    *         registered
+    * @param resource candidate to be root resource
+    * @param properties optional resource properties, may be <code>null</code>
+    * @return root resource
+    * @throws ResourcePublicationException if object is not valid root resource
     */
-   public void addResource(final ObjectFactory<AbstractResourceDescriptor> resourceFactory)
+   public ObjectFactory<AbstractResourceDescriptor> createResourceFactory(Object resource,
+      MultivaluedMap<String, String> properties)
    {
-      UriPattern pattern = resourceFactory.getObjectModel().getUriPattern();
-      synchronized (rootResources)
+      if (resource.getClass().getAnnotation(Path.class) == null)
       {
-         for (ObjectFactory<AbstractResourceDescriptor> resource : rootResources)
-         {
-            if (resource.getObjectModel().getUriPattern().equals(resourceFactory.getObjectModel().getUriPattern()))
-            {
-               throw new ResourcePublicationException("Resource class "
-                  + resourceFactory.getObjectModel().getObjectClass().getName()
-                  + " can't be registered. Resource class " + resource.getObjectModel().getObjectClass().getName()
-                  + " with the same pattern " + pattern + " already registered.");
-            }
-         }
-         rootResources.add(resourceFactory);
-         Collections.sort(rootResources, RESOURCE_COMPARATOR);
-         for (ResourceListener listener : resourceListeners)
+         throw new ResourcePublicationException("Resource class " + resource.getClass().getName()
+            + " it is not root resource. " + "Path annotation javax.ws.rs.Path is not specified for this class.");
+      }
+      try
+      {
+         AbstractResourceDescriptor descriptor = new AbstractResourceDescriptorImpl(resource, invokerFactory);
+         // validate AbstractResourceDescriptor
+         descriptor.accept(rdv);
+         if (properties != null)
          {
-            listener.resourceAdded(resourceFactory.getObjectModel());
+            descriptor.getProperties().putAll(properties);
          }
-         if (LOG.isDebugEnabled())
-            LOG.debug("Add resource: " + resourceFactory.getObjectModel());
+         return new SingletonObjectFactory<AbstractResourceDescriptor>(descriptor, resource);
+      }
+      catch (Exception e)
+      {
+         throw new ResourcePublicationException(e.getMessage());
       }
    }
 
    /**
-    * Register new resource listener.
+    * Register new resource listener. Listeners are notified while lock on
+    * {@link #rootResources} is held, so they get events in the same order as
+    * resources were added or removed. Listener must not add or remove
+    * resources from other thread and wait for it, that causes deadlock.
     *
     * @param listener listener
     * @see ResourceListener
@@ -435,6 +610,7 @@ public class ResourceBinder implements Startable
       synchronized (rootResources)
       {
          rootResources.clear();
+         publishResources();
       }
    }
 
@@ -449,41 +625,46 @@ public class ResourceBinder implements Startable
    public ObjectFactory<AbstractResourceDescriptor> getMatchedResource(String requestPath, List<String> parameterValues)
    {
       ObjectFactory<AbstractResourceDescriptor> resourceFactory = null;
-      synchronized (rootResources)
+      // Index gives only resources which may be matched to path, in the same
+      // order as they are placed in list of root resources.
+      for (ObjectFactory<AbstractResourceDescriptor> resource : snapshot.getCandidates(requestPath))
       {
-         for (ObjectFactory<AbstractResourceDescriptor> resource : rootResources)
+         if (resource.getObjectModel().getUriPattern().match(requestPath, parameterValues))
          {
-            if (resource.getObjectModel().getUriPattern().match(requestPath, parameterValues))
+            // all times will at least 1
+            int len = parameterValues.size();
+            // If capturing group contains last element and this element is
+            // neither null nor '/' then ResourceClass must contains at least one
+            // sub-resource method or sub-resource locator.
+            if (parameterValues.get(len - 1) != null && !parameterValues.get(len - 1).equals("/"))
             {
-               // all times will at least 1
-               int len = parameterValues.size();
-               // If capturing group contains last element and this element is
-               // neither null nor '/' then ResourceClass must contains at least one
-               // sub-resource method or sub-resource locator.
-               if (parameterValues.get(len - 1) != null && !parameterValues.get(len - 1).equals("/"))
+               int subresnum =
+                  resource.getObjectModel().getSubResourceMethods().size()
+                     + resource.getObjectModel().getSubResourceLocators().size();
+               if (subresnum == 0)
                {
-                  int subresnum =
-                     resource.getObjectModel().getSubResourceMethods().size()
-                        + resource.getObjectModel().getSubResourceLocators().size();
-                  if (subresnum == 0)
-                  {
-                     continue;
-                  }
+                  continue;
                }
-               resourceFactory = resource;
-               break;
             }
+            resourceFactory = resource;
+            break;
          }
       }
       return resourceFactory;
    }
 
    /**
+    * Get all registered root resources. Since 2.4 returned list is
+    * unmodifiable snapshot of root resources at the moment of call, it is not
+    * updated when resources are added or removed. Earlier versions returned
+    * internal list of resources. Use {@link #addResource(ObjectFactory)} and
+    * {@link #removeResource(Class)} to change set of resources.
+    *
     * @return all registered root resources
     */
    public List<ObjectFactory<AbstractResourceDescriptor>> getResources()
    {
-      return rootResources;
+      return snapshot.getResources();
    }
 
    /**
@@ -492,13 +673,11 @@ public class ResourceBinder implements Startable
    @Deprecated
    public List<AbstractResourceDescriptor> getRootResources()
    {
-      List<AbstractResourceDescriptor> l = new ArrayList<AbstractResourceDescriptor>(rootResources.size());
-      synchronized (rootResources)
+      List<ObjectFactory<AbstractResourceDescriptor>> resources = snapshot.getResources();
+      List<AbstractResourceDescriptor> l = new ArrayList<AbstractResourceDescriptor>(resources.size());
+      for (ObjectFactory<AbstractResourceDescriptor> f : resources)
       {
-         for (ObjectFactory<AbstractResourceDescriptor> f : rootResources)
-         {
-            l.add(f.getObjectModel());
-         }
+         l.add(f.getObjectModel());
       }
       return l;
    }
@@ -508,7 +687,7 @@ public class ResourceBinder implements Startable
     */
    public int getSize()
    {
-      return rootResources.size();
+      return snapshot.getResources().size();
    }
 
    /**
@@ -537,14 +716,15 @@ public class ResourceBinder implements Startable
          }
          if (resource != null)
          {
+            publishResources();
             for (ResourceListener listener : resourceListeners)
             {
                listener.resourceRemoved(resource.getObjectModel());
             }
-            if (LOG.isDebugEnabled())
-               LOG.debug("Remove resource: " + resource.getObjectModel());
          }
       }
+      if (resource != null && LOG.isDebugEnabled())
+         LOG.debug("Remove resource: " + resource.getObjectModel());
       return resource;
    }
 
@@ -575,14 +755,15 @@ public class ResourceBinder implements Startable
          }
          if (resource != null)
          {
+            publishResources();
             for (ResourceListener listener : resourceListeners)
             {
                listener.resourceRemoved(resource.getObjectModel());
             }
-            if (LOG.isDebugEnabled())
-               LOG.debug("Remove resource: " + resource.getObjectModel());
          }
       }
+      if (resource != null && LOG.isDebugEnabled())
+         LOG.debug("Remove resource: " + resource.getObjectModel());
       return resource;
    }
 
@@ -612,6 +793,17 @@ public class ResourceBinder implements Startable
       return null != removeResource(path);
    }
 
+   /**
+    * Replace {@link #snapshot} with new one created from current state of
+    * {@link #rootResources}. Must be called with lock on {@link #rootResources}
+    * after each change of root resources list and before notification of
+    * {@link ResourceListener}s.
+    */
+   protected void publishResources()
+   {
+      snapshot = new ResourcesSnapshot(rootResources);
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl;
+
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+import org.exoplatform.services.rest.ObjectModel;
+import org.exoplatform.services.rest.resource.GenericMethodResource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits of concurrent invocations of resources and resource methods. Limits
+ * are configured with properties of resource, see
+ * {@link ResourceBinder#RESOURCE_MAX_CONCURRENT},
+ * {@link ResourceBinder#RESOURCE_MAX_QUEUED} and
+ * {@link ResourceBinder#RESOURCE_QUEUE_TIMEOUT}. Limit for separate method is
+ * configured with the same properties with suffix '.' + name of Java method,
+ * e.g. <code>resource.concurrency.max.getItems</code>.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+final class ResourceConcurrencyLimits
+{
+
+   private static final Log LOG = ExoLogger.getLogger("exo.ws.rest.core.ResourceConcurrencyLimits");
+
+   /** Max time (in milliseconds) request waits in queue if it is not set in properties of resource. */
+   static final long DEFAULT_QUEUE_TIMEOUT = 30000;
+
+   /**
+    * Max number of concurrent invocations and max number of invocations which
+    * may wait for free slot.
+    */
+   static final class Limit
+   {
+      private final Semaphore permits;
+
+      private final AtomicInteger queued = new AtomicInteger();
+
+      private final int maxQueued;
+
+      private final long queueTimeout;
+
+      Limit(int maxConcurrent, int maxQueued, long queueTimeout)
+      {
+         this.permits = new Semaphore(maxConcurrent, true);
+         this.maxQueued = maxQueued;
+         this.queueTimeout = queueTimeout;
+      }
+
+      /**
+       * Get slot for invocation. Waits for free slot if there is place in
+       * queue.
+       *
+       * @return <code>true</code> if slot is obtained and <code>false</code>
+       *         if limit is reached
+       */
+      boolean acquire()
+      {
+         if (permits.tryAcquire())
+            return true;
+         if (queued.incrementAndGet() > maxQueued)
+         {
+            queued.decrementAndGet();
+            return false;
+         }
+         try
+         {
+            return permits.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS);
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            return false;
+         }
+         finally
+         {
+            queued.decrementAndGet();
+         }
+      }
+
+      void release()
+      {
+         permits.release();
+      }
+   }
+
+   /** Used for resources and methods without limits. */
+   private static final Limit NO_LIMIT = new Limit(1, 0, 0);
+
+   private final Map<Object, Limit> limits = new WeakHashMap<Object, Limit>();
+
+   /**
+    * @param resource resource
+    * @return limit for resource or <code>null</code> if resource is not
+    *         limited
+    */
+   Limit getLimit(ObjectModel resource)
+   {
+      return getLimit(resource, resource, "");
+   }
+
+   /**
+    * @param resource resource
+    * @param method method of resource
+    * @return limit for method or <code>null</code> if method is not limited
+    */
+   Limit getLimit(ObjectModel resource, GenericMethodResource method)
+   {
+      return getLimit(method, resource, '.' + method.getMethod().getName());
+   }
+
+   private Limit getLimit(Object key, ObjectModel resource, String suffix)
+   {
+      Limit limit;
+      synchronized (limits)
+      {
+         limit = limits.get(key);
+      }
+      if (limit == null)
+      {
+         limit = createLimit(resource, suffix);
+         synchronized (limits)
+         {
+            // Keep the first one, other threads may already use it.
+            Limit existed = limits.get(key);
+            if (existed == null)
+               limits.put(key, limit);
+            else
+               limit = existed;
+         }
+      }
+      return limit == NO_LIMIT ? null : limit;
+   }
+
+   private static Limit createLimit(ObjectModel resource, String suffix)
+   {
+      if (resource.getProperty(ResourceBinder.RESOURCE_MAX_CONCURRENT + suffix) == null)
+         return NO_LIMIT;
+      try
+      {
+         int maxConcurrent = getIntProperty(resource, ResourceBinder.RESOURCE_MAX_CONCURRENT + suffix, 0);
+         int maxQueued = getIntProperty(resource, ResourceBinder.RESOURCE_MAX_QUEUED + suffix, 0);
+         long queueTimeout =
+            getIntProperty(resource, ResourceBinder.RESOURCE_QUEUE_TIMEOUT + suffix, (int)DEFAULT_QUEUE_TIMEOUT);
+         if (maxConcurrent < 1 || maxQueued < 0 || queueTimeout < 0)
+         {
+            LOG.warn("Invalid concurrency limits for " + resource.getObjectClass().getName() + suffix
+               + ". Limits are ignored.");
+            return NO_LIMIT;
+         }
+         return new Limit(maxConcurrent, maxQueued, queueTimeout);
+      }
+      catch (NumberFormatException e)
+      {
+         LOG.warn("Invalid concurrency limits for " + resource.getObjectClass().getName() + suffix + ". "
+            + e.getMessage() + ". Limits are ignored.");
+         return NO_LIMIT;
+      }
+   }
+
+   private static int getIntProperty(ObjectModel resource, String name, int defaultValue)
+   {
+      List<String> values = resource.getProperty(name);
+      if (values == null || values.isEmpty())
+         return defaultValue;
+      return Integer.parseInt(values.get(0).trim());
+   }
+
+}
@@ -0,0 +1,618 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl;
+
+import org.exoplatform.services.rest.ApplicationContext;
+import org.exoplatform.services.rest.Cacheable;
+import org.exoplatform.services.rest.GenericContainerRequest;
+import org.exoplatform.services.rest.GenericContainerResponse;
+import org.exoplatform.services.rest.impl.header.HeaderHelper;
+import org.exoplatform.services.rest.resource.GenericMethodResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.activation.DataSource;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+/**
+ * Cache of serialized responses of resource methods annotated with
+ * {@link Cacheable}. Cache keeps responses in memory, total size of cached
+ * responses is limited, the least recently used responses are removed when
+ * limit is reached. Responses are removed from cache when they are expired,
+ * when resource is removed and when request with method other then GET or
+ * HEAD is successfully processed for the same path, its sub-path or direct
+ * child. Responses are cached separately for each authenticated user. Cache
+ * does not skip {@link org.exoplatform.services.rest.method.MethodInvokerFilter}s,
+ * they are applied before cached response is served. Responses may be removed
+ * explicitly with {@link #invalidate(String)}, {@link #invalidate(Class)} and
+ * {@link #clear()}.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public final class ResponseCache
+{
+
+   /** Default max total size of cached responses in bytes. */
+   public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+   /** Default max size of one cached response in bytes. */
+   public static final int DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+
+   private static final ResponseCache instance = new ResponseCache();
+
+   /**
+    * @return instance of ResponseCache
+    */
+   public static ResponseCache getInstance()
+   {
+      return instance;
+   }
+
+   /**
+    * Cached response.
+    */
+   static final class Entry
+   {
+      final Class<?> resourceClass;
+
+      final String path;
+
+      final byte[] body;
+
+      final MultivaluedMap<String, Object> headers;
+
+      final EntityTag etag;
+
+      final Date lastModified;
+
+      final long expires;
+
+      Entry(Class<?> resourceClass, String path, byte[] body, MultivaluedMap<String, Object> headers,
+         EntityTag etag, Date lastModified, long expires)
+      {
+         this.resourceClass = resourceClass;
+         this.path = path;
+         this.body = body;
+         this.headers = headers;
+         this.etag = etag;
+         this.lastModified = lastModified;
+         this.expires = expires;
+      }
+   }
+
+   /** Cached responses in access order. */
+   private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75F, true);
+
+   /** Total size of cached responses. */
+   private long size;
+
+   private volatile long maxSize = DEFAULT_MAX_SIZE;
+
+   private volatile int maxEntrySize = DEFAULT_MAX_ENTRY_SIZE;
+
+   private ResponseCache()
+   {
+   }
+
+   /**
+    * @param maxSize max total size of cached responses in bytes
+    */
+   public void setMaxSize(long maxSize)
+   {
+      this.maxSize = maxSize;
+      synchronized (entries)
+      {
+         evict();
+      }
+   }
+
+   /**
+    * @return max total size of cached responses in bytes
+    */
+   public long getMaxSize()
+   {
+      return maxSize;
+   }
+
+   /**
+    * @param maxEntrySize max size of one cached response in bytes
+    */
+   public void setMaxEntrySize(int maxEntrySize)
+   {
+      this.maxEntrySize = maxEntrySize;
+   }
+
+   /**
+    * @return max size of one cached response in bytes
+    */
+   public int getMaxEntrySize()
+   {
+      return maxEntrySize;
+   }
+
+   /**
+    * @return total size of cached responses in bytes
+    */
+   public long getSize()
+   {
+      synchronized (entries)
+      {
+         return size;
+      }
+   }
+
+   /**
+    * @return number of cached responses
+    */
+   public int getCount()
+   {
+      synchronized (entries)
+      {
+         return entries.size();
+      }
+   }
+
+   /**
+    * Remove cached responses for specified path and all paths under it.
+    *
+    * @param path path relative to base URI, e.g. <code>/a/b</code>
+    */
+   public void invalidate(String path)
+   {
+      path = normalizePath(path);
+      String prefix = path.length() == 1 ? path : path + '/';
+      synchronized (entries)
+      {
+         for (Iterator<Entry> i = entries.values().iterator(); i.hasNext();)
+         {
+            Entry e = i.next();
+            if (e.path.equals(path) || e.path.startsWith(prefix))
+            {
+               size -= e.body.length;
+               i.remove();
+            }
+         }
+      }
+   }
+
+   /**
+    * Remove cached responses which are affected by successful update of
+    * specified path: responses for the path, all paths under it and the
+    * parent path, e.g. collection to which updated item belongs.
+    *
+    * @param path updated path
+    */
+   void invalidateUpdated(String path)
+   {
+      path = normalizePath(path);
+      String prefix = path.length() == 1 ? path : path + '/';
+      int i = path.lastIndexOf('/');
+      String parent = path.length() == 1 ? null : i == 0 ? "/" : path.substring(0, i);
+      synchronized (entries)
+      {
+         for (Iterator<Entry> iter = entries.values().iterator(); iter.hasNext();)
+         {
+            Entry e = iter.next();
+            if (e.path.equals(path) || e.path.startsWith(prefix) || e.path.equals(parent))
+            {
+               size -= e.body.length;
+               iter.remove();
+            }
+         }
+      }
+   }
+
+   /**
+    * Remove cached responses of resource class.
+    *
+    * @param resourceClass resource class
+    */
+   public void invalidate(Class<?> resourceClass)
+   {
+      synchronized (entries)
+      {
+         for (Iterator<Entry> i = entries.values().iterator(); i.hasNext();)
+         {
+            Entry e = i.next();
+            if (e.resourceClass == resourceClass)
+            {
+               size -= e.body.length;
+               i.remove();
+            }
+         }
+      }
+   }
+
+   /**
+    * Remove all cached responses.
+    */
+   public void clear()
+   {
+      synchronized (entries)
+      {
+         entries.clear();
+         size = 0;
+      }
+   }
+
+   // Used by RequestDispatcher.
+
+   /**
+    * @param method resource method
+    * @param request request
+    * @return annotation which enables caching of response or
+    *         <code>null</code> if response of method for request may not be
+    *         cached
+    */
+   static Cacheable getCacheable(GenericMethodResource method, GenericContainerRequest request)
+   {
+      String httpMethod = request.getMethod();
+      if (!(HttpMethod.GET.equals(httpMethod) || HttpMethod.HEAD.equals(httpMethod)))
+         return null;
+      Cacheable cacheable = method.getMethod().getAnnotation(Cacheable.class);
+      if (cacheable == null)
+         cacheable = method.getParentResource().getObjectClass().getAnnotation(Cacheable.class);
+      return cacheable;
+   }
+
+   /**
+    * @param cacheable caching settings of method
+    * @param request request
+    * @return key of cached response, it includes name of authenticated user
+    */
+   static String getKey(Cacheable cacheable, GenericContainerRequest request)
+   {
+      StringBuilder key = new StringBuilder();
+      key.append(request.getRequestUri().toString());
+      key.append('\n');
+      Principal principal = getUserPrincipal(request);
+      if (principal != null)
+         key.append(principal.getName());
+      appendHeader(key, request, HttpHeaders.ACCEPT);
+      for (String header : cacheable.vary())
+         appendHeader(key, request, header);
+      return key.toString();
+   }
+
+   /**
+    * Get cached response if any. Caller must check that client has access to
+    * the method before serving response.
+    *
+    * @param key key of cached response
+    * @param request request
+    * @return cached response or <code>null</code>
+    */
+   Entry get(String key, GenericContainerRequest request)
+   {
+      if (hasNoCache(request.getRequestHeader(HttpHeaders.CACHE_CONTROL))
+         || hasNoCache(request.getRequestHeader("Pragma")))
+         return null;
+      Entry e;
+      synchronized (entries)
+      {
+         e = entries.get(key);
+         if (e != null && e.expires <= System.currentTimeMillis())
+         {
+            entries.remove(key);
+            size -= e.body.length;
+            e = null;
+         }
+      }
+      return e;
+   }
+
+   /**
+    * Serialize and cache response if it is allowed. If response is cached
+    * then its entity is replaced by serialized form, so it is not serialized
+    * twice.
+    *
+    * @param key key of cached response
+    * @param cacheable caching settings of method
+    * @param method resource method
+    * @param context application context
+    * @param request request
+    * @param response response
+    */
+   void store(String key, Cacheable cacheable, GenericMethodResource method, ApplicationContext context,
+      GenericContainerRequest request, GenericContainerResponse response)
+   {
+      Object entity = response.getEntity();
+      if (response.getStatus() != Response.Status.OK.getStatusCode() || entity == null || isStream(entity))
+         return;
+      MultivaluedMap<String, Object> headers = response.getHttpHeaders();
+      if (headers.containsKey(HttpHeaders.SET_COOKIE) || !isVaryAllowed(headers.get(HttpHeaders.VARY), cacheable))
+         return;
+      long maxAge = getMaxAge(headers.getFirst(HttpHeaders.CACHE_CONTROL), cacheable.maxAge());
+      if (maxAge <= 0)
+         return;
+      MediaType contentType = response.getContentType();
+      if (contentType == null || contentType.isWildcardType() || contentType.isWildcardSubtype())
+         return;
+      @SuppressWarnings("rawtypes")
+      MessageBodyWriter writer =
+         context.getProviders().getMessageBodyWriter(entity.getClass(), response.getEntityType(), null, contentType);
+      if (writer == null)
+         return;
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try
+      {
+         @SuppressWarnings("unchecked")
+         MessageBodyWriter<Object> w = writer;
+         w.writeTo(entity, entity.getClass(), response.getEntityType(), null, contentType, headers, out);
+      }
+      catch (IOException e)
+      {
+         throw new InternalException(e);
+      }
+      byte[] body = out.toByteArray();
+
+      EntityTag etag = getEntityTag(headers.getFirst(HttpHeaders.ETAG));
+      if (etag == null)
+         etag = new EntityTag(digest(body));
+      Date lastModified = getDate(headers.getFirst(HttpHeaders.LAST_MODIFIED));
+      MultivaluedMap<String, Object> cachedHeaders = new OutputHeadersMap();
+      for (Map.Entry<String, List<Object>> h : headers.entrySet())
+      {
+         if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(h.getKey()))
+            cachedHeaders.put(h.getKey(), new ArrayList<Object>(h.getValue()));
+      }
+      cachedHeaders.putSingle(HttpHeaders.ETAG, etag);
+      Entry e =
+         new Entry(method.getParentResource().getObjectClass(), normalizePath(context.getPath()), body,
+            cachedHeaders, etag, lastModified, System.currentTimeMillis() + maxAge * 1000L);
+      if (body.length <= maxEntrySize)
+      {
+         synchronized (entries)
+         {
+            Entry previous = entries.put(key, e);
+            if (previous != null)
+               size -= previous.body.length;
+            size += body.length;
+            evict();
+         }
+      }
+      serve(e, request, response);
+   }
+
+   /**
+    * Remove the least recently used responses until total size is not
+    * greater then max size. Must be called under lock.
+    */
+   private void evict()
+   {
+      for (Iterator<Entry> i = entries.values().iterator(); size > maxSize && i.hasNext();)
+      {
+         size -= i.next().body.length;
+         i.remove();
+      }
+   }
+
+   /**
+    * Set cached response.
+    *
+    * @param e cached response
+    * @param request request
+    * @param response response
+    */
+   static void serve(Entry e, GenericContainerRequest request, GenericContainerResponse response)
+   {
+      ResponseBuilder rb =
+         e.lastModified != null ? request.evaluatePreconditions(e.lastModified, e.etag) : request
+            .evaluatePreconditions(e.etag);
+      if (rb != null)
+      {
+         response.setResponse(rb.tag(e.etag).build());
+         return;
+      }
+      rb = Response.ok();
+      for (Map.Entry<String, List<Object>> h : e.headers.entrySet())
+      {
+         for (Object value : h.getValue())
+            rb.header(h.getKey(), value);
+      }
+      response.setResponse(rb.entity(e.body).build());
+   }
+
+   private static void appendHeader(StringBuilder key, GenericContainerRequest request, String header)
+   {
+      key.append('\n');
+      List<String> values = request.getRequestHeader(header);
+      if (values != null)
+      {
+         for (int i = 0; i < values.size(); i++)
+         {
+            if (i > 0)
+               key.append(',');
+            key.append(values.get(i));
+         }
+      }
+   }
+
+   private static Principal getUserPrincipal(GenericContainerRequest request)
+   {
+      try
+      {
+         return request.getUserPrincipal();
+      }
+      catch (UnsupportedOperationException e)
+      {
+         // Container does not support security context.
+         return null;
+      }
+   }
+
+   private static boolean hasNoCache(List<String> values)
+   {
+      if (values != null)
+      {
+         for (String value : values)
+         {
+            if (value.toLowerCase().contains("no-cache"))
+               return true;
+         }
+      }
+      return false;
+   }
+
+   private static boolean isStream(Object entity)
+   {
+      return entity instanceof InputStream || entity instanceof Reader || entity instanceof StreamingOutput
+         || entity instanceof File || entity instanceof DataSource;
+   }
+
+   private static boolean isVaryAllowed(List<Object> vary, Cacheable cacheable)
+   {
+      if (vary == null)
+         return true;
+      for (Object value : vary)
+      {
+         for (String header : HeaderHelper.getHeaderAsString(value).split(","))
+         {
+            header = header.trim();
+            if (header.length() == 0 || HttpHeaders.ACCEPT.equalsIgnoreCase(header))
+               continue;
+            boolean found = false;
+            for (String v : cacheable.vary())
+            {
+               if (v.equalsIgnoreCase(header))
+               {
+                  found = true;
+                  break;
+               }
+            }
+            if (!found)
+               return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @param cacheControl value of 'Cache-Control' header of response
+    * @param defaultMaxAge max age if it is not set in header
+    * @return max age in seconds or -1 if response may not be cached
+    */
+   static long getMaxAge(Object cacheControl, int defaultMaxAge)
+   {
+      if (cacheControl == null)
+         return defaultMaxAge;
+      if (cacheControl instanceof CacheControl)
+      {
+         CacheControl cc = (CacheControl)cacheControl;
+         if (cc.isNoStore() || cc.isNoCache() || cc.isPrivate())
+            return -1;
+         if (cc.getSMaxAge() >= 0)
+            return cc.getSMaxAge();
+         if (cc.getMaxAge() >= 0)
+            return cc.getMaxAge();
+         return defaultMaxAge;
+      }
+      long maxAge = -1;
+      long sMaxAge = -1;
+      for (String directive : HeaderHelper.getHeaderAsString(cacheControl).split(","))
+      {
+         directive = directive.trim().toLowerCase();
+         if (directive.equals("no-store") || directive.startsWith("no-cache") || directive.startsWith("private"))
+            return -1;
+         try
+         {
+            if (directive.startsWith("max-age="))
+               maxAge = Long.parseLong(directive.substring(8).trim());
+            else if (directive.startsWith("s-maxage="))
+               sMaxAge = Long.parseLong(directive.substring(9).trim());
+         }
+         catch (NumberFormatException e)
+         {
+            return -1;
+         }
+      }
+      return sMaxAge >= 0 ? sMaxAge : maxAge >= 0 ? maxAge : defaultMaxAge;
+   }
+
+   private static EntityTag getEntityTag(Object etag)
+   {
+      if (etag == null)
+         return null;
+      if (etag instanceof EntityTag)
+         return (EntityTag)etag;
+      return EntityTag.valueOf(etag.toString());
+   }
+
+   private static Date getDate(Object date)
+   {
+      if (date == null)
+         return null;
+      if (date instanceof Date)
+         return (Date)date;
+      return HeaderHelper.parseDateHeader(date.toString());
+   }
+
+   private static String normalizePath(String path)
+   {
+      if (!path.startsWith("/"))
+         path = '/' + path;
+      if (path.length() > 1 && path.endsWith("/"))
+         path = path.substring(0, path.length() - 1);
+      return path;
+   }
+
+   private static String digest(byte[] body)
+   {
+      try
+      {
+         byte[] hash = MessageDigest.getInstance("MD5").digest(body);
+         StringBuilder hex = new StringBuilder(hash.length * 2);
+         for (byte b : hash)
+         {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+         }
+         return hex.toString();
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new InternalException(e);
+      }
+   }
+
+}
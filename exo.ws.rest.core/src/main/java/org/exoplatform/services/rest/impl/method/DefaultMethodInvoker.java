@@ -25,6 +25,8 @@ import org.exoplatform.services.rest.ApplicationContext;
 import org.exoplatform.services.rest.FilterDescriptor;
 import org.exoplatform.services.rest.ObjectFactory;
 import org.exoplatform.services.rest.impl.InternalException;
+import org.exoplatform.services.rest.impl.metrics.Phase;
+import org.exoplatform.services.rest.impl.metrics.RequestMetrics;
 import org.exoplatform.services.rest.method.MethodInvoker;
 import org.exoplatform.services.rest.method.MethodInvokerFilter;
 import org.exoplatform.services.rest.resource.GenericMethodResource;
@@ -72,6 +74,9 @@ public class DefaultMethodInvoker implements MethodInvoker
          MethodInvokerFilter f = (MethodInvokerFilter)factory.getInstance(context);
          f.accept(methodResource);
       }
+      RequestMetrics metrics = RequestMetrics.get(context);
+      if (metrics != null)
+         metrics.mark(Phase.FILTERS);
 
       Object[] p = new Object[methodResource.getMethodParameters().size()];
       int i = 0;
@@ -80,7 +85,7 @@ public class DefaultMethodInvoker implements MethodInvoker
          Annotation a = mp.getAnnotation();
          if (a != null)
          {
-            ParameterResolver<?> pr = ParameterResolverFactory.createParameterResolver(a);
+            ParameterResolver<?> pr = getParameterResolver(methodResource, i, mp);
             try
             {
                p[i++] = pr.resolve(mp, context);
@@ -180,9 +185,27 @@ public class DefaultMethodInvoker implements MethodInvoker
          }
 
       }
+      if (metrics != null)
+         metrics.mark(Phase.PARAMETERS);
       return invokeMethod(resource, methodResource, p);
    }
 
+   /**
+    * Get resolver for parameter of method. This implementation creates new
+    * resolver each time.
+    *
+    * @param methodResource method
+    * @param index index of parameter in {@link GenericMethodResource#getMethodParameters()}
+    * @param parameter parameter, it is always annotated with one of JAX-RS
+    *        annotations
+    * @return resolver for parameter
+    */
+   protected ParameterResolver<?> getParameterResolver(GenericMethodResource methodResource, int index,
+      org.exoplatform.services.rest.method.MethodParameter parameter)
+   {
+      return ParameterResolverFactory.createParameterResolver(parameter.getAnnotation());
+   }
+
    protected Object invokeMethod(final Object resource, final GenericMethodResource methodResource, final Object[] p)
    {
       try
@@ -197,41 +220,52 @@ public class DefaultMethodInvoker implements MethodInvoker
       }
       catch (PrivilegedActionException pae)
       {
-         Throwable cause = pae.getCause();
-         if (cause instanceof IllegalArgumentException)
-         {
-            // should not be thrown
-            throw new InternalException(cause);
-         }
-         else if (cause instanceof IllegalAccessException)
-         {
-            // should not be thrown
-            throw new InternalException(cause);
-         }
-         else if (cause instanceof InvocationTargetException)
-         {
-            if (LOG.isDebugEnabled())
-            {
-               LOG.debug(cause.getLocalizedMessage(), cause);
-            }
-            // get cause of exception that method produces
-            Throwable throwable = cause.getCause();
-            // if WebApplicationException than it may contain response
-            if (WebApplicationException.class == throwable.getClass())
-            {
-               throw (WebApplicationException)throwable;
-            }
+         throw toRuntimeException(pae.getCause());
+      }
+   }
 
-            throw new InternalException(throwable);
-         }
-         else if (cause instanceof RuntimeException)
+   /**
+    * Convert error thrown by {@link java.lang.reflect.Method#invoke(Object, Object...)} to exception which must be
+    * thrown by invoker.
+    *
+    * @param cause error of method invocation
+    * @return exception to be thrown
+    */
+   protected RuntimeException toRuntimeException(Throwable cause)
+   {
+      if (cause instanceof IllegalArgumentException)
+      {
+         // should not be thrown
+         return new InternalException(cause);
+      }
+      else if (cause instanceof IllegalAccessException)
+      {
+         // should not be thrown
+         return new InternalException(cause);
+      }
+      else if (cause instanceof InvocationTargetException)
+      {
+         if (LOG.isDebugEnabled())
          {
-            throw (RuntimeException)cause;
+            LOG.debug(cause.getLocalizedMessage(), cause);
          }
-         else
+         // get cause of exception that method produces
+         Throwable throwable = cause.getCause();
+         // if WebApplicationException than it may contain response
+         if (WebApplicationException.class == throwable.getClass())
          {
-            throw new RuntimeException(cause);
+            return (WebApplicationException)throwable;
          }
+
+         return new InternalException(throwable);
+      }
+      else if (cause instanceof RuntimeException)
+      {
+         return (RuntimeException)cause;
+      }
+      else
+      {
+         return new RuntimeException(cause);
       }
    }
 
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.services.rest.impl.method;
+
+import org.exoplatform.services.rest.method.MethodParameter;
+import org.exoplatform.services.rest.resource.GenericMethodResource;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Invoker which creates parameter resolvers for method only once, at first
+ * invocation, and reuses them for all next invocations. Resolvers do not keep
+ * any state between invocations so may be shared between threads. Processing
+ * of {@link org.exoplatform.services.rest.method.MethodInvokerFilter}s and
+ * entity parameters is the same as in {@link DefaultMethodInvoker}.
+ * <p>
+ * If security manager is not installed method is called directly, without
+ * privileged action, and access checks of {@link Method#invoke(Object, Object...)}
+ * are suppressed once, when method is prepared.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id$
+ * @see PreparedMethodInvokerFactory
+ */
+public class PreparedMethodInvoker extends DefaultMethodInvoker
+{
+
+   /** Resolvers prepared for one method. */
+   private static final class PreparedMethod
+   {
+      final GenericMethodResource methodResource;
+
+      final Method method;
+
+      final ParameterResolver<?>[] resolvers;
+
+      PreparedMethod(GenericMethodResource methodResource)
+      {
+         this.methodResource = methodResource;
+         this.method = methodResource.getMethod();
+         if (System.getSecurityManager() == null)
+         {
+            method.setAccessible(true);
+         }
+         List<MethodParameter> parameters = methodResource.getMethodParameters();
+         this.resolvers = new ParameterResolver<?>[parameters.size()];
+         for (int i = 0; i < resolvers.length; i++)
+         {
+            MethodParameter mp = parameters.get(i);
+            if (mp.getAnnotation() != null)
+               resolvers[i] = ParameterResolverFactory.createParameterResolver(mp.getAnnotation());
+         }
+      }
+   }
+
+   /**
+    * Methods prepared by this invoker. The same invoker is shared by few
+    * method descriptors, e.g. by GET method and HEAD method created for it,
+    * see {@link org.exoplatform.services.rest.impl.resource.AbstractResourceDescriptorImpl}
+    * , so each of them has own entry. Array is never changed, new one is
+    * created when method is added.
+    */
+   private volatile PreparedMethod[] prepared = new PreparedMethod[0];
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected ParameterResolver<?> getParameterResolver(GenericMethodResource methodResource, int index,
+      MethodParameter parameter)
+   {
+      ParameterResolver<?> resolver = getPreparedMethod(methodResource).resolvers[index];
+      return resolver != null ? resolver : super.getParameterResolver(methodResource, index, parameter);
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   protected Object invokeMethod(Object resource, GenericMethodResource methodResource, Object[] p)
+   {
+      if (System.getSecurityManager() != null)
+      {
+         return super.invokeMethod(resource, methodResource, p);
+      }
+      try
+      {
+         return getPreparedMethod(methodResource).method.invoke(resource, p);
+      }
+      catch (Exception e)
+      {
+         throw toRuntimeException(e);
+      }
+   }
+
+   /**
+    * @return number of methods prepared by this invoker
+    */
+   int getPreparedSize()
+   {
+      return prepared.length;
+   }
+
+   private PreparedMethod getPreparedMethod(GenericMethodResource methodResource)
+   {
+      PreparedMethod[] current = prepared;
+      for (PreparedMethod pm : current)
+      {
+         if (pm.methodResource == methodResource)
+         {
+            return pm;
+         }
+      }
+      synchronized (this)
+      {
+         current = prepared;
+         for (PreparedMethod pm : current)
+         {
+            if (pm.methodResource == methodResource)
+            {
+               return pm;
+            }
+         }
+         PreparedMethod pm = new PreparedMethod(methodResource);
+         PreparedMethod[] copy = new PreparedMethod[current.length + 1];
+         System.arraycopy(current, 0, copy, 0, current.length);
+         copy[current.length] = pm;
+         prepared = copy;
+         return pm;
+      }
+   }
+
+}
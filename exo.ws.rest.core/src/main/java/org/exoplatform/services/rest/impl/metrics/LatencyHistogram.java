@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds. Values are counted in buckets with
+ * logarithmic ranges, each power of two is divided in
+ * {@link #SUB_BUCKETS} linear sub-buckets. So value at any percentile is
+ * reported with relative error not greater then 1/{@link #SUB_BUCKETS},
+ * and histogram has fixed size independently of number of recorded values.
+ * <p>
+ * Histogram is lock-free, values may be recorded from any number of threads.
+ * Reading of histogram while values are recorded does not give consistent
+ * snapshot, but it is enough for statistic.
+ * </p>
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public final class LatencyHistogram
+{
+
+   /** Number of bits used for sub-bucket index. */
+   private static final int SUB_BUCKET_BITS = 3;
+
+   /** Number of sub-buckets for each power of two. */
+   public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+   /** Max exponent of recorded value. Greater values are recorded as max value. */
+   private static final int MAX_EXPONENT = 40;
+
+   /** Max value which may be recorded, about 36 minutes. */
+   public static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+   private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+   private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+   private final AtomicLong count = new AtomicLong();
+
+   private final AtomicLong sum = new AtomicLong();
+
+   private final AtomicLong max = new AtomicLong();
+
+   /**
+    * Record value.
+    *
+    * @param value value in nanoseconds. Negative values are recorded as zero
+    */
+   public void record(long value)
+   {
+      if (value < 0)
+         value = 0;
+      else if (value > MAX_VALUE)
+         value = MAX_VALUE;
+      counts.incrementAndGet(index(value));
+      count.incrementAndGet();
+      sum.addAndGet(value);
+      long current;
+      while (value > (current = max.get()))
+      {
+         if (max.compareAndSet(current, value))
+            break;
+      }
+   }
+
+   /**
+    * @return number of recorded values
+    */
+   public long getCount()
+   {
+      return count.get();
+   }
+
+   /**
+    * @return sum of recorded values in nanoseconds
+    */
+   public long getSum()
+   {
+      return sum.get();
+   }
+
+   /**
+    * @return max of recorded values in nanoseconds
+    */
+   public long getMax()
+   {
+      return max.get();
+   }
+
+   /**
+    * @return mean of recorded values in nanoseconds or 0 if there is no any
+    *         recorded values
+    */
+   public long getMean()
+   {
+      long c = count.get();
+      return c == 0 ? 0 : sum.get() / c;
+   }
+
+   /**
+    * Get value at specified percentile. Value is upper bound of bucket which
+    * contains percentile but never greater then max recorded value.
+    *
+    * @param percentile percentile, from 0 to 100
+    * @return value at percentile in nanoseconds or 0 if there is no any
+    *         recorded values
+    */
+   public long getValueAtPercentile(double percentile)
+   {
+      long total = 0;
+      long[] snapshot = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++)
+      {
+         snapshot[i] = counts.get(i);
+         total += snapshot[i];
+      }
+      if (total == 0)
+         return 0;
+      long rank = (long)Math.ceil(Math.min(Math.max(percentile, 0D), 100D) / 100D * total);
+      if (rank < 1)
+         rank = 1;
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++)
+      {
+         seen += snapshot[i];
+         if (seen >= rank)
+            return Math.min(highestValue(i), max.get());
+      }
+      return max.get();
+   }
+
+   /**
+    * Remove all recorded values.
+    */
+   public void reset()
+   {
+      for (int i = 0; i < BUCKETS; i++)
+         counts.set(i, 0);
+      count.set(0);
+      sum.set(0);
+      max.set(0);
+   }
+
+   static int index(long value)
+   {
+      if (value < SUB_BUCKETS)
+         return (int)value;
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+   }
+
+   static long lowestValue(int index)
+   {
+      if (index < SUB_BUCKETS)
+         return index;
+      int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+      int subBucket = index % SUB_BUCKETS;
+      return (long)(SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+   }
+
+   static long highestValue(int index)
+   {
+      return index + 1 < BUCKETS ? lowestValue(index + 1) - 1 : MAX_VALUE;
+   }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of one resource method: number of requests, number of errors and
+ * latencies of each {@link Phase} of request processing.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public final class MethodMetrics
+{
+
+   private static final Phase[] PHASES = Phase.values();
+
+   private final String name;
+
+   private final String resourceClass;
+
+   private final LatencyHistogram[] latencies;
+
+   private final AtomicLong errors = new AtomicLong();
+
+   private final AtomicLong clientErrors = new AtomicLong();
+
+   MethodMetrics(String name)
+   {
+      this(name, null);
+   }
+
+   MethodMetrics(String name, String resourceClass)
+   {
+      this.name = name;
+      this.resourceClass = resourceClass;
+      this.latencies = new LatencyHistogram[PHASES.length];
+      for (int i = 0; i < latencies.length; i++)
+         latencies[i] = new LatencyHistogram();
+   }
+
+   /**
+    * @return name of method, it contains HTTP method, path and Java method
+    */
+   public String getName()
+   {
+      return name;
+   }
+
+   /**
+    * @return name of root resource class through which method is reached or
+    *         <code>null</code> for metrics which are not related to any
+    *         method, e.g. {@link ResourceMetrics#UNMATCHED}
+    */
+   public String getResourceClass()
+   {
+      return resourceClass;
+   }
+
+   /**
+    * @return number of processed requests
+    */
+   public long getCount()
+   {
+      return latencies[Phase.TOTAL.ordinal()].getCount();
+   }
+
+   /**
+    * @return number of requests failed with server error, status 5xx or
+    *         unhandled exception
+    */
+   public long getErrors()
+   {
+      return errors.get();
+   }
+
+   /**
+    * @return number of requests completed with status 4xx
+    */
+   public long getClientErrors()
+   {
+      return clientErrors.get();
+   }
+
+   /**
+    * @param phase phase of request processing
+    * @return latencies of phase
+    */
+   public LatencyHistogram getLatency(Phase phase)
+   {
+      return latencies[phase.ordinal()];
+   }
+
+   /**
+    * Remove all collected metrics.
+    */
+   public void reset()
+   {
+      for (LatencyHistogram latency : latencies)
+         latency.reset();
+      errors.set(0);
+      clientErrors.set(0);
+   }
+
+   void record(long[] phases, int status, boolean failed)
+   {
+      for (int i = 0; i < latencies.length; i++)
+         latencies[i].record(phases[i]);
+      if (failed || status >= 500)
+         errors.incrementAndGet();
+      else if (status >= 400)
+         clientErrors.incrementAndGet();
+   }
+
+}
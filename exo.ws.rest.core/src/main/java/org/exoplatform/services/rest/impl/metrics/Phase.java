@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.metrics;
+
+/**
+ * Phases of request processing which are measured separately.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public enum Phase
+{
+
+   /** Matching of resources and methods, including applying of providers of JAX-RS applications. */
+   MATCHING,
+
+   /** Request, response and method invoker filters. */
+   FILTERS,
+
+   /** Resolving of method parameters, including reading of entity. */
+   PARAMETERS,
+
+   /** Invocation of resource methods and sub-resource locators, waiting for deferred results. */
+   INVOCATION,
+
+   /** Writing of response. */
+   WRITE,
+
+   /** Full processing of request. */
+   TOTAL
+
+}
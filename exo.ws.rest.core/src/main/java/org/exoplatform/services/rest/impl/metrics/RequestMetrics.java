@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.metrics;
+
+import org.exoplatform.services.rest.ApplicationContext;
+import org.exoplatform.services.rest.impl.ApplicationContextImpl;
+import org.exoplatform.services.rest.resource.GenericMethodResource;
+
+/**
+ * Timings of one request. Time between two calls of {@link #mark(Phase)} is
+ * added to phase passed in the last call. When request is processed timings
+ * are added to {@link ResourceMetrics}. Instance is not thread safe but
+ * request may be passed to other thread, e.g. if it is suspended.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public final class RequestMetrics
+{
+
+   /**
+    * Get metrics of request.
+    *
+    * @param context application context of request
+    * @return metrics of request or <code>null</code> if metrics are not
+    *         collected
+    */
+   public static RequestMetrics get(ApplicationContext context)
+   {
+      return context instanceof ApplicationContextImpl ? ((ApplicationContextImpl)context).getRequestMetrics() : null;
+   }
+
+   private final ResourceMetrics metrics;
+
+   private final long start;
+
+   private final long[] phases = new long[Phase.values().length];
+
+   private long mark;
+
+   private Class<?> resourceClass;
+
+   private GenericMethodResource method;
+
+   private boolean done;
+
+   /**
+    * Start measurement of request.
+    *
+    * @param metrics metrics of all resource methods
+    */
+   public RequestMetrics(ResourceMetrics metrics)
+   {
+      this.metrics = metrics;
+      this.start = this.mark = System.nanoTime();
+   }
+
+   /**
+    * Add time since previous mark to specified phase.
+    *
+    * @param phase phase which is completed
+    */
+   public void mark(Phase phase)
+   {
+      long now = System.nanoTime();
+      phases[phase.ordinal()] += now - mark;
+      mark = now;
+   }
+
+   /**
+    * @param resourceClass root resource class which serves request
+    */
+   public void setResourceClass(Class<?> resourceClass)
+   {
+      this.resourceClass = resourceClass;
+   }
+
+   /**
+    * @param method method which serves request
+    */
+   public void setMethod(GenericMethodResource method)
+   {
+      this.method = method;
+   }
+
+   /**
+    * Complete measurement and add timings to metrics of method. Next calls of
+    * this method are ignored.
+    *
+    * @param status status of response
+    * @param failed <code>true</code> if processing of request failed with
+    *        unhandled exception
+    */
+   public void done(int status, boolean failed)
+   {
+      if (done)
+         return;
+      done = true;
+      phases[Phase.TOTAL.ordinal()] = System.nanoTime() - start;
+      metrics.getMetrics(resourceClass, method).record(phases, status, failed);
+   }
+
+}
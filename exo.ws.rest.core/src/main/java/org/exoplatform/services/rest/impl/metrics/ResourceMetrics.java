@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.metrics;
+
+import org.exoplatform.services.rest.impl.resource.PathValue;
+import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
+import org.exoplatform.services.rest.resource.GenericMethodResource;
+import org.exoplatform.services.rest.resource.ResourceMethodDescriptor;
+import org.exoplatform.services.rest.resource.SubResourceMethodDescriptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Metrics of all resource methods. Metrics are collected for each
+ * {@link GenericMethodResource} which serves requests. Requests for which no
+ * method was found are collected separately, see {@link #UNMATCHED}. Number
+ * of methods for which metrics are collected separately is limited, see
+ * {@link #MAX_METHODS}, requests for other methods are collected together,
+ * see {@link #OTHER}.
+ * <p>
+ * Metrics are identified by name of method and name of root resource class
+ * through which method was reached. Method descriptors are referenced only
+ * weakly, to find metrics of method without building its name for each
+ * request, so classes of removed resources may be unloaded and descriptors of
+ * sub-resources may be released by
+ * {@link org.exoplatform.services.rest.impl.resource.ResourceDescriptorCache}.
+ * <p>
+ * Metrics are not collected by default, see
+ * {@link org.exoplatform.services.rest.RequestHandler#WS_RS_METRICS}.
+ * </p>
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public final class ResourceMetrics
+{
+
+   /** Max number of methods for which metrics are collected separately. */
+   public static final int MAX_METHODS = 1024;
+
+   /** Name of metrics of requests for which no method was found. */
+   public static final String UNMATCHED = "<unmatched>";
+
+   /** Name of metrics of requests for methods over limit {@link #MAX_METHODS}. */
+   public static final String OTHER = "<other>";
+
+   private static final ResourceMetrics instance = new ResourceMetrics();
+
+   /**
+    * @return instance of ResourceMetrics
+    */
+   public static ResourceMetrics getInstance()
+   {
+      return instance;
+   }
+
+   /** Metrics of methods mapped to name of root resource class and name of method. */
+   private final ConcurrentMap<String, MethodMetrics> methods = new ConcurrentHashMap<String, MethodMetrics>();
+
+   /**
+    * Metrics of methods mapped to method descriptor. Metrics do not refer to
+    * descriptor, so descriptor may be collected.
+    */
+   private final Map<GenericMethodResource, MethodMetrics> resolved =
+      new WeakHashMap<GenericMethodResource, MethodMetrics>();
+
+   private final MethodMetrics unmatched = new MethodMetrics(UNMATCHED);
+
+   private final MethodMetrics other = new MethodMetrics(OTHER);
+
+   private volatile boolean enabled;
+
+   private ResourceMetrics()
+   {
+   }
+
+   /**
+    * @return <code>true</code> if metrics are collected
+    */
+   public boolean isEnabled()
+   {
+      return enabled;
+   }
+
+   /**
+    * @param enabled <code>true</code> to collect metrics
+    */
+   public void setEnabled(boolean enabled)
+   {
+      this.enabled = enabled;
+   }
+
+   /**
+    * Get metrics of method.
+    *
+    * @param resourceClass root resource class through which method was
+    *        reached, may be <code>null</code> if no method was found for
+    *        request
+    * @param method method, may be <code>null</code> if no method was found
+    *        for request
+    * @return metrics of method
+    */
+   public MethodMetrics getMetrics(Class<?> resourceClass, GenericMethodResource method)
+   {
+      if (method == null || resourceClass == null)
+         return unmatched;
+      MethodMetrics metrics;
+      synchronized (resolved)
+      {
+         metrics = resolved.get(method);
+      }
+      // Sub-resource method may be reached through other root resource.
+      if (metrics != null && resourceClass.getName().equals(metrics.getResourceClass()))
+         return metrics;
+      metrics = getMetrics(resourceClass.getName(), getName(method));
+      synchronized (resolved)
+      {
+         resolved.put(method, metrics);
+      }
+      return metrics;
+   }
+
+   private MethodMetrics getMetrics(String resourceClass, String name)
+   {
+      String key = resourceClass + '\n' + name;
+      MethodMetrics metrics = methods.get(key);
+      if (metrics == null)
+      {
+         if (methods.size() >= MAX_METHODS)
+            return other;
+         MethodMetrics newMetrics = new MethodMetrics(name, resourceClass);
+         metrics = methods.putIfAbsent(key, newMetrics);
+         if (metrics == null)
+            metrics = newMetrics;
+      }
+      return metrics;
+   }
+
+   /**
+    * @return metrics of all methods sorted by name
+    */
+   public List<MethodMetrics> getAll()
+   {
+      List<MethodMetrics> all = new ArrayList<MethodMetrics>(methods.values());
+      Collections.sort(all, new Comparator<MethodMetrics>()
+      {
+         public int compare(MethodMetrics o1, MethodMetrics o2)
+         {
+            return o1.getName().compareTo(o2.getName());
+         }
+      });
+      if (unmatched.getCount() > 0)
+         all.add(unmatched);
+      if (other.getCount() > 0)
+         all.add(other);
+      return all;
+   }
+
+   /**
+    * Remove metrics of methods reached through root resource class, including
+    * methods of its sub-resources. Should be called when resource is removed,
+    * e.g. after redeploy of Groovy resources.
+    *
+    * @param resourceClass root resource class
+    */
+   public void removeResource(Class<?> resourceClass)
+   {
+      String className = resourceClass.getName();
+      for (Iterator<MethodMetrics> i = methods.values().iterator(); i.hasNext();)
+      {
+         if (className.equals(i.next().getResourceClass()))
+            i.remove();
+      }
+      synchronized (resolved)
+      {
+         resolved.clear();
+      }
+   }
+
+   /**
+    * Remove all collected metrics.
+    */
+   public void reset()
+   {
+      methods.clear();
+      synchronized (resolved)
+      {
+         resolved.clear();
+      }
+      unmatched.reset();
+      other.reset();
+   }
+
+   private static String getName(GenericMethodResource method)
+   {
+      StringBuilder name = new StringBuilder();
+      if (method instanceof ResourceMethodDescriptor)
+         name.append(((ResourceMethodDescriptor)method).getHttpMethod()).append(' ');
+      AbstractResourceDescriptor parent = method.getParentResource();
+      if (parent.getPathValue() != null)
+         appendPath(name, parent.getPathValue());
+      if (method instanceof SubResourceMethodDescriptor)
+         appendPath(name, ((SubResourceMethodDescriptor)method).getPathValue());
+      if (name.length() > 0 && name.charAt(name.length() - 1) != ' ')
+         name.append(' ');
+      name.append(method.getMethod().getDeclaringClass().getName()).append('#')
+         .append(method.getMethod().getName());
+      return name.toString();
+   }
+
+   private static void appendPath(StringBuilder name, PathValue path)
+   {
+      String p = path.getPath();
+      if (name.length() == 0 || name.charAt(name.length() - 1) != '/')
+      {
+         if (!p.startsWith("/"))
+            name.append('/');
+      }
+      else if (p.startsWith("/"))
+      {
+         p = p.substring(1);
+      }
+      name.append(p);
+   }
+
+}
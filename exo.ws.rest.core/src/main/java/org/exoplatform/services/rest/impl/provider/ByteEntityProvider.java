@@ -19,6 +19,7 @@
 package org.exoplatform.services.rest.impl.provider;
 
 import org.exoplatform.services.rest.provider.EntityProvider;
+import org.exoplatform.services.rest.util.BufferPool;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -39,6 +40,13 @@ import javax.ws.rs.ext.Provider;
 public class ByteEntityProvider implements EntityProvider<byte[]>
 {
 
+   /**
+    * Max size of array created at once when 'Content-Length' of entity is
+    * known. Header is sent by client, so it should not be trusted for big
+    * sizes.
+    */
+   private static final int MAX_PREALLOCATED_SIZE = 1024 * 1024;
+
    /**
     * {@inheritDoc}
     */
@@ -53,8 +61,26 @@ public class ByteEntityProvider implements EntityProvider<byte[]>
    public byte[] readFrom(Class<byte[]> type, Type genericType, Annotation[] annotations, MediaType mediaType,
       MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException
    {
+      long length = IOHelper.getContentLength(httpHeaders);
+      if (length >= 0 && length <= MAX_PREALLOCATED_SIZE)
+      {
+         // Size of entity is known, read it directly in result array.
+         byte[] data = new byte[(int)length];
+         int offset = 0;
+         int rd = 0;
+         while (offset < data.length && (rd = entityStream.read(data, offset, data.length - offset)) != -1)
+            offset += rd;
+         if (offset < data.length)
+         {
+            byte[] copy = new byte[offset];
+            System.arraycopy(data, 0, copy, 0, offset);
+            return copy;
+         }
+         return data;
+      }
 
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      // Size is unknown or too big to trust it, buffer grows as data arrives.
+      ByteArrayOutputStream out = new ByteArrayOutputStream(BufferPool.SMALL_BUFFER_SIZE);
       IOHelper.write(entityStream, out);
       return out.toByteArray();
    }
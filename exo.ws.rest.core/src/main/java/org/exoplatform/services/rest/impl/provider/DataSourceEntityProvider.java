@@ -22,6 +22,7 @@ import org.exoplatform.services.rest.ApplicationContext;
 import org.exoplatform.services.rest.RequestHandler;
 import org.exoplatform.services.rest.impl.ApplicationContextImpl;
 import org.exoplatform.services.rest.provider.EntityProvider;
+import org.exoplatform.services.rest.util.BufferPool;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -63,7 +64,7 @@ public class DataSourceEntityProvider implements EntityProvider<DataSource>
    {
       String m = mediaType != null ? mediaType.toString() : null;
 
-      return createDataSource(entityStream, m);
+      return createDataSource(entityStream, m, IOHelper.getContentLength(httpHeaders));
    }
 
    /**
@@ -71,6 +72,8 @@ public class DataSourceEntityProvider implements EntityProvider<DataSource>
     */
    public long getSize(DataSource t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
    {
+      if (t instanceof FileDataSource)
+         return ((FileDataSource)t).getFile().length();
       return -1;
    }
 
@@ -88,6 +91,11 @@ public class DataSourceEntityProvider implements EntityProvider<DataSource>
    public void writeTo(DataSource t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
       MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException
    {
+      if (t instanceof FileDataSource)
+      {
+         IOHelper.write(((FileDataSource)t).getFile(), entityStream);
+         return;
+      }
       InputStream in = t.getInputStream();
       try
       {
@@ -107,50 +115,70 @@ public class DataSourceEntityProvider implements EntityProvider<DataSource>
     * 
     * @param entityStream the {@link InputStream} of the HTTP entity
     * @param mimeType media type of data, HTTP header 'Content-type'
+    * @param contentLength size of entity or -1 if it is unknown
     * @return See {@link DataSource}
     * @throws IOException if any i/o errors occurs
     */
-   private static DataSource createDataSource(InputStream entityStream, String mimeType) throws IOException
+   private static DataSource createDataSource(InputStream entityStream, String mimeType, long contentLength)
+      throws IOException
    {
 
-      boolean overflow = false;
-      byte[] buffer = new byte[8192];
-
       ApplicationContext context = ApplicationContextImpl.getCurrent();
       int bufferSize =
          context.getProperties().get(RequestHandler.WS_RS_BUFFER_SIZE) == null ? RequestHandler.WS_RS_BUFFER_SIZE_VALUE
             : Integer.parseInt((String)context.getProperties().get(RequestHandler.WS_RS_BUFFER_SIZE));
-      ByteArrayOutputStream bout = new ByteArrayOutputStream(bufferSize);
-
-      int bytes = -1;
-      while ((bytes = entityStream.read(buffer)) != -1)
+      byte[] buffer = BufferPool.getBytes(BufferPool.LARGE_BUFFER_SIZE);
+      try
       {
-         bout.write(buffer, 0, bytes);
-         if (bout.size() > bufferSize)
+         ByteArrayOutputStream bout = null;
+         int bytes = -1;
+         // If size of entity is known and it is greater then buffer then write
+         // data directly in file.
+         boolean overflow = contentLength > bufferSize;
+         if (!overflow)
          {
-            overflow = true;
-            break;
+            bout =
+               new ByteArrayOutputStream(contentLength >= 0 ? (int)contentLength + 1 : Math.min(bufferSize,
+                  BufferPool.LARGE_BUFFER_SIZE));
+            while ((bytes = entityStream.read(buffer)) != -1)
+            {
+               bout.write(buffer, 0, bytes);
+               if (bout.size() > bufferSize)
+               {
+                  overflow = true;
+                  break;
+               }
+            }
          }
-      }
-
-      if (!overflow)
-         // small data , use bytes
-         return new ByteArrayDataSource(bout.toByteArray(), mimeType);
-
-      // large data, use file
-      final File file = File.createTempFile("datasource", "tmp");
-      OutputStream fout = new FileOutputStream(file);
 
-      // copy data from byte array in file
-      bout.writeTo(fout);
+         if (!overflow)
+            // small data , use bytes
+            return new ByteArrayDataSource(bout.toByteArray(), mimeType);
 
-      while ((bytes = entityStream.read(buffer)) != -1)
-         fout.write(buffer, 0, bytes);
+         // large data, use file
+         final File file = File.createTempFile("datasource", "tmp");
+         OutputStream fout = new FileOutputStream(file);
 
-      fout.close();
+         try
+         {
+            // copy data from byte array in file
+            if (bout != null)
+               bout.writeTo(fout);
 
-      return new MimeFileDataSource(file, mimeType);
+            while ((bytes = entityStream.read(buffer)) != -1)
+               fout.write(buffer, 0, bytes);
+         }
+         finally
+         {
+            fout.close();
+         }
 
+         return new MimeFileDataSource(file, mimeType);
+      }
+      finally
+      {
+         BufferPool.release(buffer);
+      }
    }
 
    /**
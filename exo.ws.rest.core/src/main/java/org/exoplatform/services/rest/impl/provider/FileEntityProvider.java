@@ -89,15 +89,7 @@ public class FileEntityProvider implements EntityProvider<File>
    public void writeTo(File t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
       MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException
    {
-      InputStream in = PrivilegedFileHelper.fileInputStream(t);
-      try
-      {
-         IOHelper.write(in, entityStream);
-      }
-      finally
-      {
-         in.close();
-      }
+      IOHelper.write(t, entityStream);
    }
 
 }
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.provider;
+
+import org.exoplatform.services.rest.ExtHttpHeaders;
+import org.exoplatform.services.rest.impl.header.HeaderHelper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import javax.activation.FileDataSource;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * Part(s) of file requested with HTTP header 'Range'. Instance of this class
+ * replaces original entity ({@link File} or {@link FileDataSource}) of
+ * response with status 206 (Partial Content). If only one range requested
+ * then it is sent as is, otherwise ranges are sent as
+ * 'multipart/byteranges'.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class FileRanges
+{
+
+   /**
+    * Max number of ranges in one request. Request with more ranges is served
+    * as request without 'Range' header.
+    */
+   public static final int MAX_RANGES = 64;
+
+   private static final Comparator<long[]> RANGE_COMPARATOR = new Comparator<long[]>()
+   {
+      public int compare(long[] o1, long[] o2)
+      {
+         return o1[0] < o2[0] ? -1 : (o1[0] == o2[0] ? 0 : 1);
+      }
+   };
+
+   /**
+    * Get file which may be sent partially.
+    *
+    * @param entity entity of response
+    * @return file or <code>null</code> if entity is not file
+    */
+   public static File getFile(Object entity)
+   {
+      if (entity instanceof File)
+         return (File)entity;
+      if (entity instanceof FileDataSource)
+         return ((FileDataSource)entity).getFile();
+      return null;
+   }
+
+   /**
+    * Parse value of 'Range' header. Only 'bytes' unit is supported.
+    * Overlapping and adjacent ranges are merged.
+    *
+    * @param header value of 'Range' header
+    * @param length length of file
+    * @return ranges as pairs of first and last (inclusive) byte positions,
+    *         empty list if none of ranges may be satisfied or
+    *         <code>null</code> if header is malformed or not supported and
+    *         must be ignored
+    */
+   public static List<long[]> parseRange(String header, long length)
+   {
+      header = header.trim();
+      if (!header.startsWith("bytes="))
+         return null;
+      List<long[]> ranges = new ArrayList<long[]>();
+      int count = 0;
+      for (String spec : header.substring(6).split(","))
+      {
+         spec = spec.trim();
+         if (spec.length() == 0)
+            continue;
+         if (++count > MAX_RANGES)
+            return null;
+         int dash = spec.indexOf('-');
+         if (dash == -1)
+            return null;
+         long first;
+         long last;
+         try
+         {
+            if (dash == 0)
+            {
+               // suffix range, e.g. 'bytes=-500', last 500 bytes
+               long suffix = Long.parseLong(spec.substring(1).trim());
+               if (suffix < 0)
+                  return null;
+               if (suffix == 0 || length == 0)
+                  continue;
+               first = Math.max(length - suffix, 0);
+               last = length - 1;
+            }
+            else
+            {
+               first = Long.parseLong(spec.substring(0, dash).trim());
+               last = dash == spec.length() - 1 ? length - 1 : Long.parseLong(spec.substring(dash + 1).trim());
+               if (first < 0 || last < first)
+                  return null;
+               if (first >= length)
+                  continue;
+               last = Math.min(last, length - 1);
+            }
+         }
+         catch (NumberFormatException e)
+         {
+            return null;
+         }
+         ranges.add(new long[]{first, last});
+      }
+      if (count == 0)
+         return null;
+      if (ranges.size() > 1)
+      {
+         Collections.sort(ranges, RANGE_COMPARATOR);
+         List<long[]> merged = new ArrayList<long[]>(ranges.size());
+         long[] current = ranges.get(0);
+         for (int i = 1; i < ranges.size(); i++)
+         {
+            long[] next = ranges.get(i);
+            if (next[0] <= current[1] + 1)
+            {
+               current[1] = Math.max(current[1], next[1]);
+            }
+            else
+            {
+               merged.add(current);
+               current = next;
+            }
+         }
+         merged.add(current);
+         ranges = merged;
+      }
+      return ranges;
+   }
+
+   /**
+    * Check is 'If-Range' header matched to current state of file. Header may
+    * contain entity tag or date. Entity tag is compared with 'ETag' header of
+    * response, weak entity tags never match. Date is compared with
+    * 'Last-Modified' header of response or with last modification date of
+    * file if response has not such header.
+    *
+    * @param header value of 'If-Range' header
+    * @param file file
+    * @param responseHeaders headers of response
+    * @return <code>true</code> if ranges may be sent and <code>false</code>
+    *         if whole file must be sent
+    */
+   public static boolean isIfRangeMatched(String header, File file, MultivaluedMap<String, Object> responseHeaders)
+   {
+      header = header.trim();
+      if (header.startsWith("\"") || header.startsWith("W/"))
+      {
+         Object etag = responseHeaders.getFirst(HttpHeaders.ETAG);
+         if (etag == null || header.startsWith("W/"))
+            return false;
+         String etagString = HeaderHelper.getHeaderAsString(etag);
+         return !etagString.startsWith("W/") && etagString.equals(header);
+      }
+      Date date;
+      try
+      {
+         date = HeaderHelper.parseDateHeader(header);
+      }
+      catch (IllegalArgumentException e)
+      {
+         return false;
+      }
+      long lastModified;
+      Object lastModifiedHeader = responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED);
+      if (lastModifiedHeader instanceof Date)
+      {
+         lastModified = ((Date)lastModifiedHeader).getTime();
+      }
+      else if (lastModifiedHeader != null)
+      {
+         try
+         {
+            lastModified = HeaderHelper.parseDateHeader(lastModifiedHeader.toString()).getTime();
+         }
+         catch (IllegalArgumentException e)
+         {
+            return false;
+         }
+      }
+      else
+      {
+         lastModified = file.lastModified();
+      }
+      // HTTP dates have precision of one second.
+      return lastModified / 1000 == date.getTime() / 1000;
+   }
+
+   private final File file;
+
+   private final long length;
+
+   private final List<long[]> ranges;
+
+   private final MediaType contentType;
+
+   private final String boundary;
+
+   /**
+    * @param file file
+    * @param ranges ranges of file, see {@link #parseRange(String, long)}
+    * @param contentType media type of file. May be <code>null</code>
+    */
+   public FileRanges(File file, List<long[]> ranges, MediaType contentType)
+   {
+      this.file = file;
+      this.length = file.length();
+      this.ranges = ranges;
+      this.contentType = contentType;
+      this.boundary = ranges.size() > 1 ? UUID.randomUUID().toString() : null;
+   }
+
+   /**
+    * @return file
+    */
+   public File getFile()
+   {
+      return file;
+   }
+
+   /**
+    * @return ranges of file
+    */
+   public List<long[]> getRanges()
+   {
+      return ranges;
+   }
+
+   /**
+    * @return media type of file. May be <code>null</code>
+    */
+   public MediaType getContentType()
+   {
+      return contentType;
+   }
+
+   /**
+    * @return boundary of multipart entity or <code>null</code> if only one
+    *         range requested
+    */
+   public String getBoundary()
+   {
+      return boundary;
+   }
+
+   /**
+    * @return media type of response. It is media type of file if only one
+    *         range requested and 'multipart/byteranges' otherwise
+    */
+   public MediaType getMediaType()
+   {
+      return boundary == null ? contentType : MediaType.valueOf(ExtHttpHeaders.MULTIPART_BYTERANGES + boundary);
+   }
+
+   /**
+    * @param range range
+    * @return value of 'Content-Range' header for range
+    */
+   public String getContentRange(long[] range)
+   {
+      return "bytes " + range[0] + '-' + range[1] + '/' + length;
+   }
+
+   /**
+    * @param range range
+    * @return header of part of multipart entity
+    */
+   String getPartHeader(long[] range)
+   {
+      StringBuilder sb = new StringBuilder();
+      sb.append("\r\n--").append(boundary).append("\r\n");
+      if (contentType != null)
+         sb.append(ExtHttpHeaders.CONTENTTYPE).append(": ").append(contentType).append("\r\n");
+      sb.append(ExtHttpHeaders.CONTENTRANGE).append(": ").append(getContentRange(range)).append("\r\n\r\n");
+      return sb.toString();
+   }
+
+   /**
+    * @return end of multipart entity
+    */
+   String getEnd()
+   {
+      return "\r\n--" + boundary + "--\r\n";
+   }
+
+   /**
+    * @return length of entity in bytes
+    */
+   public long getSize()
+   {
+      long size = 0;
+      for (long[] range : ranges)
+      {
+         size += range[1] - range[0] + 1;
+         if (boundary != null)
+            size += getPartHeader(range).length();
+      }
+      if (boundary != null)
+         size += getEnd().length();
+      return size;
+   }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.provider;
+
+import org.exoplatform.commons.utils.PrivilegedFileHelper;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Writes {@link FileRanges}, see
+ * {@link IOHelper#write(FileChannel, long, long, OutputStream)}.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+@Provider
+public class FileRangesEntityProvider implements MessageBodyWriter<FileRanges>
+{
+
+   /**
+    * {@inheritDoc}
+    */
+   public long getSize(FileRanges t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+   {
+      return t.getSize();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+   {
+      return type == FileRanges.class;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void writeTo(FileRanges t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+      MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException
+   {
+      FileInputStream in = PrivilegedFileHelper.fileInputStream(t.getFile());
+      try
+      {
+         FileChannel channel = in.getChannel();
+         for (long[] range : t.getRanges())
+         {
+            if (t.getBoundary() != null)
+               entityStream.write(t.getPartHeader(range).getBytes("ISO-8859-1"));
+            IOHelper.write(channel, range[0], range[1] - range[0] + 1, entityStream);
+         }
+         if (t.getBoundary() != null)
+            entityStream.write(t.getEnd().getBytes("ISO-8859-1"));
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+}
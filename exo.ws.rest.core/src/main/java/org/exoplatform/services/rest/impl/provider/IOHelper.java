@@ -18,6 +18,13 @@
  */
 package org.exoplatform.services.rest.impl.provider;
 
+import org.exoplatform.commons.utils.PrivilegedFileHelper;
+import org.exoplatform.services.rest.util.BufferPool;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -25,10 +32,16 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException;
 
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+
 /**
  * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
  * @version $Id: $
@@ -53,6 +66,26 @@ public final class IOHelper
    {
    }
 
+   /**
+    * @param httpHeaders HTTP headers of request. May be <code>null</code>
+    * @return value of 'Content-Length' header or -1 if it is not specified or
+    *         invalid
+    */
+   static long getContentLength(MultivaluedMap<String, String> httpHeaders)
+   {
+      String contentLength = httpHeaders != null ? httpHeaders.getFirst(HttpHeaders.CONTENT_LENGTH) : null;
+      if (contentLength == null)
+         return -1;
+      try
+      {
+         return Long.parseLong(contentLength.trim());
+      }
+      catch (NumberFormatException e)
+      {
+         return -1;
+      }
+   }
+
    /**
     * Write data from {@link InputStream} to {@link OutputStream}.
     * 
@@ -62,10 +95,97 @@ public final class IOHelper
     */
    static void write(InputStream in, OutputStream out) throws IOException
    {
-      byte[] buf = new byte[1024];
-      int rd = -1;
-      while ((rd = in.read(buf)) != -1)
-         out.write(buf, 0, rd);
+      byte[] buf = BufferPool.getBytes(BufferPool.LARGE_BUFFER_SIZE);
+      try
+      {
+         int rd = -1;
+         while ((rd = in.read(buf)) != -1)
+            out.write(buf, 0, rd);
+      }
+      finally
+      {
+         BufferPool.release(buf);
+      }
+   }
+
+   /**
+    * Write content of file to {@link OutputStream}.
+    *
+    * @param file file
+    * @param out See {@link OutputStream}
+    * @throws IOException if i/o errors occurs
+    * @see #write(FileChannel, long, long, OutputStream)
+    */
+   static void write(File file, OutputStream out) throws IOException
+   {
+      FileInputStream in = PrivilegedFileHelper.fileInputStream(file);
+      try
+      {
+         FileChannel channel = in.getChannel();
+         write(channel, 0, channel.size(), out);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * Write region of file to {@link OutputStream}. If stream is
+    * {@link FileOutputStream} or implements {@link WritableByteChannel} then
+    * data transferred with {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+    * without copying it in user space. Otherwise data read from channel in
+    * buffer and written to the stream.
+    *
+    * @param in source channel
+    * @param position position of first byte in file
+    * @param count number of bytes to write
+    * @param out See {@link OutputStream}
+    * @throws IOException if i/o errors occurs
+    */
+   static void write(FileChannel in, long position, long count, OutputStream out) throws IOException
+   {
+      WritableByteChannel channel = null;
+      if (out instanceof FileOutputStream)
+         channel = ((FileOutputStream)out).getChannel();
+      else if (out instanceof WritableByteChannel)
+         channel = (WritableByteChannel)out;
+
+      long end = position + count;
+      if (channel != null)
+      {
+         out.flush();
+         while (position < end)
+         {
+            long transferred = in.transferTo(position, end - position, channel);
+            if (transferred <= 0)
+               throw new EOFException("Unexpected end of file at position " + position);
+            position += transferred;
+         }
+         return;
+      }
+
+      byte[] array =
+         BufferPool.getBytes(count < BufferPool.LARGE_BUFFER_SIZE ? (int)count : BufferPool.LARGE_BUFFER_SIZE);
+      try
+      {
+         ByteBuffer buf = ByteBuffer.wrap(array);
+         while (position < end)
+         {
+            buf.clear();
+            if (end - position < buf.capacity())
+               buf.limit((int)(end - position));
+            int rd = in.read(buf, position);
+            if (rd < 0)
+               throw new EOFException("Unexpected end of file at position " + position);
+            out.write(array, 0, rd);
+            position += rd;
+         }
+      }
+      finally
+      {
+         BufferPool.release(array);
+      }
    }
 
    /**
@@ -77,10 +197,17 @@ public final class IOHelper
     */
    static void write(Reader in, Writer out) throws IOException
    {
-      char[] buf = new char[1024];
-      int rd = -1;
-      while ((rd = in.read(buf)) != -1)
-         out.write(buf, 0, rd);
+      char[] buf = BufferPool.getChars(BufferPool.SMALL_BUFFER_SIZE);
+      try
+      {
+         int rd = -1;
+         while ((rd = in.read(buf)) != -1)
+            out.write(buf, 0, rd);
+      }
+      finally
+      {
+         BufferPool.release(buf);
+      }
    }
 
    /**
@@ -106,13 +233,29 @@ public final class IOHelper
          charset = DEFAULT_CHARSET;
       }
       Reader r = new InputStreamReader(in, charset);
-      char[] buf = new char[1024];
-      StringBuffer sb = new StringBuffer();
-      int rd = -1;
-      while ((rd = r.read(buf)) != -1)
-         sb.append(buf, 0, rd);
-
-      return sb.toString();
+      char[] buf = BufferPool.getChars(BufferPool.SMALL_BUFFER_SIZE);
+      try
+      {
+         int rd = r.read(buf);
+         if (rd == -1)
+            return "";
+         int length = rd;
+         // Fill buffer before creating StringBuilder, most of entities are
+         // shorter then buffer, in this case string created directly from it.
+         while (length < buf.length && (rd = r.read(buf, length, buf.length - length)) != -1)
+            length += rd;
+         if (rd == -1)
+            return new String(buf, 0, length);
+         StringBuilder sb = new StringBuilder(buf.length * 2);
+         sb.append(buf, 0, length);
+         while ((rd = r.read(buf)) != -1)
+            sb.append(buf, 0, rd);
+         return sb.toString();
+      }
+      finally
+      {
+         BufferPool.release(buf);
+      }
    }
 
    /**
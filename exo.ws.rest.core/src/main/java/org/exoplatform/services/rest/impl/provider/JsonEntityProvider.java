@@ -23,6 +23,7 @@ import org.exoplatform.ws.frameworks.json.impl.JsonDefaultHandler;
 import org.exoplatform.ws.frameworks.json.impl.JsonException;
 import org.exoplatform.ws.frameworks.json.impl.JsonGeneratorImpl;
 import org.exoplatform.ws.frameworks.json.impl.JsonParserImpl;
+import org.exoplatform.ws.frameworks.json.impl.JsonReaderImpl;
 import org.exoplatform.ws.frameworks.json.impl.JsonUtils;
 import org.exoplatform.ws.frameworks.json.impl.JsonUtils.Types;
 import org.exoplatform.ws.frameworks.json.impl.JsonWriterImpl;
@@ -38,6 +39,7 @@ import java.io.Writer;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
 
 import javax.activation.DataSource;
@@ -104,37 +106,36 @@ public class JsonEntityProvider implements EntityProvider<Object>
    {
       try
       {
-         JsonParserImpl parser = new JsonParserImpl();
-         JsonDefaultHandler handler = new JsonDefaultHandler();
-
-         parser.parse(entityStream, handler);
-         JsonValue jsonValue = handler.getJsonObject();
-
          if (JsonValue.class.isAssignableFrom(type))
          {
-            // If requested object is JsonValue then stop processing here.
-            return jsonValue;
+            // If requested object is JsonValue then stop processing after parsing.
+            JsonParserImpl parser = new JsonParserImpl();
+            JsonDefaultHandler handler = new JsonDefaultHandler();
+            parser.parse(entityStream, handler);
+            return handler.getJsonObject();
          }
 
+         // Bind JSON directly to requested type without creation of JsonValue.
+         JsonReaderImpl reader = new JsonReaderImpl(entityStream);
          Types jtype = JsonUtils.getType(type);
          if (jtype == Types.ARRAY_BOOLEAN || jtype == Types.ARRAY_BYTE || jtype == Types.ARRAY_SHORT
             || jtype == Types.ARRAY_INT || jtype == Types.ARRAY_LONG || jtype == Types.ARRAY_FLOAT
             || jtype == Types.ARRAY_DOUBLE || jtype == Types.ARRAY_CHAR || jtype == Types.ARRAY_STRING
             || jtype == Types.ARRAY_OBJECT)
          {
-            return ObjectBuilder.createArray(type, jsonValue);
+            return ObjectBuilder.createArray(type, reader);
          }
          if (jtype == Types.COLLECTION)
          {
             Class c = type;
-            return ObjectBuilder.createCollection(c, genericType, jsonValue);
+            return ObjectBuilder.createCollection(c, genericType, reader);
          }
          if (jtype == Types.MAP)
          {
             Class c = type;
-            return ObjectBuilder.createObject(c, genericType, jsonValue);
+            return ObjectBuilder.createObject(c, genericType, reader);
          }
-         return ObjectBuilder.createObject(type, jsonValue);
+         return ObjectBuilder.createObject(type, reader);
 
       }
       catch (JsonException e)
@@ -169,14 +170,15 @@ public class JsonEntityProvider implements EntityProvider<Object>
    {
       try
       {
-         JsonValue jsonValue = null;
+         JsonWriterImpl jsonWriter = new JsonWriterImpl(entityStream);
          if (t instanceof JsonValue)
          {
             // Don't do any transformation if object is prepared JsonValue.
-            jsonValue = (JsonValue)t;
+            ((JsonValue)t).writeTo(jsonWriter);
          }
          else
          {
+            // Write object directly without creation of JsonValue.
             JsonGeneratorImpl generator = new JsonGeneratorImpl();
             Types jtype = JsonUtils.getType(type);
             if (jtype == Types.ARRAY_BOOLEAN || jtype == Types.ARRAY_BYTE || jtype == Types.ARRAY_SHORT
@@ -184,23 +186,26 @@ public class JsonEntityProvider implements EntityProvider<Object>
                || jtype == Types.ARRAY_DOUBLE || jtype == Types.ARRAY_CHAR || jtype == Types.ARRAY_STRING
                || jtype == Types.ARRAY_OBJECT)
             {
-               jsonValue = generator.createJsonArray(t);
+               generator.writeJsonArray(t, jsonWriter);
             }
             else if (jtype == Types.COLLECTION)
             {
-               jsonValue = generator.createJsonArray((Collection<?>)t);
+               generator.writeJsonArray((Collection<?>)t, jsonWriter);
+            }
+            else if (t instanceof Iterator)
+            {
+               // Elements may be produced lazily, write them one by one as JSON array.
+               generator.writeJsonArray((Iterator<?>)t, jsonWriter);
             }
             else if (jtype == Types.MAP)
             {
-               jsonValue = generator.createJsonObjectFromMap((Map<String, ?>)t);
+               generator.writeJsonObjectFromMap((Map<String, ?>)t, jsonWriter);
             }
             else
             {
-               jsonValue = generator.createJsonObject(t);
+               generator.writeJsonObject(t, jsonWriter);
             }
          }
-         JsonWriterImpl jsonWriter = new JsonWriterImpl(entityStream);
-         jsonValue.writeTo(jsonWriter);
          jsonWriter.flush();
       }
       catch (JsonException e)
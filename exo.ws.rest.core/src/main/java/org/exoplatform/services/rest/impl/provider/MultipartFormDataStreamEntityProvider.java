@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.provider;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileUpload;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.RequestContext;
+import org.exoplatform.services.rest.provider.EntityProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Processing multipart data in streaming mode based on apache fileupload.
+ * Unlike {@link MultipartFormDataEntityProvider} this provider does not read
+ * any data before resource method is invoked. Parts are parsed directly from
+ * entity stream when method {@link FileItemIterator#next()} is called, so
+ * data of each part is not stored in memory or in temporary file. Content of
+ * part must be read before getting next part, it is not available after that.
+ *
+ * <pre>
+ * &#064;POST
+ * &#064;Consumes(&quot;multipart/*&quot;)
+ * public void upload(FileItemIterator iter) throws Exception
+ * {
+ *    while (iter.hasNext())
+ *    {
+ *       FileItemStream item = iter.next();
+ *       InputStream in = item.openStream();
+ *       ...
+ *    }
+ * }
+ * </pre>
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+@Provider
+@Consumes({"multipart/*"})
+public class MultipartFormDataStreamEntityProvider implements EntityProvider<FileItemIterator>
+{
+
+   /**
+    * {@inheritDoc}
+    */
+   public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+   {
+      return type == FileItemIterator.class;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public FileItemIterator readFrom(Class<FileItemIterator> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException
+   {
+      try
+      {
+         return new FileUpload().getItemIterator(new EntityRequestContext(mediaType, httpHeaders, entityStream));
+      }
+      catch (FileUploadException e)
+      {
+         throw new IOException("Can't process multipart data item " + e, e);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public long getSize(FileItemIterator t, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType)
+   {
+      return -1;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+   {
+      // output is not supported
+      return false;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void writeTo(FileItemIterator t, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException
+   {
+      throw new UnsupportedOperationException();
+   }
+
+   /**
+    * {@link RequestContext} over entity stream and HTTP headers of request.
+    */
+   private static class EntityRequestContext implements RequestContext
+   {
+
+      private final MediaType mediaType;
+
+      private final MultivaluedMap<String, String> httpHeaders;
+
+      private final InputStream entityStream;
+
+      EntityRequestContext(MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
+      {
+         this.mediaType = mediaType;
+         this.httpHeaders = httpHeaders;
+         this.entityStream = entityStream;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      public String getCharacterEncoding()
+      {
+         return mediaType != null ? mediaType.getParameters().get("charset") : null;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      public String getContentType()
+      {
+         String contentType = httpHeaders.getFirst(HttpHeaders.CONTENT_TYPE);
+         if (contentType == null && mediaType != null)
+            contentType = mediaType.toString();
+         return contentType;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      public int getContentLength()
+      {
+         String contentLength = httpHeaders.getFirst(HttpHeaders.CONTENT_LENGTH);
+         try
+         {
+            return contentLength != null ? Integer.parseInt(contentLength) : -1;
+         }
+         catch (NumberFormatException e)
+         {
+            return -1;
+         }
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      public InputStream getInputStream() throws IOException
+      {
+         return entityStream;
+      }
+   }
+
+}
@@ -24,11 +24,11 @@ import org.exoplatform.services.log.Log;
 import org.exoplatform.services.rest.BaseObjectModel;
 import org.exoplatform.services.rest.ComponentLifecycleScope;
 import org.exoplatform.services.rest.impl.header.MediaTypeHelper;
-import org.exoplatform.services.rest.impl.method.DefaultMethodInvoker;
 import org.exoplatform.services.rest.impl.method.MethodInvokerFactory;
 import org.exoplatform.services.rest.impl.method.MethodParameterImpl;
 import org.exoplatform.services.rest.impl.method.OptionsRequestMethodInvoker;
 import org.exoplatform.services.rest.impl.method.ParameterHelper;
+import org.exoplatform.services.rest.impl.method.PreparedMethodInvoker;
 import org.exoplatform.services.rest.method.MethodInvoker;
 import org.exoplatform.services.rest.method.MethodParameter;
 import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
@@ -712,7 +712,7 @@ public class AbstractResourceDescriptorImpl extends BaseObjectModel implements A
       {
          return invokerFactory.getMethodInvoker();
       }
-      return new DefaultMethodInvoker();
+      return new PreparedMethodInvoker();
    }
 
    /**
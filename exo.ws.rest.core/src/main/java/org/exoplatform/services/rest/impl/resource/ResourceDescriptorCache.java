@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.resource;
+
+import org.exoplatform.services.rest.impl.method.MethodInvokerFactory;
+import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Cache of {@link AbstractResourceDescriptor} for objects returned by
+ * sub-resource locators. Descriptor of class does not depend on instance of
+ * this class, so it may be created once and used for all objects of the same
+ * class.
+ * <p>
+ * Descriptor refers to its class, so class is not unloaded while descriptor
+ * is cached, weak keys only let entries go away after descriptors are
+ * released by garbage collector. Cache must be cleared when classes are
+ * expected to be unloaded, e.g. after redeploy of Groovy resources,
+ * {@link org.exoplatform.services.rest.impl.RequestDispatcher} does it when
+ * any root resource is removed. Number of cached descriptors is limited,
+ * cache is cleared when limit is reached.
+ * </p>
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class ResourceDescriptorCache
+{
+
+   /** Default max number of cached descriptors. */
+   public static final int DEFAULT_MAX_SIZE = 512;
+
+   private final Map<Class<?>, SoftReference<AbstractResourceDescriptor>> descriptors =
+      new WeakHashMap<Class<?>, SoftReference<AbstractResourceDescriptor>>();
+
+   private final MethodInvokerFactory invokerFactory;
+
+   private final int maxSize;
+
+   /**
+    * @param invokerFactory invoker factory for newly created descriptors. May
+    *        be <code>null</code>
+    * @param maxSize max number of cached descriptors
+    */
+   public ResourceDescriptorCache(MethodInvokerFactory invokerFactory, int maxSize)
+   {
+      if (maxSize < 1)
+         throw new IllegalArgumentException("Max size of cache must be greater then zero.");
+      this.invokerFactory = invokerFactory;
+      this.maxSize = maxSize;
+   }
+
+   /**
+    * @param invokerFactory invoker factory for newly created descriptors. May
+    *        be <code>null</code>
+    */
+   public ResourceDescriptorCache(MethodInvokerFactory invokerFactory)
+   {
+      this(invokerFactory, DEFAULT_MAX_SIZE);
+   }
+
+   /**
+    * Get descriptor for class of specified object. If descriptor is not cached
+    * yet then new one created.
+    *
+    * @param resource resource instance
+    * @return descriptor of resource class
+    */
+   public AbstractResourceDescriptor getDescriptor(Object resource)
+   {
+      Class<?> resourceClass = resource.getClass();
+      synchronized (descriptors)
+      {
+         SoftReference<AbstractResourceDescriptor> ref = descriptors.get(resourceClass);
+         AbstractResourceDescriptor descriptor = ref != null ? ref.get() : null;
+         if (descriptor != null)
+            return descriptor;
+      }
+      // Create descriptor out of lock. It is not critical if few threads do it
+      // at the same time, the last one will be kept in cache.
+      AbstractResourceDescriptor descriptor = new AbstractResourceDescriptorImpl(resource, invokerFactory);
+      synchronized (descriptors)
+      {
+         if (descriptors.size() >= maxSize)
+            descriptors.clear();
+         descriptors.put(resourceClass, new SoftReference<AbstractResourceDescriptor>(descriptor));
+      }
+      return descriptor;
+   }
+
+   /**
+    * Remove all cached descriptors.
+    */
+   public void clear()
+   {
+      synchronized (descriptors)
+      {
+         descriptors.clear();
+      }
+   }
+
+   /**
+    * @return number of cached descriptors
+    */
+   public int size()
+   {
+      synchronized (descriptors)
+      {
+         return descriptors.size();
+      }
+   }
+
+}
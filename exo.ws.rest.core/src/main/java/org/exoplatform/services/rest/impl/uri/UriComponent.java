@@ -20,12 +20,11 @@ package org.exoplatform.services.rest.impl.uri;
 
 import org.exoplatform.services.rest.impl.MultivaluedMapImpl;
 
-import java.io.ByteArrayOutputStream;
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.PathSegment;
@@ -238,7 +237,7 @@ public final class UriComponent
     */
    private static String encodingInt(String str, int component, boolean containsUriParams, boolean recognizeEncoded)
    {
-      StringBuffer sb = null;
+      StringBuilder sb = null;
       int l = str.length();
       for (int i = 0; i < l; i++)
       {
@@ -258,7 +257,7 @@ public final class UriComponent
 
                if (sb == null)
                {
-                  sb = new StringBuffer();
+                  sb = new StringBuilder(l + 16);
                   sb.append(str.substring(0, i));
                }
                addPercentEncoded(ch, sb); // in fact add '%25'
@@ -287,12 +286,14 @@ public final class UriComponent
 
                if (sb == null)
                {
-                  sb = new StringBuffer();
+                  sb = new StringBuilder(l + 16);
                   sb.append(str.substring(0, i));
                }
 
                if (ch < 128)
                   addPercentEncoded(ch, sb);
+               else if (Character.isHighSurrogate(ch) && i + 1 < l && Character.isLowSurrogate(str.charAt(i + 1)))
+                  addUTF8Encoded(Character.toCodePoint(ch, str.charAt(++i)), sb);
                else
                   addUTF8Encoded(ch, sb);
 
@@ -318,54 +319,55 @@ public final class UriComponent
       if (str == null)
          throw new IllegalArgumentException("Decoded string is null");
 
-      int p = 0;
       int l = str.length();
-      StringBuffer sb = new StringBuffer();
-
+      int p = 0;
       /* NOTE spaces can be encoded with '+' */
-      //    if ((p = str.indexOf('%')) < 0)
-      //      return str; // nothing to do
-
-      //    if (l < 3)
-      if (l < 3 && str.indexOf('%') > 0)
-         throw new IllegalArgumentException("Mailformed string " + str);
+      while (p < l && str.charAt(p) != '%' && str.charAt(p) != '+')
+         p++;
+      if (p == l)
+         return str; // nothing to do
 
-      //    if ((p = str.lastIndexOf('%')) > l - 3)
-      p = str.lastIndexOf('%');
-      if (p > 0 && p > l - 3)
-         throw new IllegalArgumentException("Mailformed string at index " + p);
+      int last = str.lastIndexOf('%');
+      if (last >= 0 && last > l - 3)
+         throw new IllegalArgumentException("Mailformed string at index " + last);
 
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      p = 0; // reset pointer
+      StringBuilder sb = new StringBuilder(l);
+      sb.append(str, 0, p);
+      // Bytes of percent-encoded sequence, number of encoded bytes is not greater then one third of rest of string.
+      byte[] buff = null;
       while (p < l)
       {
          char c = str.charAt(p);
-
-         if (c != '%')
+         if (c == '%')
          {
+            if (buff == null)
+               buff = new byte[(l - p) / 3];
+            int n = 0;
+            boolean ascii = true;
+            do
+            {
+               int b = hexValue(str, p + 1) << 4 | hexValue(str, p + 2);
+               buff[n++] = (byte)b;
+               ascii &= b < 128;
+               p += 3;
+            }
+            while (p < l && str.charAt(p) == '%');
 
-            // NOTE can be potential problem but we can't ignore this
-            if (c == '+')
-               sb.append(' ');
+            if (ascii)
+            {
+               for (int i = 0; i < n; i++)
+                  sb.append((char)buff[i]);
+            }
             else
-               sb.append(c);
-
-            p++;
-
+            {
+               sb.append(new String(buff, 0, n, UTF8));
+            }
          }
          else
          {
-
-            p = percentDecode(str, p, out);
-
-            byte[] buff = out.toByteArray();
-
-            if (buff.length == 1 && (buff[0] & 0xFF) < 128)
-               sb.append((char)buff[0]);
-            else
-               addUTF8Decoded(buff, sb);
-
-            out.reset();
+            // NOTE can be potential problem but we can't ignore this
+            sb.append(c == '+' ? ' ' : c);
+            p++;
          }
       }
       return sb.toString();
@@ -384,12 +386,12 @@ public final class UriComponent
    }
 
    /**
-    * Append percent encoded character in StringBuffer.
+    * Append percent encoded character in StringBuilder.
     * 
     * @param c character which must be encoded
-    * @param sb StringBuffer to add character
+    * @param sb StringBuilder to add character
     */
-   private static void addPercentEncoded(int c, StringBuffer sb)
+   private static void addPercentEncoded(int c, StringBuilder sb)
    {
       sb.append('%');
       sb.append(HEX_DIGITS.charAt(c >> 4));
@@ -397,46 +399,35 @@ public final class UriComponent
    }
 
    /**
-    * Append UTF-8 encoded character in StringBuffer.
-    * 
-    * @param c character which must be encoded
-    * @param sb StringBuffer to add character
-    */
-   private static void addUTF8Encoded(char c, StringBuffer sb)
-   {
-      ByteBuffer buf = UTF8.encode("" + c);
-      while (buf.hasRemaining())
-         addPercentEncoded(buf.get() & 0xFF, sb);
-   }
-
-   /**
-    * Decode percent encoded string.
+    * Append UTF-8 encoded code point in StringBuilder. Unpaired surrogate is
+    * encoded as '?'.
     * 
-    * @param str the source string
-    * @param p start position in string
-    * @param out output buffer for decoded characters
-    * @return current position in source string
+    * @param c code point which must be encoded
+    * @param sb StringBuilder to add character
     */
-   private static int percentDecode(String str, int p, ByteArrayOutputStream out)
+   private static void addUTF8Encoded(int c, StringBuilder sb)
    {
-      int l = str.length();
-      for (;;)
+      if (c < 0x800)
       {
-         char hc = getHexCharacter(str, ++p); // higher char
-         char lc = getHexCharacter(str, ++p); // lower char
-
-         int r =
-            (Character.isDigit(hc) ? hc - '0' : hc - 'A' + 10) << 4
-               | (Character.isDigit(lc) ? lc - '0' : lc - 'A' + 10);
-
-         out.write((byte)r);
-         p++;
-
-         if (p == l || str.charAt(p) != '%')
-            break;
+         addPercentEncoded(0xC0 | (c >> 6), sb);
       }
-
-      return p;
+      else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+      {
+         addPercentEncoded('?', sb);
+         return;
+      }
+      else if (c < 0x10000)
+      {
+         addPercentEncoded(0xE0 | (c >> 12), sb);
+         addPercentEncoded(0x80 | ((c >> 6) & 0x3F), sb);
+      }
+      else
+      {
+         addPercentEncoded(0xF0 | (c >> 18), sb);
+         addPercentEncoded(0x80 | ((c >> 12) & 0x3F), sb);
+         addPercentEncoded(0x80 | ((c >> 6) & 0x3F), sb);
+      }
+      addPercentEncoded(0x80 | (c & 0x3F), sb);
    }
 
    /**
@@ -454,8 +445,8 @@ public final class UriComponent
          return false;
       try
       {
-         getHexCharacter(s, ++p);
-         getHexCharacter(s, ++p);
+         hexValue(s, ++p);
+         hexValue(s, ++p);
          return true;
       }
       catch (IllegalArgumentException e)
@@ -465,36 +456,24 @@ public final class UriComponent
    }
 
    /**
-    * Extract character from given string and check is it one of valid for hex
-    * sequence.
+    * Get value of hex digit at specified position of string.
     * 
     * @param s source string
     * @param p position of character in string
-    * @return character
-    */
-   private static char getHexCharacter(String s, int p)
-   {
-      char c = s.charAt(p);
-      if (Character.isLetter(c))
-         c = Character.toUpperCase(c);
-
-      if (HEX_DIGITS.indexOf(c) == -1)
-         throw new IllegalArgumentException("Mailformed string at index " + p);
-
-      return c;
-   }
-
-   /**
-    * Decodes bytes to characters using the UTF-8 decoding and add them to a
-    * StringBuffer.
-    * 
-    * @param buff source bytes
-    * @param sb StringBuffer for append characters
+    * @return value of hex digit
+    * @throws IllegalArgumentException if there is no hex digit at specified
+    *         position
     */
-   private static void addUTF8Decoded(byte[] buff, StringBuffer sb)
+   private static int hexValue(String s, int p)
    {
-      CharBuffer cbuff = UTF8.decode(ByteBuffer.wrap(buff));
-      sb.append(cbuff.toString());
+      char c = p < s.length() ? s.charAt(p) : 0;
+      if (c >= '0' && c <= '9')
+         return c - '0';
+      if (c >= 'A' && c <= 'F')
+         return c - 'A' + 10;
+      if (c >= 'a' && c <= 'f')
+         return c - 'a' + 10;
+      throw new IllegalArgumentException("Mailformed string at index " + p);
    }
 
    /**
@@ -531,7 +510,9 @@ public final class UriComponent
    }
 
    /**
-    * Parse encoded query string.
+    * Parse encoded query string. If <code>decode</code> is <code>true</code>
+    * then names of parameters are decoded at once but values are decoded
+    * when they are accessed first time.
     * 
     * @param rawQuery source query string
     * @param decode if true then query parameters will be decoded
@@ -551,27 +532,101 @@ public final class UriComponent
          if (n == -1)
             n = rawQuery.length();
 
-         String pair = rawQuery.substring(p, n);
-         if (pair.length() == 0)
-            continue;
-
-         String name;
-         String value = ""; // default value
-         int eq = pair.indexOf('=');
-         if (eq == -1) // no value, default is ""
-            name = pair;
-         else
+         if (n > p)
          {
-            name = pair.substring(0, eq);
-            value = pair.substring(eq + 1);
+            String name;
+            String value = ""; // default value
+            int eq = rawQuery.indexOf('=', p);
+            if (eq == -1 || eq > n) // no value, default is ""
+            {
+               name = rawQuery.substring(p, n);
+            }
+            else
+            {
+               name = rawQuery.substring(p, eq);
+               value = rawQuery.substring(eq + 1, n);
+            }
+            m.add(decode ? decode(name, QUERY) : name, value);
          }
 
-         m.add(decode ? decode(name, QUERY) : name, decode ? decode(value, QUERY) : value);
-
          p = n + 1;
       }
 
+      if (decode)
+      {
+         for (Map.Entry<String, List<String>> e : m.entrySet())
+            e.setValue(new DecodingList(e.getValue()));
+      }
       return m;
    }
 
+   /**
+    * List of query parameter values which are decoded at first access.
+    * Modification of list causes decoding of all values.
+    */
+   private static final class DecodingList extends AbstractList<String>
+   {
+      private List<String> encoded;
+
+      private String[] decoded;
+
+      private List<String> values;
+
+      DecodingList(List<String> encoded)
+      {
+         this.encoded = encoded;
+         this.decoded = new String[encoded.size()];
+      }
+
+      @Override
+      public String get(int index)
+      {
+         if (values != null)
+            return values.get(index);
+         String value = decoded[index];
+         if (value == null)
+            value = decoded[index] = decode(encoded.get(index), QUERY);
+         return value;
+      }
+
+      @Override
+      public int size()
+      {
+         return values != null ? values.size() : encoded.size();
+      }
+
+      @Override
+      public void add(int index, String element)
+      {
+         values().add(index, element);
+      }
+
+      @Override
+      public String set(int index, String element)
+      {
+         return values().set(index, element);
+      }
+
+      @Override
+      public String remove(int index)
+      {
+         return values().remove(index);
+      }
+
+      private List<String> values()
+      {
+         if (values == null)
+         {
+            List<String> l = new ArrayList<String>(encoded.size() + 1);
+            for (int i = 0; i < encoded.size(); i++)
+               l.add(get(i));
+            values = l;
+            encoded = null;
+            decoded = null;
+         }
+         modCount++;
+         return values;
+      }
+   }
+
 }
@@ -19,11 +19,13 @@
 package org.exoplatform.services.rest.servlet;
 
 import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.ExoContainerContext;
 import org.exoplatform.container.component.RequestLifeCycle;
 import org.exoplatform.container.context.ContextManagerListener;
 import org.exoplatform.container.web.AbstractHttpServlet;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
+import org.exoplatform.services.rest.AsyncContainerResponseWriter;
 import org.exoplatform.services.rest.Connector;
 import org.exoplatform.services.rest.ContainerResponseWriter;
 import org.exoplatform.services.rest.GenericContainerResponse;
@@ -38,6 +40,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -93,7 +98,11 @@ public class RestServlet extends AbstractHttpServlet implements Connector
       {
          EnvironmentContext.setCurrent(env);
          ServletContainerRequest request = new ServletContainerRequest(httpRequest);
-         ContainerResponse response = new ContainerResponse(new ServletContainerResponseWriter(httpResponse));
+         // Asynchronous processing must be enabled for servlet, see 'async-supported' in web.xml.
+         ContainerResponseWriter writer =
+            httpRequest.isAsyncSupported() ? new AsyncServletContainerResponseWriter(container, env, httpRequest,
+               httpResponse) : new ServletContainerResponseWriter(httpResponse);
+         ContainerResponse response = new ContainerResponse(writer);
          requestHandler.handleRequest(request, response);
       }
       catch (IOException ioe)
@@ -114,13 +123,18 @@ public class RestServlet extends AbstractHttpServlet implements Connector
       finally
       {
          EnvironmentContext.setCurrent(null);
-         Map<Object, Throwable> results = RequestLifeCycle.end();
-         for (Entry<Object, Throwable> entry : results.entrySet())
+         endRequestLifeCycle();
+      }
+   }
+
+   private static void endRequestLifeCycle()
+   {
+      Map<Object, Throwable> results = RequestLifeCycle.end();
+      for (Entry<Object, Throwable> entry : results.entrySet())
+      {
+         if (entry.getValue() != null)
          {
-            if (entry.getValue() != null)
-            {
-               LOG.error("An error occurred while calling the method endRequest on " + entry.getKey(), entry.getValue());
-            }
+            LOG.error("An error occurred while calling the method endRequest on " + entry.getKey(), entry.getValue());
          }
       }
    }
@@ -190,4 +204,139 @@ public class RestServlet extends AbstractHttpServlet implements Connector
          }
       }
    }
+
+   /**
+    * See {@link AsyncContainerResponseWriter}. Servlet 3.0 does not provide
+    * non-blocking I/O, so response is written with blocking I/O but request
+    * does not hold container thread while it is suspended.
+    */
+   class AsyncServletContainerResponseWriter extends ServletContainerResponseWriter implements
+      AsyncContainerResponseWriter
+   {
+
+      private final ExoContainer container;
+
+      private final EnvironmentContext env;
+
+      private final HttpServletRequest servletRequest;
+
+      private final HttpServletResponse servletResponse;
+
+      private AsyncContext asyncContext;
+
+      /**
+       * Thread which handles timeout of suspended request. Request must be
+       * completed in this thread, container completes it with error
+       * otherwise.
+       */
+      private volatile Thread timeoutThread;
+
+      AsyncServletContainerResponseWriter(ExoContainer container, EnvironmentContext env,
+         HttpServletRequest request, HttpServletResponse response)
+      {
+         super(response);
+         this.container = container;
+         this.env = env;
+         this.servletRequest = request;
+         this.servletResponse = response;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      public void suspend(long timeout, final Runnable timeoutHandler)
+      {
+         asyncContext = servletRequest.startAsync();
+         if (timeout > 0)
+         {
+            asyncContext.setTimeout(timeout);
+         }
+         asyncContext.addListener(new AsyncListener()
+         {
+            public void onTimeout(AsyncEvent event)
+            {
+               timeoutThread = Thread.currentThread();
+               try
+               {
+                  timeoutHandler.run();
+               }
+               finally
+               {
+                  timeoutThread = null;
+               }
+            }
+
+            public void onComplete(AsyncEvent event)
+            {
+            }
+
+            public void onError(AsyncEvent event)
+            {
+            }
+
+            public void onStartAsync(AsyncEvent event)
+            {
+            }
+         });
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      public void resume(final Runnable task)
+      {
+         Runnable r = new Runnable()
+         {
+            public void run()
+            {
+               ExoContainer oldContainer = ExoContainerContext.getCurrentContainerIfPresent();
+               ExoContainerContext.setCurrentContainer(container);
+               RequestLifeCycle.begin(container);
+               try
+               {
+                  EnvironmentContext.setCurrent(env);
+                  task.run();
+               }
+               catch (RuntimeException e)
+               {
+                  if (e.getCause() != null
+                     && e.getCause().getClass().getName().equals("org.apache.catalina.connector.ClientAbortException"))
+                  {
+                     LOG.debug("Write socket error!", e.getCause());
+                  }
+                  else
+                  {
+                     LOG.error("Failed to write response.", e);
+                     if (!servletResponse.isCommitted())
+                     {
+                        try
+                        {
+                           servletResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                        }
+                        catch (IOException ioe)
+                        {
+                           LOG.debug("Write socket error!", ioe);
+                        }
+                     }
+                  }
+               }
+               finally
+               {
+                  EnvironmentContext.setCurrent(null);
+                  endRequestLifeCycle();
+                  ExoContainerContext.setCurrentContainer(oldContainer);
+                  asyncContext.complete();
+               }
+            }
+         };
+         if (Thread.currentThread() == timeoutThread)
+         {
+            r.run();
+         }
+         else
+         {
+            asyncContext.start(r);
+         }
+      }
+   }
 }
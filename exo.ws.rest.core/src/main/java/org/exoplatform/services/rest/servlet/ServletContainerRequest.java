@@ -19,14 +19,11 @@
 package org.exoplatform.services.rest.servlet;
 
 import org.exoplatform.services.rest.impl.ContainerRequest;
-import org.exoplatform.services.rest.impl.InputHeadersMap;
-import org.exoplatform.services.rest.impl.MultivaluedMapImpl;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.security.Principal;
-import java.util.Enumeration;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.MultivaluedMap;
@@ -44,16 +41,70 @@ public final class ServletContainerRequest extends ContainerRequest
     */
    private HttpServletRequest servletRequest;
 
+   /**
+    * Set to <code>true</code> when request and base URIs are created or set
+    * with method {@link #setUris(URI, URI)}.
+    */
+   private boolean urisInitialized;
+
+   /**
+    * Characters, except letters and digits, which may be used in path or
+    * query of URI without encoding.
+    */
+   private static final String LEGAL_CHARACTERS = "-._~!$&'()*+,;=:@/";
+
    /**
     * @param servletRequest HttpServletRequest
     */
    public ServletContainerRequest(HttpServletRequest servletRequest)
    {
-      super(getMethod(servletRequest), getRequestUri(servletRequest), getBaseUri(servletRequest),
-         getEntityStream(servletRequest), getHeader(servletRequest));
+      super(getMethod(servletRequest), null, null, getEntityStream(servletRequest), getHeader(servletRequest));
       this.servletRequest = servletRequest;
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public URI getRequestUri()
+   {
+      initUris();
+      return super.getRequestUri();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public URI getBaseUri()
+   {
+      initUris();
+      return super.getBaseUri();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public void setUris(URI requestUri, URI baseUri)
+   {
+      urisInitialized = true;
+      super.setUris(requestUri, baseUri);
+   }
+
+   /**
+    * Create request and base URIs from servlet request at first access to
+    * them.
+    */
+   private void initUris()
+   {
+      if (!urisInitialized)
+      {
+         URI baseUri = getBaseUri(servletRequest);
+         setUris(getRequestUri(servletRequest, baseUri), baseUri);
+      }
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -111,15 +162,30 @@ public final class ServletContainerRequest extends ContainerRequest
     * query string and fragment.
     * 
     * @param servletRequest {@link HttpServletRequest}
+    * @param baseUri base URI of request
     * @return newly created URI
     */
-   private static URI getRequestUri(HttpServletRequest servletRequest)
+   private static URI getRequestUri(HttpServletRequest servletRequest, URI baseUri)
    {
+      String requestUri = servletRequest.getRequestURI();
+      String query = servletRequest.getQueryString();
+      if (query != null && query.length() == 0)
+         query = null;
+      if (isLegal(requestUri, false) && (query == null || isNormalizedQuery(query)))
+      {
+         // Nothing to encode, avoid parsing of base URI with UriBuilder.
+         String base = baseUri.toString();
+         int pathStart = base.indexOf('/', baseUri.getScheme().length() + 3);
+         StringBuilder sb = new StringBuilder(base.length() + requestUri.length() + 64);
+         sb.append(base, 0, pathStart == -1 ? base.length() : pathStart).append(requestUri);
+         if (query != null)
+            sb.append('?').append(query);
+         return URI.create(sb.toString());
+      }
       // servletRequest.getQueryString() return part of URI after '?', so it
       // return fragment component also
-      UriBuilder baseBuilder = UriBuilder.fromUri(getBaseUri(servletRequest));
-      return baseBuilder.replacePath(servletRequest.getRequestURI()).replaceQuery(servletRequest.getQueryString())
-         .build();
+      UriBuilder baseBuilder = UriBuilder.fromUri(baseUri);
+      return baseBuilder.replacePath(requestUri).replaceQuery(query).build();
    }
 
    /**
@@ -130,36 +196,88 @@ public final class ServletContainerRequest extends ContainerRequest
     */
    private static URI getBaseUri(HttpServletRequest servletRequest)
    {
-      String server = servletRequest.getScheme() + "://" + servletRequest.getServerName();
-      UriBuilder builder = UriBuilder.fromUri(server);
+      String scheme = servletRequest.getScheme();
+      String serverName = servletRequest.getServerName();
       int port = servletRequest.getServerPort();
+      String path = servletRequest.getContextPath() + servletRequest.getServletPath();
+      if (isLegal(serverName, false) && serverName.indexOf(':') == -1 && isLegal(path, false))
+      {
+         // Nothing to encode, avoid UriBuilder.
+         StringBuilder sb = new StringBuilder(scheme.length() + serverName.length() + path.length() + 10);
+         sb.append(scheme).append("://").append(serverName);
+         if (port != 80)
+            sb.append(':').append(port);
+         if (path.length() > 0 && path.charAt(0) != '/')
+            sb.append('/');
+         sb.append(path);
+         return URI.create(sb.toString());
+      }
+      String server = scheme + "://" + serverName;
+      UriBuilder builder = UriBuilder.fromUri(server);
       if (port != 80)
          builder.port(port);
-      builder.path(servletRequest.getContextPath() + servletRequest.getServletPath());
+      builder.path(path);
       return builder.build();
    }
 
    /**
-    * Get HTTP headers from {@link HttpServletRequest} .
+    * Check does string contain only characters which may be used in path or
+    * query of URI without encoding or escaped octets.
     * 
-    * @param servletRequest {@link HttpServletRequest}
-    * @return request headers
+    * @param s string
+    * @param query if <code>true</code> then string is checked as query,
+    *        character '?' is legal in query but not in path
+    * @return <code>true</code> if string contains only legal characters
     */
-   private static MultivaluedMap<String, String> getHeader(HttpServletRequest servletRequest)
+   private static boolean isLegal(String s, boolean query)
    {
-      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
-      Enumeration<?> temp = servletRequest.getHeaderNames();
-      while (temp.hasMoreElements())
+      for (int i = 0; i < s.length(); i++)
       {
-         String k = (String)temp.nextElement();
+         char c = s.charAt(i);
+         if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))
+            continue;
+         if (LEGAL_CHARACTERS.indexOf(c) != -1 || (query && c == '?'))
+            continue;
+         if (c == '%' && i + 2 < s.length() && isHex(s.charAt(i + 1)) && isHex(s.charAt(i + 2)))
+         {
+            i += 2;
+            continue;
+         }
+         return false;
+      }
+      return true;
+   }
 
-         Enumeration<?> e = servletRequest.getHeaders(k);
-         while (e.hasMoreElements())
-            h.add(k, (String)e.nextElement());
+   /**
+    * Check is query string kept as is by {@link UriBuilder}. Builder removes
+    * empty parameters and '=' at the end of parameters without value.
+    * 
+    * @param query query string
+    * @return <code>true</code> if query string does not need any changes
+    */
+   private static boolean isNormalizedQuery(String query)
+   {
+      char first = query.charAt(0);
+      char last = query.charAt(query.length() - 1);
+      return first != '&' && first != '=' && last != '&' && last != '=' && query.indexOf("&&") == -1
+         && query.indexOf("&=") == -1 && query.indexOf("=&") == -1 && isLegal(query, true);
+   }
 
-      }
+   private static boolean isHex(char c)
+   {
+      return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+   }
 
-      return new InputHeadersMap(h);
+   /**
+    * Get HTTP headers from {@link HttpServletRequest} . Headers are not copied,
+    * see {@link ServletHeadersMap}.
+    * 
+    * @param servletRequest {@link HttpServletRequest}
+    * @return request headers
+    */
+   private static MultivaluedMap<String, String> getHeader(HttpServletRequest servletRequest)
+   {
+      return new ServletHeadersMap(servletRequest);
    }
 
    /**
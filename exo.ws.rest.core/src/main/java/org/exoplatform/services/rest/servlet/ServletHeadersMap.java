@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.servlet;
+
+import org.exoplatform.services.rest.impl.InputHeadersMap;
+import org.exoplatform.services.rest.impl.MultivaluedMapImpl;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * Read only case insensitive view of headers of {@link HttpServletRequest}.
+ * Headers are not copied when map is created, each header is got from servlet
+ * request at first access to it. All headers are copied only if map is
+ * iterated.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+final class ServletHeadersMap extends AbstractMap<String, List<String>> implements MultivaluedMap<String, String>
+{
+
+   /**
+    * Marker for headers which are not present in request.
+    */
+   private static final List<String> ABSENT = Collections.emptyList();
+
+   private final HttpServletRequest servletRequest;
+
+   /**
+    * Headers which were already got from servlet request, header names are in
+    * lower case.
+    */
+   private Map<String, List<String>> headers;
+
+   /**
+    * Copy of all headers, created when map is iterated.
+    */
+   private InputHeadersMap all;
+
+   ServletHeadersMap(HttpServletRequest servletRequest)
+   {
+      this.servletRequest = servletRequest;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public List<String> get(Object key)
+   {
+      if (!(key instanceof String))
+         return null;
+      if (all != null)
+         return all.get(key);
+      String name = ((String)key).toLowerCase();
+      if (headers == null)
+      {
+         headers = new HashMap<String, List<String>>();
+      }
+      else
+      {
+         List<String> values = headers.get(name);
+         if (values != null)
+            return values == ABSENT ? null : values;
+      }
+      // Header names are case insensitive for servlet container.
+      List<String> values = null;
+      Enumeration<?> e = servletRequest.getHeaders(name);
+      if (e != null && e.hasMoreElements())
+      {
+         values = new ArrayList<String>(1);
+         while (e.hasMoreElements())
+            values.add((String)e.nextElement());
+         values = Collections.unmodifiableList(values);
+      }
+      headers.put(name, values == null ? ABSENT : values);
+      return values;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public String getFirst(String key)
+   {
+      List<String> values = get(key);
+      return values != null ? values.get(0) : null;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public boolean containsKey(Object key)
+   {
+      return get(key) != null;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   @Override
+   public Set<Map.Entry<String, List<String>>> entrySet()
+   {
+      if (all == null)
+      {
+         MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+         Enumeration<?> names = servletRequest.getHeaderNames();
+         while (names != null && names.hasMoreElements())
+         {
+            String name = (String)names.nextElement();
+            Enumeration<?> e = servletRequest.getHeaders(name);
+            while (e.hasMoreElements())
+               h.add(name, (String)e.nextElement());
+         }
+         all = new InputHeadersMap(h);
+         headers = null;
+      }
+      return all.entrySet();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void add(String key, String value)
+   {
+      throw new UnsupportedOperationException();
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void putSingle(String key, String value)
+   {
+      throw new UnsupportedOperationException();
+   }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.util;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * Pool of buffers for copying data between streams. Buffers are kept per
+ * thread in two tiers, {@link #SMALL_BUFFER_SIZE} and
+ * {@link #LARGE_BUFFER_SIZE}, so getting buffer does not need any
+ * synchronization. Each thread owns at most one buffer of each tier and kind
+ * and buffers are softly referenced, so pool never prevents garbage collector
+ * to free memory. If the same thread asks for buffer again before owned buffer
+ * is released new array is created, it is not pooled.
+ * <p>
+ * Buffer must be returned back to pool by the same thread when it is not used
+ * any more. Caller must not keep reference to buffer after that. Pool accepts
+ * back only buffers which it gives, any other arrays are ignored. Buffer which
+ * is not returned (e.g. because of exception) stays owned by thread, so thread
+ * gets new not pooled arrays until garbage collector clears lost buffer.
+ * </p>
+ *
+ * <pre>
+ * byte[] buf = BufferPool.getBytes(BufferPool.LARGE_BUFFER_SIZE);
+ * try
+ * {
+ *    ...
+ * }
+ * finally
+ * {
+ *    BufferPool.release(buf);
+ * }
+ * </pre>
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public final class BufferPool
+{
+
+   /** Size of small buffers. */
+   public static final int SMALL_BUFFER_SIZE = 8192;
+
+   /** Size of large buffers. Used for copying of streams. */
+   public static final int LARGE_BUFFER_SIZE = 65536;
+
+   /**
+    * Buffer owned by thread.
+    *
+    * @param <T> type of buffer
+    */
+   private static final class Slot<T>
+   {
+      /** Buffer of pool, <code>null</code> if not created yet. */
+      SoftReference<T> ref;
+
+      /** <code>true</code> if buffer is given to caller and not returned yet. */
+      boolean used;
+
+      /**
+       * @return buffer if it is free or <code>null</code> otherwise
+       */
+      T take()
+      {
+         if (used || ref == null)
+            return null;
+         T buf = ref.get();
+         if (buf != null)
+            used = true;
+         return buf;
+      }
+
+      /**
+       * @param buf new buffer created by pool, it becomes owned by this slot
+       * @return <code>buf</code>
+       */
+      T own(T buf)
+      {
+         // Previous buffer is collected or was not returned.
+         if (!used || ref == null || ref.get() == null)
+         {
+            ref = new SoftReference<T>(buf);
+            used = true;
+         }
+         return buf;
+      }
+
+      /**
+       * @param buf buffer to release
+       */
+      void release(T buf)
+      {
+         if (used && ref.get() == buf)
+            used = false;
+      }
+   }
+
+   private static final ThreadLocal<Slot<byte[]>> SMALL_BYTES = new ThreadLocal<Slot<byte[]>>();
+
+   private static final ThreadLocal<Slot<byte[]>> LARGE_BYTES = new ThreadLocal<Slot<byte[]>>();
+
+   private static final ThreadLocal<Slot<char[]>> SMALL_CHARS = new ThreadLocal<Slot<char[]>>();
+
+   private static final ThreadLocal<Slot<char[]>> LARGE_CHARS = new ThreadLocal<Slot<char[]>>();
+
+   private BufferPool()
+   {
+   }
+
+   private static <T> Slot<T> slot(ThreadLocal<Slot<T>> tier)
+   {
+      Slot<T> slot = tier.get();
+      if (slot == null)
+      {
+         slot = new Slot<T>();
+         tier.set(slot);
+      }
+      return slot;
+   }
+
+   /**
+    * Get byte buffer with length not less then <code>size</code>. If
+    * <code>size</code> is greater then {@link #LARGE_BUFFER_SIZE} then new
+    * array is created and it is not pooled.
+    *
+    * @param size min size of buffer
+    * @return byte buffer
+    */
+   public static byte[] getBytes(int size)
+   {
+      if (size > LARGE_BUFFER_SIZE)
+         return new byte[size];
+      boolean small = size <= SMALL_BUFFER_SIZE;
+      Slot<byte[]> slot = slot(small ? SMALL_BYTES : LARGE_BYTES);
+      byte[] buf = slot.take();
+      return buf != null ? buf : slot.own(new byte[small ? SMALL_BUFFER_SIZE : LARGE_BUFFER_SIZE]);
+   }
+
+   /**
+    * Return byte buffer to pool. Buffers which were not got from this pool by
+    * current thread are ignored.
+    *
+    * @param buf byte buffer
+    */
+   public static void release(byte[] buf)
+   {
+      Slot<byte[]> slot = null;
+      if (buf.length == SMALL_BUFFER_SIZE)
+         slot = SMALL_BYTES.get();
+      else if (buf.length == LARGE_BUFFER_SIZE)
+         slot = LARGE_BYTES.get();
+      if (slot != null)
+         slot.release(buf);
+   }
+
+   /**
+    * Get char buffer with length not less then <code>size</code>. If
+    * <code>size</code> is greater then {@link #LARGE_BUFFER_SIZE} then new
+    * array is created and it is not pooled.
+    *
+    * @param size min size of buffer
+    * @return char buffer
+    */
+   public static char[] getChars(int size)
+   {
+      if (size > LARGE_BUFFER_SIZE)
+         return new char[size];
+      boolean small = size <= SMALL_BUFFER_SIZE;
+      Slot<char[]> slot = slot(small ? SMALL_CHARS : LARGE_CHARS);
+      char[] buf = slot.take();
+      return buf != null ? buf : slot.own(new char[small ? SMALL_BUFFER_SIZE : LARGE_BUFFER_SIZE]);
+   }
+
+   /**
+    * Return char buffer to pool. Buffers which were not got from this pool by
+    * current thread are ignored.
+    *
+    * @param buf char buffer
+    */
+   public static void release(char[] buf)
+   {
+      Slot<char[]> slot = null;
+      if (buf.length == SMALL_BUFFER_SIZE)
+         slot = SMALL_CHARS.get();
+      else if (buf.length == LARGE_BUFFER_SIZE)
+         slot = LARGE_CHARS.get();
+      if (slot != null)
+         slot.release(buf);
+   }
+
+}
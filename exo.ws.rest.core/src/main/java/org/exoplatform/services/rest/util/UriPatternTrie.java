@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.util;
+
+import org.exoplatform.services.rest.uri.UriPattern;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routing index for {@link UriPattern}s. Each pattern is placed in a tree of
+ * path segments built from its normalized template: literal segments become
+ * keyed children and segments which consist of single template variable
+ * without custom regular expression (e.g. <code>{id}</code>) become wildcard
+ * children. Walking the tree for a request path gives the set of patterns
+ * which may match that path, cost of lookup depends on length of path but not
+ * on number of patterns in the tree. Candidates must still be checked with
+ * {@link UriPattern#match(String, List)}, tree only drops patterns which can't
+ * match.
+ * <p>
+ * Values must be added in order of their precedence (e.g. sorted by
+ * {@link UriPattern#URIPATTERN_COMPARATOR}), method
+ * {@link #getCandidates(String)} keeps that order. Tree is not synchronized,
+ * it is expected to be filled once and then used only for reading.
+ * </p>
+ *
+ * @param <V> type of values mapped to patterns
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class UriPatternTrie<V>
+{
+
+   /**
+    * Characters which have special meaning in regular expression and are not
+    * escaped by {@link org.exoplatform.services.rest.uri.UriTemplateParser}.
+    * Segment which contains any of them may not be compared as plain string.
+    */
+   private static final String REGEX_CHARACTERS = "*+$[]^|\\{}";
+
+   private static final Comparator<Entry<?>> RANK_COMPARATOR = new Comparator<Entry<?>>()
+   {
+      public int compare(Entry<?> o1, Entry<?> o2)
+      {
+         return o1.rank < o2.rank ? -1 : (o1.rank == o2.rank ? 0 : 1);
+      }
+   };
+
+   private static final class Entry<V>
+   {
+      final V value;
+
+      final int rank;
+
+      Entry(V value, int rank)
+      {
+         this.value = value;
+         this.rank = rank;
+      }
+   }
+
+   private static final class Node<V>
+   {
+      /** Children of node mapped to literal segments. */
+      Map<String, Node<V>> children;
+
+      /** Child for segment which is single template variable. */
+      Node<V> wildcard;
+
+      /** Values of patterns which end at this node. */
+      List<Entry<V>> entries;
+
+      Node<V> child(String segment)
+      {
+         if (children == null)
+            children = new HashMap<String, Node<V>>();
+         Node<V> child = children.get(segment);
+         if (child == null)
+         {
+            child = new Node<V>();
+            children.put(segment, child);
+         }
+         return child;
+      }
+
+      Node<V> wildcard()
+      {
+         if (wildcard == null)
+            wildcard = new Node<V>();
+         return wildcard;
+      }
+
+      void add(Entry<V> entry)
+      {
+         if (entries == null)
+            entries = new ArrayList<Entry<V>>(2);
+         entries.add(entry);
+      }
+   }
+
+   /** Root of tree. */
+   private final Node<V> root = new Node<V>();
+
+   /** Number of values in tree. */
+   private int size;
+
+   /**
+    * Add new value in tree. Value added later has lower priority then values
+    * added before.
+    *
+    * @param pattern URI pattern
+    * @param value value
+    */
+   public void add(UriPattern pattern, V value)
+   {
+      Node<V> node = root;
+      String template = pattern.getTemplate();
+      int length = template.length();
+      int p = (length > 0 && template.charAt(0) == '/') ? 1 : 0;
+      while (p < length)
+      {
+         int end = template.indexOf('/', p);
+         int brace = template.indexOf('{', p);
+         if (brace != -1 && (end == -1 || brace < end))
+         {
+            // Segment contains template variable. Go to wildcard node only if
+            // segment is variable without custom regular expression. Otherwise
+            // stop here, regular expression may match more then one segment.
+            int close = template.indexOf('}', brace);
+            if (brace != p || close == -1 || !(close + 1 == length || template.charAt(close + 1) == '/'))
+               break;
+            node = node.wildcard();
+         }
+         else
+         {
+            if (end == -1)
+               end = length;
+            String segment = template.substring(p, end);
+            if (!isLiteral(segment))
+               break;
+            node = node.child(segment);
+            // Trailing '/' is not part of regular expression, see UriPattern.
+            if (end == length - 1)
+               break;
+         }
+         p = template.indexOf('/', p);
+         if (p == -1)
+            break;
+         p++;
+      }
+      node.add(new Entry<V>(value, size++));
+   }
+
+   /**
+    * Get values which patterns may match to specified path. Values are sorted
+    * in order they were added.
+    *
+    * @param path request path
+    * @return candidates or empty list if there is no any
+    */
+   public List<V> getCandidates(String path)
+   {
+      List<Entry<V>> found = new ArrayList<Entry<V>>();
+      if (root.entries != null)
+         found.addAll(root.entries);
+      if (path != null && path.length() > 0 && path.charAt(0) == '/')
+         collect(root, path, 1, found);
+      if (found.isEmpty())
+         return Collections.emptyList();
+      if (found.size() > 1)
+         Collections.sort(found, RANK_COMPARATOR);
+      List<V> candidates = new ArrayList<V>(found.size());
+      for (Entry<V> e : found)
+         candidates.add(e.value);
+      return candidates;
+   }
+
+   /**
+    * @return number of values in tree
+    */
+   public int size()
+   {
+      return size;
+   }
+
+   private void collect(Node<V> node, String path, int start, List<Entry<V>> found)
+   {
+      int end = path.indexOf('/', start);
+      if (end == -1)
+         end = path.length();
+      if (node.children != null)
+      {
+         Node<V> child = node.children.get(path.substring(start, end));
+         if (child != null)
+            visit(child, path, end, found);
+      }
+      if (node.wildcard != null && end > start)
+         visit(node.wildcard, path, end, found);
+   }
+
+   private void visit(Node<V> node, String path, int end, List<Entry<V>> found)
+   {
+      if (node.entries != null)
+         found.addAll(node.entries);
+      if (end < path.length())
+         collect(node, path, end + 1, found);
+   }
+
+   private static boolean isLiteral(String segment)
+   {
+      for (int i = 0; i < segment.length(); i++)
+      {
+         if (REGEX_CHARACTERS.indexOf(segment.charAt(i)) != -1)
+            return false;
+      }
+      return true;
+   }
+
+}
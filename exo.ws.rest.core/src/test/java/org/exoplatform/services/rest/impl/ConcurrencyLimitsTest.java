@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl;
+
+import org.exoplatform.services.rest.BaseTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class ConcurrencyLimitsTest extends BaseTest
+{
+
+   @Path("a")
+   public static class Resource1
+   {
+      static CountDownLatch entered;
+
+      static CountDownLatch release;
+
+      @GET
+      @Path("slow")
+      public String slow() throws Exception
+      {
+         entered.countDown();
+         release.await(5, TimeUnit.SECONDS);
+         return "slow";
+      }
+
+      @GET
+      @Path("fast")
+      public String fast()
+      {
+         return "fast";
+      }
+   }
+
+   public void tearDown() throws Exception
+   {
+      unregistry(Resource1.class);
+      super.tearDown();
+   }
+
+   public void testResourceLimit() throws Exception
+   {
+      MultivaluedMap<String, String> properties = new MultivaluedMapImpl();
+      properties.putSingle(ResourceBinder.RESOURCE_MAX_CONCURRENT, "1");
+      binder.addResource(Resource1.class, properties);
+      Request slow = startSlowRequest();
+      try
+      {
+         assertEquals(503, launcher.service("GET", "/a/fast", "", null, null, null).getStatus());
+      }
+      finally
+      {
+         Resource1.release.countDown();
+      }
+      assertEquals(200, slow.getStatus());
+      assertEquals(200, launcher.service("GET", "/a/fast", "", null, null, null).getStatus());
+   }
+
+   public void testMethodLimit() throws Exception
+   {
+      MultivaluedMap<String, String> properties = new MultivaluedMapImpl();
+      properties.putSingle(ResourceBinder.RESOURCE_MAX_CONCURRENT + ".slow", "1");
+      binder.addResource(Resource1.class, properties);
+      Request slow = startSlowRequest();
+      try
+      {
+         // Other methods are not limited.
+         assertEquals(200, launcher.service("GET", "/a/fast", "", null, null, null).getStatus());
+         assertEquals(503, launcher.service("GET", "/a/slow", "", null, null, null).getStatus());
+      }
+      finally
+      {
+         Resource1.release.countDown();
+      }
+      assertEquals(200, slow.getStatus());
+   }
+
+   public void testQueue() throws Exception
+   {
+      MultivaluedMap<String, String> properties = new MultivaluedMapImpl();
+      properties.putSingle(ResourceBinder.RESOURCE_MAX_CONCURRENT, "1");
+      properties.putSingle(ResourceBinder.RESOURCE_MAX_QUEUED, "1");
+      binder.addResource(Resource1.class, properties);
+      Request slow = startSlowRequest();
+      Request queued = new Request("/a/fast");
+      try
+      {
+         queued.start();
+         // Waits in queue with default timeout.
+         queued.join(200);
+         assertTrue(queued.isAlive());
+      }
+      finally
+      {
+         Resource1.release.countDown();
+      }
+      assertEquals(200, slow.getStatus());
+      assertEquals(200, queued.getStatus());
+   }
+
+   public void testQueueTimeout() throws Exception
+   {
+      MultivaluedMap<String, String> properties = new MultivaluedMapImpl();
+      properties.putSingle(ResourceBinder.RESOURCE_MAX_CONCURRENT, "1");
+      properties.putSingle(ResourceBinder.RESOURCE_MAX_QUEUED, "1");
+      properties.putSingle(ResourceBinder.RESOURCE_QUEUE_TIMEOUT, "100");
+      binder.addResource(Resource1.class, properties);
+      Request slow = startSlowRequest();
+      try
+      {
+         assertEquals(503, launcher.service("GET", "/a/fast", "", null, null, null).getStatus());
+      }
+      finally
+      {
+         Resource1.release.countDown();
+      }
+      assertEquals(200, slow.getStatus());
+   }
+
+   public void testMethodQueueDoesNotKeepResourceSlot() throws Exception
+   {
+      MultivaluedMap<String, String> properties = new MultivaluedMapImpl();
+      properties.putSingle(ResourceBinder.RESOURCE_MAX_CONCURRENT, "2");
+      properties.putSingle(ResourceBinder.RESOURCE_MAX_CONCURRENT + ".slow", "1");
+      properties.putSingle(ResourceBinder.RESOURCE_MAX_QUEUED + ".slow", "1");
+      binder.addResource(Resource1.class, properties);
+      Request slow = startSlowRequest();
+      Request queued = new Request("/a/slow");
+      try
+      {
+         queued.start();
+         queued.join(200);
+         assertTrue(queued.isAlive());
+         // The second slot of resource is free while request waits for method.
+         assertEquals(200, launcher.service("GET", "/a/fast", "", null, null, null).getStatus());
+      }
+      finally
+      {
+         Resource1.release.countDown();
+      }
+      assertEquals(200, slow.getStatus());
+      assertEquals(200, queued.getStatus());
+   }
+
+   private Request startSlowRequest() throws Exception
+   {
+      Resource1.entered = new CountDownLatch(1);
+      Resource1.release = new CountDownLatch(1);
+      Request slow = new Request("/a/slow");
+      slow.start();
+      assertTrue(Resource1.entered.await(5, TimeUnit.SECONDS));
+      return slow;
+   }
+
+   private class Request extends Thread
+   {
+      private final String path;
+
+      private volatile int status;
+
+      private volatile Exception error;
+
+      Request(String path)
+      {
+         this.path = path;
+      }
+
+      public void run()
+      {
+         try
+         {
+            status = launcher.service("GET", path, "", null, null, null).getStatus();
+         }
+         catch (Exception e)
+         {
+            error = e;
+         }
+      }
+
+      /**
+       * Wait for response.
+       *
+       * @return status of response
+       * @throws Exception if request failed
+       */
+      int getStatus() throws Exception
+      {
+         join(10000);
+         assertFalse("Request " + path + " is not completed", isAlive());
+         if (error != null)
+            throw error;
+         return status;
+      }
+   }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl;
+
+import org.exoplatform.services.rest.BaseTest;
+import org.exoplatform.services.rest.RequestHandler;
+import org.exoplatform.services.rest.tools.ByteArrayContainerResponseWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class ContentEncodingTest extends BaseTest
+{
+
+   private static final String LARGE;
+
+   static
+   {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 1000; i++)
+         sb.append("compressed entity ");
+      LARGE = sb.toString();
+   }
+
+   @Path("a")
+   public static class Resource1
+   {
+      @GET
+      @Path("large")
+      @Produces("text/plain")
+      public String m0()
+      {
+         return LARGE;
+      }
+
+      @GET
+      @Path("small")
+      @Produces("text/plain")
+      public String m1()
+      {
+         return "small";
+      }
+
+      @POST
+      @Produces("text/plain")
+      public String m2(String body)
+      {
+         return body;
+      }
+
+      @GET
+      @Path("tag")
+      @Produces("text/plain")
+      public Response m3(@QueryParam("weak") boolean weak)
+      {
+         return Response.ok(LARGE).tag(new EntityTag("abc", weak)).build();
+      }
+   }
+
+   private Resource1 resource;
+
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      resource = new Resource1();
+      registry(resource);
+      RequestHandlerImpl.setProperty(RequestHandler.WS_RS_COMPRESSION, "true");
+   }
+
+   public void tearDown() throws Exception
+   {
+      RequestHandlerImpl.setProperty(RequestHandler.WS_RS_COMPRESSION, null);
+      RequestHandlerImpl.setProperty(RequestHandler.WS_RS_COMPRESSION_MAX_DECODED_SIZE, null);
+      unregistry(resource);
+      super.tearDown();
+   }
+
+   public void testCompressResponse() throws Exception
+   {
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("Accept-Encoding", "deflate;q=0.5, gzip");
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service("GET", "/a/large", "", h, null, writer, null);
+      assertEquals(200, response.getStatus());
+      assertEquals("gzip", response.getHttpHeaders().getFirst("Content-Encoding"));
+      assertEquals("Accept-Encoding", response.getHttpHeaders().getFirst("Vary"));
+      assertNull(response.getHttpHeaders().getFirst("Content-Length"));
+      assertTrue(writer.getBody().length < LARGE.length());
+      assertEquals(LARGE, new String(gunzip(writer.getBody())));
+
+      writer = new ByteArrayContainerResponseWriter();
+      response = launcher.service("GET", "/a/small", "", h, null, writer, null);
+      assertNull(response.getHttpHeaders().getFirst("Content-Encoding"));
+      assertEquals("small", new String(writer.getBody()));
+   }
+
+   public void testNotAccepted() throws Exception
+   {
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("Accept-Encoding", "gzip;q=0, identity");
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service("GET", "/a/large", "", h, null, writer, null);
+      assertNull(response.getHttpHeaders().getFirst("Content-Encoding"));
+      assertEquals(LARGE, new String(writer.getBody()));
+   }
+
+   public void testDecodeRequest() throws Exception
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      GZIPOutputStream zip = new GZIPOutputStream(bytes);
+      zip.write(LARGE.getBytes());
+      zip.close();
+      byte[] data = bytes.toByteArray();
+
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("Content-Type", "text/plain");
+      h.putSingle("Content-Encoding", "gzip");
+      h.putSingle("Content-Length", Integer.toString(data.length));
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service("POST", "/a", "", h, data, writer, null);
+      assertEquals(200, response.getStatus());
+      assertEquals(LARGE, new String(writer.getBody()));
+
+      h.putSingle("Content-Encoding", "compress");
+      response = launcher.service("POST", "/a", "", h, data, null);
+      assertEquals(415, response.getStatus());
+   }
+
+   public void testDisabledByDefault() throws Exception
+   {
+      RequestHandlerImpl.setProperty(RequestHandler.WS_RS_COMPRESSION, null);
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("Accept-Encoding", "gzip");
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service("GET", "/a/large", "", h, null, writer, null);
+      assertNull(response.getHttpHeaders().getFirst("Content-Encoding"));
+      assertEquals(LARGE, new String(writer.getBody()));
+
+      // Entity of request is passed to resource as is.
+      byte[] data = gzip(LARGE.getBytes());
+      h = new MultivaluedMapImpl();
+      h.putSingle("Content-Type", "text/plain");
+      h.putSingle("Content-Encoding", "gzip");
+      writer = new ByteArrayContainerResponseWriter();
+      response = launcher.service("POST", "/a", "", h, data, writer, null);
+      assertEquals(200, response.getStatus());
+      assertFalse(LARGE.equals(new String(writer.getBody())));
+   }
+
+   public void testEntityTag() throws Exception
+   {
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("Accept-Encoding", "gzip");
+      ContainerResponse response = launcher.service("GET", "/a/tag", "", h, null, null);
+      assertEquals("gzip", response.getHttpHeaders().getFirst("Content-Encoding"));
+      assertEquals(new EntityTag("abc-gzip"), response.getHttpHeaders().getFirst("ETag"));
+
+      response = launcher.service("GET", "/a/tag?weak=true", "", h, null, null);
+      assertEquals("gzip", response.getHttpHeaders().getFirst("Content-Encoding"));
+      assertEquals(new EntityTag("abc", true), response.getHttpHeaders().getFirst("ETag"));
+   }
+
+   public void testMaxDecodedSize() throws Exception
+   {
+      RequestHandlerImpl.setProperty(RequestHandler.WS_RS_COMPRESSION_MAX_DECODED_SIZE, "1024");
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("Content-Type", "text/plain");
+      h.putSingle("Content-Encoding", "gzip");
+      ContainerResponse response = launcher.service("POST", "/a", "", h, gzip(LARGE.getBytes()), null);
+      assertEquals(413, response.getStatus());
+   }
+
+   private static byte[] gzip(byte[] data) throws Exception
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      GZIPOutputStream zip = new GZIPOutputStream(bytes);
+      zip.write(data);
+      zip.close();
+      return bytes.toByteArray();
+   }
+
+   private static byte[] gunzip(byte[] data) throws Exception
+   {
+      GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buf = new byte[1024];
+      int r;
+      while ((r = in.read(buf)) != -1)
+         out.write(buf, 0, r);
+      return out.toByteArray();
+   }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl;
+
+import org.exoplatform.services.rest.AsyncContainerResponseWriter;
+import org.exoplatform.services.rest.BaseTest;
+import org.exoplatform.services.rest.DeferredResult;
+import org.exoplatform.services.rest.Filter;
+import org.exoplatform.services.rest.GenericContainerResponse;
+import org.exoplatform.services.rest.RequestHandler;
+import org.exoplatform.services.rest.ResponseFilter;
+import org.exoplatform.services.rest.tools.ByteArrayContainerResponseWriter;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Application;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class DeferredResultTest extends BaseTest
+{
+
+   @Path("a")
+   public static class Resource1
+   {
+      static DeferredResult last;
+
+      @GET
+      @Path("0")
+      @Produces("text/plain")
+      public DeferredResult m0()
+      {
+         final DeferredResult result = new DeferredResult();
+         new Thread()
+         {
+            public void run()
+            {
+               try
+               {
+                  Thread.sleep(100);
+               }
+               catch (InterruptedException e)
+               {
+               }
+               result.setResult("deferred");
+            }
+         }.start();
+         return result;
+      }
+
+      @GET
+      @Path("1")
+      public DeferredResult m1()
+      {
+         return new DeferredResult(100);
+      }
+
+      @GET
+      @Path("2")
+      @Produces("text/plain")
+      public DeferredResult m2()
+      {
+         last = new DeferredResult();
+         return last;
+      }
+   }
+
+   @Path("b")
+   public static class Resource2
+   {
+      static DeferredResult last;
+
+      @GET
+      @Path("0")
+      @Produces("text/plain")
+      public DeferredResult m0()
+      {
+         final DeferredResult result = new DeferredResult();
+         new Thread()
+         {
+            public void run()
+            {
+               try
+               {
+                  Thread.sleep(100);
+               }
+               catch (InterruptedException e)
+               {
+               }
+               result.setResult("deferred");
+            }
+         }.start();
+         return result;
+      }
+
+      @GET
+      @Path("1")
+      @Produces("text/plain")
+      public DeferredResult m1()
+      {
+         last = new DeferredResult();
+         return last;
+      }
+   }
+
+   @Filter
+   public static class ResponseFilter1 implements ResponseFilter
+   {
+      static volatile Object entity;
+
+      public void doFilter(GenericContainerResponse response)
+      {
+         entity = response.getEntity();
+         response.getHttpHeaders().putSingle("x-filtered", entity);
+      }
+   }
+
+   public static class Application1 extends Application
+   {
+      @Override
+      public Set<Class<?>> getClasses()
+      {
+         return Collections.<Class<?>> singleton(Resource2.class);
+      }
+
+      @Override
+      public Set<Object> getSingletons()
+      {
+         return Collections.<Object> singleton(new ResponseFilter1());
+      }
+   }
+
+   private static class AsyncWriter extends ByteArrayContainerResponseWriter implements AsyncContainerResponseWriter
+   {
+      boolean suspended;
+
+      boolean completed;
+
+      public void suspend(long timeout, Runnable timeoutHandler)
+      {
+         suspended = true;
+      }
+
+      public void resume(Runnable task)
+      {
+         task.run();
+         completed = true;
+      }
+   }
+
+   private Resource1 resource;
+
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      resource = new Resource1();
+      registry(resource);
+   }
+
+   public void tearDown() throws Exception
+   {
+      unregistry(resource);
+      super.tearDown();
+   }
+
+   public void testWaitForResult() throws Exception
+   {
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service("GET", "/a/0", "", null, null, writer, null);
+      assertEquals(200, response.getStatus());
+      assertEquals("deferred", new String(writer.getBody()));
+   }
+
+   public void testTimeout() throws Exception
+   {
+      ContainerResponse response = launcher.service("GET", "/a/1", "", null, null, null);
+      assertEquals(503, response.getStatus());
+   }
+
+   public void testTimeoutDefinedByConnector() throws Exception
+   {
+      // Connector does not support asynchronous processing.
+      RequestHandlerImpl.setProperty(RequestHandler.WS_RS_ASYNC_TIMEOUT, "100");
+      try
+      {
+         ContainerResponse response = launcher.service("GET", "/a/2", "", null, null, null);
+         assertEquals(503, response.getStatus());
+         assertTrue(Resource1.last.isCancelled());
+      }
+      finally
+      {
+         RequestHandlerImpl.setProperty(RequestHandler.WS_RS_ASYNC_TIMEOUT, null);
+      }
+   }
+
+   public void testSuspend() throws Exception
+   {
+      AsyncWriter writer = new AsyncWriter();
+      launcher.service("GET", "/a/2", "", null, null, writer, null);
+      assertTrue(writer.suspended);
+      assertFalse(writer.completed);
+      assertNull(writer.getBody());
+
+      Resource1.last.setResult("resumed");
+      assertTrue(writer.completed);
+      assertEquals("resumed", new String(writer.getBody()));
+   }
+
+   public void testApplicationResponseFilter() throws Exception
+   {
+      applicationRegistry.addApplication(new Application1());
+      ResponseFilter1.entity = null;
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service("GET", "/b/0", "", null, null, writer, null);
+      assertEquals(200, response.getStatus());
+      assertEquals("deferred", new String(writer.getBody()));
+      // Filter must see result of DeferredResult, not response of resource method.
+      assertEquals("deferred", ResponseFilter1.entity);
+      assertEquals("deferred", writer.getHeaders().getFirst("x-filtered"));
+   }
+
+   public void testApplicationResponseFilterSuspended() throws Exception
+   {
+      applicationRegistry.addApplication(new Application1());
+      ResponseFilter1.entity = null;
+      AsyncWriter writer = new AsyncWriter();
+      launcher.service("GET", "/b/1", "", null, null, writer, null);
+      assertTrue(writer.suspended);
+      // Filters are not applied until result is set.
+      assertNull(ResponseFilter1.entity);
+
+      Resource2.last.setResult("resumed");
+      assertTrue(writer.completed);
+      assertEquals("resumed", new String(writer.getBody()));
+      assertEquals("resumed", ResponseFilter1.entity);
+      assertEquals("resumed", writer.getHeaders().getFirst("x-filtered"));
+   }
+
+}
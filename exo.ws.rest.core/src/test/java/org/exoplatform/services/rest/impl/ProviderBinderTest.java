@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl;
+
+import org.exoplatform.services.rest.BaseTest;
+import org.exoplatform.services.rest.Filter;
+import org.exoplatform.services.rest.FilterDescriptor;
+import org.exoplatform.services.rest.GenericContainerRequest;
+import org.exoplatform.services.rest.ObjectFactory;
+import org.exoplatform.services.rest.RequestFilter;
+import org.exoplatform.services.rest.provider.UncachedLookup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class ProviderBinderTest extends BaseTest
+{
+
+   @Retention(RetentionPolicy.RUNTIME)
+   public static @interface Marker
+   {
+   }
+
+   public static class Entity
+   {
+   }
+
+   public static class OtherEntity
+   {
+   }
+
+   @Marker
+   public static class Annotated
+   {
+   }
+
+   public static abstract class CountingWriter implements MessageBodyWriter<Object>
+   {
+      int checks;
+
+      public long getSize(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+      {
+         return -1;
+      }
+
+      public void writeTo(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+         MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException
+      {
+      }
+   }
+
+   @Provider
+   @Produces("text/x-test")
+   public static class EntityWriter extends CountingWriter
+   {
+      public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+      {
+         checks++;
+         return type == Entity.class;
+      }
+   }
+
+   @Provider
+   @Produces("text/x-test")
+   public static class OtherEntityWriter extends CountingWriter
+   {
+      public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+      {
+         checks++;
+         return type == OtherEntity.class;
+      }
+   }
+
+   @Provider
+   @Produces("text/x-test")
+   public static class MarkerWriter extends CountingWriter
+   {
+      public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+      {
+         checks++;
+         if (annotations != null)
+         {
+            for (Annotation a : annotations)
+            {
+               if (a.annotationType() == Marker.class)
+                  return true;
+            }
+         }
+         return false;
+      }
+   }
+
+   @Provider
+   @Produces("text/x-test")
+   @UncachedLookup
+   public static class UncachedWriter extends CountingWriter
+   {
+      public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType)
+      {
+         checks++;
+         return type == Entity.class;
+      }
+   }
+
+   @Path("a")
+   public static class Resource1
+   {
+      @GET
+      @Produces("text/x-test")
+      public Entity m0()
+      {
+         return new Entity();
+      }
+   }
+
+   @Filter
+   public static class AnyPathFilter implements RequestFilter
+   {
+      public void doFilter(GenericContainerRequest request)
+      {
+      }
+   }
+
+   @Filter
+   @Path("a/{x:.*}")
+   public static class PathFilter implements RequestFilter
+   {
+      public void doFilter(GenericContainerRequest request)
+      {
+      }
+   }
+
+   private static final MediaType TEST_TYPE = new MediaType("text", "x-test");
+
+   public void testRememberWriter() throws Exception
+   {
+      EntityWriter writer = new EntityWriter();
+      providers.addMessageBodyWriter(writer);
+      assertSame(writer, providers.getMessageBodyWriter(Entity.class, Entity.class, null, TEST_TYPE));
+      int checks = writer.checks;
+      assertSame(writer, providers.getMessageBodyWriter(Entity.class, Entity.class, null, TEST_TYPE));
+      // media type parameters are not part of key
+      MediaType withCharset = new MediaType("text", "x-test", Collections.singletonMap("charset", "UTF-8"));
+      assertSame(writer, providers.getMessageBodyWriter(Entity.class, Entity.class, null, withCharset));
+      assertEquals(checks, writer.checks);
+   }
+
+   public void testForgetWhenWriterAdded() throws Exception
+   {
+      assertNull(providers.getMessageBodyWriter(OtherEntity.class, OtherEntity.class, null, TEST_TYPE));
+      OtherEntityWriter writer = new OtherEntityWriter();
+      providers.addMessageBodyWriter(writer);
+      assertSame(writer, providers.getMessageBodyWriter(OtherEntity.class, OtherEntity.class, null, TEST_TYPE));
+   }
+
+   public void testAnnotationsArePartOfKey() throws Exception
+   {
+      MarkerWriter writer = new MarkerWriter();
+      providers.addMessageBodyWriter(writer);
+      Annotation[] marked = Annotated.class.getAnnotations();
+      Annotation[] notMarked = new Annotation[0];
+      assertSame(writer, providers.getMessageBodyWriter(Entity.class, Entity.class, marked, TEST_TYPE));
+      assertNull(providers.getMessageBodyWriter(Entity.class, Entity.class, notMarked, TEST_TYPE));
+      // equal but not the same array
+      assertSame(writer, providers.getMessageBodyWriter(Entity.class, Entity.class,
+         Annotated.class.getAnnotations().clone(), TEST_TYPE));
+   }
+
+   public void testUncachedLookup() throws Exception
+   {
+      UncachedWriter writer = new UncachedWriter();
+      providers.addMessageBodyWriter(writer);
+      assertSame(writer, providers.getMessageBodyWriter(Entity.class, Entity.class, null, TEST_TYPE));
+      int checks = writer.checks;
+      assertSame(writer, providers.getMessageBodyWriter(Entity.class, Entity.class, null, TEST_TYPE));
+      assertTrue(writer.checks > checks);
+   }
+
+   public void testForgetWhenResourceRemoved() throws Exception
+   {
+      EntityWriter writer = new EntityWriter();
+      providers.addMessageBodyWriter(writer);
+      registry(Resource1.class);
+      assertSame(writer, providers.getMessageBodyWriter(Entity.class, Entity.class, null, TEST_TYPE));
+      int checks = writer.checks;
+      unregistry(Resource1.class);
+      // Key of remembered writer must not refer to types of removed resource.
+      assertSame(writer, providers.getMessageBodyWriter(Entity.class, Entity.class, null, TEST_TYPE));
+      assertTrue(writer.checks > checks);
+   }
+
+   public void testMatchedFilters() throws Exception
+   {
+      int anyPath = providers.getRequestFilters("/b").size();
+      int aPath = providers.getRequestFilters("/a/b").size();
+      providers.addRequestFilter(new AnyPathFilter());
+      providers.addRequestFilter(new PathFilter());
+      assertEquals(anyPath + 1, providers.getRequestFilters("/b").size());
+      assertEquals(aPath + 2, providers.getRequestFilters("/a/b").size());
+   }
+
+   public void testMatchedFiltersOfManyPaths() throws Exception
+   {
+      int anyPath = providers.getRequestFilters("/b").size();
+      providers.addRequestFilter(new PathFilter());
+      // More paths than filters are remembered for.
+      for (int i = 0; i < 3000; i++)
+      {
+         assertEquals(anyPath + 1, providers.getRequestFilters("/a/" + i).size());
+         assertEquals(anyPath, providers.getRequestFilters("/b/" + i).size());
+      }
+   }
+
+   public void testFiltersListIsModifiable() throws Exception
+   {
+      providers.addRequestFilter(new AnyPathFilter());
+      providers.addRequestFilter(new PathFilter());
+      for (String path : new String[]{"/b", "/a/b"})
+      {
+         List<ObjectFactory<FilterDescriptor>> filters = providers.getRequestFilters(path);
+         int size = filters.size();
+         filters.clear();
+         // list is owned by caller, prepared filters must stay untouched
+         assertEquals(size, providers.getRequestFilters(path).size());
+      }
+   }
+
+   public void testConcurrentlyAddedFilters() throws Exception
+   {
+      final int anyPath = providers.getRequestFilters("/b").size();
+      final int aPath = providers.getRequestFilters("/a/b").size();
+      final int threadsNum = 4;
+      final int filtersNum = 100;
+      final Throwable[] errors = new Throwable[threadsNum];
+      Thread[] threads = new Thread[threadsNum];
+      for (int i = 0; i < threadsNum; i++)
+      {
+         final int n = i;
+         threads[i] = new Thread()
+         {
+            public void run()
+            {
+               try
+               {
+                  for (int j = 0; j < filtersNum; j++)
+                  {
+                     providers.addRequestFilter(new AnyPathFilter());
+                     providers.addRequestFilter(new PathFilter());
+                     providers.getRequestFilters("/a/b");
+                  }
+               }
+               catch (Throwable e)
+               {
+                  errors[n] = e;
+               }
+            }
+         };
+      }
+      for (Thread t : threads)
+         t.start();
+      for (Thread t : threads)
+         t.join();
+      for (Throwable e : errors)
+      {
+         if (e != null)
+            fail(e.toString());
+      }
+      // No one filter may be lost even if chain was rebuilt in other thread at the same time.
+      assertEquals(anyPath + threadsNum * filtersNum, providers.getRequestFilters("/b").size());
+      assertEquals(aPath + 2 * threadsNum * filtersNum, providers.getRequestFilters("/a/b").size());
+   }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl;
+
+import junit.framework.TestCase;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class RequestPropertiesTest extends TestCase
+{
+
+   private Map<String, String> defaults;
+
+   private RequestProperties properties;
+
+   @Override
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      defaults = new HashMap<String, String>();
+      defaults.put("a", "1");
+      defaults.put("b", "2");
+      properties = new RequestProperties(defaults);
+   }
+
+   public void testReadThrough()
+   {
+      assertEquals("1", properties.get("a"));
+      assertEquals(2, properties.size());
+      defaults.put("c", "3");
+      assertEquals("3", properties.get("c"));
+   }
+
+   public void testUpdateDoesNotAffectDefaults()
+   {
+      assertEquals("1", properties.put("a", "x"));
+      assertEquals("2", properties.remove("b"));
+      properties.put("d", "4");
+      assertEquals("x", properties.get("a"));
+      assertNull(properties.get("b"));
+      assertFalse(properties.containsKey("b"));
+      assertEquals(2, properties.size());
+      assertEquals("1", defaults.get("a"));
+      assertEquals("2", defaults.get("b"));
+      assertNull(defaults.get("d"));
+
+      properties.clear();
+      assertTrue(properties.isEmpty());
+      assertEquals(2, defaults.size());
+   }
+
+   public void testNullValue()
+   {
+      assertEquals("1", properties.put("a", null));
+      // property with null value is not removed
+      assertTrue(properties.containsKey("a"));
+      assertNull(properties.get("a"));
+      assertEquals(2, properties.size());
+      assertTrue(properties.entrySet().contains(new AbstractMap.SimpleEntry<String, String>("a", null)));
+
+      assertNull(properties.remove("a"));
+      assertFalse(properties.containsKey("a"));
+      assertEquals(1, properties.size());
+
+      properties.put("c", null);
+      assertTrue(properties.containsKey("c"));
+      assertEquals(2, properties.size());
+      assertEquals("1", defaults.get("a"));
+   }
+
+}
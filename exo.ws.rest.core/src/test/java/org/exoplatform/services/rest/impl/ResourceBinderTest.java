@@ -19,6 +19,12 @@
 package org.exoplatform.services.rest.impl;
 
 import org.exoplatform.services.rest.BaseTest;
+import org.exoplatform.services.rest.ObjectFactory;
+import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -56,6 +62,77 @@ public class ResourceBinderTest extends BaseTest
       assertEquals(0, binder.getSize());
    }
 
+   public void testSnapshot()
+   {
+      List<ObjectFactory<AbstractResourceDescriptor>> before = binder.getResources();
+      binder.addResource(Resource.class, null);
+      assertEquals(0, before.size());
+      List<ObjectFactory<AbstractResourceDescriptor>> after = binder.getResources();
+      assertEquals(1, after.size());
+      try
+      {
+         after.clear();
+         fail("Snapshot of resources must be unmodifiable.");
+      }
+      catch (UnsupportedOperationException e)
+      {
+      }
+      binder.removeResource(Resource.class);
+      assertEquals(1, after.size());
+      assertEquals(0, binder.getSize());
+   }
+
+   public void testListenerEventsOrder() throws Exception
+   {
+      final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+      binder.addResourceListener(new ResourceListener()
+      {
+         public void resourceAdded(AbstractResourceDescriptor resource)
+         {
+            events.add("added");
+         }
+
+         public void resourceRemoved(AbstractResourceDescriptor resource)
+         {
+            events.add("removed");
+         }
+      });
+      Thread[] threads = new Thread[4];
+      for (int i = 0; i < threads.length; i++)
+      {
+         threads[i] = new Thread()
+         {
+            public void run()
+            {
+               for (int j = 0; j < 200; j++)
+               {
+                  try
+                  {
+                     binder.addResource(Resource.class, null);
+                  }
+                  catch (ResourcePublicationException e)
+                  {
+                     // Added by other thread.
+                  }
+                  binder.removeResource(Resource.class);
+               }
+            }
+         };
+         threads[i].start();
+      }
+      for (Thread t : threads)
+      {
+         t.join();
+      }
+      assertEquals(0, binder.getSize());
+      assertEquals(0, events.size() % 2);
+      // Resource with the same URI pattern may be bound only once, so events must alternate.
+      for (int i = 0; i < events.size(); i++)
+      {
+         assertEquals("Event " + i, i % 2 == 0 ? "added" : "removed", events.get(i));
+      }
+   }
+
    @Path("/a/b/{c}")
    public static class Resource
    {
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl;
+
+import org.exoplatform.services.rest.BaseTest;
+import org.exoplatform.services.rest.Cacheable;
+import org.exoplatform.services.rest.Filter;
+import org.exoplatform.services.rest.method.MethodInvokerFilter;
+import org.exoplatform.services.rest.resource.GenericMethodResource;
+import org.exoplatform.services.rest.tools.ByteArrayContainerResponseWriter;
+import org.exoplatform.services.rest.tools.DummySecurityContext;
+
+import java.security.Principal;
+import java.util.Collections;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class ResponseCacheTest extends BaseTest
+{
+
+   @Path("a")
+   public static class Resource1
+   {
+      int invocations;
+
+      @GET
+      @Cacheable
+      @Produces("text/plain")
+      public String m0()
+      {
+         return "cached" + (++invocations);
+      }
+
+      @PUT
+      public void m1()
+      {
+      }
+
+      @GET
+      @Path("b")
+      @Cacheable
+      @Produces("text/plain")
+      public Response m2()
+      {
+         CacheControl cc = new CacheControl();
+         cc.setNoStore(true);
+         return Response.ok("not cached" + (++invocations)).cacheControl(cc).build();
+      }
+
+      @DELETE
+      @Path("c")
+      public void m3()
+      {
+      }
+   }
+
+   @Filter
+   public static class ForbiddenFilter implements MethodInvokerFilter
+   {
+      public void accept(GenericMethodResource genericMethodResource)
+      {
+         throw new WebApplicationException(Response.Status.FORBIDDEN);
+      }
+   }
+
+   private Resource1 resource;
+
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      resource = new Resource1();
+      registry(resource);
+   }
+
+   public void tearDown() throws Exception
+   {
+      unregistry(resource);
+      ResponseCache.getInstance().clear();
+      super.tearDown();
+   }
+
+   public void testCache() throws Exception
+   {
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service("GET", "/a", "", null, null, writer, null);
+      assertEquals(200, response.getStatus());
+      assertEquals("cached1", new String(writer.getBody()));
+      Object etag = response.getHttpHeaders().getFirst("ETag");
+      assertNotNull(etag);
+
+      writer = new ByteArrayContainerResponseWriter();
+      response = launcher.service("GET", "/a", "", null, null, writer, null);
+      assertEquals(200, response.getStatus());
+      assertEquals("cached1", new String(writer.getBody()));
+      assertEquals(1, resource.invocations);
+
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("If-None-Match", etag.toString());
+      response = launcher.service("GET", "/a", "", h, null, null);
+      assertEquals(304, response.getStatus());
+      assertEquals(1, resource.invocations);
+   }
+
+   public void testInvalidate() throws Exception
+   {
+      launcher.service("GET", "/a", "", null, null, null);
+      assertEquals(1, ResponseCache.getInstance().getCount());
+      launcher.service("PUT", "/a", "", null, null, null);
+      assertEquals(0, ResponseCache.getInstance().getCount());
+
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      launcher.service("GET", "/a", "", null, null, writer, null);
+      assertEquals("cached2", new String(writer.getBody()));
+   }
+
+   public void testInvalidateParent() throws Exception
+   {
+      launcher.service("GET", "/a", "", null, null, null);
+      assertEquals(1, ResponseCache.getInstance().getCount());
+      assertEquals(204, launcher.service("DELETE", "/a/c", "", null, null, null).getStatus());
+      assertEquals(0, ResponseCache.getInstance().getCount());
+   }
+
+   public void testFiltersAppliedToCachedResponse() throws Exception
+   {
+      launcher.service("GET", "/a", "", null, null, null);
+      assertEquals(1, ResponseCache.getInstance().getCount());
+      providers.addMethodInvokerFilter(new ForbiddenFilter());
+      ContainerResponse response = launcher.service("GET", "/a", "", null, null, null);
+      assertEquals(403, response.getStatus());
+      assertEquals(1, resource.invocations);
+   }
+
+   public void testCachePerUser() throws Exception
+   {
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      launcher.service("GET", "/a", "", null, null, writer, createEnvironment("john"));
+      assertEquals("cached1", new String(writer.getBody()));
+
+      writer = new ByteArrayContainerResponseWriter();
+      launcher.service("GET", "/a", "", null, null, writer, createEnvironment("mary"));
+      assertEquals("cached2", new String(writer.getBody()));
+
+      writer = new ByteArrayContainerResponseWriter();
+      launcher.service("GET", "/a", "", null, null, writer, createEnvironment("john"));
+      assertEquals("cached1", new String(writer.getBody()));
+      assertEquals(2, resource.invocations);
+   }
+
+   private EnvironmentContext createEnvironment(final String user)
+   {
+      Principal principal = new Principal()
+      {
+         public String getName()
+         {
+            return user;
+         }
+      };
+      EnvironmentContext env = new EnvironmentContext();
+      env.put(SecurityContext.class, new DummySecurityContext(principal, Collections.<String> emptySet()));
+      return env;
+   }
+
+   public void testNoStore() throws Exception
+   {
+      launcher.service("GET", "/a/b", "", null, null, null);
+      launcher.service("GET", "/a/b", "", null, null, null);
+      assertEquals(2, resource.invocations);
+      assertEquals(0, ResponseCache.getInstance().getCount());
+   }
+
+}
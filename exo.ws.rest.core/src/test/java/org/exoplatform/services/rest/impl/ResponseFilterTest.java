@@ -24,7 +24,11 @@ import org.exoplatform.services.rest.GenericContainerResponse;
 import org.exoplatform.services.rest.ResponseFilter;
 import org.exoplatform.services.test.mock.MockHttpServletRequest;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -106,8 +110,76 @@ public class ResponseFilterTest extends BaseTest
 
    }
 
+   @Path("stream")
+   @Filter
+   public static class ResponseFilter3 implements ResponseFilter
+   {
+
+      public void doFilter(GenericContainerResponse response)
+      {
+         response.setResponse(Response.ok("replaced").type("text/plain").build());
+      }
+
+   }
+
+   public static class EntityStream extends ByteArrayInputStream
+   {
+
+      boolean closed;
+
+      public EntityStream()
+      {
+         super("stream".getBytes());
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         closed = true;
+         super.close();
+      }
+
+   }
+
+   @Path("stream")
+   public static class Resource2
+   {
+
+      EntityStream stream;
+
+      @GET
+      @Produces("text/plain")
+      public EntityStream m0()
+      {
+         return stream = new EntityStream();
+      }
+
+   }
+
    //------------------------------------
 
+   public void testEntityStreamClosedForHead() throws Exception
+   {
+      Resource2 r = new Resource2();
+      registry(r);
+      ContainerResponse resp = launcher.service("HEAD", "/stream", "", null, null, null);
+      assertEquals(200, resp.getStatus());
+      assertTrue(r.stream.closed);
+      unregistry(r);
+   }
+
+   public void testEntityStreamClosedWhenReplaced() throws Exception
+   {
+      Resource2 r = new Resource2();
+      registry(r);
+      providers.addResponseFilter(new ResponseFilter3());
+      ContainerResponse resp = launcher.service("GET", "/stream", "", null, null, null);
+      assertEquals(200, resp.getStatus());
+      assertEquals("replaced", resp.getEntity());
+      assertTrue(r.stream.closed);
+      unregistry(r);
+   }
+
    public void testFilter() throws Exception
    {
       Resource1 r = new Resource1();
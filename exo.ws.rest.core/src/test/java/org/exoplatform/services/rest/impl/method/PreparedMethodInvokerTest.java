@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.method;
+
+import org.exoplatform.services.rest.BaseTest;
+import org.exoplatform.services.rest.impl.ContainerResponse;
+import org.exoplatform.services.rest.method.MethodInvoker;
+import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class PreparedMethodInvokerTest extends BaseTest
+{
+
+   @Path("a")
+   public static class Resource1
+   {
+      @GET
+      public String m0(@QueryParam("q") String q)
+      {
+         return q;
+      }
+
+      @GET
+      @Path("b")
+      public String m1(@QueryParam("status") int status)
+      {
+         throw new WebApplicationException(status);
+      }
+   }
+
+   public void testInvoker() throws Exception
+   {
+      registry(Resource1.class);
+      ContainerResponse response = launcher.service("GET", "/a?q=x", "", null, null, null);
+      assertEquals(200, response.getStatus());
+      assertEquals("x", response.getEntity());
+      response = launcher.service("GET", "/a?q=y", "", null, null, null);
+      assertEquals("y", response.getEntity());
+      assertEquals(403, launcher.service("GET", "/a/b?status=403", "", null, null, null).getStatus());
+      unregistry(Resource1.class);
+   }
+
+   public void testGetAndHeadKeepOwnState() throws Exception
+   {
+      registry(Resource1.class);
+      AbstractResourceDescriptor descriptor = binder.getResources().get(0).getObjectModel();
+      MethodInvoker invoker = descriptor.getResourceMethods().getList("GET").get(0).getMethodInvoker();
+      assertSame(invoker, descriptor.getResourceMethods().getList("HEAD").get(0).getMethodInvoker());
+      assertTrue(invoker instanceof PreparedMethodInvoker);
+      PreparedMethodInvoker prepared = (PreparedMethodInvoker)invoker;
+      assertEquals(0, prepared.getPreparedSize());
+
+      assertEquals(200, launcher.service("GET", "/a?q=x", "", null, null, null).getStatus());
+      assertEquals(1, prepared.getPreparedSize());
+      assertEquals(200, launcher.service("HEAD", "/a?q=x", "", null, null, null).getStatus());
+      assertEquals(2, prepared.getPreparedSize());
+      // Neither method is prepared again.
+      assertEquals(200, launcher.service("GET", "/a?q=x", "", null, null, null).getStatus());
+      assertEquals(200, launcher.service("HEAD", "/a?q=x", "", null, null, null).getStatus());
+      assertEquals(2, prepared.getPreparedSize());
+      unregistry(Resource1.class);
+   }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.metrics;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class LatencyHistogramTest extends TestCase
+{
+
+   public void testBuckets()
+   {
+      long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789L, LatencyHistogram.MAX_VALUE};
+      for (long value : values)
+      {
+         int index = LatencyHistogram.index(value);
+         assertTrue("Wrong bucket of " + value, LatencyHistogram.lowestValue(index) <= value);
+         assertTrue("Wrong bucket of " + value, LatencyHistogram.highestValue(index) >= value);
+      }
+      for (int i = 1; i < LatencyHistogram.index(LatencyHistogram.MAX_VALUE); i++)
+         assertEquals(LatencyHistogram.highestValue(i - 1) + 1, LatencyHistogram.lowestValue(i));
+   }
+
+   public void testPercentiles()
+   {
+      LatencyHistogram histogram = new LatencyHistogram();
+      assertEquals(0, histogram.getValueAtPercentile(99D));
+      for (int i = 1; i <= 1000; i++)
+         histogram.record(i * 1000L);
+      assertEquals(1000, histogram.getCount());
+      assertEquals(500500, histogram.getMean());
+      assertEquals(1000000, histogram.getMax());
+      assertEquals(1000000, histogram.getValueAtPercentile(100D));
+      long p50 = histogram.getValueAtPercentile(50D);
+      assertTrue("Wrong median " + p50, p50 >= 500000 && p50 <= 500000 + 500000 / LatencyHistogram.SUB_BUCKETS);
+      long p99 = histogram.getValueAtPercentile(99D);
+      assertTrue("Wrong 99th percentile " + p99, p99 >= 990000 && p99 <= 1000000);
+
+      histogram.reset();
+      assertEquals(0, histogram.getCount());
+      assertEquals(0, histogram.getMax());
+   }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.metrics;
+
+import org.exoplatform.services.rest.BaseTest;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.WebApplicationException;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class ResourceMetricsTest extends BaseTest
+{
+
+   @Path("a")
+   public static class Resource1
+   {
+      @GET
+      @Path("{x}")
+      public String m0(@PathParam("x") String x)
+      {
+         return x;
+      }
+
+      @GET
+      @Path("b/error")
+      public String m1()
+      {
+         throw new WebApplicationException(500);
+      }
+
+      @Path("b/sub")
+      public SubResource m2()
+      {
+         return new SubResource();
+      }
+   }
+
+   public static class SubResource
+   {
+      @GET
+      public String m0()
+      {
+         return "sub";
+      }
+   }
+
+   private ResourceMetrics metrics;
+
+   @Override
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      metrics = ResourceMetrics.getInstance();
+      metrics.reset();
+      metrics.setEnabled(true);
+   }
+
+   @Override
+   public void tearDown() throws Exception
+   {
+      metrics.setEnabled(false);
+      super.tearDown();
+   }
+
+   public void testMetrics() throws Exception
+   {
+      registry(Resource1.class);
+      assertEquals(200, launcher.service("GET", "/a/1", "", null, null, null).getStatus());
+      assertEquals(200, launcher.service("GET", "/a/2", "", null, null, null).getStatus());
+      assertEquals(500, launcher.service("GET", "/a/b/error", "", null, null, null).getStatus());
+      assertEquals(404, launcher.service("GET", "/c", "", null, null, null).getStatus());
+
+      MethodMetrics m0 = find("GET /a/{x} " + Resource1.class.getName() + "#m0");
+      assertEquals(2, m0.getCount());
+      assertEquals(0, m0.getErrors());
+      assertEquals(2, m0.getLatency(Phase.INVOCATION).getCount());
+      assertTrue(m0.getLatency(Phase.TOTAL).getMax() >= m0.getLatency(Phase.INVOCATION).getMax());
+
+      MethodMetrics m1 = find("GET /a/b/error " + Resource1.class.getName() + "#m1");
+      assertEquals(1, m1.getCount());
+      assertEquals(1, m1.getErrors());
+
+      MethodMetrics unmatched = find(ResourceMetrics.UNMATCHED);
+      assertEquals(1, unmatched.getCount());
+      assertEquals(1, unmatched.getClientErrors());
+
+      unregistry(Resource1.class);
+      assertEquals(1, metrics.getAll().size());
+   }
+
+   public void testRemoveSubResources() throws Exception
+   {
+      registry(Resource1.class);
+      assertEquals(200, launcher.service("GET", "/a/b/sub", "", null, null, null).getStatus());
+      MethodMetrics sub = find("GET " + SubResource.class.getName() + "#m0");
+      assertEquals(1, sub.getCount());
+      assertEquals(Resource1.class.getName(), sub.getResourceClass());
+
+      unregistry(Resource1.class);
+      assertEquals(0, metrics.getAll().size());
+   }
+
+   public void testDisabled() throws Exception
+   {
+      metrics.setEnabled(false);
+      registry(Resource1.class);
+      assertEquals(200, launcher.service("GET", "/a/1", "", null, null, null).getStatus());
+      assertEquals(404, launcher.service("GET", "/c", "", null, null, null).getStatus());
+      assertEquals(0, metrics.getAll().size());
+      unregistry(Resource1.class);
+   }
+
+   private MethodMetrics find(String name)
+   {
+      for (MethodMetrics m : metrics.getAll())
+      {
+         if (m.getName().equals(name))
+            return m;
+      }
+      fail("Metrics " + name + " not found. ");
+      return null;
+   }
+
+}
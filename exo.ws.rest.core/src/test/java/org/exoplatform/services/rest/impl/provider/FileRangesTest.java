@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.provider;
+
+import org.exoplatform.services.rest.BaseTest;
+import org.exoplatform.services.rest.impl.ContainerResponse;
+import org.exoplatform.services.rest.impl.MultivaluedMapImpl;
+import org.exoplatform.services.rest.tools.ByteArrayContainerResponseWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class FileRangesTest extends BaseTest
+{
+
+   private static final String DATA = "0123456789abcdefghij";
+
+   private static File file;
+
+   @Path("/")
+   public static class Resource1
+   {
+      @GET
+      @Produces("text/plain")
+      public File m0()
+      {
+         return file;
+      }
+   }
+
+   @Override
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      file = File.createTempFile("fileranges", null);
+      FileOutputStream out = new FileOutputStream(file);
+      out.write(DATA.getBytes("ISO-8859-1"));
+      out.close();
+   }
+
+   @Override
+   public void tearDown() throws Exception
+   {
+      file.delete();
+      super.tearDown();
+   }
+
+   public void testParseRange()
+   {
+      List<long[]> ranges = FileRanges.parseRange("bytes=0-4", 20);
+      assertEquals(1, ranges.size());
+      assertEquals(0, ranges.get(0)[0]);
+      assertEquals(4, ranges.get(0)[1]);
+
+      ranges = FileRanges.parseRange("bytes=-5", 20);
+      assertEquals(15, ranges.get(0)[0]);
+      assertEquals(19, ranges.get(0)[1]);
+
+      ranges = FileRanges.parseRange("bytes=15-", 20);
+      assertEquals(15, ranges.get(0)[0]);
+      assertEquals(19, ranges.get(0)[1]);
+
+      // overlapping ranges are merged
+      ranges = FileRanges.parseRange("bytes=10-14, 0-4, 3-6", 20);
+      assertEquals(2, ranges.size());
+      assertEquals(0, ranges.get(0)[0]);
+      assertEquals(6, ranges.get(0)[1]);
+      assertEquals(10, ranges.get(1)[0]);
+
+      assertTrue(FileRanges.parseRange("bytes=30-40", 20).isEmpty());
+      assertNull(FileRanges.parseRange("bytes=5-1", 20));
+      assertNull(FileRanges.parseRange("items=0-1", 20));
+   }
+
+   public void testSingleRange() throws Exception
+   {
+      Resource1 r1 = new Resource1();
+      registry(r1);
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("Range", "bytes=2-5");
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service("GET", "/", "", h, null, writer, null);
+      assertEquals(206, response.getStatus());
+      assertEquals("bytes 2-5/20", response.getHttpHeaders().getFirst("Content-Range"));
+      assertEquals("4", response.getHttpHeaders().getFirst("Content-Length"));
+      assertEquals("2345", new String(writer.getBody(), "ISO-8859-1"));
+      unregistry(r1);
+   }
+
+   public void testMultipleRanges() throws Exception
+   {
+      Resource1 r1 = new Resource1();
+      registry(r1);
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("Range", "bytes=0-1,-2");
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service("GET", "/", "", h, null, writer, null);
+      assertEquals(206, response.getStatus());
+      assertEquals("multipart/byteranges", response.getContentType().getType() + '/'
+         + response.getContentType().getSubtype());
+      String body = new String(writer.getBody(), "ISO-8859-1");
+      assertEquals(Long.toString(writer.getBody().length), response.getHttpHeaders().getFirst("Content-Length"));
+      assertTrue(body.contains("Content-Range: bytes 0-1/20\r\n\r\n01\r\n"));
+      assertTrue(body.contains("Content-Range: bytes 18-19/20\r\n\r\nij\r\n"));
+      assertTrue(body.endsWith("--" + response.getContentType().getParameters().get("boundary") + "--\r\n"));
+      unregistry(r1);
+   }
+
+   public void testNotSatisfiable() throws Exception
+   {
+      Resource1 r1 = new Resource1();
+      registry(r1);
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("Range", "bytes=100-");
+      ContainerResponse response = launcher.service("GET", "/", "", h, null, null);
+      assertEquals(416, response.getStatus());
+      assertEquals("bytes */20", response.getHttpHeaders().getFirst("Content-Range"));
+      unregistry(r1);
+   }
+
+   public void testIfRangeNotMatched() throws Exception
+   {
+      Resource1 r1 = new Resource1();
+      registry(r1);
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("Range", "bytes=2-5");
+      h.putSingle("If-Range", "Thu, 01 Jan 1970 00:00:00 GMT");
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse response = launcher.service("GET", "/", "", h, null, writer, null);
+      assertEquals(200, response.getStatus());
+      assertEquals("bytes", response.getHttpHeaders().getFirst("Accept-Ranges"));
+      assertEquals(DATA, new String(writer.getBody(), "ISO-8859-1"));
+      unregistry(r1);
+   }
+
+}
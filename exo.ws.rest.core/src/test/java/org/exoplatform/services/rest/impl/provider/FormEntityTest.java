@@ -19,6 +19,9 @@
 package org.exoplatform.services.rest.impl.provider;
 
 import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.util.Streams;
 import org.exoplatform.services.rest.BaseTest;
 import org.exoplatform.services.rest.impl.EnvironmentContext;
 import org.exoplatform.services.rest.impl.MultivaluedMapImpl;
@@ -182,18 +185,9 @@ public class FormEntityTest extends BaseTest
       Resource2 r2 = new Resource2();
       registry(r2);
       MultivaluedMap<String, String> h = new MultivaluedMapImpl();
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      PrintWriter w = new PrintWriter(out);
-      w.write("--abcdef\r\n" + "Content-Disposition: form-data; name=\"xml-file\"; filename=\"foo.xml\"\r\n"
-         + "Content-Type: text/xml\r\n" + "\r\n" + XML_DATA + "\r\n" + "--abcdef\r\n"
-         + "Content-Disposition: form-data; name=\"json-file\"; filename=\"foo.json\"\r\n"
-         + "Content-Type: application/json\r\n" + "\r\n" + JSON_DATA + "\r\n" + "--abcdef\r\n"
-         + "Content-Disposition: form-data; name=\"field\"\r\n" + "\r\n" + "to be or not to be" + "\r\n"
-         + "--abcdef--\r\n");
-      w.flush();
       h.putSingle("content-type", "multipart/form-data; boundary=abcdef");
 
-      byte[] data = out.toByteArray();
+      byte[] data = createMultipartData();
 
       EnvironmentContext envctx = new EnvironmentContext();
 
@@ -206,4 +200,62 @@ public class FormEntityTest extends BaseTest
       unregistry(r2);
    }
 
+   @Path("/")
+   public static class Resource3
+   {
+
+      @POST
+      @Consumes("multipart/*")
+      public void m10(FileItemIterator iter) throws Exception
+      {
+         assertTrue(iter.hasNext());
+         FileItemStream fi = iter.next();
+         assertEquals("xml-file", fi.getFieldName());
+         assertEquals("foo.xml", fi.getName());
+         assertEquals("text/xml", fi.getContentType());
+         assertEquals(XML_DATA, Streams.asString(fi.openStream()));
+
+         assertTrue(iter.hasNext());
+         fi = iter.next();
+         assertEquals("json-file", fi.getFieldName());
+         assertEquals("foo.json", fi.getName());
+         assertEquals("application/json", fi.getContentType());
+         assertEquals(JSON_DATA, Streams.asString(fi.openStream()));
+
+         assertTrue(iter.hasNext());
+         fi = iter.next();
+         assertTrue(fi.isFormField());
+         assertEquals("field", fi.getFieldName());
+         assertEquals("to be or not to be", Streams.asString(fi.openStream()));
+
+         assertFalse(iter.hasNext());
+      }
+
+   }
+
+   public void testMultipartFormStream() throws Exception
+   {
+      Resource3 r3 = new Resource3();
+      registry(r3);
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.putSingle("content-type", "multipart/form-data; boundary=abcdef");
+      // HttpServletRequest is not required, data is read from entity stream
+      assertEquals(204, launcher.service("POST", "/", "", h, createMultipartData(), null).getStatus());
+      unregistry(r3);
+   }
+
+   private static byte[] createMultipartData()
+   {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      PrintWriter w = new PrintWriter(out);
+      w.write("--abcdef\r\n" + "Content-Disposition: form-data; name=\"xml-file\"; filename=\"foo.xml\"\r\n"
+         + "Content-Type: text/xml\r\n" + "\r\n" + XML_DATA + "\r\n" + "--abcdef\r\n"
+         + "Content-Disposition: form-data; name=\"json-file\"; filename=\"foo.json\"\r\n"
+         + "Content-Type: application/json\r\n" + "\r\n" + JSON_DATA + "\r\n" + "--abcdef\r\n"
+         + "Content-Disposition: form-data; name=\"field\"\r\n" + "\r\n" + "to be or not to be" + "\r\n"
+         + "--abcdef--\r\n");
+      w.flush();
+      return out.toByteArray();
+   }
+
 }
@@ -23,6 +23,9 @@ import org.exoplatform.services.rest.impl.MultivaluedMapImpl;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
@@ -77,6 +80,26 @@ public class JsonEntityProviderTest extends BaseTest
       writer.writeTo(bean, Bean.class, Bean.class, null, mediaType, null, new ByteArrayOutputStream());
    }
 
+   @SuppressWarnings("unchecked")
+   public void testWriteIterator() throws Exception
+   {
+      Bean bean1 = new Bean();
+      bean1.setName("andrew");
+      bean1.setPassword("test");
+      Bean bean2 = new Bean();
+      bean2.setName("user");
+      List<Bean> list = Arrays.asList(bean1, bean2);
+      MessageBodyWriter writer = providers.getMessageBodyWriter(Iterator.class, null, null, mediaType);
+      assertNotNull(writer);
+      ByteArrayOutputStream iteratorOut = new ByteArrayOutputStream();
+      writer.writeTo(list.iterator(), Iterator.class, Iterator.class, null, mediaType, null, iteratorOut);
+      // Iterator is written as JSON array, the same as collection.
+      ByteArrayOutputStream listOut = new ByteArrayOutputStream();
+      writer.writeTo(list, List.class, List.class, null, mediaType, null, listOut);
+      assertEquals(listOut.toString("UTF-8"), iteratorOut.toString("UTF-8"));
+      assertTrue(iteratorOut.toString("UTF-8").startsWith("[{"));
+   }
+
    //
 
    public static class Bean
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.impl.resource;
+
+import org.exoplatform.services.rest.BaseTest;
+import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+
+import javax.ws.rs.GET;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class ResourceDescriptorCacheTest extends BaseTest
+{
+
+   public static class SubResource1
+   {
+      @GET
+      public String m0()
+      {
+         return "sub1";
+      }
+   }
+
+   public static class SubResource2
+   {
+      @GET
+      public String m0()
+      {
+         return "sub2";
+      }
+   }
+
+   public static class SubResource3
+   {
+      @GET
+      public String m0()
+      {
+         return "sub3";
+      }
+   }
+
+   /** Defines its own copy of {@link SubResource1}. */
+   private static class IsolatedClassLoader extends ClassLoader
+   {
+      IsolatedClassLoader(ClassLoader parent)
+      {
+         super(parent);
+      }
+
+      @Override
+      protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+      {
+         if (!SubResource1.class.getName().equals(name))
+            return super.loadClass(name, resolve);
+         Class<?> clazz = findLoadedClass(name);
+         if (clazz == null)
+         {
+            byte[] code = readClass(name);
+            clazz = defineClass(name, code, 0, code.length);
+         }
+         return clazz;
+      }
+
+      private byte[] readClass(String name) throws ClassNotFoundException
+      {
+         InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+         if (in == null)
+            throw new ClassNotFoundException(name);
+         try
+         {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int r;
+            while ((r = in.read(buf)) != -1)
+               out.write(buf, 0, r);
+            return out.toByteArray();
+         }
+         catch (IOException e)
+         {
+            throw new ClassNotFoundException(name, e);
+         }
+         finally
+         {
+            try
+            {
+               in.close();
+            }
+            catch (IOException ignored)
+            {
+            }
+         }
+      }
+   }
+
+   public void testCachedDescriptor()
+   {
+      ResourceDescriptorCache cache = new ResourceDescriptorCache(null);
+      AbstractResourceDescriptor descriptor = cache.getDescriptor(new SubResource1());
+      assertEquals(SubResource1.class, descriptor.getObjectClass());
+      assertSame(descriptor, cache.getDescriptor(new SubResource1()));
+      assertEquals(1, cache.size());
+      AbstractResourceDescriptor other = cache.getDescriptor(new SubResource2());
+      assertNotSame(descriptor, other);
+      assertEquals(2, cache.size());
+   }
+
+   public void testMaxSize()
+   {
+      ResourceDescriptorCache cache = new ResourceDescriptorCache(null, 2);
+      cache.getDescriptor(new SubResource1());
+      cache.getDescriptor(new SubResource2());
+      assertEquals(2, cache.size());
+      // Cache is cleared when limit is reached.
+      AbstractResourceDescriptor descriptor = cache.getDescriptor(new SubResource3());
+      assertEquals(1, cache.size());
+      assertSame(descriptor, cache.getDescriptor(new SubResource3()));
+   }
+
+   public void testClassUnloaded() throws Exception
+   {
+      ResourceDescriptorCache cache = new ResourceDescriptorCache(null);
+      ClassLoader loader = new IsolatedClassLoader(getClass().getClassLoader());
+      Class<?> clazz = loader.loadClass(SubResource1.class.getName());
+      assertNotSame(SubResource1.class, clazz);
+      AbstractResourceDescriptor descriptor = cache.getDescriptor(clazz.newInstance());
+      assertSame(clazz, descriptor.getObjectClass());
+
+      WeakReference<ClassLoader> ref = new WeakReference<ClassLoader>(loader);
+      loader = null;
+      clazz = null;
+      descriptor = null;
+      cache.clear();
+      for (int i = 0; i < 20 && ref.get() != null; i++)
+      {
+         System.gc();
+         Thread.sleep(50);
+      }
+      assertNull("Class loader of cached class must be collected. ", ref.get());
+      assertEquals(0, cache.size());
+   }
+
+}
@@ -111,4 +111,32 @@ public class UriComponentTest extends BaseTest
       assertEquals("to%20be%23or%20not%20to%20be", UriComponent.recognizeEncode(str, UriComponent.PATH_SEGMENT, false));
    }
 
+   public void testDecode()
+   {
+      String str = "to/be/or/not";
+      assertSame(str, UriComponent.decode(str, UriComponent.PATH));
+      assertEquals("to be", UriComponent.decode("to+be", UriComponent.QUERY));
+      assertEquals("\u00e9\ud83d\ude00", UriComponent.decode("%C3%a9%F0%9F%98%80", UriComponent.PATH));
+      assertEquals("%C3%A9%F0%9F%98%80", UriComponent.encode("\u00e9\ud83d\ude00", UriComponent.PATH, false));
+      try
+      {
+         UriComponent.decode("%4", UriComponent.PATH);
+         fail("IllegalArgumentException expected");
+      }
+      catch (IllegalArgumentException e)
+      {
+      }
+   }
+
+   public void testParseQueryStringEmptyPairs()
+   {
+      MultivaluedMap<String, String> m = UriComponent.parseQueryString("q1=a&&q2&q1=b=c&", true);
+      assertEquals(2, m.size());
+      assertEquals("a", m.get("q1").get(0));
+      assertEquals("b=c", m.get("q1").get(1));
+      assertEquals("", m.getFirst("q2"));
+      m.add("q1", "d");
+      assertEquals(3, m.get("q1").size());
+   }
+
 }
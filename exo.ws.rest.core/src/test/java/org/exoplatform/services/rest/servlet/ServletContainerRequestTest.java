@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.servlet;
+
+import org.exoplatform.services.rest.BaseTest;
+import org.exoplatform.services.rest.impl.MultivaluedMapImpl;
+import org.exoplatform.services.test.mock.MockHttpServletRequest;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.Arrays;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriBuilder;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class ServletContainerRequestTest extends BaseTest
+{
+
+   public void testHeaders() throws Exception
+   {
+      MultivaluedMap<String, String> h = new MultivaluedMapImpl();
+      h.add("Accept", "text/xml");
+      h.add("X-Test", "a");
+      h.add("X-Test", "b");
+      ServletContainerRequest request =
+         new ServletContainerRequest(new MockHttpServletRequest("http://localhost:8080/context/a",
+            new ByteArrayInputStream(new byte[0]), 0, "GET", h));
+      MultivaluedMap<String, String> headers = request.getRequestHeaders();
+      assertEquals("text/xml", headers.getFirst("accept"));
+      assertEquals(Arrays.asList("a", "b"), headers.get("x-test"));
+      assertEquals(Arrays.asList("a", "b"), headers.get("X-TEST"));
+      assertNull(headers.get("Content-Type"));
+      assertFalse(headers.containsKey("Content-Type"));
+      assertTrue(headers.containsKey("Accept"));
+      assertEquals(2, headers.size());
+      assertTrue(headers.keySet().contains("x-test"));
+      // the same values after all headers are copied
+      assertEquals(Arrays.asList("a", "b"), headers.get("X-Test"));
+      try
+      {
+         headers.putSingle("Accept", "text/plain");
+         fail("UnsupportedOperationException expected");
+      }
+      catch (UnsupportedOperationException e)
+      {
+      }
+   }
+
+   public void testUris() throws Exception
+   {
+      String[] urls =
+         {"http://localhost:8080/context/a/b", "http://localhost:80/context/a/b?x=y&z=1",
+            "http://localhost:8080/context/a%20b/c?q=a%20b", "http://localhost:8080/context/a/b?x=&y=1",
+            "http://localhost:8080/context/a/b?x=y&&z=", "http://localhost:8080/context/a%2x/b?x",
+            "http://localhost:8080/context/a/b?"};
+      for (String url : urls)
+      {
+         MockHttpServletRequest servletRequest =
+            new MockHttpServletRequest(url, new ByteArrayInputStream(new byte[0]), 0, "GET", null);
+         ServletContainerRequest request = new ServletContainerRequest(servletRequest);
+
+         UriBuilder baseBuilder = UriBuilder.fromUri("http://" + servletRequest.getServerName());
+         if (servletRequest.getServerPort() != 80)
+            baseBuilder.port(servletRequest.getServerPort());
+         URI expectedBase = baseBuilder.path(servletRequest.getContextPath() + servletRequest.getServletPath()).build();
+         URI expectedRequest =
+            UriBuilder.fromUri(expectedBase).replacePath(servletRequest.getRequestURI()).replaceQuery(
+               servletRequest.getQueryString()).build();
+
+         assertEquals(url, expectedBase, request.getBaseUri());
+         assertEquals(url, expectedRequest, request.getRequestUri());
+      }
+   }
+
+   public void testSetUris() throws Exception
+   {
+      ServletContainerRequest request =
+         new ServletContainerRequest(new MockHttpServletRequest("http://localhost:8080/context/a",
+            new ByteArrayInputStream(new byte[0]), 0, "GET", null));
+      URI base = URI.create("http://example.com/base");
+      URI requestUri = URI.create("http://example.com/base/b");
+      request.setUris(requestUri, base);
+      assertEquals(base, request.getBaseUri());
+      assertEquals(requestUri, request.getRequestUri());
+   }
+
+}
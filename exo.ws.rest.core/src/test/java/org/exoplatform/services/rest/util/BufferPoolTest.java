@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.util;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class BufferPoolTest extends TestCase
+{
+
+   public void testTiers()
+   {
+      byte[] small = BufferPool.getBytes(100);
+      assertEquals(BufferPool.SMALL_BUFFER_SIZE, small.length);
+      byte[] large = BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE + 1);
+      assertEquals(BufferPool.LARGE_BUFFER_SIZE, large.length);
+      byte[] huge = BufferPool.getBytes(BufferPool.LARGE_BUFFER_SIZE + 1);
+      assertEquals(BufferPool.LARGE_BUFFER_SIZE + 1, huge.length);
+      BufferPool.release(small);
+      BufferPool.release(large);
+      BufferPool.release(huge);
+   }
+
+   public void testReuse()
+   {
+      byte[] b1 = BufferPool.getBytes(BufferPool.LARGE_BUFFER_SIZE);
+      // buffer is in use, new one must be created
+      byte[] b2 = BufferPool.getBytes(BufferPool.LARGE_BUFFER_SIZE);
+      assertNotSame(b1, b2);
+      BufferPool.release(b1);
+      assertSame(b1, BufferPool.getBytes(BufferPool.LARGE_BUFFER_SIZE));
+      BufferPool.release(b1);
+
+      char[] c1 = BufferPool.getChars(10);
+      BufferPool.release(c1);
+      assertSame(c1, BufferPool.getChars(10));
+      BufferPool.release(c1);
+   }
+
+   public void testForeignBuffer()
+   {
+      byte[] b1 = BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE);
+      BufferPool.release(b1);
+      byte[] foreign = new byte[BufferPool.SMALL_BUFFER_SIZE];
+      BufferPool.release(foreign);
+      byte[] b2 = BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE);
+      assertSame(b1, b2);
+      // not pooled buffer must not get in pool
+      byte[] b3 = BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE);
+      BufferPool.release(b3);
+      assertNotSame(b3, BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE));
+      BufferPool.release(b2);
+   }
+
+   public void testReleaseTwice()
+   {
+      char[] c1 = BufferPool.getChars(BufferPool.LARGE_BUFFER_SIZE);
+      BufferPool.release(c1);
+      BufferPool.release(c1);
+      char[] c2 = BufferPool.getChars(BufferPool.LARGE_BUFFER_SIZE);
+      char[] c3 = BufferPool.getChars(BufferPool.LARGE_BUFFER_SIZE);
+      assertSame(c1, c2);
+      assertNotSame(c2, c3);
+      BufferPool.release(c3);
+      BufferPool.release(c2);
+   }
+
+   public void testReleaseByOtherThread() throws Exception
+   {
+      final byte[] b1 = BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE);
+      final byte[][] other = new byte[1][];
+      Thread t = new Thread()
+      {
+         public void run()
+         {
+            BufferPool.release(b1);
+            other[0] = BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE);
+         }
+      };
+      t.start();
+      t.join();
+      assertNotSame(b1, other[0]);
+      // still in use by this thread
+      assertNotSame(b1, BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE));
+      BufferPool.release(b1);
+      assertSame(b1, BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE));
+      BufferPool.release(b1);
+   }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.util;
+
+import junit.framework.TestCase;
+
+import org.exoplatform.services.rest.uri.UriPattern;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class UriPatternTrieTest extends TestCase
+{
+
+   private static final String[] TEMPLATES = {"/", "/a", "/a/b", "/a/{x}", "/a/{x}/c", "/a/{x:.*}", "/a{y}",
+      "/{p}/{q}", "/a/b.c", "/a/b+", "/x/{y}/z/", "/x/{y: [0-9]+}/z", "/a/{x}/{y}/d"};
+
+   private static final String[] PATHS = {"", "/", "/a", "/a/", "/a/b", "/a/bb", "/a/b/c", "/a/zz/c", "/a/zz/c/d",
+      "/a/b.c", "/a/bbb+", "/x/1/z", "/x/1/z/", "/x//z", "/a/1/2/d", "/foo", "/foo/bar", "/abc"};
+
+   private List<UriPattern> patterns;
+
+   private UriPatternTrie<UriPattern> trie;
+
+   @Override
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      patterns = new ArrayList<UriPattern>();
+      for (String t : TEMPLATES)
+         patterns.add(new UriPattern(t));
+      Collections.sort(patterns, UriPattern.URIPATTERN_COMPARATOR);
+      trie = new UriPatternTrie<UriPattern>();
+      for (UriPattern p : patterns)
+         trie.add(p, p);
+   }
+
+   public void testSameMatchesAsLinearScan()
+   {
+      List<String> values = new ArrayList<String>();
+      for (String path : PATHS)
+      {
+         List<UriPattern> expected = new ArrayList<UriPattern>();
+         for (UriPattern p : patterns)
+         {
+            if (p.match(path, values))
+               expected.add(p);
+         }
+         List<UriPattern> actual = new ArrayList<UriPattern>();
+         for (UriPattern p : trie.getCandidates(path))
+         {
+            if (p.match(path, values))
+               actual.add(p);
+         }
+         assertEquals("Wrong matching for path " + path, expected, actual);
+      }
+   }
+
+   public void testCandidates()
+   {
+      List<UriPattern> candidates = trie.getCandidates("/foo");
+      assertEquals(1, candidates.size());
+      assertEquals("/", candidates.get(0).getTemplate());
+
+      candidates = trie.getCandidates("/a/b/c");
+      assertEquals("/a/{x}/c", candidates.get(0).getTemplate());
+      assertEquals("/", candidates.get(candidates.size() - 1).getTemplate());
+      assertTrue(candidates.size() < patterns.size());
+   }
+
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.ext.groovy;
+
+import groovy.lang.GroovySystem;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+import org.exoplatform.commons.utils.SecurityHelper;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivilegedAction;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * On-disk cache of classes compiled from groovy scripts. Entry of cache is
+ * found by key which is hash of script source, names of script and its
+ * dependencies, class path, settings of compiler and version of groovy, see
+ * {@link #createKey(String, byte[], SourceFile[], String, CompilerConfiguration)}.
+ * Entry also keeps hashes of content of all dependencies compiled together
+ * with script and it is not used any more if content of any of dependencies
+ * is changed.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class BytecodeCache
+{
+   private static final Log LOG = ExoLogger.getLogger("exo.ws.rest.ext.BytecodeCache");
+
+   /** Version of format of cache files. */
+   private static final int FORMAT_VERSION = 2;
+
+   private static final String FILE_SUFFIX = ".gbc";
+
+   /**
+    * Compiled classes of script.
+    */
+   public static class Entry
+   {
+      private final String target;
+
+      private final Map<String, byte[]> classes;
+
+      private final Map<String, String> dependencies;
+
+      private final Set<String> shared;
+
+      /**
+       * @param target name of class of script
+       * @param classes bytecode of all classes compiled together with script
+       *        in order of compilation
+       * @param dependencies URLs of dependencies compiled together with script
+       *        and hashes of their content
+       * @param shared names of classes which are compiled from sources found
+       *        in source folders. Such classes are shared by all scripts, if
+       *        class is already loaded its bytecode from entry is not used
+       */
+      public Entry(String target, Map<String, byte[]> classes, Map<String, String> dependencies, Set<String> shared)
+      {
+         this.target = target;
+         this.classes = classes;
+         this.dependencies = dependencies;
+         this.shared = shared;
+      }
+
+      public String getTarget()
+      {
+         return target;
+      }
+
+      public Map<String, byte[]> getClasses()
+      {
+         return Collections.unmodifiableMap(classes);
+      }
+
+      public Map<String, String> getDependencies()
+      {
+         return Collections.unmodifiableMap(dependencies);
+      }
+
+      public Set<String> getShared()
+      {
+         return Collections.unmodifiableSet(shared);
+      }
+   }
+
+   private final File directory;
+
+   /**
+    * @param directory directory for cache files, created if it does not
+    *        exist
+    */
+   public BytecodeCache(File directory)
+   {
+      this.directory = directory;
+   }
+
+   public File getDirectory()
+   {
+      return directory;
+   }
+
+   /**
+    * Create key of cache entry. Compilation customizers are identified by
+    * class name only.
+    *
+    * @param fileName name of script
+    * @param source source of script
+    * @param files dependencies of script, may be <code>null</code>
+    * @param classPathStamp stamp of class path used for compilation of
+    *        script, see {@link #stamp(URL[], boolean)}
+    * @param config configuration of compiler, may be <code>null</code> if
+    *        default configuration is used
+    * @return key of cache entry
+    */
+   public String createKey(String fileName, byte[] source, SourceFile[] files, String classPathStamp,
+      CompilerConfiguration config)
+   {
+      MessageDigest digest = createDigest();
+      update(digest, Integer.toString(FORMAT_VERSION));
+      update(digest, GroovySystem.getVersion());
+      update(digest, fileName);
+      digest.update(source);
+      digest.update((byte)0);
+      if (files != null)
+      {
+         for (SourceFile file : files)
+            update(digest, file.getPath().toString());
+      }
+      digest.update((byte)0);
+      update(digest, classPathStamp);
+      if (config == null)
+         config = CompilerConfiguration.DEFAULT;
+      update(digest, String.valueOf(config.getTargetBytecode()));
+      update(digest, String.valueOf(config.getSourceEncoding()));
+      update(digest, String.valueOf(config.getScriptBaseClass()));
+      update(digest, String.valueOf(config.getDebug()));
+      update(digest, String.valueOf(new TreeMap<String, Boolean>(config.getOptimizationOptions())));
+      for (CompilationCustomizer customizer : config.getCompilationCustomizers())
+         update(digest, customizer.getClass().getName());
+      return toHex(digest.digest());
+   }
+
+   /**
+    * Create stamp of class path. Local files are identified by URL, size and
+    * time of last modification. Local directories are identified by URL and,
+    * if <code>directories</code> is <code>true</code>, by total size of all
+    * their files and the latest time of modification of them. Other entries
+    * of class path are identified by URL only.
+    *
+    * @param classPath URLs of class path
+    * @param directories <code>true</code> if content of directories must be
+    *        checked. It requires walking through all files of directory so
+    *        result should be reused
+    * @return stamp of class path
+    */
+   public static String stamp(final URL[] classPath, final boolean directories)
+   {
+      final MessageDigest digest = createDigest();
+      SecurityHelper.doPrivilegedAction(new PrivilegedAction<Void>()
+      {
+         public Void run()
+         {
+            for (URL url : classPath)
+            {
+               update(digest, url.toString());
+               File file = toFile(url);
+               if (file != null && (directories || !file.isDirectory()))
+               {
+                  long[] stamp = new long[2];
+                  stamp(file, stamp);
+                  update(digest, stamp[0] + ":" + stamp[1]);
+               }
+            }
+            return null;
+         }
+      });
+      return toHex(digest.digest());
+   }
+
+   /**
+    * @param key key of cache entry
+    * @return cached classes or <code>null</code> if there is no entry for
+    *         key or if any of dependencies of entry is changed
+    */
+   public Entry get(final String key)
+   {
+      return SecurityHelper.doPrivilegedAction(new PrivilegedAction<Entry>()
+      {
+         public Entry run()
+         {
+            File file = new File(directory, key + FILE_SUFFIX);
+            if (!file.exists())
+               return null;
+            Entry entry = null;
+            try
+            {
+               entry = read(file);
+               for (Map.Entry<String, String> dependency : entry.dependencies.entrySet())
+               {
+                  if (!dependency.getValue().equals(hash(new URL(dependency.getKey()))))
+                  {
+                     entry = null;
+                     break;
+                  }
+               }
+            }
+            catch (IOException e)
+            {
+               if (LOG.isDebugEnabled())
+                  LOG.debug("Unable read cached classes from " + file + ". " + e.getMessage());
+               entry = null;
+            }
+            if (entry == null && !file.delete())
+               LOG.warn("Unable remove out of date cached classes " + file);
+            return entry;
+         }
+      });
+   }
+
+   /**
+    * Save classes in cache. Errors are logged and ignored.
+    *
+    * @param key key of cache entry
+    * @param entry compiled classes of script
+    */
+   public void put(final String key, final Entry entry)
+   {
+      SecurityHelper.doPrivilegedAction(new PrivilegedAction<Void>()
+      {
+         public Void run()
+         {
+            File file = new File(directory, key + FILE_SUFFIX);
+            File tmp = null;
+            try
+            {
+               if (!directory.exists() && !directory.mkdirs() && !directory.exists())
+                  throw new IOException("Unable create directory " + directory);
+               tmp = File.createTempFile(key, ".tmp", directory);
+               write(tmp, entry);
+               // Readers never see partially written file.
+               if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+                  throw new IOException("Unable rename " + tmp + " to " + file);
+               tmp = null;
+            }
+            catch (IOException e)
+            {
+               LOG.warn("Unable save compiled classes in " + file + ". " + e.getMessage());
+            }
+            finally
+            {
+               if (tmp != null)
+                  tmp.delete();
+            }
+            return null;
+         }
+      });
+   }
+
+   /**
+    * Remove all entries from cache.
+    */
+   public void clear()
+   {
+      SecurityHelper.doPrivilegedAction(new PrivilegedAction<Void>()
+      {
+         public Void run()
+         {
+            File[] files = directory.listFiles();
+            if (files != null)
+            {
+               for (File file : files)
+               {
+                  if (file.getName().endsWith(FILE_SUFFIX))
+                     file.delete();
+               }
+            }
+            return null;
+         }
+      });
+   }
+
+   /**
+    * @param url URL of source
+    * @return hash of content of source
+    * @throws IOException if source may not be read
+    */
+   public static String hash(URL url) throws IOException
+   {
+      MessageDigest digest = createDigest();
+      InputStream in = url.openStream();
+      try
+      {
+         byte[] buf = new byte[8192];
+         int r;
+         while ((r = in.read(buf)) != -1)
+            digest.update(buf, 0, r);
+      }
+      finally
+      {
+         in.close();
+      }
+      return toHex(digest.digest());
+   }
+
+   /**
+    * @param url URL of class path entry
+    * @return local file of entry or <code>null</code> if entry is not local
+    *         file or directory
+    */
+   private static File toFile(URL url)
+   {
+      if (!"file".equals(url.getProtocol()))
+         return null;
+      File file;
+      try
+      {
+         file = new File(url.toURI());
+      }
+      catch (URISyntaxException e)
+      {
+         file = new File(url.getPath());
+      }
+      catch (IllegalArgumentException e)
+      {
+         return null;
+      }
+      return file.exists() ? file : null;
+   }
+
+   /**
+    * Add size and time of last modification of file, or of all files of
+    * directory, to <code>stamp</code>.
+    *
+    * @param file file or directory
+    * @param stamp total size and max time of last modification
+    */
+   private static void stamp(File file, long[] stamp)
+   {
+      if (file.isDirectory())
+      {
+         File[] children = file.listFiles();
+         if (children != null)
+         {
+            for (File child : children)
+               stamp(child, stamp);
+         }
+      }
+      else
+      {
+         stamp[0] += file.length();
+         stamp[1] = Math.max(stamp[1], file.lastModified());
+      }
+   }
+
+   private static Entry read(File file) throws IOException
+   {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try
+      {
+         if (in.readInt() != FORMAT_VERSION)
+            throw new IOException("Unsupported format");
+         String target = in.readUTF();
+         int size = in.readInt();
+         Map<String, String> dependencies = new LinkedHashMap<String, String>(size);
+         for (int i = 0; i < size; i++)
+            dependencies.put(in.readUTF(), in.readUTF());
+         size = in.readInt();
+         Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>(size);
+         Set<String> shared = new HashSet<String>();
+         for (int i = 0; i < size; i++)
+         {
+            String name = in.readUTF();
+            if (in.readBoolean())
+               shared.add(name);
+            byte[] code = new byte[in.readInt()];
+            in.readFully(code);
+            classes.put(name, code);
+         }
+         return new Entry(target, classes, dependencies, shared);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   private static void write(File file, Entry entry) throws IOException
+   {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      try
+      {
+         out.writeInt(FORMAT_VERSION);
+         out.writeUTF(entry.target);
+         out.writeInt(entry.dependencies.size());
+         for (Map.Entry<String, String> dependency : entry.dependencies.entrySet())
+         {
+            out.writeUTF(dependency.getKey());
+            out.writeUTF(dependency.getValue());
+         }
+         out.writeInt(entry.classes.size());
+         for (Map.Entry<String, byte[]> clazz : entry.classes.entrySet())
+         {
+            out.writeUTF(clazz.getKey());
+            out.writeBoolean(entry.shared.contains(clazz.getKey()));
+            out.writeInt(clazz.getValue().length);
+            out.write(clazz.getValue());
+         }
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   private static MessageDigest createDigest()
+   {
+      try
+      {
+         return MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new IllegalStateException(e.getMessage(), e);
+      }
+   }
+
+   private static void update(MessageDigest digest, String str)
+   {
+      try
+      {
+         digest.update(str.getBytes("UTF-8"));
+      }
+      catch (UnsupportedEncodingException e)
+      {
+         throw new IllegalStateException(e.getMessage(), e);
+      }
+      digest.update((byte)0);
+   }
+
+   private static String toHex(byte[] hash)
+   {
+      StringBuilder hex = new StringBuilder(hash.length * 2);
+      for (byte b : hash)
+      {
+         hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+         hex.append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+   }
+}
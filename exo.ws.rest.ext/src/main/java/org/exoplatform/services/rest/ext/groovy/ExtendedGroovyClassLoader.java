@@ -19,6 +19,8 @@
 package org.exoplatform.services.rest.ext.groovy;
 
 import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyResourceLoader;
+import groovy.lang.GroovyRuntimeException;
 
 import org.codehaus.groovy.ast.ClassNode;
 import org.codehaus.groovy.ast.ModuleNode;
@@ -29,15 +31,23 @@ import org.codehaus.groovy.control.Phases;
 import org.codehaus.groovy.control.SourceUnit;
 import org.exoplatform.commons.utils.SecurityHelper;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.security.CodeSource;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -55,6 +65,8 @@ public class ExtendedGroovyClassLoader extends GroovyClassLoader
       protected final CompilationUnit cunit;
       protected final SourceUnit sunit;
       protected Class target;
+      private final Map<String, byte[]> bytecode = new LinkedHashMap<String, byte[]>();
+      private final Map<String, SourceUnit> sources = new HashMap<String, SourceUnit>();
 
       protected SingleClassCollector(ExtendedInnerLoader cl, CompilationUnit cunit, SourceUnit sunit)
       {
@@ -76,11 +88,14 @@ public class ExtendedGroovyClassLoader extends GroovyClassLoader
          }*/
          Class clazz = cl.defineClass(classNode.getName(), code, cunit.getAST().getCodeSource());
          getLoadedClasses().add(clazz);
+         bytecode.put(clazz.getName(), code);
+         ModuleNode module = classNode.getModule();
+         if (module != null)
+            sources.put(clazz.getName(), module.getContext());
          if (target == null)
          {
             ClassNode targetClassNode = null;
             SourceUnit targetSunit = null;
-            ModuleNode module = classNode.getModule();
 
             if (module != null)
             {
@@ -100,6 +115,23 @@ public class ExtendedGroovyClassLoader extends GroovyClassLoader
       {
          return target;
       }
+
+      /**
+       * @return bytecode of all compiled classes in order of compilation
+       */
+      public Map<String, byte[]> getBytecode()
+      {
+         return bytecode;
+      }
+
+      /**
+       * @param name name of compiled class
+       * @return source of class or <code>null</code> if it is unknown
+       */
+      SourceUnit getSource(String name)
+      {
+         return sources.get(name);
+      }
    }
 
    public static class MultipleClassCollector extends GroovyClassLoader.ClassCollector
@@ -165,6 +197,74 @@ public class ExtendedGroovyClassLoader extends GroovyClassLoader
       }
    }
 
+   /**
+    * Defines classes from {@link BytecodeCache}. Classes are defined when they
+    * are requested first time, so classes compiled together may refer to each
+    * other in any order. Shared classes (see
+    * {@link BytecodeCache.Entry#getShared()}) already loaded by parent are not
+    * defined again.
+    */
+   private static final class CachedClassesLoader extends ExtendedInnerLoader
+   {
+      private final ExtendedGroovyClassLoader parent;
+      private final Map<String, byte[]> classes;
+      private final Set<String> shared;
+      private final CodeSource cs;
+
+      CachedClassesLoader(ExtendedGroovyClassLoader parent, BytecodeCache.Entry entry, CodeSource cs)
+      {
+         super(parent);
+         this.parent = parent;
+         this.classes = new HashMap<String, byte[]>(entry.getClasses());
+         this.shared = entry.getShared();
+         this.cs = cs;
+      }
+
+      @Override
+      public Class loadClass(String name, boolean lookupScriptFiles, boolean preferClassOverScript, boolean resolve)
+         throws ClassNotFoundException, CompilationFailedException
+      {
+         Class clazz = defineCachedClass(name);
+         if (clazz != null)
+         {
+            if (resolve)
+               resolveClass(clazz);
+            return clazz;
+         }
+         return super.loadClass(name, lookupScriptFiles, preferClassOverScript, resolve);
+      }
+
+      synchronized Class defineCachedClass(String name)
+      {
+         Class clazz = findLoadedClass(name);
+         if (clazz == null && shared.contains(name))
+            clazz = parent.getClassCacheEntry(name);
+         if (clazz == null)
+         {
+            byte[] code = classes.remove(name);
+            if (code != null)
+               clazz = defineClass(name, code, cs);
+         }
+         return clazz;
+      }
+   }
+
+   private volatile BytecodeCache bytecodeCache;
+
+   /** Stamp of class path of this class loader, see {@link #getClassPathStamp()}. */
+   private volatile String classPathStamp;
+
+   /**
+    * Locks for compilation of scripts. Script is read and parsed under lock
+    * chosen by its name, the rest of compilation which resolves and defines
+    * classes is done under lock of the whole class loader.
+    */
+   private final Object[] compileLocks = new Object[32];
+   {
+      for (int i = 0; i < compileLocks.length; i++)
+         compileLocks[i] = new Object();
+   }
+
    public ExtendedGroovyClassLoader(ClassLoader classLoader)
    {
       super(classLoader);
@@ -173,6 +273,26 @@ public class ExtendedGroovyClassLoader extends GroovyClassLoader
    public ExtendedGroovyClassLoader(GroovyClassLoader parent)
    {
       super(parent);
+      if (parent instanceof ExtendedGroovyClassLoader)
+         bytecodeCache = ((ExtendedGroovyClassLoader)parent).getBytecodeCache();
+   }
+
+   /**
+    * @return cache of compiled classes or <code>null</code> if compiled
+    *         classes are not cached
+    */
+   public BytecodeCache getBytecodeCache()
+   {
+      return bytecodeCache;
+   }
+
+   /**
+    * @param bytecodeCache cache of compiled classes, <code>null</code> to
+    *        disable caching
+    */
+   public void setBytecodeCache(BytecodeCache bytecodeCache)
+   {
+      this.bytecodeCache = bytecodeCache;
    }
 
    public Class parseClass(InputStream in, String fileName, SourceFile[] files) throws CompilationFailedException
@@ -183,48 +303,243 @@ public class ExtendedGroovyClassLoader extends GroovyClassLoader
    protected Class doParseClass(InputStream in, String fileName, SourceFile[] files, int phase,
       CompilerConfiguration config, boolean shouldCacheSource) throws CompilationFailedException
    {
-      synchronized (sourceCache)
+      // Scripts with different names are parsed in parallel.
+      synchronized (getCompileLock(fileName))
       {
-         Class target = (Class)sourceCache.get(fileName);
+         Class target;
+         synchronized (sourceCache)
+         {
+            target = (Class)sourceCache.get(fileName);
+         }
          if (target == null)
          {
-            CodeSource cs = new CodeSource(getCodeSource(), (java.security.cert.Certificate[])null);
-            CompilationUnit cunit = createCompilationUnit(config, cs);
-            SourceUnit targetSunit = cunit.addSource(fileName, in);
-            if (files != null)
+            BytecodeCache cache = bytecodeCache;
+            String key = null;
+            if (cache != null && phase == Phases.CLASS_GENERATION)
             {
-               for (int i = 0; i < files.length; i++)
-                  cunit.addSource(files[i].getPath());
+               byte[] source = readSource(in, fileName);
+               in = new ByteArrayInputStream(source);
+               key = cache.createKey(fileName, source, files, getClassPathStamp(), config);
+               BytecodeCache.Entry entry = cache.get(key);
+               if (entry != null)
+               {
+                  synchronized (sourceCache)
+                  {
+                     target = defineCachedClasses(entry);
+                  }
+               }
             }
-            SingleClassCollector collector = createSingleCollector(cunit, targetSunit);
-            cunit.setClassgenCallback(collector);
-            cunit.compile(phase);
 
-            for (Iterator iter = collector.getLoadedClasses().iterator(); iter.hasNext();)
+            if (target == null)
             {
-               Class clazz = (Class)iter.next();
-               String classname = clazz.getName();
-               int i = classname.lastIndexOf('.');
-               if (i != -1)
+               CodeSource cs = new CodeSource(getCodeSource(), (java.security.cert.Certificate[])null);
+               CompilationUnit cunit = createCompilationUnit(config, cs);
+               SourceUnit targetSunit = cunit.addSource(fileName, in);
+               Set<SourceUnit> sunits = new HashSet<SourceUnit>();
+               sunits.add(targetSunit);
+               if (files != null)
                {
-                  String pkgname = classname.substring(0, i);
-                  Package pkg = getPackage(pkgname);
-                  if (pkg == null)
-                     definePackage(pkgname, null, null, null, null, null, null, null);
+                  for (int i = 0; i < files.length; i++)
+                     sunits.add(cunit.addSource(files[i].getPath()));
+               }
+               SingleClassCollector collector = createSingleCollector(cunit, targetSunit);
+               cunit.setClassgenCallback(collector);
+               cunit.compile(Math.min(phase, Phases.CONVERSION));
+               // Classes from source folders are resolved and defined under
+               // lock of class loader. Otherwise scripts compiled concurrently
+               // get different copies of the same class.
+               synchronized (sourceCache)
+               {
+                  cunit.compile(phase);
+                  for (Iterator iter = collector.getLoadedClasses().iterator(); iter.hasNext();)
+                     setClassCacheEntryAndPackage((Class)iter.next());
                }
-               setClassCacheEntry(clazz);
-            }
 
-            target = collector.getTarget();
+               target = collector.getTarget();
+
+               if (key != null && target != null)
+               {
+                  BytecodeCache.Entry entry = createCacheEntry(target, collector, cunit, sunits);
+                  if (entry != null)
+                     cache.put(key, entry);
+               }
+            }
 
             if (shouldCacheSource)
-               sourceCache.put(fileName, target);
+            {
+               synchronized (sourceCache)
+               {
+                  sourceCache.put(fileName, target);
+               }
+            }
          }
 
          return target;
       }
    }
 
+   /**
+    * Define classes from cache entry. Must be called under lock of
+    * <code>sourceCache</code>.
+    *
+    * @param entry cache entry
+    * @return class of script or <code>null</code> if entry does not contain it
+    */
+   private Class defineCachedClasses(final BytecodeCache.Entry entry)
+   {
+      final CodeSource cs = new CodeSource(getCodeSource(), (java.security.cert.Certificate[])null);
+      CachedClassesLoader loader = SecurityHelper.doPrivilegedAction(new PrivilegedAction<CachedClassesLoader>() {
+         public CachedClassesLoader run()
+         {
+            return new CachedClassesLoader(ExtendedGroovyClassLoader.this, entry, cs);
+         }
+      });
+      Class target = null;
+      for (String name : entry.getClasses().keySet())
+      {
+         Class clazz = loader.defineCachedClass(name);
+         if (clazz.getClassLoader() == loader)
+            setClassCacheEntryAndPackage(clazz);
+         if (name.equals(entry.getTarget()))
+            target = clazz;
+      }
+      return target;
+   }
+
+   /**
+    * @param sunits script and sources added to compilation directly, classes
+    *        compiled from other sources are shared
+    * @return cache entry for compiled script or <code>null</code> if
+    *         compilation depends on sources which are not accessible by URL
+    */
+   private BytecodeCache.Entry createCacheEntry(Class target, SingleClassCollector collector, CompilationUnit cunit,
+      Set<SourceUnit> sunits)
+   {
+      Map<String, String> dependencies = new LinkedHashMap<String, String>();
+      for (Iterator<SourceUnit> iter = cunit.iterator(); iter.hasNext();)
+      {
+         SourceUnit sunit = iter.next();
+         if (sunit == collector.sunit)
+            continue;
+         try
+         {
+            dependencies.put(sunit.getName(), BytecodeCache.hash(new URL(sunit.getName())));
+         }
+         catch (IOException e)
+         {
+            return null;
+         }
+      }
+      Set<String> shared = new HashSet<String>();
+      for (String name : collector.getBytecode().keySet())
+      {
+         SourceUnit source = collector.getSource(name);
+         if (source != null && !sunits.contains(source))
+            shared.add(name);
+      }
+      return new BytecodeCache.Entry(target.getName(), collector.getBytecode(), dependencies, shared);
+   }
+
+   /**
+    * Stamp of class path for key of {@link BytecodeCache}. Stamp is computed
+    * once and reused for all scripts. Content of directories is checked only
+    * for class path of this class loader. Directories of parent class loaders
+    * (e.g. <code>WEB-INF/classes</code>) are identified by URL only, they are
+    * not expected to be changed while class loader is in use. Source folders
+    * are identified by URL only, sources compiled together with script are
+    * checked by {@link BytecodeCache#get(String)}.
+    *
+    * @return stamp of class path and source folders of this class loader and
+    *         its parents
+    */
+   String getClassPathStamp()
+   {
+      ClassLoader parent = getParent();
+      while (parent != null && !(parent instanceof ExtendedGroovyClassLoader))
+         parent = parent.getParent();
+      String stamp = classPathStamp;
+      if (stamp == null)
+      {
+         List<URL> urls = new ArrayList<URL>();
+         GroovyResourceLoader resourceLoader = getResourceLoader();
+         if (resourceLoader instanceof DefaultGroovyResourceLoader)
+            urls.addAll(Arrays.asList(((DefaultGroovyResourceLoader)resourceLoader).roots));
+         for (ClassLoader cl = getParent(); cl != parent; cl = cl.getParent())
+         {
+            if (cl instanceof URLClassLoader)
+               urls.addAll(Arrays.asList(((URLClassLoader)cl).getURLs()));
+         }
+         stamp = BytecodeCache.stamp(getURLs(), true) + BytecodeCache.stamp(urls.toArray(new URL[urls.size()]), false);
+         classPathStamp = stamp;
+      }
+      // Parent keeps its own stamp, it is not copied since it may be changed.
+      return parent == null ? stamp : ((ExtendedGroovyClassLoader)parent).getClassPathStamp() + stamp;
+   }
+
+   @Override
+   public void addURL(URL url)
+   {
+      super.addURL(url);
+      classPathStamp = null;
+   }
+
+   @Override
+   public void setResourceLoader(GroovyResourceLoader resourceLoader)
+   {
+      super.setResourceLoader(resourceLoader);
+      classPathStamp = null;
+   }
+
+   private static byte[] readSource(InputStream in, String fileName)
+   {
+      try
+      {
+         ByteArrayOutputStream out = new ByteArrayOutputStream();
+         byte[] buf = new byte[8192];
+         int r;
+         while ((r = in.read(buf)) != -1)
+            out.write(buf, 0, r);
+         return out.toByteArray();
+      }
+      catch (IOException e)
+      {
+         throw new GroovyRuntimeException("Unable read source of " + fileName + ". " + e.getMessage(), e);
+      }
+   }
+
+   private void setClassCacheEntryAndPackage(Class clazz)
+   {
+      String classname = clazz.getName();
+      int i = classname.lastIndexOf('.');
+      if (i != -1)
+      {
+         String pkgname = classname.substring(0, i);
+         Package pkg = getPackage(pkgname);
+         if (pkg == null)
+         {
+            try
+            {
+               definePackage(pkgname, null, null, null, null, null, null, null);
+            }
+            catch (IllegalArgumentException e)
+            {
+               // Package is defined concurrently.
+            }
+         }
+      }
+      setClassCacheEntry(clazz);
+   }
+
+   /**
+    * @param fileName name of script
+    * @return lock for compilation of script
+    */
+   private Object getCompileLock(String fileName)
+   {
+      int hash = fileName == null ? 0 : fileName.hashCode();
+      return compileLocks[(hash & 0x7FFFFFFF) % compileLocks.length];
+   }
+
    public Class[] parseClasses(SourceFile[] files)
    {
       return doParseClasses(files, Phases.CLASS_GENERATION, null);
@@ -232,6 +547,9 @@ public class ExtendedGroovyClassLoader extends GroovyClassLoader
 
    protected Class[] doParseClasses(SourceFile[] sources, int phase, CompilerConfiguration config)
    {
+      // Sources are not identified by one name as in doParseClass, so the
+      // whole class loader is locked. Otherwise the same sources compiled
+      // concurrently are defined twice by different inner loaders.
       synchronized (classCache)
       {
          CodeSource cs = new CodeSource(getCodeSource(), (java.security.cert.Certificate[])null);
@@ -244,19 +562,7 @@ public class ExtendedGroovyClassLoader extends GroovyClassLoader
          cunit.compile(phase);
 
          for (Iterator iter = collector.getLoadedClasses().iterator(); iter.hasNext();)
-         {
-            Class clazz = (Class)iter.next();
-            String classname = clazz.getName();
-            int i = classname.lastIndexOf('.');
-            if (i != -1)
-            {
-               String pkgname = classname.substring(0, i);
-               Package pkg = getPackage(pkgname);
-               if (pkg == null)
-                  definePackage(pkgname, null, null, null, null, null, null, null);
-            }
-            setClassCacheEntry(clazz);
-         }
+            setClassCacheEntryAndPackage((Class)iter.next());
          List<Class> compiledClasses = collector.getCompiledClasses();
          return compiledClasses.toArray(new Class[compiledClasses.size()]);
       }
@@ -20,8 +20,10 @@ package org.exoplatform.services.rest.ext.groovy;
 
 import groovy.lang.GroovyClassLoader;
 
+import org.exoplatform.commons.utils.PrivilegedSystemHelper;
 import org.exoplatform.commons.utils.SecurityHelper;
 
+import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.PrivilegedAction;
@@ -37,6 +39,13 @@ import java.security.PrivilegedAction;
  */
 public class GroovyClassLoaderProvider
 {
+   /**
+    * Name of system property which sets directory of on-disk cache of compiled
+    * groovy scripts, see {@link BytecodeCache}. Compiled scripts are not
+    * cached if property is not set.
+    */
+   public static final String BYTECODE_CACHE_DIR = "exo.ws.rest.groovy.cache.dir";
+
    /** Preset default GroovyClassLoader. */
    private ExtendedGroovyClassLoader defaultClassLoader;
 
@@ -49,6 +58,9 @@ public class GroovyClassLoaderProvider
             return new ExtendedGroovyClassLoader(GroovyClassLoaderProvider.class.getClassLoader());
          }
       }));
+      String cacheDir = PrivilegedSystemHelper.getProperty(BYTECODE_CACHE_DIR);
+      if (cacheDir != null && cacheDir.length() > 0)
+         defaultClassLoader.setBytecodeCache(new BytecodeCache(new File(cacheDir)));
    }
 
    protected GroovyClassLoaderProvider(ExtendedGroovyClassLoader defaultClassLoader)
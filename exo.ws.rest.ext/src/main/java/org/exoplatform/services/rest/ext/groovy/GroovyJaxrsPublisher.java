@@ -31,6 +31,7 @@ import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
 import org.exoplatform.services.rest.ObjectFactory;
 import org.exoplatform.services.rest.PerRequestObjectFactory;
+import org.exoplatform.services.rest.impl.EnvironmentContext;
 import org.exoplatform.services.rest.impl.ResourceBinder;
 import org.exoplatform.services.rest.impl.ResourcePublicationException;
 import org.exoplatform.services.rest.resource.AbstractResourceDescriptor;
@@ -52,9 +53,19 @@ import java.security.PrivilegedExceptionAction;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.Path;
 import javax.ws.rs.core.MultivaluedMap;
@@ -90,6 +101,34 @@ public class GroovyJaxrsPublisher
       }
    };
 
+   /**
+    * Executor for compilation of Groovy scripts published via
+    * {@link #publishPerRequest(Map, MultivaluedMap, SourceFolder[], SourceFile[])} and
+    * {@link #publishSingleton(Map, MultivaluedMap, SourceFolder[], SourceFile[])}. Number of threads is limited by
+    * number of available processors, idle threads are stopped. Threads do not keep context of thread which created
+    * them, each task gets context of thread which submitted it, see {@link #parseClasses(Map, SourceFolder[],
+    * SourceFile[])}.
+    */
+   private static final ThreadPoolExecutor compiler;
+   static
+   {
+      int threads = Runtime.getRuntime().availableProcessors();
+      compiler =
+         new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+               private final AtomicInteger counter = new AtomicInteger();
+
+               public Thread newThread(Runnable r)
+               {
+                  Thread t = new Thread(r, "groovy-compiler-" + counter.incrementAndGet());
+                  t.setDaemon(true);
+                  t.setContextClassLoader(GroovyJaxrsPublisher.class.getClassLoader());
+                  return t;
+               }
+            });
+      compiler.allowCoreThreadTimeOut(true);
+   }
+
    /** Default character set name. */
    protected static final String DEFAULT_CHARSET_NAME = "UTF-8";
 
@@ -160,14 +199,10 @@ public class GroovyJaxrsPublisher
          return null;
 
       UriPattern pattern = new UriPattern(path);
-      List<ObjectFactory<AbstractResourceDescriptor>> rootResources = binder.getResources();
-      synchronized (rootResources)
+      for (ObjectFactory<AbstractResourceDescriptor> res : binder.getResources())
       {
-         for (ObjectFactory<AbstractResourceDescriptor> res : rootResources)
-         {
-            if (res.getObjectModel().getUriPattern().equals(pattern))
-               return res;
-         }
+         if (res.getObjectModel().getUriPattern().equals(pattern))
+            return res;
       }
       // If resource not exists any more but still in mapping.
       resources.remove(resourceId);
@@ -241,6 +276,33 @@ public class GroovyJaxrsPublisher
       resources.put(resourceId, rc.getAnnotation(Path.class).value());
    }
 
+   /**
+    * Parse given sources in parallel and publish results as per-request
+    * RESTful services. Either all or none of resources are published.
+    * 
+    * @param sources groovy sources of RESTful services mapped to id to be
+    *           assigned to resource
+    * @param properties optional resources properties. This parameter may be
+    *           <code>null</code>
+    * @param src additional path to Groovy sources
+    * @param files Groovy source files to be added in build path directly
+    * @throws ResourcePublicationException see
+    *            {@link ResourceBinder#addResources(List)}
+    * @throws CompilationFailedException if compilation fails from source errors
+    */
+   public void publishPerRequest(Map<ResourceId, String> sources, MultivaluedMap<String, String> properties,
+      SourceFolder[] src, SourceFile[] files)
+   {
+      Map<ResourceId, Class<?>> classes = parseClasses(sources, src, files);
+      List<ObjectFactory<AbstractResourceDescriptor>> factories =
+         new ArrayList<ObjectFactory<AbstractResourceDescriptor>>(classes.size());
+      for (Class<?> rc : classes.values())
+         factories.add(binder.createResourceFactory(rc, properties));
+      binder.addResources(factories);
+      for (Map.Entry<ResourceId, Class<?>> e : classes.entrySet())
+         resources.put(e.getKey(), e.getValue().getAnnotation(Path.class).value());
+   }
+
    /**
     * Parse given <code>source</code> and publish result as per-request RESTful
     * service.
@@ -395,6 +457,56 @@ public class GroovyJaxrsPublisher
       resources.put(resourceId, resource.getClass().getAnnotation(Path.class).value());
    }
 
+   /**
+    * Parse given sources in parallel and publish results as singleton RESTful
+    * services. Either all or none of resources are published.
+    * 
+    * @param sources groovy sources of RESTful services mapped to id to be
+    *           assigned to resource
+    * @param properties optional resources properties. This parameter may be
+    *           <code>null</code>
+    * @param src additional path to Groovy sources
+    * @param files Groovy source files to be added in build path directly
+    * @throws ResourcePublicationException see
+    *            {@link ResourceBinder#addResources(List)}
+    * @throws CompilationFailedException if compilation fails from source errors
+    */
+   public void publishSingleton(Map<ResourceId, String> sources, MultivaluedMap<String, String> properties,
+      SourceFolder[] src, SourceFile[] files)
+   {
+      Map<ResourceId, Class<?>> classes = parseClasses(sources, src, files);
+      List<ObjectFactory<AbstractResourceDescriptor>> factories =
+         new ArrayList<ObjectFactory<AbstractResourceDescriptor>>(classes.size());
+      for (Class<?> clazz : classes.values())
+      {
+         Object resource;
+         try
+         {
+            resource = createInstance(clazz);
+         }
+         catch (IllegalArgumentException e)
+         {
+            throw new ResourcePublicationException(e.getMessage());
+         }
+         catch (InstantiationException e)
+         {
+            throw new ResourcePublicationException(e.getMessage());
+         }
+         catch (IllegalAccessException e)
+         {
+            throw new ResourcePublicationException(e.getMessage());
+         }
+         catch (InvocationTargetException e)
+         {
+            throw new ResourcePublicationException(e.getMessage());
+         }
+         factories.add(binder.createResourceFactory(resource, properties));
+      }
+      binder.addResources(factories);
+      for (Map.Entry<ResourceId, Class<?>> e : classes.entrySet())
+         resources.put(e.getKey(), e.getValue().getAnnotation(Path.class).value());
+   }
+
    /**
     * Parse given <code>source</code> and publish result as singleton RESTful
     * service.
@@ -662,6 +774,105 @@ public class GroovyJaxrsPublisher
          + ". Required constructor's dependencies can't be resolved. ");
    }
 
+   /**
+    * Compile sources in parallel. If compilation of any source fails then
+    * compilation of other sources is cancelled. Current container,
+    * environment and context class loader of caller are set for compilation
+    * of each source and reset when it is done.
+    * 
+    * @param sources groovy sources mapped to resource id
+    * @param src additional path to Groovy sources
+    * @param files Groovy source files to be added in build path directly
+    * @return compiled classes mapped to resource id
+    */
+   private Map<ResourceId, Class<?>> parseClasses(Map<ResourceId, String> sources, final SourceFolder[] src,
+      final SourceFile[] files)
+   {
+      final ExtendedGroovyClassLoader cl;
+      try
+      {
+         cl = SecurityHelper.doPrivilegedExceptionAction(new PrivilegedExceptionAction<ExtendedGroovyClassLoader>() {
+            public ExtendedGroovyClassLoader run() throws MalformedURLException
+            {
+               return (src == null) ? classLoaderProvider.getGroovyClassLoader() : classLoaderProvider
+                  .getGroovyClassLoader(src);
+            }
+         });
+      }
+      catch (PrivilegedActionException e)
+      {
+         Throwable cause = e.getCause();
+         // MalformedURLException
+         throw new IllegalArgumentException(cause.getMessage(), cause);
+      }
+
+      final ExoContainer container = ExoContainerContext.getCurrentContainerIfPresent();
+      final EnvironmentContext env = EnvironmentContext.getCurrent();
+      final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+      Map<ResourceId, Future<Class<?>>> futures = new LinkedHashMap<ResourceId, Future<Class<?>>>(sources.size());
+      for (Map.Entry<ResourceId, String> e : sources.entrySet())
+      {
+         final String name = e.getKey().getId();
+         final byte[] bytes = e.getValue().getBytes(DEFAULT_CHARSET);
+         futures.put(e.getKey(), compiler.submit(new Callable<Class<?>>() {
+            public Class<?> call()
+            {
+               return SecurityHelper.doPrivilegedAction(new PrivilegedAction<Class<?>>() {
+                  public Class<?> run()
+                  {
+                     Thread thread = Thread.currentThread();
+                     ExoContainer oldContainer = ExoContainerContext.getCurrentContainerIfPresent();
+                     ClassLoader oldClassLoader = thread.getContextClassLoader();
+                     ExoContainerContext.setCurrentContainer(container);
+                     EnvironmentContext.setCurrent(env);
+                     thread.setContextClassLoader(contextClassLoader);
+                     try
+                     {
+                        return cl.parseClass(new ByteArrayInputStream(bytes), name, files);
+                     }
+                     finally
+                     {
+                        thread.setContextClassLoader(oldClassLoader);
+                        EnvironmentContext.setCurrent(null);
+                        ExoContainerContext.setCurrentContainer(oldContainer);
+                     }
+                  }
+               });
+            }
+         }));
+      }
+
+      Map<ResourceId, Class<?>> classes = new LinkedHashMap<ResourceId, Class<?>>(sources.size());
+      try
+      {
+         for (Map.Entry<ResourceId, Future<Class<?>>> e : futures.entrySet())
+            classes.put(e.getKey(), e.getValue().get());
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new ResourcePublicationException("Compilation of Groovy resources interrupted. ");
+      }
+      catch (ExecutionException e)
+      {
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException)
+            throw (RuntimeException)cause;
+         if (cause instanceof Error)
+            throw (Error)cause;
+         throw new ResourcePublicationException(cause.getMessage());
+      }
+      finally
+      {
+         if (classes.size() < futures.size())
+         {
+            for (Future<Class<?>> f : futures.values())
+               f.cancel(true);
+         }
+      }
+      return classes;
+   }
+
    private void publishPerRequest(String source, Charset charset, ResourceId resourceId,
       MultivaluedMap<String, String> properties, SourceFolder[] src, SourceFile[] files)
    {
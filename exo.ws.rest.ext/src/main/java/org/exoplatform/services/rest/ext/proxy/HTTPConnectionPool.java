@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.ext.proxy;
+
+import org.exoplatform.common.http.client.HTTPConnection;
+import org.exoplatform.common.http.client.ProtocolNotSuppException;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool of {@link HTTPConnection}s. {@link HTTPConnection} keeps socket open
+ * between requests if remote server supports keep-alive, so reusing of the
+ * same connection for the next request to the same host saves time required
+ * to establish new TCP connection. Connection is leased to one caller at a
+ * time and must be given back with {@link #release(HTTPConnection, boolean)}
+ * when response is read or closed.
+ * <p>
+ * Connections are grouped by route (protocol, host and port). Number of
+ * connections (leased and idle) for one route is limited, caller waits for
+ * free connection if limit is reached. Connections which are not used longer
+ * then max idle time are closed.
+ * </p>
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class HTTPConnectionPool
+{
+
+   /** Default max number of connections per route. */
+   public static final int DEFAULT_MAX_PER_ROUTE = 20;
+
+   /** Default max time (in milliseconds) connection may stay idle in pool. */
+   public static final long DEFAULT_MAX_IDLE_TIME = 30000;
+
+   /** Default max time (in milliseconds) to wait for free connection. */
+   public static final long DEFAULT_WAIT_TIMEOUT = 10000;
+
+   private static final class IdleConnection
+   {
+      final HTTPConnection connection;
+
+      final long since;
+
+      IdleConnection(HTTPConnection connection, long since)
+      {
+         this.connection = connection;
+         this.since = since;
+      }
+   }
+
+   private static final class Route
+   {
+      final String key;
+
+      /** Idle connections, most recently used first. */
+      final LinkedList<IdleConnection> idle = new LinkedList<IdleConnection>();
+
+      int leased;
+
+      Route(String key)
+      {
+         this.key = key;
+      }
+   }
+
+   private final Map<String, Route> routes = new HashMap<String, Route>();
+
+   private final Map<HTTPConnection, Route> leased = new IdentityHashMap<HTTPConnection, Route>();
+
+   private final int maxPerRoute;
+
+   private final long maxIdleTime;
+
+   private final long waitTimeout;
+
+   private long nextEviction;
+
+   private boolean closed;
+
+   private long createdCount;
+
+   private long reusedCount;
+
+   private long evictedCount;
+
+   private long timeoutCount;
+
+   /**
+    * @param maxPerRoute max number of connections per route
+    * @param maxIdleTime max time (in milliseconds) connection may stay idle in
+    *        pool
+    * @param waitTimeout max time (in milliseconds) to wait for free connection
+    *        if limit of connections for route is reached. Zero or negative
+    *        value means do not wait at all
+    */
+   public HTTPConnectionPool(int maxPerRoute, long maxIdleTime, long waitTimeout)
+   {
+      if (maxPerRoute < 1)
+         throw new IllegalArgumentException("Max number of connections per route must be greater then zero.");
+      if (maxIdleTime < 1)
+         throw new IllegalArgumentException("Max idle time must be greater then zero.");
+      this.maxPerRoute = maxPerRoute;
+      this.maxIdleTime = maxIdleTime;
+      this.waitTimeout = waitTimeout;
+   }
+
+   public HTTPConnectionPool()
+   {
+      this(DEFAULT_MAX_PER_ROUTE, DEFAULT_MAX_IDLE_TIME, DEFAULT_WAIT_TIMEOUT);
+   }
+
+   /**
+    * Get connection to host given in <code>url</code>. Idle connection is
+    * reused if any, otherwise new one created if limit of connections for
+    * route is not reached yet. If limit is reached then wait until other
+    * connection released.
+    *
+    * @param url URL
+    * @return connection
+    * @throws ProtocolNotSuppException if protocol of URL is not supported by
+    *         {@link HTTPConnection}
+    * @throws IOException if timeout is reached while waiting for free
+    *         connection or thread is interrupted
+    */
+   public HTTPConnection borrow(URL url) throws ProtocolNotSuppException, IOException
+   {
+      String key = routeKey(url.getProtocol(), url.getHost(), url.getPort() != -1 ? url.getPort() : url
+         .getDefaultPort());
+      List<HTTPConnection> expired = new ArrayList<HTTPConnection>();
+      try
+      {
+         synchronized (this)
+         {
+            if (closed)
+               throw new IllegalStateException("Connection pool is closed.");
+            long now = System.currentTimeMillis();
+            if (now >= nextEviction)
+            {
+               evictExpired(now, expired);
+               nextEviction = now + maxIdleTime;
+            }
+            long deadline = now + waitTimeout;
+            for (;;)
+            {
+               // Route may be removed from pool while we are waiting.
+               Route route = routes.get(key);
+               if (route == null)
+               {
+                  route = new Route(key);
+                  routes.put(key, route);
+               }
+               IdleConnection idle;
+               while ((idle = route.idle.poll()) != null)
+               {
+                  if (now - idle.since > maxIdleTime)
+                  {
+                     evictedCount++;
+                     expired.add(idle.connection);
+                  }
+                  else
+                  {
+                     reusedCount++;
+                     return lease(route, idle.connection);
+                  }
+               }
+               if (route.leased < maxPerRoute)
+               {
+                  HTTPConnection connection = new HTTPConnection(url);
+                  createdCount++;
+                  return lease(route, connection);
+               }
+               long remaining = deadline - now;
+               if (remaining <= 0)
+               {
+                  timeoutCount++;
+                  throw new IOException("Timeout while waiting for free connection to " + key + ".");
+               }
+               try
+               {
+                  wait(remaining);
+               }
+               catch (InterruptedException e)
+               {
+                  Thread.currentThread().interrupt();
+                  throw new IOException("Interrupted while waiting for free connection to " + key + ".");
+               }
+               if (closed)
+                  throw new IllegalStateException("Connection pool is closed.");
+               now = System.currentTimeMillis();
+            }
+         }
+      }
+      finally
+      {
+         // Close connections out of lock.
+         stop(expired);
+      }
+   }
+
+   /**
+    * Give back connection obtained with {@link #borrow(URL)}. Connection
+    * which is not reusable, e.g. its response was not read completely or
+    * error occurs while request was processed, is closed.
+    *
+    * @param connection connection
+    * @param reusable <code>true</code> if connection may be used for next
+    *        requests and <code>false</code> otherwise
+    */
+   public void release(HTTPConnection connection, boolean reusable)
+   {
+      synchronized (this)
+      {
+         Route route = leased.remove(connection);
+         if (route == null)
+            // Not from this pool or released already.
+            return;
+         route.leased--;
+         notifyAll();
+         if (reusable && !closed)
+         {
+            route.idle.addFirst(new IdleConnection(connection, System.currentTimeMillis()));
+            return;
+         }
+         if (route.leased == 0 && route.idle.isEmpty())
+            routes.remove(route.key);
+      }
+      connection.stop();
+   }
+
+   /**
+    * Close connections which stay idle longer then max idle time. Expired
+    * connections are also checked when connections are borrowed, so it is
+    * not required to call this method periodically.
+    */
+   public void evictExpired()
+   {
+      List<HTTPConnection> expired = new ArrayList<HTTPConnection>();
+      synchronized (this)
+      {
+         evictExpired(System.currentTimeMillis(), expired);
+      }
+      stop(expired);
+   }
+
+   /**
+    * Close all idle connections and prevent borrowing of new connections.
+    * Connections leased at the moment are closed when they are released.
+    */
+   public void close()
+   {
+      List<HTTPConnection> idle = new ArrayList<HTTPConnection>();
+      synchronized (this)
+      {
+         closed = true;
+         for (Route route : routes.values())
+         {
+            for (IdleConnection c : route.idle)
+               idle.add(c.connection);
+            route.idle.clear();
+         }
+         routes.clear();
+         notifyAll();
+      }
+      stop(idle);
+   }
+
+   /**
+    * @return number of connections currently leased
+    */
+   public synchronized int getLeasedCount()
+   {
+      return leased.size();
+   }
+
+   /**
+    * @return number of idle connections in pool
+    */
+   public synchronized int getIdleCount()
+   {
+      int count = 0;
+      for (Route route : routes.values())
+         count += route.idle.size();
+      return count;
+   }
+
+   /**
+    * @return number of connections created by pool
+    */
+   public synchronized long getCreatedCount()
+   {
+      return createdCount;
+   }
+
+   /**
+    * @return number of times when idle connection was reused
+    */
+   public synchronized long getReusedCount()
+   {
+      return reusedCount;
+   }
+
+   /**
+    * @return number of idle connections closed because of max idle time
+    */
+   public synchronized long getEvictedCount()
+   {
+      return evictedCount;
+   }
+
+   /**
+    * @return number of times when caller did not get connection because of
+    *         wait timeout
+    */
+   public synchronized long getTimeoutCount()
+   {
+      return timeoutCount;
+   }
+
+   /**
+    * @see java.lang.Object#toString()
+    */
+   @Override
+   public synchronized String toString()
+   {
+      return "HTTPConnectionPool [routes: " + routes.size() + ", leased: " + leased.size() + ", idle: "
+         + getIdleCount() + ", created: " + createdCount + ", reused: " + reusedCount + ", evicted: " + evictedCount
+         + ", timeouts: " + timeoutCount + "]";
+   }
+
+   private HTTPConnection lease(Route route, HTTPConnection connection)
+   {
+      route.leased++;
+      leased.put(connection, route);
+      return connection;
+   }
+
+   private void evictExpired(long now, List<HTTPConnection> expired)
+   {
+      for (Iterator<Route> i = routes.values().iterator(); i.hasNext();)
+      {
+         Route route = i.next();
+         // The oldest connections are at the end of list.
+         while (!route.idle.isEmpty() && now - route.idle.getLast().since > maxIdleTime)
+         {
+            evictedCount++;
+            expired.add(route.idle.removeLast().connection);
+         }
+         if (route.leased == 0 && route.idle.isEmpty())
+            i.remove();
+      }
+   }
+
+   private static void stop(List<HTTPConnection> connections)
+   {
+      for (HTTPConnection connection : connections)
+         connection.stop();
+   }
+
+   private static String routeKey(String protocol, String host, int port)
+   {
+      return protocol.toLowerCase() + "://" + host.toLowerCase() + ':' + port;
+   }
+
+}
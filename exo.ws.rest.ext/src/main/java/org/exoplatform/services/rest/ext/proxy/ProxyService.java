@@ -24,10 +24,16 @@ import org.exoplatform.common.http.client.HttpOutputStream;
 import org.exoplatform.common.http.client.ModuleException;
 import org.exoplatform.common.http.client.NVPair;
 import org.exoplatform.common.http.client.ProtocolNotSuppException;
+import org.exoplatform.management.annotations.Managed;
+import org.exoplatform.management.annotations.ManagedDescription;
+import org.exoplatform.management.jmx.annotations.NameTemplate;
+import org.exoplatform.management.jmx.annotations.Property;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
 import org.exoplatform.services.rest.resource.ResourceContainer;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -54,16 +60,82 @@ import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.core.Response.ResponseBuilder;
 
 /**
+ * Proxy to remote HTTP resources. Connections to remote hosts are pooled,
+ * statistic of pool is available through management layer.
+ *
  * @author <a href="mailto:max.shaposhnik@exoplatform.com">Max Shaposhnik</a>
  * @version $Id$
  */
 @Path("proxy")
+@Managed
+@ManagedDescription("Proxy to remote HTTP resources")
+@NameTemplate({@Property(key = "service", value = "rest"), @Property(key = "view", value = "proxy")})
 public class ProxyService implements ResourceContainer
 {
    protected static final int DEFAULT_CONNECT_TIMEOUT_MS = 5000;
 
    private static final Log LOG = ExoLogger.getLogger(ProxyService.class);
 
+   /** Connections shared by all instances created with default constructor. */
+   private static final HTTPConnectionPool DEFAULT_CONNECTION_POOL = new HTTPConnectionPool();
+
+   private final HTTPConnectionPool connectionPool;
+
+   public ProxyService()
+   {
+      this(DEFAULT_CONNECTION_POOL);
+   }
+
+   /**
+    * @param connectionPool pool of connections to remote hosts
+    */
+   protected ProxyService(HTTPConnectionPool connectionPool)
+   {
+      this.connectionPool = connectionPool;
+   }
+
+   @Managed
+   @ManagedDescription("Number of connections to remote hosts currently in use")
+   public int getLeasedConnections()
+   {
+      return connectionPool.getLeasedCount();
+   }
+
+   @Managed
+   @ManagedDescription("Number of idle connections to remote hosts")
+   public int getIdleConnections()
+   {
+      return connectionPool.getIdleCount();
+   }
+
+   @Managed
+   @ManagedDescription("Number of created connections to remote hosts")
+   public long getCreatedConnections()
+   {
+      return connectionPool.getCreatedCount();
+   }
+
+   @Managed
+   @ManagedDescription("Number of times when idle connection was reused")
+   public long getReusedConnections()
+   {
+      return connectionPool.getReusedCount();
+   }
+
+   @Managed
+   @ManagedDescription("Number of idle connections closed because of max idle time")
+   public long getEvictedConnections()
+   {
+      return connectionPool.getEvictedCount();
+   }
+
+   @Managed
+   @ManagedDescription("Number of requests failed because there was no free connection")
+   public long getConnectionTimeouts()
+   {
+      return connectionPool.getTimeoutCount();
+   }
+
    @DELETE
    public Response doProxyDelete(@Context HttpHeaders headers, @Context UriInfo uriInfo,
       @QueryParam("url") String urlParam)
@@ -73,10 +145,12 @@ public class ProxyService implements ResourceContainer
          IllegalArgumentException e = new IllegalArgumentException("'url' parameter not found in proxy request");
          throw new WebApplicationException(e, createErrorResponse(e, 404));
       }
+      HTTPConnection conn = null;
+      Response response = null;
       try
       {
          URL url = new URL(urlParam);
-         HTTPConnection conn = new HTTPConnection(url);
+         conn = connectionPool.borrow(url);
          conn.setTimeout(DEFAULT_CONNECT_TIMEOUT_MS);
          NVPair[] headerPairs = toNVPair(headers.getRequestHeaders(), //
             Collections.singleton(new CaseInsensitiveStringWrapper(HttpHeaders.HOST)));
@@ -101,7 +175,8 @@ public class ProxyService implements ResourceContainer
                }
             }
          }
-         return createResponse(resp);
+         response = createResponse(resp, conn);
+         return response;
       }
       catch (MalformedURLException mue)
       {
@@ -119,6 +194,15 @@ public class ProxyService implements ResourceContainer
       {
          throw new WebApplicationException(me, createErrorResponse(me, 500));
       }
+      finally
+      {
+         // If response is created then connection is released when entity
+         // stream is read or closed.
+         if (response == null && conn != null)
+         {
+            connectionPool.release(conn, false);
+         }
+      }
    }
 
    @GET
@@ -129,10 +213,12 @@ public class ProxyService implements ResourceContainer
          IllegalArgumentException e = new IllegalArgumentException("'url' parameter not found in proxy request");
          throw new WebApplicationException(e, createErrorResponse(e, 404));
       }
+      HTTPConnection conn = null;
+      Response response = null;
       try
       {
          URL url = new URL(urlParam);
-         HTTPConnection conn = new HTTPConnection(url);
+         conn = connectionPool.borrow(url);
          conn.setTimeout(DEFAULT_CONNECT_TIMEOUT_MS);
          NVPair[] headerPairs = toNVPair(headers.getRequestHeaders(), //
             Collections.singleton(new CaseInsensitiveStringWrapper(HttpHeaders.HOST)));
@@ -157,7 +243,8 @@ public class ProxyService implements ResourceContainer
                }
             }
          }
-         return createResponse(resp);
+         response = createResponse(resp, conn);
+         return response;
       }
       catch (MalformedURLException mue)
       {
@@ -175,6 +262,15 @@ public class ProxyService implements ResourceContainer
       {
          throw new WebApplicationException(me, createErrorResponse(me, 500));
       }
+      finally
+      {
+         // If response is created then connection is released when entity
+         // stream is read or closed.
+         if (response == null && conn != null)
+         {
+            connectionPool.release(conn, false);
+         }
+      }
    }
 
    @POST
@@ -186,11 +282,12 @@ public class ProxyService implements ResourceContainer
          IllegalArgumentException e = new IllegalArgumentException("'url' parameter not found in proxy request");
          throw new WebApplicationException(e, createErrorResponse(e, 404));
       }
-
+      HTTPConnection conn = null;
+      Response response = null;
       try
       {
          URL url = new URL(urlParam);
-         HTTPConnection conn = new HTTPConnection(url);
+         conn = connectionPool.borrow(url);
          conn.setTimeout(DEFAULT_CONNECT_TIMEOUT_MS);
          NVPair[] headerPairs = toNVPair(headers.getRequestHeaders(), //
             Collections.singleton(new CaseInsensitiveStringWrapper(HttpHeaders.HOST)));
@@ -232,7 +329,8 @@ public class ProxyService implements ResourceContainer
                }
             }
          }
-         return createResponse(resp);
+         response = createResponse(resp, conn);
+         return response;
       }
       catch (MalformedURLException mue)
       {
@@ -250,6 +348,15 @@ public class ProxyService implements ResourceContainer
       {
          throw new WebApplicationException(me, createErrorResponse(me, 500));
       }
+      finally
+      {
+         // If response is created then connection is released when entity
+         // stream is read or closed.
+         if (response == null && conn != null)
+         {
+            connectionPool.release(conn, false);
+         }
+      }
    }
 
    @PUT
@@ -261,11 +368,12 @@ public class ProxyService implements ResourceContainer
          IllegalArgumentException e = new IllegalArgumentException("'url' parameter not found in proxy request");
          throw new WebApplicationException(e, createErrorResponse(e, 404));
       }
-
+      HTTPConnection conn = null;
+      Response response = null;
       try
       {
          URL url = new URL(urlParam);
-         HTTPConnection conn = new HTTPConnection(url);
+         conn = connectionPool.borrow(url);
          conn.setTimeout(DEFAULT_CONNECT_TIMEOUT_MS);
          NVPair[] headerPairs = toNVPair(headers.getRequestHeaders(), //
             Collections.singleton(new CaseInsensitiveStringWrapper(HttpHeaders.HOST)));
@@ -307,7 +415,8 @@ public class ProxyService implements ResourceContainer
                }
             }
          }
-         return createResponse(resp);
+         response = createResponse(resp, conn);
+         return response;
       }
       catch (MalformedURLException mue)
       {
@@ -325,6 +434,15 @@ public class ProxyService implements ResourceContainer
       {
          throw new WebApplicationException(me, createErrorResponse(me, 500));
       }
+      finally
+      {
+         // If response is created then connection is released when entity
+         // stream is read or closed.
+         if (response == null && conn != null)
+         {
+            connectionPool.release(conn, false);
+         }
+      }
    }
 
    /**
@@ -340,23 +458,39 @@ public class ProxyService implements ResourceContainer
    }
 
    /**
-    * Creates the response from HTTP response.
+    * Creates the response from HTTP response. Connection is released when
+    * entity stream is read or closed.
     *
     * @param httpResponse the http response
+    * @param conn connection used for request
     * @return response Response
     */
-   private Response createResponse(HTTPResponse httpResponse)
+   private Response createResponse(HTTPResponse httpResponse, HTTPConnection conn)
    {
       ResponseBuilder responseBuilder;
       try
       {
-         responseBuilder = Response.status(httpResponse.getStatusCode());
+         int status = httpResponse.getStatusCode();
+         responseBuilder = Response.status(status);
          for (Enumeration<String> en = httpResponse.listHeaders(); en.hasMoreElements();)
          {
             String headerName = en.nextElement();
             responseBuilder.header(headerName, httpResponse.getHeader(headerName));
          }
-         return responseBuilder.entity(httpResponse.getInputStream()).build();
+         InputStream entity;
+         if (status == 204 || status == 304 || "0".equals(httpResponse.getHeader(HttpHeaders.CONTENT_LENGTH)))
+         {
+            // There is no content, entity stream may not be read at all. Do not
+            // keep connection leased.
+            byte[] data = httpResponse.getData();
+            connectionPool.release(conn, true);
+            entity = new ByteArrayInputStream(data != null ? data : new byte[0]);
+         }
+         else
+         {
+            entity = new ConnectionReleasingInputStream(httpResponse.getInputStream(), conn);
+         }
+         return responseBuilder.entity(entity).build();
       }
       catch (IOException e)
       {
@@ -407,6 +541,91 @@ public class ProxyService implements ResourceContainer
       return hds.toArray(new NVPair[hds.size()]);
    }
 
+   /**
+    * Gives back connection to pool when end of stream is reached or stream is
+    * closed. Connection is reused only if whole response was read. Stream is
+    * closed by container even if entity is not written, e.g. for HEAD
+    * request, so connection is always given back.
+    */
+   private class ConnectionReleasingInputStream extends FilterInputStream
+   {
+
+      private HTTPConnection connection;
+
+      private boolean eof;
+
+      ConnectionReleasingInputStream(InputStream in, HTTPConnection connection)
+      {
+         super(in);
+         this.connection = connection;
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         try
+         {
+            int b = super.read();
+            if (b == -1)
+            {
+               eof = true;
+               release();
+            }
+            return b;
+         }
+         catch (IOException e)
+         {
+            release();
+            throw e;
+         }
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException
+      {
+         try
+         {
+            int r = super.read(b, off, len);
+            if (r == -1)
+            {
+               eof = true;
+               release();
+            }
+            return r;
+         }
+         catch (IOException e)
+         {
+            release();
+            throw e;
+         }
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         if (connection == null)
+            return;
+         try
+         {
+            super.close();
+         }
+         finally
+         {
+            release();
+         }
+      }
+
+      private void release()
+      {
+         if (connection != null)
+         {
+            connectionPool.release(connection, eof);
+            connection = null;
+         }
+      }
+
+   }
+
    private class CaseInsensitiveStringWrapper
    {
 
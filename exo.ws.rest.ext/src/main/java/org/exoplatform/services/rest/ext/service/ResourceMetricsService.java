@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.ext.service;
+
+import org.exoplatform.management.annotations.Impact;
+import org.exoplatform.management.annotations.ImpactType;
+import org.exoplatform.management.annotations.Managed;
+import org.exoplatform.management.annotations.ManagedDescription;
+import org.exoplatform.management.jmx.annotations.NameTemplate;
+import org.exoplatform.management.jmx.annotations.Property;
+import org.exoplatform.management.rest.annotations.RESTEndpoint;
+import org.exoplatform.services.rest.impl.metrics.LatencyHistogram;
+import org.exoplatform.services.rest.impl.metrics.MethodMetrics;
+import org.exoplatform.services.rest.impl.metrics.Phase;
+import org.exoplatform.services.rest.impl.metrics.ResourceMetrics;
+import org.exoplatform.services.rest.resource.ResourceContainer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.security.RolesAllowed;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Latencies and number of requests of resource methods, see
+ * {@link ResourceMetrics}. Metrics are available as JSON at path
+ * 'rest-metrics' and through management layer: JMX and
+ * 'management/rest-metrics'. All latencies are in nanoseconds.
+ *
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+@Path("rest-metrics")
+@Managed
+@ManagedDescription("Latencies and number of requests of REST resource methods")
+@NameTemplate({@Property(key = "service", value = "rest"), @Property(key = "view", value = "metrics")})
+@RESTEndpoint(path = "rest-metrics")
+public class ResourceMetricsService implements ResourceContainer
+{
+
+   //
+   public static class Latency
+   {
+      private final long count;
+
+      private final long mean;
+
+      private final long p50;
+
+      private final long p90;
+
+      private final long p99;
+
+      private final long max;
+
+      public Latency(LatencyHistogram histogram)
+      {
+         this.count = histogram.getCount();
+         this.mean = histogram.getMean();
+         this.p50 = histogram.getValueAtPercentile(50D);
+         this.p90 = histogram.getValueAtPercentile(90D);
+         this.p99 = histogram.getValueAtPercentile(99D);
+         this.max = histogram.getMax();
+      }
+
+      public long getCount()
+      {
+         return count;
+      }
+
+      public long getMean()
+      {
+         return mean;
+      }
+
+      public long getP50()
+      {
+         return p50;
+      }
+
+      public long getP90()
+      {
+         return p90;
+      }
+
+      public long getP99()
+      {
+         return p99;
+      }
+
+      public long getMax()
+      {
+         return max;
+      }
+   }
+
+   //
+
+   public static class MethodStatistics
+   {
+      private final String name;
+
+      private final long count;
+
+      private final long errors;
+
+      private final long clientErrors;
+
+      private final Map<String, Latency> phases;
+
+      public MethodStatistics(MethodMetrics metrics)
+      {
+         this.name = metrics.getName();
+         this.count = metrics.getCount();
+         this.errors = metrics.getErrors();
+         this.clientErrors = metrics.getClientErrors();
+         this.phases = new LinkedHashMap<String, Latency>();
+         for (Phase phase : Phase.values())
+            phases.put(phase.name().toLowerCase(), new Latency(metrics.getLatency(phase)));
+      }
+
+      public String getName()
+      {
+         return name;
+      }
+
+      public long getCount()
+      {
+         return count;
+      }
+
+      public long getErrors()
+      {
+         return errors;
+      }
+
+      public long getClientErrors()
+      {
+         return clientErrors;
+      }
+
+      public Map<String, Latency> getPhases()
+      {
+         return phases;
+      }
+   }
+
+   //
+
+   public static class MethodsList
+   {
+      private final List<MethodStatistics> methods;
+
+      public MethodsList(List<MethodStatistics> methods)
+      {
+         this.methods = methods;
+      }
+
+      public List<MethodStatistics> getMethods()
+      {
+         return methods;
+      }
+   }
+
+   //
+
+   private final ResourceMetrics metrics = ResourceMetrics.getInstance();
+
+   @GET
+   @Produces(MediaType.APPLICATION_JSON)
+   @RolesAllowed("administrators")
+   public MethodsList list()
+   {
+      List<MethodStatistics> methods = new ArrayList<MethodStatistics>();
+      for (MethodMetrics m : metrics.getAll())
+         methods.add(new MethodStatistics(m));
+      return new MethodsList(methods);
+   }
+
+   @POST
+   @Path("reset")
+   @RolesAllowed("administrators")
+   public void resetMetrics()
+   {
+      reset();
+   }
+
+   @Managed
+   @ManagedDescription("Metrics of resource methods: number of requests and errors and total latency in nanoseconds")
+   public String[] getMethods()
+   {
+      List<MethodMetrics> all = metrics.getAll();
+      String[] methods = new String[all.size()];
+      for (int i = 0; i < methods.length; i++)
+      {
+         MethodMetrics m = all.get(i);
+         LatencyHistogram total = m.getLatency(Phase.TOTAL);
+         methods[i] =
+            m.getName() + ": count=" + m.getCount() + ", errors=" + m.getErrors() + ", clientErrors="
+               + m.getClientErrors() + ", mean=" + total.getMean() + ", p50=" + total.getValueAtPercentile(50D)
+               + ", p90=" + total.getValueAtPercentile(90D) + ", p99=" + total.getValueAtPercentile(99D) + ", max="
+               + total.getMax();
+      }
+      return methods;
+   }
+
+   @Managed
+   @ManagedDescription("Are metrics collected")
+   public boolean isEnabled()
+   {
+      return metrics.isEnabled();
+   }
+
+   @Managed
+   public void setEnabled(boolean enabled)
+   {
+      metrics.setEnabled(enabled);
+   }
+
+   @Managed
+   @ManagedDescription("Remove all collected metrics")
+   @Impact(ImpactType.WRITE)
+   public void reset()
+   {
+      metrics.reset();
+   }
+
+}
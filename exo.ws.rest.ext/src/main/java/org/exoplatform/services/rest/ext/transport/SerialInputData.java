@@ -18,6 +18,8 @@
  */
 package org.exoplatform.services.rest.ext.transport;
 
+import org.exoplatform.services.rest.util.BufferPool;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -93,17 +95,26 @@ public class SerialInputData implements Serializable
     */
    private void writeObject(ObjectOutputStream out) throws IOException
    {
-      byte[] buffer = new byte[8192];
-      int bytes = 0;
-      while ((bytes = stream.read(buffer)) >= 0)
+      // Size of chunks must not be changed, it is expected by readObject
+      // in previous versions.
+      byte[] buffer = BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE);
+      try
       {
-         if (bytes > 0)
+         int bytes = 0;
+         while ((bytes = stream.read(buffer, 0, BufferPool.SMALL_BUFFER_SIZE)) >= 0)
          {
-            out.writeInt(bytes);
-            out.write(buffer, 0, bytes);
+            if (bytes > 0)
+            {
+               out.writeInt(bytes);
+               out.write(buffer, 0, bytes);
+            }
          }
+         out.writeInt(0);
+      }
+      finally
+      {
+         BufferPool.release(buffer);
       }
-      out.writeInt(0);
       stream.close();
    }
 
@@ -117,43 +128,51 @@ public class SerialInputData implements Serializable
    {
 
       boolean overflow = false;
-      byte[] buffer = new byte[8192];
+      byte[] buffer = BufferPool.getBytes(BufferPool.SMALL_BUFFER_SIZE);
+      final File file;
+      try
+      {
+         // Do not allocate max size at once, most of data is much smaller.
+         ByteArrayOutputStream bout = new ByteArrayOutputStream(BufferPool.SMALL_BUFFER_SIZE);
 
-      ByteArrayOutputStream bout = new ByteArrayOutputStream(MAX_BUFFER_SIZE);
+         for (int bytes = in.readInt(); bytes > 0; bytes = in.readInt())
+         {
+            buffer = readChunk(in, buffer, bytes);
+            bout.write(buffer, 0, bytes);
+            if (bout.size() > MAX_BUFFER_SIZE)
+            {
+               overflow = true;
+               break;
+            }
+         }
 
-      for (int bytes = in.readInt(); bytes > 0; bytes = in.readInt())
-      {
-         in.readFully(buffer, 0, bytes);
-         bout.write(buffer, 0, bytes);
-         if (bout.size() > MAX_BUFFER_SIZE)
+         if (!overflow)
          {
-            overflow = true;
-            break;
+            // small data , use bytes
+            stream = new ByteArrayInputStream(bout.toByteArray());
+            return;
          }
-      }
 
-      if (!overflow)
-      {
-         // small data , use bytes
-         stream = new ByteArrayInputStream(bout.toByteArray());
-         return;
-      }
+         // large data, use file
+         file = File.createTempFile("restejb-", null);
+         OutputStream out = new FileOutputStream(file);
 
-      // large data, use file
-      final File file = File.createTempFile("restejb-", null);
-      OutputStream out = new FileOutputStream(file);
+         // copy data from byte array in file
+         bout.writeTo(out);
 
-      // copy data from byte array in file
-      bout.writeTo(out);
+         for (int bytes = in.readInt(); bytes > 0; bytes = in.readInt())
+         {
+            buffer = readChunk(in, buffer, bytes);
+            out.write(buffer, 0, bytes);
+         }
 
-      for (int bytes = in.readInt(); bytes > 0; bytes = in.readInt())
+         out.close();
+      }
+      finally
       {
-         in.readFully(buffer, 0, bytes);
-         out.write(buffer, 0, bytes);
+         BufferPool.release(buffer);
       }
 
-      out.close();
-
       stream = new FileInputStream(file)
       {
 
@@ -197,4 +216,26 @@ public class SerialInputData implements Serializable
       };
    }
 
+   /**
+    * Read chunk of data in buffer. New buffer is created if chunk is bigger
+    * then supplied buffer.
+    *
+    * @param in See {@link ObjectInputStream}
+    * @param buffer buffer
+    * @param bytes size of chunk
+    * @return buffer which contains chunk
+    * @throws IOException if any i/o errors occurs
+    */
+   private static byte[] readChunk(ObjectInputStream in, byte[] buffer, int bytes) throws IOException
+   {
+      if (bytes > buffer.length)
+      {
+         // Give pooled buffer back, it is replaced by bigger one.
+         BufferPool.release(buffer);
+         buffer = new byte[bytes];
+      }
+      in.readFully(buffer, 0, bytes);
+      return buffer;
+   }
+
 }
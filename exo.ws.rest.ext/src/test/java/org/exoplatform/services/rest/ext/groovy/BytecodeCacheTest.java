@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.ext.groovy;
+
+import groovy.lang.GroovyObject;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.exoplatform.services.rest.ext.BaseTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.OutputStream;
+import java.net.URL;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+@SuppressWarnings("rawtypes")
+public class BytecodeCacheTest extends BaseTest
+{
+   private File dir;
+
+   private File dependency;
+
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      dir = new File(System.getProperty("java.io.tmpdir"), "ws_jaxrs_bytecode_" + System.nanoTime());
+      dependency = new File(dir, "dependencies/Dep1.groovy");
+      dependency.getParentFile().mkdirs();
+      writeDependency("class Dep1 { String name = 'v1' }");
+   }
+
+   public void tearDown() throws Exception
+   {
+      new BytecodeCache(dir).clear();
+      dependency.delete();
+      dependency.getParentFile().delete();
+      dir.delete();
+      super.tearDown();
+   }
+
+   public void testCachedClasses() throws Exception
+   {
+      GroovyObject compiled = parse();
+      assertEquals("v1", compiled.invokeMethod("m0", new Object[0]));
+      assertFalse(isCached(compiled));
+      File[] files = dir.listFiles(new FilenameFilter()
+      {
+         public boolean accept(File d, String name)
+         {
+            return name.endsWith(".gbc");
+         }
+      });
+      assertEquals(1, files.length);
+      assertTrue(files[0].setLastModified(1000L));
+      // Loaded from cache by other class loader.
+      GroovyObject cached = parse();
+      assertEquals("v1", cached.invokeMethod("m0", new Object[0]));
+      assertTrue(isCached(cached));
+      assertNotSame(compiled.getClass(), cached.getClass());
+      // Cache entry is not written again.
+      assertEquals(1000L, files[0].lastModified());
+   }
+
+   private boolean isCached(GroovyObject object)
+   {
+      return object.getClass().getClassLoader().getClass().getName().endsWith("$CachedClassesLoader");
+   }
+
+   public void testDependencyChanged() throws Exception
+   {
+      assertEquals("v1", parse().invokeMethod("m0", new Object[0]));
+      writeDependency("class Dep1 { String name = 'v2' }");
+      assertEquals("v2", parse().invokeMethod("m0", new Object[0]));
+   }
+
+   public void testKeyOfChangedClassPath() throws Exception
+   {
+      byte[] source = "class GMain2 {}".getBytes("UTF-8");
+      BytecodeCache cache = new BytecodeCache(dir);
+      URL[] classPath = new URL[]{dependency.getParentFile().toURI().toURL()};
+      String key = cache.createKey("GMain2", source, null, BytecodeCache.stamp(classPath, true), null);
+      assertEquals(key, cache.createKey("GMain2", source, null, BytecodeCache.stamp(classPath, true), null));
+      String urlOnly = BytecodeCache.stamp(classPath, false);
+      // Name of class path entry is not changed but content of it is.
+      writeDependency("class Dep1 { String name = 'changed' }");
+      assertFalse(key.equals(cache.createKey("GMain2", source, null, BytecodeCache.stamp(classPath, true), null)));
+      // Content of directory is not checked.
+      assertEquals(urlOnly, BytecodeCache.stamp(classPath, false));
+   }
+
+   public void testKeyOfChangedConfiguration() throws Exception
+   {
+      byte[] source = "class GMain2 {}".getBytes("UTF-8");
+      BytecodeCache cache = new BytecodeCache(dir);
+      String classPath = BytecodeCache.stamp(new URL[0], true);
+      CompilerConfiguration config = new CompilerConfiguration();
+      String key = cache.createKey("GMain2", source, null, classPath, config);
+      config.setTargetBytecode(CompilerConfiguration.PRE_JDK5);
+      assertFalse(key.equals(cache.createKey("GMain2", source, null, classPath, config)));
+   }
+
+   public void testClassPathStampOfChangedClassLoader() throws Exception
+   {
+      ExtendedGroovyClassLoader loader =
+         new ExtendedGroovyClassLoader(new GroovyClassLoaderProvider().getGroovyClassLoader());
+      String stamp = loader.getClassPathStamp();
+      assertEquals(stamp, loader.getClassPathStamp());
+      loader.addURL(dependency.getParentFile().toURI().toURL());
+      assertFalse(stamp.equals(loader.getClassPathStamp()));
+   }
+
+   public void testSharedClassesFromCache() throws Exception
+   {
+      // Classes are compiled and saved in cache first time, then loaded from cache by other class loader.
+      for (int i = 0; i < 2; i++)
+      {
+         ExtendedGroovyClassLoader loader =
+            new GroovyClassLoaderProvider().getGroovyClassLoader(new SourceFolder[]{new SourceFolder(dependency
+               .getParentFile().toURI().toURL())});
+         loader.setBytecodeCache(new BytecodeCache(dir));
+         assertSame(parseShared(loader, "GShared1"), parseShared(loader, "GShared2"));
+      }
+   }
+
+   private Object parseShared(ExtendedGroovyClassLoader loader, String name) throws Exception
+   {
+      String source = "class " + name + " { def m0() { return Dep1.class } }";
+      Class clazz = loader.parseClass(new ByteArrayInputStream(source.getBytes("UTF-8")), name, null);
+      return ((GroovyObject)clazz.newInstance()).invokeMethod("m0", new Object[0]);
+   }
+
+   private GroovyObject parse() throws Exception
+   {
+      ExtendedGroovyClassLoader loader = new GroovyClassLoaderProvider().getGroovyClassLoader();
+      loader.setBytecodeCache(new BytecodeCache(dir));
+      String source = "class GMain2 { def m0() { return new Dep1().getName() } }";
+      Class clazz =
+         loader.parseClass(new ByteArrayInputStream(source.getBytes("UTF-8")), "GMain2",
+            new SourceFile[]{new SourceFile(dependency.toURI().toURL())});
+      return (GroovyObject)clazz.newInstance();
+   }
+
+   private void writeDependency(String source) throws Exception
+   {
+      OutputStream out = new FileOutputStream(dependency);
+      try
+      {
+         out.write(source.getBytes("UTF-8"));
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+}
@@ -22,8 +22,10 @@ import groovy.lang.GroovyObject;
 
 import org.exoplatform.services.rest.ext.BaseTest;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * @author <a href="andrew00x@gmail.com">Andrey Parfonov</a>
@@ -75,4 +77,48 @@ public class ExtendedClassLoaderTest extends BaseTest
       assertEquals("GMain1", clazz.getName());
       assertEquals("dependencies.Dep1", ((GroovyObject)clazz.newInstance()).invokeMethod("m0", new Object[0]));
    }
+
+   public void testParseClassesConcurrentlyWithSharedDependency() throws Exception
+   {
+      final ExtendedGroovyClassLoader loader =
+         new GroovyClassLoaderProvider().getGroovyClassLoader(new SourceFolder[]{new SourceFolder(Thread
+            .currentThread().getContextClassLoader().getResource("repo"))});
+      final CountDownLatch start = new CountDownLatch(1);
+      final Class[] dependencies = new Class[4];
+      final Throwable[] errors = new Throwable[dependencies.length];
+      Thread[] threads = new Thread[dependencies.length];
+      for (int i = 0; i < threads.length; i++)
+      {
+         final int n = i;
+         threads[i] = new Thread()
+         {
+            public void run()
+            {
+               try
+               {
+                  start.await();
+                  String source = "class GShared" + n + " { def m0() { return dependencies.Dep1.class } }";
+                  Class clazz =
+                     loader.parseClass(new ByteArrayInputStream(source.getBytes("UTF-8")), "GShared" + n, null);
+                  dependencies[n] = (Class)((GroovyObject)clazz.newInstance()).invokeMethod("m0", new Object[0]);
+               }
+               catch (Throwable e)
+               {
+                  errors[n] = e;
+               }
+            }
+         };
+         threads[i].start();
+      }
+      start.countDown();
+      for (int i = 0; i < threads.length; i++)
+      {
+         threads[i].join();
+         if (errors[i] != null)
+            throw new Exception(errors[i]);
+      }
+      // All scripts use the same class compiled from source folder.
+      for (int i = 1; i < dependencies.length; i++)
+         assertSame(dependencies[0], dependencies[i]);
+   }
 }
@@ -21,8 +21,12 @@ package org.exoplatform.services.rest.ext.groovy;
 
 import org.exoplatform.services.rest.ext.BaseTest;
 import org.exoplatform.services.rest.impl.ContainerResponse;
+import org.exoplatform.services.rest.impl.ResourcePublicationException;
 import org.exoplatform.services.rest.tools.ByteArrayContainerResponseWriter;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
  * @version $Id$
@@ -47,6 +51,49 @@ public class GroovySimpleTest extends BaseTest
       publicationTest(true, new BaseResourceId("g2"));
    }
 
+   public void testPublishBatch() throws Exception
+   {
+      Map<ResourceId, String> sources = new LinkedHashMap<ResourceId, String>();
+      for (int i = 0; i < 8; i++)
+      {
+         sources.put(new BaseResourceId("batch" + i), //
+            "@javax.ws.rs.Path(\"b" + i + "\")" //
+               + "class GroovyResource" + i + " {" //
+               + "@javax.ws.rs.GET def m0() { return \"batch " + i + "\" }" //
+               + "}");
+      }
+
+      groovyPublisher.publishPerRequest(sources, null, null, null);
+
+      assertEquals(8, binder.getSize());
+      assertEquals(8, groovyPublisher.resources.size());
+      ByteArrayContainerResponseWriter writer = new ByteArrayContainerResponseWriter();
+      ContainerResponse resp = launcher.service("GET", "/b5", "", null, null, writer, null);
+      assertEquals(200, resp.getStatus());
+      assertEquals("batch 5", new String(writer.getBody()));
+
+      // Conflict with already published resource, nothing must be published.
+      Map<ResourceId, String> conflict = new LinkedHashMap<ResourceId, String>();
+      conflict.put(new BaseResourceId("batch8"), "@javax.ws.rs.Path(\"b8\") class GroovyResource8 {" //
+         + "@javax.ws.rs.GET def m0() { return \"batch 8\" }}");
+      conflict.put(new BaseResourceId("batch9"), "@javax.ws.rs.Path(\"b0\") class GroovyResource9 {" //
+         + "@javax.ws.rs.GET def m0() { return \"batch 9\" }}");
+      try
+      {
+         groovyPublisher.publishSingleton(conflict, null, null, null);
+         fail("ResourcePublicationException expected");
+      }
+      catch (ResourcePublicationException e)
+      {
+      }
+      assertEquals(8, binder.getSize());
+      assertFalse(groovyPublisher.isPublished(new BaseResourceId("batch8")));
+
+      for (ResourceId id : sources.keySet())
+         groovyPublisher.unpublishResource(id);
+      assertEquals(0, binder.getSize());
+   }
+
    private void publicationTest(boolean singleton, ResourceId resourceId) throws Exception
    {
       String script = //
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.services.rest.ext.proxy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+import org.exoplatform.common.http.client.HTTPConnection;
+import org.exoplatform.common.http.client.HTTPResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+/**
+ * @author <a href="mailto:andrew00x@gmail.com">Andrey Parfonov</a>
+ * @version $Id: $
+ */
+public class HTTPConnectionPoolTest extends TestCase
+{
+
+   private HttpServer server;
+
+   private URL url;
+
+   @Override
+   public void setUp() throws Exception
+   {
+      super.setUp();
+      server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      server.createContext("/", new HttpHandler()
+      {
+         public void handle(HttpExchange exchange) throws IOException
+         {
+            byte[] body = "hello".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+         }
+      });
+      server.start();
+      url = new URL("http://localhost:" + server.getAddress().getPort() + "/test");
+   }
+
+   @Override
+   public void tearDown() throws Exception
+   {
+      server.stop(0);
+      super.tearDown();
+   }
+
+   public void testReuseConnection() throws Exception
+   {
+      HTTPConnectionPool pool = new HTTPConnectionPool(2, 60000, 1000);
+      HTTPConnection conn = pool.borrow(url);
+      assertEquals("hello", get(conn));
+      pool.release(conn, true);
+      assertEquals(1, pool.getIdleCount());
+
+      HTTPConnection conn2 = pool.borrow(url);
+      assertSame(conn, conn2);
+      assertEquals("hello", get(conn2));
+      pool.release(conn2, true);
+      assertEquals(1, pool.getCreatedCount());
+      assertEquals(1, pool.getReusedCount());
+      assertEquals(0, pool.getLeasedCount());
+      pool.close();
+   }
+
+   public void testMaxPerRoute() throws Exception
+   {
+      HTTPConnectionPool pool = new HTTPConnectionPool(1, 60000, 100);
+      HTTPConnection conn = pool.borrow(url);
+      try
+      {
+         pool.borrow(url);
+         fail("IOException expected, limit of connections is reached.");
+      }
+      catch (IOException e)
+      {
+      }
+      assertEquals(1, pool.getTimeoutCount());
+      // Other route is not affected.
+      HTTPConnection other = pool.borrow(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/test"));
+      assertNotSame(conn, other);
+      pool.release(other, true);
+      pool.release(conn, false);
+      assertEquals(1, pool.getIdleCount());
+      assertNotNull(pool.borrow(url));
+      pool.close();
+   }
+
+   public void testEvictIdle() throws Exception
+   {
+      HTTPConnectionPool pool = new HTTPConnectionPool(2, 50, 1000);
+      HTTPConnection conn = pool.borrow(url);
+      assertEquals("hello", get(conn));
+      pool.release(conn, true);
+      Thread.sleep(100);
+      pool.evictExpired();
+      assertEquals(0, pool.getIdleCount());
+      assertEquals(1, pool.getEvictedCount());
+      assertNotSame(conn, pool.borrow(url));
+      pool.close();
+   }
+
+   private String get(HTTPConnection conn) throws Exception
+   {
+      HTTPResponse resp = conn.Get(url.getFile());
+      assertEquals(200, resp.getStatusCode());
+      InputStream in = resp.getInputStream();
+      StringBuilder sb = new StringBuilder();
+      int b;
+      while ((b = in.read()) != -1)
+         sb.append((char)b);
+      in.close();
+      return sb.toString();
+   }
+
+}
@@ -233,7 +233,7 @@ public class MockHttpServletRequest implements HttpServletRequest
    public Enumeration getHeaders(String name)
    {
       ArrayList values = (ArrayList)headers.get(name);
-      if (values.size() > 0)
+      if (values != null && values.size() > 0)
          return new EnumerationImpl(values.iterator());
 
       return new EnumerationImpl(Collections.EMPTY_LIST.iterator());